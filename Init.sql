@@ -127,6 +127,8 @@ CREATE TABLE IF NOT EXISTS `Challenge` (
                                            `Hint` VARCHAR(500) DEFAULT NULL COMMENT '题目简易提示',
                                            `SolveCount` INT DEFAULT 0 COMMENT '解题人数，默认0',
                                            `CreatorID` INT DEFAULT NULL COMMENT '创建者ID，关联User表',
+                                           `FirstBloodUserID` INT DEFAULT NULL COMMENT '一血用户ID，仅在为空时以条件更新写入',
+                                           `FirstBloodTime` DATETIME DEFAULT NULL COMMENT '一血时间',
                                            PRIMARY KEY (`ChallengeID`),
                                            CONSTRAINT `fk_challenge_competition` FOREIGN KEY (`CompetitionID`) REFERENCES `Competition` (`CompetitionID`) ON DELETE CASCADE,
                                            CONSTRAINT `fk_challenge_creator` FOREIGN KEY (`CreatorID`) REFERENCES `User` (`userID`) ON DELETE SET NULL,
@@ -258,79 +260,68 @@ CREATE TABLE IF NOT EXISTS `WriteUp` (
                                          INDEX `idx_writeup_challenge` (`ChallengeID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='CTF竞赛解题报告表';
 
--- 13. 分数汇总视图（ScoreSummary）：简化名称查询（直接取统一的UserName）
+-- 13. 分数汇总表（ScoreSummary）：由应用在每次分数写入/作废/恢复时增量维护，并定期与 Score 表对账
+-- 原视图每次查询都要 LEFT JOIN Score 与 FlagSubmission 后整体排序，已改为实体表；旧库先删除视图，启动后由对账任务回填
 -- 注意：MySQL视图名称不区分大小写，但为了与实体类保持一致，使用ScoreSummary
-CREATE OR REPLACE VIEW `Scoresummary` AS
-WITH UserScoreStats AS (
-    -- 统计用户个人分数和解题数据（直接取统一的UserName）
-    SELECT
-        u.userID AS entityID,
-        'USER' AS entityType,
-        u.UserName AS entityName,
-        s.CompetitionID,
-        COALESCE(SUM(CASE WHEN s.IsValid = 1 THEN s.Score ELSE 0 END), 0) AS totalScore,
-        COALESCE(COUNT(DISTINCT fs.ChallengeID), 0) AS solveCount,
-        MAX(CASE WHEN fs.IsCorrect = 1 THEN fs.SubmitTime ELSE NULL END) AS lastSubmitTime
-    FROM `User` u
-             LEFT JOIN `Score` s ON u.userID = s.userID
-             LEFT JOIN `FlagSubmission` fs ON u.userID = fs.userID AND s.CompetitionID = fs.CompetitionID
-    GROUP BY u.userID, u.UserName, s.CompetitionID
-),
-     TeamScoreStats AS (
-         -- 统计战队分数和解题数据（无修改）
-         SELECT
-             t.TeamID AS entityID,
-             'TEAM' AS entityType,
-             t.TeamName AS entityName,
-             s.CompetitionID,
-             COALESCE(SUM(CASE WHEN s.IsValid = 1 THEN s.Score ELSE 0 END), 0) AS totalScore,
-             COALESCE(COUNT(DISTINCT fs.ChallengeID), 0) AS solveCount,
-             MAX(CASE WHEN fs.IsCorrect = 1 THEN fs.SubmitTime ELSE NULL END) AS lastSubmitTime
-         FROM `Team` t
-                  LEFT JOIN `Score` s ON t.TeamID = s.TeamID
-                  LEFT JOIN `FlagSubmission` fs ON t.TeamID = fs.TeamID AND s.CompetitionID = fs.CompetitionID
-         GROUP BY t.TeamID, t.TeamName, s.CompetitionID
-     ),
-     CombinedStats AS (
-         -- 合并用户和战队数据，生成唯一ID（无修改）
-         SELECT
-             CONCAT(entityType, '_', entityID) AS id,
-             entityID,
-             entityType,
-             entityName,
-             CompetitionID,
-             totalScore,
-             solveCount,
-             lastSubmitTime
-         FROM UserScoreStats
-         UNION ALL
-         SELECT
-             CONCAT(entityType, '_', entityID) AS id,
-             entityID,
-             entityType,
-             entityName,
-             CompetitionID,
-             totalScore,
-             solveCount,
-             lastSubmitTime
-         FROM TeamScoreStats
-     )
--- 计算排名（无修改）
-SELECT
-    cs.id,
-    cs.entityID,
-    cs.entityType,
-    cs.entityName,
-    cs.CompetitionID,
-    cs.totalScore,
-    cs.solveCount,
-    cs.lastSubmitTime,
-    ROW_NUMBER() OVER (
-        PARTITION BY cs.CompetitionID
-        ORDER BY cs.totalScore DESC, cs.lastSubmitTime ASC
-        ) AS `Rank`
-FROM CombinedStats cs
-WHERE cs.CompetitionID IS NOT NULL;
+DROP VIEW IF EXISTS `Scoresummary`;
+CREATE TABLE IF NOT EXISTS `Scoresummary` (
+                                              `ID` VARCHAR(64) NOT NULL COMMENT '组合ID：{EntityType}_{EntityID}_{CompetitionID}',
+                                              `EntityID` INT NOT NULL COMMENT '用户ID或战队ID',
+                                              `EntityType` VARCHAR(10) NOT NULL COMMENT 'USER 或 TEAM',
+                                              `EntityName` VARCHAR(100) DEFAULT NULL COMMENT '用户名或战队名',
+                                              `CompetitionID` INT NOT NULL COMMENT '竞赛ID',
+                                              `TotalScore` INT NOT NULL DEFAULT 0 COMMENT '有效分数合计',
+                                              `SolveCount` INT NOT NULL DEFAULT 0 COMMENT '有效得分涉及的题目数（去重）',
+                                              `LastSubmitTime` DATETIME DEFAULT NULL COMMENT '最后一次有效得分时间',
+                                              PRIMARY KEY (`ID`),
+                                              UNIQUE KEY `uk_summary_entity` (`CompetitionID`, `EntityType`, `EntityID`),
+    -- 排行榜分页和名次计数走该索引
+                                              INDEX `idx_summary_ranking` (`CompetitionID`, `EntityType`, `TotalScore`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='CTF竞赛分数汇总表';
+
+-- 14. 解题登记表（ChallengeSolve）：每个用户每道题一行，主键保证并发的重复正确提交只有一个能登记并发分
+CREATE TABLE IF NOT EXISTS `ChallengeSolve` (
+                                                `ChallengeID` INT NOT NULL COMMENT '题目ID',
+                                                `userID` INT NOT NULL COMMENT '解题用户ID',
+                                                `CompetitionID` INT NOT NULL COMMENT '竞赛ID',
+                                                `SolveTime` DATETIME NOT NULL COMMENT '登记时间',
+                                                PRIMARY KEY (`ChallengeID`, `userID`),
+                                                CONSTRAINT `fk_solve_challenge` FOREIGN KEY (`ChallengeID`) REFERENCES `Challenge` (`ChallengeID`) ON DELETE CASCADE,
+                                                CONSTRAINT `fk_solve_user` FOREIGN KEY (`userID`) REFERENCES `User` (`userID`) ON DELETE CASCADE,
+                                                INDEX `idx_solve_user` (`userID`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='CTF竞赛解题登记表';
+
+-- 旧库补列：Challenge 表在加入一血字段之前已存在时，上面的 CREATE TABLE IF NOT EXISTS 不会补列，按列是否存在决定是否执行 ALTER
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Challenge' AND COLUMN_NAME = 'FirstBloodUserID') = 0,
+              'ALTER TABLE `Challenge` ADD COLUMN `FirstBloodUserID` INT DEFAULT NULL COMMENT ''一血用户ID，仅在为空时以条件更新写入'' AFTER `CreatorID`',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Challenge' AND COLUMN_NAME = 'FirstBloodTime') = 0,
+              'ALTER TABLE `Challenge` ADD COLUMN `FirstBloodTime` DATETIME DEFAULT NULL COMMENT ''一血时间'' AFTER `FirstBloodUserID`',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 旧库回填：已有的正确提交登记为解题，最早的正确提交记为一血
+INSERT IGNORE INTO `ChallengeSolve` (`ChallengeID`, `userID`, `CompetitionID`, `SolveTime`)
+SELECT fs.`ChallengeID`, fs.`userID`, MIN(fs.`CompetitionID`), MIN(fs.`SubmitTime`)
+FROM `FlagSubmission` fs
+WHERE fs.`IsCorrect` = 1 AND fs.`ChallengeID` IS NOT NULL
+GROUP BY fs.`ChallengeID`, fs.`userID`;
+
+UPDATE `Challenge` c
+    JOIN (SELECT s.`ChallengeID`, s.`userID`, s.`SolveTime`
+          FROM `ChallengeSolve` s
+          WHERE s.`SolveTime` = (SELECT MIN(s2.`SolveTime`) FROM `ChallengeSolve` s2 WHERE s2.`ChallengeID` = s.`ChallengeID`)) fb
+    ON fb.`ChallengeID` = c.`ChallengeID`
+SET c.`FirstBloodUserID` = fb.`userID`, c.`FirstBloodTime` = fb.`SolveTime`
+WHERE c.`FirstBloodUserID` IS NULL;
 
 -- 脚本执行完成提示
 SELECT 'CTF竞赛系统数据库初始化完成（合并用户表+统一名称字段版）！' AS `Result`;
\ No newline at end of file
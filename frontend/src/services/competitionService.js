@@ -166,6 +166,34 @@ export const competitionService = {
         }
     },
 
+    /**
+     * 订阅排行榜实时推送（SSE），返回 EventSource，调用方负责 close()
+     * handlers: { onLeaderboard(changes), onSolve(solve), onSubmission(result) }
+     */
+    subscribeLeaderboard(competitionId, handlers = {}) {
+        const numId = parseInt(competitionId, 10)
+        if (isNaN(numId) || typeof EventSource === 'undefined') {
+            return null
+        }
+        const source = new EventSource(`/api/flags/competitions/${numId}/leaderboard/stream`, { withCredentials: true })
+        const listen = (name, handler, pick = data => data) => {
+            if (!handler) {
+                return
+            }
+            source.addEventListener(name, (event) => {
+                try {
+                    handler(pick(JSON.parse(event.data)))
+                } catch (error) {
+                    console.error('解析排行榜推送失败:', error)
+                }
+            })
+        }
+        listen('leaderboard', handlers.onLeaderboard, data => data.changes || [])
+        listen('solve', handlers.onSolve)
+        listen('submission', handlers.onSubmission)
+        return source
+    },
+
     async getCompetitionStatistics(competitionId) {
         try {
             if (!competitionId || competitionId === 'undefined' || competitionId === 'null') {
@@ -0,0 +1,133 @@
+package com.CTF.j_ctf.benchmark;
+
+import com.CTF.j_ctf.JCtfApplication;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.service.AuthService;
+import com.CTF.j_ctf.service.FlagService;
+import com.CTF.j_ctf.service.ScoreService;
+import com.CTF.j_ctf.support.FlagVerifier;
+import com.CTF.j_ctf.support.ParticipationIndex;
+import com.CTF.j_ctf.support.SolvedChallengeCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基准测试共享状态
+ * 每个 fork 启动一次完整的 Spring 上下文（内存 H2，MySQL 兼容模式），按 @Param 的规模写入测试数据。
+ * 数据规模可通过 ./gradlew jmh -Pjmh.users=... 或 JMH 的 -p 参数调整。
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param("2000")
+    public int users;
+
+    @Param("200")
+    public int teams;
+
+    @Param("50")
+    public int challenges;
+
+    @Param("50000")
+    public int submissions;
+
+    @Param("20000")
+    public int flagPool;
+
+    FlagService flagService;
+    ScoreService scoreService;
+    AuthService authService;
+    ObjectMapper objectMapper;
+    BenchmarkDataSeeder.Dataset dataset;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkDataSeeder seeder;
+    private final AtomicInteger nextPoolFlag = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void start() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:jctf_bench;MODE=MySQL;DB_CLOSE_DELAY=-1;"
+                + "NON_KEYWORDS=USER,VALUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("ctf.rate-limit.enabled", "false");
+        properties.put("ctf.submission-audit.spill-file", "build/jmh/submission-spill.ndjson");
+        properties.put("ctf.search.enabled", "false");
+
+        context = new SpringApplicationBuilder(JCtfApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+
+        flagService = context.getBean(FlagService.class);
+        scoreService = context.getBean(ScoreService.class);
+        authService = context.getBean(AuthService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        String passwordHash = context.getBean(BCryptPasswordEncoder.class).encode(BenchmarkDataSeeder.USER_PASSWORD);
+        seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class));
+        dataset = seeder.seed(users, teams, challenges, submissions, flagPool, passwordHash);
+
+        // 数据是绕过 Service 直接写入的，清空启动时构建的内存索引
+        context.publishEvent(new LeaderboardInvalidatedEvent(null));
+        context.getBean(FlagVerifier.class).invalidateAllFlags();
+        context.getBean(SolvedChallengeCache.class).evictAll();
+        context.getBean(ParticipationIndex.class).evictAll();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetFlagPool() {
+        seeder.resetFlagPool(dataset);
+        context.getBean(FlagVerifier.class).invalidateAllFlags();
+        nextPoolFlag.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /**
+     * 取下一个未使用的池 Flag 下标，池用尽时报错（增大 flagPool 或缩短单轮时间）
+     */
+    int nextUnusedPoolFlag() {
+        int index = nextPoolFlag.getAndIncrement();
+        if (index >= dataset.poolFlagIds().length) {
+            throw new IllegalStateException("Flag 池已用尽，请增大 flagPool 参数");
+        }
+        return index;
+    }
+
+    int randomPoolFlag() {
+        return ThreadLocalRandom.current().nextInt(dataset.poolFlagIds().length);
+    }
+
+    int randomUserIndex() {
+        return ThreadLocalRandom.current().nextInt(dataset.userIds().length);
+    }
+
+    int randomTeamId() {
+        int[] teamIds = dataset.teamIds();
+        return teamIds[ThreadLocalRandom.current().nextInt(teamIds.length)];
+    }
+}
@@ -0,0 +1,169 @@
+package com.CTF.j_ctf.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成
+ * 按 test-data.sql 的数据形态（管理员 + 普通用户、已审核战队、竞赛题目、Flag、提交记录和对应得分）按规模批量写入，
+ * 使用固定随机种子，保证不同提交之间的测试数据一致。
+ * test-data.sql 本身是 MySQL 方言且写死了主键（USE、ON DUPLICATE KEY、DATE_ADD），不能直接在 H2 上重复执行，
+ * 因此这里只沿用它的表结构和取值方式，按规模参数生成数据，而不是复制那个脚本。
+ */
+final class BenchmarkDataSeeder {
+
+    static final String USER_PASSWORD = "123456";
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 生成结果：各表写入的主键，供基准测试随机选取
+     */
+    record Dataset(int competitionId,
+                   int[] userIds,
+                   String[] userNames,
+                   int[] teamIds,
+                   int[] poolFlagIds,
+                   String[] poolFlagValues) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final Random random = new Random(42);
+
+    BenchmarkDataSeeder(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    Dataset seed(int users, int teams, int challenges, int submissions, int flagPool, String passwordHash) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. 管理员和普通用户
+        jdbc.update("INSERT INTO User (userPassword, CreateTime, UserType, UserName, AdminRole, UserStatus, RegisterTime) " +
+                "VALUES (?, ?, 'ADMIN', 'admin', 'SYSTEM', 1, ?)", passwordHash, Timestamp.valueOf(now), Timestamp.valueOf(now));
+        int adminId = jdbc.queryForObject("SELECT userID FROM User WHERE UserName = 'admin'", Integer.class);
+
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            userRows.add(new Object[]{passwordHash, Timestamp.valueOf(now), "benchuser" + i,
+                    String.format("139%08d", i), "benchuser" + i + "@example.com",
+                    i % 2 == 0 ? "F" : "M", "测试大学", Timestamp.valueOf(now)});
+        }
+        batch("INSERT INTO User (userPassword, CreateTime, UserType, UserName, PhoneNumber, userEmail, Gender, " +
+                "School_Workunit, RegisterTime, UserStatus) VALUES (?, ?, 'ORDINARY', ?, ?, ?, ?, ?, ?, 1)", userRows);
+        int[] userIds = ids("SELECT userID FROM User WHERE UserType = 'ORDINARY' ORDER BY userID");
+        String[] userNames = jdbc.queryForList("SELECT UserName FROM User WHERE UserType = 'ORDINARY' ORDER BY userID",
+                String.class).toArray(new String[0]);
+
+        // 2. 进行中的竞赛（开始于一天前，三天后结束）
+        int teamSize = Math.max(1, (users + teams - 1) / teams);
+        jdbc.update("INSERT INTO Competition (userID, Title, Introduction, TeamSizeLimit, StartTime, EndTime, PublishTime, " +
+                        "Status, AuditStatus, IsPublic) VALUES (?, '基准测试竞赛', '基准测试数据', ?, ?, ?, ?, 'PUBLISHED', 'APPROVED', 1)",
+                adminId, teamSize, Timestamp.valueOf(now.minusDays(1)), Timestamp.valueOf(now.plusDays(3)),
+                Timestamp.valueOf(now.minusDays(2)));
+        int competitionId = jdbc.queryForObject("SELECT MAX(CompetitionID) FROM Competition", Integer.class);
+
+        // 3. 已审核通过的战队，用户按顺序分配，每队第一名成员为队长
+        List<Object[]> teamRows = new ArrayList<>(teams);
+        for (int t = 0; t < teams; t++) {
+            teamRows.add(new Object[]{competitionId, "benchteam" + (t + 1), Timestamp.valueOf(now),
+                    userIds[Math.min(t * teamSize, userIds.length - 1)]});
+        }
+        batch("INSERT INTO Team (CompetitionID, TeamName, CreationTime, AuditState, CaptainID) VALUES (?, ?, ?, '1', ?)", teamRows);
+        int[] teamIds = ids("SELECT TeamID FROM Team WHERE CompetitionID = " + competitionId + " ORDER BY TeamID");
+
+        int[] teamOfUser = new int[userIds.length];
+        List<Object[]> memberRows = new ArrayList<>(users);
+        for (int i = 0; i < userIds.length; i++) {
+            int teamId = teamIds[Math.min(i / teamSize, teamIds.length - 1)];
+            teamOfUser[i] = teamId;
+            memberRows.add(new Object[]{teamId, userIds[i], Timestamp.valueOf(now)});
+        }
+        batch("INSERT INTO Teammember (TeamID, userID, JoinTime) VALUES (?, ?, ?)", memberRows);
+
+        // 4. 题目
+        String[] categories = {"Web", "Pwn", "Crypto", "Reverse", "Misc"};
+        String[] difficulties = {"Easy", "Medium", "Hard"};
+        List<Object[]> challengeRows = new ArrayList<>(challenges);
+        for (int c = 1; c <= challenges; c++) {
+            challengeRows.add(new Object[]{competitionId, "benchchallenge" + c, "基准测试题目",
+                    categories[c % categories.length], difficulties[c % difficulties.length], 100 + (c % 5) * 50,
+                    "CTF{bench_challenge_" + c + "}", Timestamp.valueOf(now), Timestamp.valueOf(now), adminId});
+        }
+        batch("INSERT INTO Challenge (CompetitionID, Title, Description, Category, Difficulty, Points, Flag, IsActive, " +
+                "CreateTime, UpdateTime, SolveCount, CreatorID) VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?, ?, 0, ?)", challengeRows);
+        int[] challengeIds = ids("SELECT ChallengeID FROM Challenge WHERE CompetitionID = " + competitionId + " ORDER BY ChallengeID");
+        int[] challengePoints = new int[challengeIds.length];
+        for (int c = 0; c < challengeIds.length; c++) {
+            challengePoints[c] = 100 + ((c + 1) % 5) * 50;
+        }
+
+        // 5. Flag 池：正确提交基准每次消耗一个未使用的个人 Flag
+        List<Object[]> flagRows = new ArrayList<>(flagPool);
+        String[] poolFlagValues = new String[flagPool];
+        for (int f = 0; f < flagPool; f++) {
+            poolFlagValues[f] = "CTF{bench_flag_" + f + "}";
+            flagRows.add(new Object[]{adminId, competitionId, challengeIds[f % challengeIds.length], poolFlagValues[f],
+                    Timestamp.valueOf(now), Timestamp.valueOf(now.plusDays(3)), challengePoints[f % challengeIds.length]});
+        }
+        batch("INSERT INTO Flag (userID, CompetitionID, ChallengeID, Value, Status, CreateTime, ExpireTime, Points, Type) " +
+                "VALUES (?, ?, ?, ?, 0, ?, ?, ?, 'STATIC')", flagRows);
+        int[] poolFlagIds = ids("SELECT flagID FROM Flag WHERE CompetitionID = " + competitionId + " ORDER BY flagID");
+
+        // 6. 历史提交记录（约 10% 正确），正确提交同时写入得分
+        List<Object[]> submissionRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> scoreRows = new ArrayList<>(BATCH_SIZE);
+        for (int s = 0; s < submissions; s++) {
+            int u = random.nextInt(userIds.length);
+            int c = random.nextInt(challengeIds.length);
+            boolean correct = random.nextInt(10) == 0;
+            Timestamp time = Timestamp.valueOf(now.minusSeconds(random.nextInt(86_400)));
+            submissionRows.add(new Object[]{userIds[u], competitionId, challengeIds[c], teamOfUser[u],
+                    correct ? "CTF{bench_challenge_" + (c + 1) + "}" : "CTF{wrong_" + s + "}",
+                    correct, time, "127.0.0.1", "jmh", correct ? challengePoints[c] : 0});
+            if (correct) {
+                scoreRows.add(new Object[]{userIds[u], competitionId, teamOfUser[u], challengeIds[c],
+                        challengePoints[c], time});
+            }
+            if (submissionRows.size() >= BATCH_SIZE) {
+                flushSubmissions(submissionRows, scoreRows);
+            }
+        }
+        flushSubmissions(submissionRows, scoreRows);
+
+        return new Dataset(competitionId, userIds, userNames, teamIds, poolFlagIds, poolFlagValues);
+    }
+
+    /**
+     * 把 Flag 池恢复为未使用，并删除上一轮在池上产生的提交记录（得分保留，排行榜随之增长）
+     */
+    void resetFlagPool(Dataset dataset) {
+        int first = dataset.poolFlagIds()[0];
+        int last = dataset.poolFlagIds()[dataset.poolFlagIds().length - 1];
+        jdbc.update("DELETE FROM Flagsubmission WHERE FlagID BETWEEN ? AND ?", first, last);
+        jdbc.update("UPDATE Flag SET Status = 0, UseTime = NULL WHERE flagID BETWEEN ? AND ?", first, last);
+    }
+
+    private void flushSubmissions(List<Object[]> submissionRows, List<Object[]> scoreRows) {
+        batch("INSERT INTO Flagsubmission (userID, CompetitionID, ChallengeID, TeamID, SubmittedContent, IsCorrect, " +
+                "SubmitTime, IPAddress, UserAgent, PointsAwarded) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", submissionRows);
+        batch("INSERT INTO Score (userID, CompetitionID, TeamID, ChallengeID, Score, CreateTime, Type, IsValid) " +
+                "VALUES (?, ?, ?, ?, ?, ?, 'FLAG_SUBMISSION', 1)", scoreRows);
+        submissionRows.clear();
+        scoreRows.clear();
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+
+    private int[] ids(String sql) {
+        return jdbc.queryForList(sql, Integer.class).stream().mapToInt(Integer::intValue).toArray();
+    }
+}
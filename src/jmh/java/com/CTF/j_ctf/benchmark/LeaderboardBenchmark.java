@@ -0,0 +1,29 @@
+package com.CTF.j_ctf.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 排行榜首页（getCompetitionLeaderboard）与战队名次查询（ScoreServiceImpl.getTeamRank）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LeaderboardBenchmark {
+
+    @Benchmark
+    public Page<Map<String, Object>> competitionLeaderboard(BenchmarkContext ctx) {
+        return ctx.flagService.getCompetitionLeaderboard(ctx.dataset.competitionId(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Integer teamRank(BenchmarkContext ctx) {
+        return ctx.scoreService.getTeamRank(ctx.randomTeamId(), ctx.dataset.competitionId());
+    }
+}
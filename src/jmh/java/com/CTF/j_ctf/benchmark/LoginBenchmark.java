@@ -0,0 +1,31 @@
+package com.CTF.j_ctf.benchmark;
+
+import com.CTF.j_ctf.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthServiceImpl.login：账号查找 + BCrypt 校验（成功与密码错误两种情况）
+ * 成功登录会命中 PasswordVerifier 的校验缓存；测量纯 BCrypt 开销时用 -Dctf.login.verification-cache.ttl-seconds=0 启动
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LoginBenchmark {
+
+    @Benchmark
+    public Optional<User> loginSuccess(BenchmarkContext ctx) {
+        String account = ctx.dataset.userNames()[ctx.randomUserIndex()];
+        return ctx.authService.login(account, BenchmarkDataSeeder.USER_PASSWORD);
+    }
+
+    @Benchmark
+    public Optional<User> loginWrongPassword(BenchmarkContext ctx) {
+        String account = ctx.dataset.userNames()[ctx.randomUserIndex()];
+        return ctx.authService.login(account, "wrong-password");
+    }
+}
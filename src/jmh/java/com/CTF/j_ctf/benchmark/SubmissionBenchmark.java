@@ -0,0 +1,33 @@
+package com.CTF.j_ctf.benchmark;
+
+import com.CTF.j_ctf.entity.FlagSubmission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FlagServiceImpl.submitFlag：正确答案（加载实体、写提交和得分）与错误答案（摘要比较 + 异步写入）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SubmissionBenchmark {
+
+    @Benchmark
+    public FlagSubmission submitFlagCorrect(BenchmarkContext ctx) {
+        int flag = ctx.nextUnusedPoolFlag();
+        int userId = ctx.dataset.userIds()[ctx.randomUserIndex()];
+        return ctx.flagService.submitFlag(ctx.dataset.poolFlagIds()[flag], userId,
+                ctx.dataset.poolFlagValues()[flag], "127.0.0.1", "jmh");
+    }
+
+    @Benchmark
+    public FlagSubmission submitFlagWrong(BenchmarkContext ctx) {
+        int flag = ctx.randomPoolFlag();
+        int userId = ctx.dataset.userIds()[ctx.randomUserIndex()];
+        return ctx.flagService.submitFlag(ctx.dataset.poolFlagIds()[flag], userId,
+                "CTF{wrong_answer}", "127.0.0.1", "jmh");
+    }
+}
@@ -0,0 +1,48 @@
+package com.CTF.j_ctf.benchmark;
+
+import com.CTF.j_ctf.entity.FlagSubmission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交记录分页：偏移分页（首页、深页）与游标分页
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SubmissionPagingBenchmark {
+
+    @Benchmark
+    public Page<FlagSubmission> competitionFirstPage(BenchmarkContext ctx) {
+        return ctx.flagService.getSubmissionsByCompetition(ctx.dataset.competitionId(),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "submitTime")));
+    }
+
+    @Benchmark
+    public Page<FlagSubmission> competitionDeepPage(BenchmarkContext ctx) {
+        return ctx.flagService.getSubmissionsByCompetition(ctx.dataset.competitionId(),
+                PageRequest.of(100, 20, Sort.by(Sort.Direction.DESC, "submitTime")));
+    }
+
+    @Benchmark
+    public Page<FlagSubmission> userCompetitionPage(BenchmarkContext ctx) {
+        int userId = ctx.dataset.userIds()[ctx.randomUserIndex()];
+        return ctx.flagService.getUserSubmissionsByCompetition(userId, ctx.dataset.competitionId(),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "submitTime")));
+    }
+
+    @Benchmark
+    public List<FlagSubmission> userCursorPage(BenchmarkContext ctx) {
+        int userId = ctx.dataset.userIds()[ctx.randomUserIndex()];
+        return ctx.flagService.getSubmissionsBefore(userId, ctx.dataset.competitionId(), null,
+                LocalDateTime.now().plusYears(1), Integer.MAX_VALUE, 20);
+    }
+}
@@ -0,0 +1,98 @@
+package com.CTF.j_ctf.benchmark;
+
+import com.CTF.j_ctf.dto.SubmissionView;
+import com.CTF.j_ctf.entity.FlagSubmission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交记录列表的读模型：实体 + HashMap 转换 与 JPQL 投影只读视图 的对比
+ * 每次调用读取一页（20 行）并序列化为 JSON，按行计量；
+ * 使用 ./gradlew jmh -Pjmh.includes=SubmissionReadModel -Pjmh.profilers=gc 运行，
+ * gc.alloc.rate.norm 即每行的堆分配字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubmissionReadModelBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void entityWithMapConversion(BenchmarkContext ctx) throws IOException {
+        Page<FlagSubmission> page = ctx.flagService.getSubmissionsByCompetition(ctx.dataset.competitionId(), firstPage());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (FlagSubmission submission : page.getContent()) {
+            rows.add(toSubmissionMap(submission));
+        }
+        ctx.objectMapper.writeValue(DISCARD, rows);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void projectionView(BenchmarkContext ctx) throws IOException {
+        Page<SubmissionView> page = ctx.flagService.getSubmissionViews(null, ctx.dataset.competitionId(), null, firstPage());
+        ctx.objectMapper.writeValue(DISCARD, page.getContent());
+    }
+
+    private static Pageable firstPage() {
+        return PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "submitTime"));
+    }
+
+    /**
+     * 与改造前 FlagController 中的转换逻辑一致，作为对照组
+     */
+    private static Map<String, Object> toSubmissionMap(FlagSubmission submission) {
+        Map<String, Object> subMap = new HashMap<>();
+        subMap.put("submissionID", submission.getSubmissionID());
+        subMap.put("submittedContent", submission.getSubmittedContent());
+        subMap.put("isCorrect", submission.getIsCorrect());
+        subMap.put("submitTime", submission.getSubmitTime());
+        subMap.put("ipAddress", submission.getIpAddress());
+        subMap.put("userAgent", submission.getUserAgent());
+        subMap.put("pointsAwarded", submission.getPointsAwarded());
+        if (submission.getChallenge() != null) {
+            Map<String, Object> challengeMap = new HashMap<>();
+            challengeMap.put("challengeID", submission.getChallenge().getChallengeID());
+            challengeMap.put("title", submission.getChallenge().getTitle());
+            subMap.put("challenge", challengeMap);
+        }
+        if (submission.getCompetition() != null) {
+            Map<String, Object> competitionMap = new HashMap<>();
+            competitionMap.put("competitionID", submission.getCompetition().getCompetitionID());
+            competitionMap.put("title", submission.getCompetition().getTitle());
+            subMap.put("competition", competitionMap);
+        }
+        if (submission.getUser() != null) {
+            Map<String, Object> userMap = new HashMap<>();
+            userMap.put("userID", submission.getUser().getUserID());
+            userMap.put("userName", submission.getUser().getUserName());
+            userMap.put("userEmail", submission.getUser().getUserEmail());
+            subMap.put("user", userMap);
+        }
+        if (submission.getTeam() != null) {
+            Map<String, Object> teamMap = new HashMap<>();
+            teamMap.put("teamID", submission.getTeam().getTeamID());
+            teamMap.put("teamName", submission.getTeam().getTeamName());
+            subMap.put("team", teamMap);
+        }
+        return subMap;
+    }
+}
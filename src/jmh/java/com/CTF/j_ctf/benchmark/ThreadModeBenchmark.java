@@ -0,0 +1,59 @@
+package com.CTF.j_ctf.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求执行线程模型对比：平台线程池（与 Tomcat 默认的 200 个工作线程相同）与每请求一个虚拟线程
+ * 400 个并发调用方各自把一次"请求"交给执行器并等待结果；每次请求读一页排行榜，再模拟一次下游 IO 等待（ioDelayMs），
+ * 吞吐量看 Throughput，p99 看 SampleTime 输出的百分位。数据库访问两种模式都经过 ConnectionGate。
+ * ./gradlew jmh -Pjmh.includes=ThreadMode
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(400)
+public class ThreadModeBenchmark {
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    @State(Scope.Benchmark)
+    public static class ExecutorState {
+
+        @Param({"platform", "virtual"})
+        public String mode;
+
+        @Param("5")
+        public int ioDelayMs;
+
+        ExecutorService executor;
+
+        @Setup(Level.Trial)
+        public void start() {
+            executor = "virtual".equals(mode)
+                    ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bench-vt-", 0).factory())
+                    : Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public Page<Map<String, Object>> leaderboardRequest(BenchmarkContext ctx, ExecutorState executor) throws Exception {
+        return executor.executor.submit(() -> {
+            Page<Map<String, Object>> page = ctx.flagService.getCompetitionLeaderboard(
+                    ctx.dataset.competitionId(), PageRequest.of(0, 20));
+            Thread.sleep(executor.ioDelayMs);
+            return page;
+        }).get();
+    }
+}
@@ -0,0 +1,63 @@
+package com.CTF.j_ctf.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flag 提交限流配置（ctf.rate-limit.*）
+ * defaults 为全局策略，competitions 按竞赛ID覆盖，例如：
+ * ctf.rate-limit.competitions.3.user.capacity=5
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ctf.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // 空闲超过该时间的令牌桶会被回收
+    private long idleEvictSeconds = 600;
+
+    private Policy defaults = new Policy();
+
+    private Map<Integer, Policy> competitions = new HashMap<>();
+
+    public Policy policyFor(Integer competitionId) {
+        if (competitionId == null) {
+            return defaults;
+        }
+        return competitions.getOrDefault(competitionId, defaults);
+    }
+
+    @Getter
+    @Setter
+    public static class Policy {
+        private Limit user = new Limit(10, 1.0);
+        private Limit team = new Limit(30, 3.0);
+        private Limit ip = new Limit(30, 3.0);
+    }
+
+    /**
+     * 令牌桶参数：capacity 为突发上限，refillPerSecond 为每秒补充的令牌数
+     */
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private double refillPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
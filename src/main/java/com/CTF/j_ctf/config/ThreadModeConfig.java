@@ -0,0 +1,62 @@
+package com.CTF.j_ctf.config;
+
+import com.CTF.j_ctf.support.ConnectionGate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+
+/**
+ * 请求处理线程模型
+ * ctf.threads.mode=platform（默认）保持 Tomcat 线程池；ctf.threads.mode=virtual 时每个请求、
+ * 每个异步任务（@Async、MVC 异步请求）各用一个虚拟线程。
+ * 无论哪种模式，数据源都经过 ConnectionGate，并发取连接的数量不超过连接池大小。
+ */
+@Configuration
+public class ThreadModeConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionGateDataSourcePostProcessor(ObjectProvider<ConnectionGate> connectionGate) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return connectionGate.getObject().wrap(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Configuration
+    @EnableAsync
+    @ConditionalOnProperty(name = "ctf.threads.mode", havingValue = "virtual")
+    static class VirtualThreads {
+
+        @Bean
+        public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+            return protocolHandler -> protocolHandler.setExecutor(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vt-", 0).factory()));
+        }
+
+        /**
+         * 替换 Spring Boot 默认的 applicationTaskExecutor 线程池，同时作为 @Async 的默认执行器
+         */
+        @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+        public AsyncTaskExecutor applicationTaskExecutor() {
+            return new TaskExecutorAdapter(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-vt-", 0).factory()));
+        }
+    }
+}
@@ -2,11 +2,15 @@ package com.CTF.j_ctf.controller;
 
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.AuthService;
+import com.CTF.j_ctf.support.PasswordVerifier;
+import com.CTF.j_ctf.support.SessionManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -15,9 +19,11 @@ import java.util.Optional;
 @RequestMapping("/api/admin/auth")
 public class AdminAuthController {
     private final AuthService authService;
+    private final SessionManager sessionManager;
 
-    public AdminAuthController(AuthService authService) {
+    public AdminAuthController(AuthService authService, SessionManager sessionManager) {
         this.authService = authService;
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -25,7 +31,7 @@ public class AdminAuthController {
      */
     @PostMapping("/login")
     public ResponseEntity<?> adminLogin(@RequestBody Map<String, String> loginData,
-                                        HttpServletRequest request) {
+                                        HttpServletRequest request, HttpServletResponse httpResponse) {
         try {
             String account = loginData.get("account");
             String password = loginData.get("password");
@@ -43,13 +49,8 @@ public class AdminAuthController {
 
             if (admin.isPresent()) {
                 User adminUser = admin.get();
-                // 登录成功，设置session
-                HttpSession session = request.getSession();
-                session.setAttribute("userId", adminUser.getUserID()); // 统一使用userId
-                session.setAttribute("adminId", adminUser.getUserID()); // 保留adminId以兼容
-                session.setAttribute("userRole", "ADMIN");
-                session.setAttribute("userName", adminUser.getUserName());
-                session.setMaxInactiveInterval(30 * 60); // 30分钟超时
+                // 登录成功，设置登录状态（session 模式同时保留adminId以兼容；令牌模式签发令牌）
+                String token = sessionManager.login(request, httpResponse, adminUser.getUserID(), "ADMIN", adminUser.getUserName());
 
                 Map<String, Object> response = new HashMap<>();
                 response.put("userId", adminUser.getUserID());
@@ -58,11 +59,16 @@ public class AdminAuthController {
                 response.put("userRole", "ADMIN");
                 response.put("adminRole", adminUser.getAdminRole());
                 response.put("message", "登录成功");
+                if (token != null) {
+                    response.put("token", token);
+                }
 
                 return ResponseEntity.ok(createSuccessResponse("登录成功", response));
             } else {
                 return ResponseEntity.badRequest().body(createErrorResponse("账号或密码错误"));
             }
+        } catch (PasswordVerifier.BusyException e) {
+            return createBusyResponse(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("登录失败"));
         }
@@ -72,12 +78,9 @@ public class AdminAuthController {
      * 管理员登出
      */
     @PostMapping("/logout")
-    public ResponseEntity<?> adminLogout(HttpServletRequest request) {
+    public ResponseEntity<?> adminLogout(HttpServletRequest request, HttpServletResponse response) {
         try {
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.invalidate();
-            }
+            sessionManager.logout(request, response);
             return ResponseEntity.ok(createSuccessResponse("登出成功"));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("登出失败"));
@@ -90,13 +93,13 @@ public class AdminAuthController {
     @GetMapping("/check")
     public ResponseEntity<?> checkAdminStatus(HttpServletRequest request) {
         try {
-            HttpSession session = request.getSession(false);
+            Optional<SessionManager.SessionUser> current = sessionManager.current(request).filter(SessionManager.SessionUser::isAdmin);
             Map<String, Object> status = new HashMap<>();
 
-            if (session != null && "ADMIN".equals(session.getAttribute("userRole"))) {
+            if (current.isPresent()) {
                 status.put("isLoggedIn", true);
-                status.put("adminId", session.getAttribute("adminId"));
-                status.put("userName", session.getAttribute("userName"));
+                status.put("adminId", current.get().userId());
+                status.put("userName", current.get().userName());
                 status.put("userRole", "ADMIN");
                 return ResponseEntity.ok(createSuccessResponse("已登录", status));
             } else {
@@ -141,4 +144,13 @@ public class AdminAuthController {
         response.put("timestamp", System.currentTimeMillis());
         return response;
     }
+
+    /**
+     * 登录校验线程池繁忙时返回 503，并通过 Retry-After 建议客户端稍后重试
+     */
+    private ResponseEntity<?> createBusyResponse(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(createErrorResponse(message));
+    }
 }
\ No newline at end of file
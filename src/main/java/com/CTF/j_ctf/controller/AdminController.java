@@ -4,7 +4,15 @@ import com.CTF.j_ctf.entity.Competition;
 import com.CTF.j_ctf.entity.Team;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.AdminService;
-import jakarta.servlet.http.HttpSession;
+import com.CTF.j_ctf.support.ConnectionGate;
+import com.CTF.j_ctf.support.ParticipationIndex;
+import com.CTF.j_ctf.support.PasswordVerifier;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.SessionManager;
+import com.CTF.j_ctf.support.SearchIndex;
+import com.CTF.j_ctf.support.SessionTokens;
+import com.CTF.j_ctf.support.SubmissionRateLimiter;
+import com.CTF.j_ctf.support.VirtualThreadPinningMonitor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -20,17 +28,38 @@ import java.util.Map;
 @RequestMapping("/api/admin")
 public class AdminController {
     private final AdminService adminService;
-
-    public AdminController(AdminService adminService) {
+    private final SubmissionRateLimiter rateLimiter;
+    private final ReferenceDataCache referenceDataCache;
+    private final ConnectionGate connectionGate;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final PasswordVerifier passwordVerifier;
+    private final SessionManager sessionManager;
+    private final SessionTokens sessionTokens;
+    private final SearchIndex searchIndex;
+    private final ParticipationIndex participationIndex;
+
+    public AdminController(AdminService adminService, SubmissionRateLimiter rateLimiter,
+                           ReferenceDataCache referenceDataCache, ConnectionGate connectionGate,
+                           VirtualThreadPinningMonitor pinningMonitor, PasswordVerifier passwordVerifier,
+                           SessionManager sessionManager, SessionTokens sessionTokens,
+                           SearchIndex searchIndex, ParticipationIndex participationIndex) {
         this.adminService = adminService;
+        this.rateLimiter = rateLimiter;
+        this.referenceDataCache = referenceDataCache;
+        this.connectionGate = connectionGate;
+        this.pinningMonitor = pinningMonitor;
+        this.passwordVerifier = passwordVerifier;
+        this.sessionManager = sessionManager;
+        this.sessionTokens = sessionTokens;
+        this.searchIndex = searchIndex;
+        this.participationIndex = participationIndex;
     }
 
     /**
      * 检查管理员权限
      */
     private void checkAdminPermission(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null || !"ADMIN".equals(session.getAttribute("userRole"))) {
+        if (!sessionManager.current(request).map(SessionManager.SessionUser::isAdmin).orElse(false)) {
             throw new SecurityException("权限不足");
         }
     }
@@ -50,6 +79,140 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/rate-limit/metrics")
+    public ResponseEntity<?> getRateLimitMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return ResponseEntity.ok(createSuccessResponse("获取成功", rateLimiter.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    @GetMapping("/reference-cache/metrics")
+    public ResponseEntity<?> getReferenceCacheMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return ResponseEntity.ok(createSuccessResponse("获取成功", referenceDataCache.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    /**
+     * 开关参考数据缓存（关闭后直接查库，用于对比数据库负载）
+     */
+    @PostMapping("/reference-cache/enabled")
+    public ResponseEntity<?> setReferenceCacheEnabled(@RequestParam boolean enabled, HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            referenceDataCache.setEnabled(enabled);
+            return ResponseEntity.ok(createSuccessResponse(enabled ? "缓存已开启" : "缓存已关闭", referenceDataCache.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("设置失败"));
+        }
+    }
+
+    /**
+     * 线程模型相关指标：数据库连接闸门排队情况与虚拟线程钉住统计
+     */
+    @GetMapping("/threads/metrics")
+    public ResponseEntity<?> getThreadMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("connectionGate", connectionGate.getMetrics());
+            metrics.put("pinning", pinningMonitor.getMetrics());
+            return ResponseEntity.ok(createSuccessResponse("获取成功", metrics));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    /**
+     * 登录密码校验线程池：排队时间、拒绝次数、缓存命中与哈希升级情况
+     */
+    @GetMapping("/login/metrics")
+    public ResponseEntity<?> getLoginMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return ResponseEntity.ok(createSuccessResponse("获取成功", passwordVerifier.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    /**
+     * 会话令牌：签发/校验/撤销计数与当前密钥
+     */
+    @GetMapping("/session-tokens/metrics")
+    public ResponseEntity<?> getSessionTokenMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            Map<String, Object> metrics = new HashMap<>(sessionTokens.getMetrics());
+            metrics.put("tokenMode", sessionManager.isTokenMode());
+            return ResponseEntity.ok(createSuccessResponse("获取成功", metrics));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    @GetMapping("/search-index/metrics")
+    public ResponseEntity<?> getSearchIndexMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return ResponseEntity.ok(createSuccessResponse("获取成功", searchIndex.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
+    /**
+     * 从数据库重建全文索引（后台执行，完成前检索回退到数据库查询）
+     */
+    @PostMapping("/search-index/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            if (!searchIndex.rebuild()) {
+                return ResponseEntity.status(409).body(createErrorResponse("索引正在重建"));
+            }
+            return ResponseEntity.ok(createSuccessResponse("已开始重建索引", searchIndex.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("重建失败"));
+        }
+    }
+
+    @GetMapping("/participation-index/metrics")
+    public ResponseEntity<?> getParticipationIndexMetrics(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return ResponseEntity.ok(createSuccessResponse("获取成功", participationIndex.getMetrics()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(createErrorResponse("权限不足"));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("获取失败"));
+        }
+    }
+
     // === 用户管理 ===
 
     @GetMapping("/users")
@@ -1,14 +1,20 @@
 package com.CTF.j_ctf.controller;
 
 import com.CTF.j_ctf.entity.User;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
 import com.CTF.j_ctf.repository.UserRepository;
 import com.CTF.j_ctf.service.AuthService;
+import com.CTF.j_ctf.support.PasswordVerifier;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -27,6 +33,12 @@ public class AuthController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionManager sessionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * 普通用户注册接口
      * 请求方式：POST
@@ -80,7 +92,8 @@ public class AuthController {
     public ResponseEntity<?> login(
             @RequestParam String account,
             @RequestParam String password,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            HttpServletResponse response) {
         try {
             // 验证输入
             if (account == null || account.trim().isEmpty()) {
@@ -98,12 +111,8 @@ public class AuthController {
                 // 根据用户类型设置角色
                 String userRole = user.getUserType() == User.UserType.ADMIN ? "ADMIN" : "USER";
 
-                // 设置session
-                HttpSession session = request.getSession();
-                session.setAttribute("userId", user.getUserID());
-                session.setAttribute("userRole", userRole);
-                session.setAttribute("userName", user.getUserName());
-                session.setMaxInactiveInterval(30 * 60); // 30分钟超时
+                // 设置登录状态（session 模式30分钟超时；令牌模式签发令牌）
+                String token = sessionManager.login(request, response, user.getUserID(), userRole, user.getUserName());
 
                 // 准备返回数据（移除敏感信息）
                 Map<String, Object> userInfo = new HashMap<>();
@@ -113,11 +122,16 @@ public class AuthController {
                 userInfo.put("userEmail", user.getUserEmail());
                 userInfo.put("phoneNumber", user.getPhoneNumber());
                 userInfo.put("userType", user.getUserType());
+                if (token != null) {
+                    userInfo.put("token", token);
+                }
 
                 return ResponseEntity.ok(createSuccessResponse("登录成功", userInfo));
             } else {
                 return ResponseEntity.badRequest().body(createErrorResponse("账号或密码错误"));
             }
+        } catch (PasswordVerifier.BusyException e) {
+            return createBusyResponse(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("登录失败：系统内部错误"));
         }
@@ -131,14 +145,14 @@ public class AuthController {
     @GetMapping("/check")
     public ResponseEntity<?> checkLoginStatus(HttpServletRequest request) {
         try {
-            HttpSession session = request.getSession(false);
+            Optional<SessionManager.SessionUser> current = sessionManager.current(request);
             Map<String, Object> status = new HashMap<>();
 
-            if (session != null && session.getAttribute("userRole") != null) {
+            if (current.isPresent()) {
                 status.put("isLoggedIn", true);
-                status.put("userId", session.getAttribute("userId"));
-                status.put("userRole", session.getAttribute("userRole"));
-                status.put("userName", session.getAttribute("userName"));
+                status.put("userId", current.get().userId());
+                status.put("userRole", current.get().userRole());
+                status.put("userName", current.get().userName());
                 return ResponseEntity.ok(createSuccessResponse("用户已登录", status));
             } else {
                 status.put("isLoggedIn", false);
@@ -157,12 +171,12 @@ public class AuthController {
     @GetMapping("/profile")
     public ResponseEntity<?> getProfile(HttpServletRequest request) {
         try {
-            HttpSession session = request.getSession(false);
-            if (session == null || session.getAttribute("userRole") == null) {
+            Optional<SessionManager.SessionUser> current = sessionManager.current(request);
+            if (current.isEmpty()) {
                 return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
             }
 
-            Integer userId = (Integer) session.getAttribute("userId");
+            Integer userId = current.get().userId();
             Optional<User> userOptional = authService.findById(userId);
 
             if (userOptional.isPresent()) {
@@ -186,12 +200,12 @@ public class AuthController {
     @PutMapping("/profile")
     public ResponseEntity<?> updateProfile(@RequestBody Map<String, Object> updateData, HttpServletRequest request) {
         try {
-            HttpSession session = request.getSession(false);
-            if (session == null || session.getAttribute("userRole") == null) {
+            Optional<SessionManager.SessionUser> current = sessionManager.current(request);
+            if (current.isEmpty()) {
                 return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
             }
 
-            Integer userId = (Integer) session.getAttribute("userId");
+            Integer userId = current.get().userId();
             Optional<User> userOptional = authService.findById(userId);
 
             if (userOptional.isPresent()) {
@@ -240,6 +254,7 @@ public class AuthController {
 
                 // 直接保存更新，不使用 register 方法（避免密码加密和验证逻辑）
                 User updatedUser = userRepository.save(user);
+                eventPublisher.publishEvent(SearchDocumentEvent.of(updatedUser));
 
                 // 移除敏感信息
                 updatedUser.setUserPassword(null);
@@ -259,12 +274,9 @@ public class AuthController {
      * 路由：/api/users/logout
      */
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletRequest request) {
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
         try {
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.invalidate();
-            }
+            sessionManager.logout(request, response);
             return ResponseEntity.ok(createSuccessResponse("注销成功"));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("注销失败：系统内部错误"));
@@ -304,4 +316,13 @@ public class AuthController {
         response.put("timestamp", System.currentTimeMillis());
         return response;
     }
+
+    /**
+     * 登录校验线程池繁忙时返回 503，并通过 Retry-After 建议客户端稍后重试
+     */
+    private ResponseEntity<?> createBusyResponse(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(createErrorResponse(message));
+    }
 }
\ No newline at end of file
@@ -4,50 +4,49 @@ import com.CTF.j_ctf.entity.Challenge;
 import com.CTF.j_ctf.entity.ChallengeHint;
 import com.CTF.j_ctf.entity.FlagSubmission;
 import com.CTF.j_ctf.service.ChallengeService;
+import com.CTF.j_ctf.support.SessionManager;
+import com.CTF.j_ctf.support.SubmissionRateLimiter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/challenges")
 public class ChallengeController {
     private final ChallengeService challengeService;
+    private final SubmissionRateLimiter rateLimiter;
+    private final SessionManager sessionManager;
 
-    public ChallengeController(ChallengeService challengeService) {
+    public ChallengeController(ChallengeService challengeService, SubmissionRateLimiter rateLimiter,
+                               SessionManager sessionManager) {
         this.challengeService = challengeService;
+        this.rateLimiter = rateLimiter;
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 获取当前用户ID和权限
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
-
-        Integer userId = (Integer) session.getAttribute("userId");
-        String userRole = (String) session.getAttribute("userRole");
-        String userName = (String) session.getAttribute("userName");
-
-        if (userId == null || userRole == null) {
-            throw new SecurityException("用户信息不完整");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
 
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", userId);
-        userInfo.put("userRole", userRole);
-        userInfo.put("userName", userName);
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
 
         return userInfo;
     }
@@ -82,8 +81,16 @@ public class ChallengeController {
     }
 
     /**
-     * 获取客户端IP地址
+     * 提交过于频繁时返回 429，并通过 Retry-After 告知等待秒数
      */
+    private ResponseEntity<?> createRateLimitedResponse(SubmissionRateLimiter.Decision decision) {
+        Map<String, Object> response = createErrorResponse("提交过于频繁，请 " + decision.retryAfterSeconds() + " 秒后再试");
+        response.put("retryAfter", decision.retryAfterSeconds());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                .body(response);
+    }
+
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -266,14 +273,17 @@ public class ChallengeController {
                     competitionId, category, difficulty, pageable);
             }
 
+            // 一次性获取当前页中用户已解出的题目
+            Set<Integer> solvedIds = challengeService.getSolvedChallengeIds(userId,
+                    challenges.getContent().stream().map(Challenge::getChallengeID).toList());
+
             // 处理每个题目，移除敏感信息并标记解决状态
             List<Challenge> safeChallenges = challenges.getContent().stream().peek(challenge -> {
                 // 移除flag
                 challenge.setFlag(null);
 
                 // 标记用户解决状态
-                boolean isSolved = challengeService.hasUserSolvedChallenge(challenge.getChallengeID(), userId);
-                challenge.setSolved(isSolved); // 假设Challenge实体有solved字段，或者使用DTO
+                challenge.setSolved(solvedIds.contains(challenge.getChallengeID())); // 假设Challenge实体有solved字段，或者使用DTO
 
             }).toList();
 
@@ -307,15 +317,17 @@ public class ChallengeController {
             String submittedFlag = submitData.get("flag");
             String ipAddress = getClientIpAddress(request);
 
+            // 限流在访问数据库之前进行
+            SubmissionRateLimiter.Decision decision = rateLimiter.tryAcquireForChallenge(challengeId, userId, ipAddress);
+            if (!decision.allowed()) {
+                return createRateLimitedResponse(decision);
+            }
+
             if (submittedFlag == null || submittedFlag.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(createErrorResponse("Flag不能为空"));
             }
 
-            // 检查题目是否存在
-            Optional<Challenge> challengeOpt = challengeService.getChallengeById(challengeId);
-            if (challengeOpt.isEmpty()) {
-                return ResponseEntity.badRequest().body(createErrorResponse("题目不存在"));
-            }
+            // 题目是否存在由 Service 通过校验索引检查，不存在时抛出 IllegalArgumentException("题目不存在")
 
             // 检查是否已经解决
             boolean alreadySolved = challengeService.hasUserSolvedChallenge(challengeId, userId);
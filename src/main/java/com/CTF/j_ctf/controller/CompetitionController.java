@@ -3,6 +3,7 @@ package com.CTF.j_ctf.controller;
 import com.CTF.j_ctf.entity.Competition;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.CompetitionService;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -11,7 +12,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,24 +21,24 @@ import java.util.Optional;
 @RequestMapping("/api/competitions")
 public class CompetitionController {
     private final CompetitionService competitionService;
+    private final SessionManager sessionManager;
 
-    public CompetitionController(CompetitionService competitionService) {
+    public CompetitionController(CompetitionService competitionService, SessionManager sessionManager) {
         this.competitionService = competitionService;
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 获取当前用户ID和角色
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
 
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", session.getAttribute("userId"));
-        userInfo.put("userRole", session.getAttribute("userRole"));
-        userInfo.put("userName", session.getAttribute("userName"));
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
 
         return userInfo;
     }
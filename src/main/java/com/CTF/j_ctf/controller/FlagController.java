@@ -1,18 +1,34 @@
 package com.CTF.j_ctf.controller;
 
+import com.CTF.j_ctf.dto.SubmissionView;
 import com.CTF.j_ctf.entity.Flag;
 import com.CTF.j_ctf.entity.FlagSubmission;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.FlagService;
+import com.CTF.j_ctf.support.FlagBatchGenerator;
+import com.CTF.j_ctf.support.ScoreboardStreamHub;
+import com.CTF.j_ctf.support.SessionManager;
+import com.CTF.j_ctf.support.SubmissionContext;
+import com.CTF.j_ctf.support.SubmissionRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -20,24 +36,34 @@ import java.util.*;
 @RequestMapping("/api/flags")
 public class FlagController {
     private final FlagService flagService;
-
-    public FlagController(FlagService flagService) {
+    private final SubmissionRateLimiter rateLimiter;
+    private final ScoreboardStreamHub scoreboardStreamHub;
+    private final ObjectMapper objectMapper;
+    private final SessionManager sessionManager;
+
+    public FlagController(FlagService flagService,
+                          SubmissionRateLimiter rateLimiter,
+                          ScoreboardStreamHub scoreboardStreamHub,
+                          ObjectMapper objectMapper,
+                          SessionManager sessionManager) {
         this.flagService = flagService;
+        this.rateLimiter = rateLimiter;
+        this.scoreboardStreamHub = scoreboardStreamHub;
+        this.objectMapper = objectMapper;
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 获取当前用户信息和权限
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
 
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", session.getAttribute("userId"));
-        userInfo.put("userRole", session.getAttribute("userRole"));
-        userInfo.put("userName", session.getAttribute("userName"));
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
 
         return userInfo;
     }
@@ -73,8 +99,16 @@ public class FlagController {
     }
 
     /**
-     * 获取客户端IP地址
+     * 提交过于频繁时返回 429，并通过 Retry-After 告知等待秒数
      */
+    private ResponseEntity<?> createRateLimitedResponse(SubmissionRateLimiter.Decision decision) {
+        Map<String, Object> response = createErrorResponse("提交过于频繁，请 " + decision.retryAfterSeconds() + " 秒后再试");
+        response.put("retryAfter", decision.retryAfterSeconds());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                .body(response);
+    }
+
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -271,15 +305,17 @@ public class FlagController {
             String ipAddress = getClientIpAddress(request);
             String userAgent = getClientUserAgent(request);
 
-            if (submittedValue == null || submittedValue.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(createErrorResponse("Flag值不能为空"));
+            // 限流在访问数据库之前进行
+            SubmissionRateLimiter.Decision decision = rateLimiter.tryAcquireForFlag(flagId, userId, null, ipAddress);
+            if (!decision.allowed()) {
+                return createRateLimitedResponse(decision);
             }
 
-            // 检查用户是否可以提交
-            if (!flagService.canUserSubmitFlag(flagId, userId)) {
-                return ResponseEntity.badRequest().body(createErrorResponse("当前无法提交Flag"));
+            if (submittedValue == null || submittedValue.trim().isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Flag值不能为空"));
             }
 
+            // 提交条件由 Service 校验，不满足时抛出 IllegalArgumentException("当前无法提交Flag")
             FlagSubmission submission = flagService.submitFlag(flagId, userId, submittedValue, ipAddress, userAgent);
 
             Map<String, Object> response = new HashMap<>();
@@ -327,11 +363,13 @@ public class FlagController {
 
             Integer teamId = Integer.parseInt(teamIdStr);
 
-            // 检查用户是否可以提交
-            if (!flagService.canTeamSubmitFlag(flagId, teamId)) {
-                return ResponseEntity.badRequest().body(createErrorResponse("当前无法提交Flag"));
+            // 限流在访问数据库之前进行
+            SubmissionRateLimiter.Decision decision = rateLimiter.tryAcquireForFlag(flagId, userId, teamId, ipAddress);
+            if (!decision.allowed()) {
+                return createRateLimitedResponse(decision);
             }
 
+            // 提交条件由 Service 校验，不满足时抛出 IllegalArgumentException("当前无法提交Flag")
             FlagSubmission submission = flagService.submitFlagForTeam(flagId, teamId, submittedValue, ipAddress, userAgent);
 
             Map<String, Object> response = new HashMap<>();
@@ -357,7 +395,6 @@ public class FlagController {
      * 获取提交记录列表
      */
     @GetMapping("/submissions")
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getSubmissions(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
@@ -365,6 +402,8 @@ public class FlagController {
             @RequestParam(required = false) Integer competitionId,
             @RequestParam(required = false) Integer flagId,
             @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorTime,
+            @RequestParam(required = false) Integer cursorId,
             HttpServletRequest request) {
         try {
             Map<String, Object> currentUserInfo = getCurrentUserInfo(request);
@@ -378,88 +417,46 @@ public class FlagController {
                 }
             }
 
+            // 游标分页（深翻页）：筛选优先级与下方页码分页一致
+            if (cursorTime != null && cursorId != null) {
+                Integer filterCompetitionId = null;
+                Integer filterFlagId = null;
+                Integer filterUserId = null;
+                if (competitionId != null) {
+                    filterCompetitionId = competitionId;
+                } else if (flagId != null) {
+                    filterFlagId = flagId;
+                } else if (userId != null) {
+                    filterUserId = userId;
+                } else if (!"ADMIN".equals(userRole)) {
+                    filterUserId = (Integer) currentUserInfo.get("userId");
+                }
+                List<SubmissionView> slice = flagService.getSubmissionViewsBefore(
+                        filterUserId, filterCompetitionId, filterFlagId, cursorTime, cursorId, size);
+                return ResponseEntity.ok(createSuccessResponse("获取成功", createCursorResponse(slice, size)));
+            }
+
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, sort));
-            Page<FlagSubmission> submissions;
+            Page<SubmissionView> submissions;
 
+            // 列表直接使用投影视图，不加载实体
             if (competitionId != null) {
-                submissions = flagService.getSubmissionsByCompetition(competitionId, pageable);
+                submissions = flagService.getSubmissionViews(null, competitionId, null, pageable);
             } else if (flagId != null) {
-                submissions = flagService.getSubmissionsByFlag(flagId, pageable);
+                submissions = flagService.getSubmissionViews(null, null, flagId, pageable);
             } else if (userId != null) {
-                submissions = flagService.getSubmissionsByUser(userId, pageable);
+                submissions = flagService.getSubmissionViews(userId, null, null, pageable);
             } else {
                 // 非管理员只能查看自己的提交记录
                 if (!"ADMIN".equals(userRole)) {
                     Integer currentUserId = (Integer) currentUserInfo.get("userId");
-                    submissions = flagService.getSubmissionsByUser(currentUserId, pageable);
+                    submissions = flagService.getSubmissionViews(currentUserId, null, null, pageable);
                 } else {
-                    submissions = flagService.getAllSubmissions(pageable);
-                }
-            }
-
-            // 转换为 DTO 以避免 LAZY 加载序列化问题
-            List<Map<String, Object>> submissionList = new ArrayList<>();
-            if (submissions != null && submissions.getContent() != null) {
-                for (FlagSubmission submission : submissions.getContent()) {
-                    Map<String, Object> subMap = new HashMap<>();
-                    subMap.put("submissionID", submission.getSubmissionID());
-                    subMap.put("submittedContent", submission.getSubmittedContent());
-                    subMap.put("isCorrect", submission.getIsCorrect());
-                    subMap.put("submitTime", submission.getSubmitTime());
-                    subMap.put("ipAddress", submission.getIpAddress());
-                    subMap.put("userAgent", submission.getUserAgent());
-                    subMap.put("pointsAwarded", submission.getPointsAwarded());
-                    
-                    // 安全地获取关联对象的信息
-                    if (submission.getChallenge() != null) {
-                        Map<String, Object> challengeMap = new HashMap<>();
-                        challengeMap.put("challengeID", submission.getChallenge().getChallengeID());
-                        challengeMap.put("title", submission.getChallenge().getTitle());
-                        subMap.put("challenge", challengeMap);
-                    }
-                    
-                    if (submission.getCompetition() != null) {
-                        Map<String, Object> competitionMap = new HashMap<>();
-                        competitionMap.put("competitionID", submission.getCompetition().getCompetitionID());
-                        competitionMap.put("title", submission.getCompetition().getTitle());
-                        subMap.put("competition", competitionMap);
-                    }
-                    
-                    if (submission.getUser() != null) {
-                        Map<String, Object> userMap = new HashMap<>();
-                        userMap.put("userID", submission.getUser().getUserID());
-                        userMap.put("userName", submission.getUser().getUserName());
-                        // User 实体有 getUserEmail() 方法
-                        userMap.put("userEmail", submission.getUser().getUserEmail());
-                        subMap.put("user", userMap);
-                    }
-                    
-                    if (submission.getTeam() != null) {
-                        Map<String, Object> teamMap = new HashMap<>();
-                        teamMap.put("teamID", submission.getTeam().getTeamID());
-                        teamMap.put("teamName", submission.getTeam().getTeamName());
-                        subMap.put("team", teamMap);
-                    }
-                    
-                    submissionList.add(subMap);
+                    submissions = flagService.getSubmissionViews(null, null, null, pageable);
                 }
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("submissions", submissionList);
-            if (submissions != null) {
-                response.put("totalPages", submissions.getTotalPages());
-                response.put("totalElements", submissions.getTotalElements());
-                response.put("currentPage", submissions.getNumber());
-                response.put("pageSize", submissions.getSize());
-            } else {
-                response.put("totalPages", 0);
-                response.put("totalElements", 0);
-                response.put("currentPage", page);
-                response.put("pageSize", size);
-            }
-
-            return ResponseEntity.ok(createSuccessResponse("获取成功", response));
+            return ResponseEntity.ok(createSuccessResponse("获取成功", createPageResponse(submissions)));
         } catch (SecurityException e) {
             return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
         } catch (Exception e) {
@@ -471,11 +468,12 @@ public class FlagController {
      * 获取用户提交记录
      */
     @GetMapping("/my-submissions")
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getMySubmissions(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) Integer competitionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorTime,
+            @RequestParam(required = false) Integer cursorId,
             HttpServletRequest request) {
         try {
             Map<String, Object> userInfo = getCurrentUserInfo(request);
@@ -485,71 +483,17 @@ public class FlagController {
                 return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
             }
 
-            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "submitTime"));
-            Page<FlagSubmission> submissions;
-
-            if (competitionId != null) {
-                submissions = flagService.getUserSubmissionsByCompetition(userId, competitionId, pageable);
-            } else {
-                submissions = flagService.getSubmissionsByUser(userId, pageable);
-            }
-
-            // 转换为 DTO 以避免 LAZY 加载序列化问题
-            // 注意：必须在事务内访问关联对象
-            List<Map<String, Object>> submissionList = new ArrayList<>();
-            if (submissions != null && submissions.getContent() != null) {
-                for (FlagSubmission submission : submissions.getContent()) {
-                    Map<String, Object> subMap = new HashMap<>();
-                    subMap.put("submissionID", submission.getSubmissionID());
-                    subMap.put("submittedContent", submission.getSubmittedContent());
-                    subMap.put("isCorrect", submission.getIsCorrect());
-                    subMap.put("submitTime", submission.getSubmitTime());
-                    subMap.put("ipAddress", submission.getIpAddress());
-                    subMap.put("userAgent", submission.getUserAgent());
-                    subMap.put("pointsAwarded", submission.getPointsAwarded());
-                    
-                    // 安全地获取关联对象的信息
-                    if (submission.getChallenge() != null) {
-                        Map<String, Object> challengeMap = new HashMap<>();
-                        challengeMap.put("challengeID", submission.getChallenge().getChallengeID());
-                        challengeMap.put("title", submission.getChallenge().getTitle());
-                        subMap.put("challenge", challengeMap);
-                    }
-                    
-                    if (submission.getCompetition() != null) {
-                        Map<String, Object> competitionMap = new HashMap<>();
-                        competitionMap.put("competitionID", submission.getCompetition().getCompetitionID());
-                        competitionMap.put("title", submission.getCompetition().getTitle());
-                        subMap.put("competition", competitionMap);
-                    }
-                    
-                    if (submission.getUser() != null) {
-                        Map<String, Object> userMap = new HashMap<>();
-                        userMap.put("userID", submission.getUser().getUserID());
-                        userMap.put("userName", submission.getUser().getUserName());
-                        userMap.put("userEmail", submission.getUser().getUserEmail());
-                        subMap.put("user", userMap);
-                    }
-                    
-                    if (submission.getTeam() != null) {
-                        Map<String, Object> teamMap = new HashMap<>();
-                        teamMap.put("teamID", submission.getTeam().getTeamID());
-                        teamMap.put("teamName", submission.getTeam().getTeamName());
-                        subMap.put("team", teamMap);
-                    }
-                    
-                    submissionList.add(subMap);
-                }
+            // 游标分页（深翻页）
+            if (cursorTime != null && cursorId != null) {
+                List<SubmissionView> slice = flagService.getSubmissionViewsBefore(
+                        userId, competitionId, null, cursorTime, cursorId, size);
+                return ResponseEntity.ok(createSuccessResponse("获取成功", createCursorResponse(slice, size)));
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("submissions", submissionList);
-            response.put("totalPages", submissions != null ? submissions.getTotalPages() : 0);
-            response.put("totalElements", submissions != null ? submissions.getTotalElements() : 0);
-            response.put("currentPage", submissions != null ? submissions.getNumber() : page);
-            response.put("pageSize", submissions != null ? submissions.getSize() : size);
+            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "submitTime"));
+            Page<SubmissionView> submissions = flagService.getSubmissionViews(userId, competitionId, null, pageable);
 
-            return ResponseEntity.ok(createSuccessResponse("获取成功", response));
+            return ResponseEntity.ok(createSuccessResponse("获取成功", createPageResponse(submissions)));
         } catch (SecurityException e) {
             return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
         } catch (IllegalArgumentException e) {
@@ -566,6 +510,35 @@ public class FlagController {
         }
     }
 
+    /**
+     * 构建页码分页响应
+     */
+    private Map<String, Object> createPageResponse(Page<SubmissionView> submissions) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("submissions", submissions.getContent());
+        response.put("totalPages", submissions.getTotalPages());
+        response.put("totalElements", submissions.getTotalElements());
+        response.put("currentPage", submissions.getNumber());
+        response.put("pageSize", submissions.getSize());
+        return response;
+    }
+
+    /**
+     * 构建游标分页响应，nextCursorTime/nextCursorId 为下一页请求参数
+     */
+    private Map<String, Object> createCursorResponse(List<SubmissionView> slice, int size) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("submissions", slice);
+        response.put("pageSize", size);
+        response.put("hasNext", slice.size() == size);
+        if (!slice.isEmpty()) {
+            SubmissionView last = slice.get(slice.size() - 1);
+            response.put("nextCursorTime", last.submitTime());
+            response.put("nextCursorId", last.submissionID());
+        }
+        return response;
+    }
+
     /**
      * 检查用户是否可以提交Flag
      */
@@ -575,8 +548,10 @@ public class FlagController {
             Map<String, Object> userInfo = getCurrentUserInfo(request);
             Integer userId = (Integer) userInfo.get("userId");
 
-            boolean canSubmit = flagService.canUserSubmitFlag(flagId, userId);
-            String reason = canSubmit ? "可以提交" : flagService.getSubmitRestrictionReason(flagId, userId);
+            // 可否提交和原因来自同一个提交上下文，只加载一次
+            SubmissionContext context = flagService.getUserSubmissionContext(flagId, userId);
+            boolean canSubmit = context.canSubmit();
+            String reason = canSubmit ? SubmissionContext.ALLOWED : context.restrictionReason();
 
             Map<String, Object> response = new HashMap<>();
             response.put("canSubmit", canSubmit);
@@ -640,6 +615,8 @@ public class FlagController {
 
     /**
      * 批量生成Flag
+     * 参数：competitionId、count、points，可选 challengeId、expireTime、perTeam（为每个审核通过的战队各生成 count 个）。
+     * 校验通过后以 NDJSON 流式返回：每行一个已提交的 Flag，最后一行为汇总（type=summary）。
      */
     @PostMapping("/generate-batch")
     public ResponseEntity<?> generateFlags(@RequestBody Map<String, Object> generateData, HttpServletRequest request) {
@@ -650,10 +627,13 @@ public class FlagController {
             }
 
             checkCompetitionCreatorOrAdminPermission(competitionId, request);
+            Integer creatorId = (Integer) getCurrentUserInfo(request).get("userId");
 
             Integer count = (Integer) generateData.get("count");
             Integer points = (Integer) generateData.get("points");
+            Integer challengeId = (Integer) generateData.get("challengeId");
             String expireTimeStr = (String) generateData.get("expireTime");
+            boolean perTeam = Boolean.TRUE.equals(generateData.get("perTeam"));
 
             if (count == null || points == null) {
                 return ResponseEntity.badRequest().body(createErrorResponse("参数不完整"));
@@ -661,9 +641,35 @@ public class FlagController {
 
             LocalDateTime expireTime = expireTimeStr != null ? LocalDateTime.parse(expireTimeStr) : null;
 
-            List<Flag> flags = flagService.generateFlagsForCompetition(competitionId, count, points, expireTime);
-
-            return ResponseEntity.ok(createSuccessResponse("生成Flag成功", flags));
+            FlagBatchGenerator.Plan plan = flagService.planFlagGeneration(competitionId, challengeId, creatorId,
+                    count, points, expireTime, perTeam);
+
+            StreamingResponseBody body = outputStream -> {
+                OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+                FlagBatchGenerator.Result result = flagService.generateFlags(plan, flag -> {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("type", "flag");
+                    line.put("flagId", flag.flagId());
+                    line.put("teamId", flag.teamId());
+                    line.put("value", flag.value());
+                    writeLine(out, line);
+                });
+
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("type", "summary");
+                summary.put("success", result.completed());
+                summary.put("requested", result.requested());
+                summary.put("committed", result.committed());
+                summary.put("chunks", result.chunks());
+                summary.put("elapsedMs", result.elapsedMs());
+                summary.put("error", result.error());
+                writeLine(out, summary);
+                out.flush();
+            };
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .body(body);
         } catch (SecurityException e) {
             return ResponseEntity.status(403).body(createErrorResponse(e.getMessage()));
         } catch (IllegalArgumentException e) {
@@ -673,6 +679,15 @@ public class FlagController {
         }
     }
 
+    private void writeLine(OutputStream out, Map<String, Object> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * 获取Flag统计信息
      */
@@ -744,6 +759,16 @@ public class FlagController {
         }
     }
 
+    /**
+     * 排行榜实时推送（SSE），替代客户端轮询
+     * 事件：leaderboard（名次变化）、solve（新的正确解答/一血）、submission（当前用户自己的提交结果，需登录）
+     */
+    @GetMapping(value = "/competitions/{competitionId}/leaderboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLeaderboard(@PathVariable Integer competitionId, HttpServletRequest request) {
+        Integer userId = sessionManager.current(request).map(SessionManager.SessionUser::userId).orElse(null);
+        return scoreboardStreamHub.subscribe(competitionId, userId);
+    }
+
     /**
      * 创建成功响应
      */
@@ -4,42 +4,50 @@ import com.CTF.j_ctf.entity.Score;
 import com.CTF.j_ctf.entity.ScoreSummary;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.ScoreService;
+import com.CTF.j_ctf.support.ScoreExporter;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/scores")
 public class ScoreController {
     private final ScoreService scoreService;
+    private final SessionManager sessionManager;
 
-    public ScoreController(ScoreService scoreService) {
+    public ScoreController(ScoreService scoreService, SessionManager sessionManager) {
         this.scoreService = scoreService;
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 获取当前用户信息和权限
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
 
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", session.getAttribute("userId"));
-        userInfo.put("userRole", session.getAttribute("userRole"));
-        userInfo.put("userName", session.getAttribute("userName"));
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
 
         return userInfo;
     }
@@ -663,9 +671,13 @@ public class ScoreController {
 
     /**
      * 导出竞赛分数记录
+     * format=ndjson（默认）或 csv，按行流式写出（附带用户名、战队名、题目标题），不在内存中组装结果；
+     * 客户端声明 Accept-Encoding: gzip 时压缩输出，gzip=false 可关闭。
      */
     @GetMapping("/competitions/{competitionId}/export")
     public ResponseEntity<?> exportCompetitionScores(@PathVariable Integer competitionId,
+                                                     @RequestParam(defaultValue = "ndjson") String format,
+                                                     @RequestParam(defaultValue = "true") boolean gzip,
                                                      HttpServletRequest request) {
         try {
             Map<String, Object> userInfo = getCurrentUserInfo(request);
@@ -680,15 +692,44 @@ public class ScoreController {
                 }
             }
 
-            List<Score> scores = scoreService.exportCompetitionScores(competitionId);
-            return ResponseEntity.ok(createSuccessResponse("导出成功", scores));
+            ScoreExporter.Format exportFormat = ScoreExporter.Format.parse(format);
+            boolean compress = gzip && acceptsGzip(request);
+
+            StreamingResponseBody body = outputStream -> {
+                if (compress) {
+                    GZIPOutputStream out = new GZIPOutputStream(outputStream, 64 * 1024);
+                    scoreService.exportCompetitionScores(competitionId, exportFormat, out);
+                    out.finish();
+                } else {
+                    OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+                    scoreService.exportCompetitionScores(competitionId, exportFormat, out);
+                    out.flush();
+                }
+            };
+
+            String fileName = "competition-" + competitionId + "-scores." + exportFormat.extension();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (compress) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(body);
         } catch (SecurityException e) {
             return ResponseEntity.status(401).body(createErrorResponse("用户未登录"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("导出分数记录失败"));
         }
     }
 
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
     /**
      * 创建成功响应
      */
@@ -1,11 +1,13 @@
 package com.CTF.j_ctf.controller;
 
+import com.CTF.j_ctf.dto.TeamMembershipView;
 import com.CTF.j_ctf.entity.Competition;
 import com.CTF.j_ctf.entity.Team;
 import com.CTF.j_ctf.entity.TeamApplication;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.repository.CompetitionRepository;
 import com.CTF.j_ctf.service.TeamService;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,7 +16,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,25 +27,26 @@ import java.util.Optional;
 public class TeamController {
     private final TeamService teamService;
     private final CompetitionRepository competitionRepository;
+    private final SessionManager sessionManager;
 
-    public TeamController(TeamService teamService, CompetitionRepository competitionRepository) {
+    public TeamController(TeamService teamService, CompetitionRepository competitionRepository,
+                          SessionManager sessionManager) {
         this.teamService = teamService;
         this.competitionRepository = competitionRepository;
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 获取当前用户信息和权限
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
 
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", session.getAttribute("userId"));
-        userInfo.put("userRole", session.getAttribute("userRole"));
-        userInfo.put("userName", session.getAttribute("userName"));
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
 
         return userInfo;
     }
@@ -329,75 +331,10 @@ public class TeamController {
             }
 
             Pageable pageable = PageRequest.of(page, size);
-            Page<Team> teams = teamService.getTeamsByMember(userId, pageable);
-
-            // 转换为DTO以避免LAZY加载序列化问题
-            List<Map<String, Object>> teamDTOs = new ArrayList<>();
-            for (Team team : teams.getContent()) {
-                Map<String, Object> teamData = new HashMap<>();
-                teamData.put("teamID", team.getTeamID());
-                teamData.put("id", team.getTeamID()); // 兼容字段
-                teamData.put("teamName", team.getTeamName());
-                teamData.put("name", team.getTeamName()); // 兼容字段
-                teamData.put("description", team.getDescription());
-                teamData.put("auditState", team.getAuditState());
-                teamData.put("auditRemark", team.getAuditRemark());
-                teamData.put("creationTime", team.getCreationTime());
-                
-                // 队长信息
-                if (team.getCaptain() != null) {
-                    Map<String, Object> captainMap = new HashMap<>();
-                    captainMap.put("userID", team.getCaptain().getUserID());
-                    captainMap.put("userName", team.getCaptain().getUserName());
-                    teamData.put("captain", captainMap);
-                    teamData.put("captainName", team.getCaptain().getUserName());
-                }
-                
-                // 竞赛信息
-                if (team.getCompetition() != null) {
-                    Map<String, Object> competitionMap = new HashMap<>();
-                    competitionMap.put("competitionID", team.getCompetition().getCompetitionID());
-                    competitionMap.put("id", team.getCompetition().getCompetitionID()); // 兼容字段
-                    competitionMap.put("title", team.getCompetition().getTitle());
-                    competitionMap.put("Title", team.getCompetition().getTitle()); // 兼容字段
-                    teamData.put("competition", competitionMap);
-                    teamData.put("competitionID", team.getCompetition().getCompetitionID());
-                    teamData.put("competitionId", team.getCompetition().getCompetitionID()); // 兼容字段
-                    teamData.put("competitionName", team.getCompetition().getTitle());
-                }
-                
-                // 成员数量 - 使用安全的方式获取，避免LAZY加载异常
-                try {
-                    List<Map<String, Object>> membersList = new ArrayList<>();
-                    if (team.getTeamMembers() != null && !team.getTeamMembers().isEmpty()) {
-                        for (com.CTF.j_ctf.entity.TeamMember member : team.getTeamMembers()) {
-                            try {
-                                if (member != null && member.getUser() != null) {
-                                    Map<String, Object> memberMap = new HashMap<>();
-                                    memberMap.put("userID", member.getUser().getUserID());
-                                    memberMap.put("userName", member.getUser().getUserName());
-                                    memberMap.put("email", member.getUser().getUserEmail());
-                                    memberMap.put("phoneNumber", member.getUser().getPhoneNumber());
-                                    membersList.add(memberMap);
-                                }
-                            } catch (Exception e) {
-                                // 忽略单个成员加载失败
-                                System.err.println("加载团队成员失败: " + e.getMessage());
-                            }
-                        }
-                    }
-                    teamData.put("members", membersList);
-                } catch (Exception e) {
-                    // 如果无法加载成员列表，设置为空列表
-                    System.err.println("加载团队成员列表失败: " + e.getMessage());
-                    teamData.put("members", new ArrayList<>());
-                }
-                
-                teamDTOs.add(teamData);
-            }
+            Page<TeamMembershipView> teams = teamService.getTeamViewsByMember(userId, pageable);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("teams", teamDTOs);
+            response.put("teams", teams.getContent());
             response.put("totalPages", teams.getTotalPages());
             response.put("totalElements", teams.getTotalElements());
             response.put("currentPage", teams.getNumber());
@@ -2,11 +2,12 @@ package com.CTF.j_ctf.controller;
 
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.service.UserProfileService;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -15,20 +16,21 @@ import java.util.Optional;
 @RequestMapping("/api/user-profile")
 public class UserProfileController {
     private final UserProfileService userProfileService;
+    private final SessionManager sessionManager;
 
-    public UserProfileController(UserProfileService userProfileService) {
+    public UserProfileController(UserProfileService userProfileService, SessionManager sessionManager) {
         this.userProfileService = userProfileService;
+        this.sessionManager = sessionManager;
     }
 
     /**
-     * 获取当前用户ID（从Session中获取）
+     * 获取当前用户ID（从登录状态中获取：session 或令牌）
      */
     private Integer getCurrentUserId(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null || !"USER".equals(session.getAttribute("userRole"))) {
-            throw new SecurityException("用户未登录");
-        }
-        return (Integer) session.getAttribute("userId");
+        return sessionManager.current(request)
+                .filter(user -> "USER".equals(user.userRole()))
+                .map(SessionManager.SessionUser::userId)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
     }
 
     /**
@@ -111,7 +113,7 @@ public class UserProfileController {
      */
     @PostMapping("/deactivate")
     public ResponseEntity<?> deactivateAccount(@RequestBody Map<String, String> requestData,
-                                               HttpServletRequest request) {
+                                               HttpServletRequest request, HttpServletResponse response) {
         try {
             Integer userId = getCurrentUserId(request);
             String password = requestData.get("password");
@@ -123,11 +125,8 @@ public class UserProfileController {
             boolean success = userProfileService.deactivateAccount(userId, password);
 
             if (success) {
-                // 注销成功后清除session
-                HttpSession session = request.getSession(false);
-                if (session != null) {
-                    session.invalidate();
-                }
+                // 注销成功后清除登录状态（session 或令牌）
+                sessionManager.logout(request, response);
                 return ResponseEntity.ok(createSuccessResponse("账户注销成功"));
             } else {
                 return ResponseEntity.badRequest().body(createErrorResponse("账户注销失败"));
@@ -2,6 +2,7 @@ package com.CTF.j_ctf.controller;
 
 import com.CTF.j_ctf.entity.WriteUp;
 import com.CTF.j_ctf.service.WriteUpService;
+import com.CTF.j_ctf.support.SessionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
@@ -10,7 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
@@ -23,20 +23,21 @@ public class WriteUpController {
     
     @Autowired
     private WriteUpService writeUpService;
+
+    @Autowired
+    private SessionManager sessionManager;
     
     /**
      * 获取当前用户ID和角色
      */
     private Map<String, Object> getCurrentUserInfo(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            throw new SecurityException("用户未登录");
-        }
+        SessionManager.SessionUser user = sessionManager.current(request)
+                .orElseThrow(() -> new SecurityException("用户未登录"));
         
         Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", session.getAttribute("userId"));
-        userInfo.put("userRole", session.getAttribute("userRole"));
-        userInfo.put("userName", session.getAttribute("userName"));
+        userInfo.put("userId", user.userId());
+        userInfo.put("userRole", user.userRole());
+        userInfo.put("userName", user.userName());
         
         return userInfo;
     }
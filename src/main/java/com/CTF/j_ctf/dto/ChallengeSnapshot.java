@@ -0,0 +1,21 @@
+package com.CTF.j_ctf.dto;
+
+/**
+ * 题目参考数据（不可变快照），不含 Flag 与描述等大字段
+ */
+public record ChallengeSnapshot(Integer challengeId,
+                                Integer competitionId,
+                                Integer creatorId,
+                                String title,
+                                String category,
+                                Integer points,
+                                Boolean isActive) {
+
+    public boolean isCreator(Integer userId) {
+        return creatorId != null && creatorId.equals(userId);
+    }
+
+    public boolean active() {
+        return Boolean.TRUE.equals(isActive);
+    }
+}
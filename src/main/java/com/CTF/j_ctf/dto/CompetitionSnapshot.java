@@ -0,0 +1,48 @@
+package com.CTF.j_ctf.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 竞赛参考数据（不可变快照），供权限与状态判断使用，不含关联集合
+ */
+public record CompetitionSnapshot(Integer competitionId,
+                                  Integer creatorId,
+                                  String title,
+                                  String status,
+                                  String auditStatus,
+                                  Integer teamSizeLimit,
+                                  Integer maxTeams,
+                                  Boolean isPublic,
+                                  LocalDateTime startTime,
+                                  LocalDateTime endTime) {
+
+    // 与 Competition 实体的业务方法保持一致
+    public boolean isOngoing() {
+        if (startTime == null || endTime == null) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return !now.isBefore(startTime) && !now.isAfter(endTime);
+    }
+
+    public boolean isUpcoming() {
+        return startTime != null && LocalDateTime.now().isBefore(startTime);
+    }
+
+    public boolean isFinished() {
+        return endTime != null && LocalDateTime.now().isAfter(endTime);
+    }
+
+    public boolean isPublished() {
+        return "PUBLISHED".equals(status);
+    }
+
+    public boolean canJoin() {
+        return ("PUBLISHED".equals(status) || "ONGOING".equals(status))
+                && isUpcoming() && Boolean.TRUE.equals(isPublic);
+    }
+
+    public boolean isCreator(Integer userId) {
+        return creatorId != null && creatorId.equals(userId);
+    }
+}
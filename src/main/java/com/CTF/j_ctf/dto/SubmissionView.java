@@ -0,0 +1,52 @@
+package com.CTF.j_ctf.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * 提交记录列表的只读视图
+ * 由 JPQL 构造表达式直接生成（只查询列表展示的列），不经过实体，没有持久化上下文和脏检查开销；
+ * JSON 结构与原先的 Map 转换一致，关联不存在时不输出对应的嵌套对象。
+ */
+public record SubmissionView(Integer submissionID,
+                             String submittedContent,
+                             @JsonProperty("isCorrect") Boolean isCorrect,
+                             LocalDateTime submitTime,
+                             String ipAddress,
+                             String userAgent,
+                             Integer pointsAwarded,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) ChallengeRef challenge,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) CompetitionRef competition,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) UserRef user,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) TeamRef team) {
+
+    public record ChallengeRef(Integer challengeID, String title) {
+    }
+
+    public record CompetitionRef(Integer competitionID, String title) {
+    }
+
+    public record UserRef(Integer userID, String userName, String userEmail) {
+    }
+
+    public record TeamRef(Integer teamID, String teamName) {
+    }
+
+    /**
+     * JPQL 构造表达式使用的扁平构造器；关联ID为 null 表示关联不存在（LEFT JOIN 未命中）
+     */
+    public SubmissionView(Integer submissionID, String submittedContent, Boolean isCorrect, LocalDateTime submitTime,
+                          String ipAddress, String userAgent, Integer pointsAwarded,
+                          Integer challengeID, String challengeTitle,
+                          Integer competitionID, String competitionTitle,
+                          Integer userID, String userName, String userEmail,
+                          Integer teamID, String teamName) {
+        this(submissionID, submittedContent, isCorrect, submitTime, ipAddress, userAgent, pointsAwarded,
+                challengeID != null ? new ChallengeRef(challengeID, challengeTitle) : null,
+                competitionID != null ? new CompetitionRef(competitionID, competitionTitle) : null,
+                userID != null ? new UserRef(userID, userName, userEmail) : null,
+                teamID != null ? new TeamRef(teamID, teamName) : null);
+    }
+}
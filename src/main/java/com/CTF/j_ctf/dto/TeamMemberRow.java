@@ -0,0 +1,15 @@
+package com.CTF.j_ctf.dto;
+
+/**
+ * 战队成员投影行：批量查询一页战队的成员时携带所属战队ID，用于按战队分组
+ */
+public record TeamMemberRow(Integer teamID,
+                            Integer userID,
+                            String userName,
+                            String email,
+                            String phoneNumber) {
+
+    public TeamMembershipView.MemberRef toMemberRef() {
+        return new TeamMembershipView.MemberRef(userID, userName, email, phoneNumber);
+    }
+}
@@ -0,0 +1,94 @@
+package com.CTF.j_ctf.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * “我的战队”列表的只读视图
+ * JSON 结构与原先的 Map 转换一致（包括 id、name、competitionId 等兼容字段），
+ * 队长或竞赛不存在时不输出对应字段。
+ */
+public record TeamMembershipView(Integer teamID,
+                                 String teamName,
+                                 String description,
+                                 String auditState,
+                                 String auditRemark,
+                                 LocalDateTime creationTime,
+                                 @JsonInclude(JsonInclude.Include.NON_NULL) CaptainRef captain,
+                                 @JsonInclude(JsonInclude.Include.NON_NULL) CompetitionRef competition,
+                                 List<MemberRef> members) {
+
+    public record CaptainRef(Integer userID, String userName) {
+    }
+
+    public record CompetitionRef(Integer competitionID, String title) {
+
+        @JsonProperty("id") // 兼容字段
+        public Integer id() {
+            return competitionID;
+        }
+
+        @JsonProperty("Title") // 兼容字段
+        public String titleAlias() {
+            return title;
+        }
+    }
+
+    public record MemberRef(Integer userID, String userName, String email, String phoneNumber) {
+    }
+
+    /**
+     * JPQL 构造表达式使用的扁平构造器；成员列表由第二次批量查询填充（见 withMembers）
+     */
+    public TeamMembershipView(Integer teamID, String teamName, String description, String auditState,
+                              String auditRemark, LocalDateTime creationTime,
+                              Integer captainID, String captainName,
+                              Integer competitionID, String competitionTitle) {
+        this(teamID, teamName, description, auditState, auditRemark, creationTime,
+                captainID != null ? new CaptainRef(captainID, captainName) : null,
+                competitionID != null ? new CompetitionRef(competitionID, competitionTitle) : null,
+                List.of());
+    }
+
+    public TeamMembershipView withMembers(List<MemberRef> members) {
+        return new TeamMembershipView(teamID, teamName, description, auditState, auditRemark, creationTime,
+                captain, competition, members);
+    }
+
+    @JsonProperty("id") // 兼容字段
+    public Integer id() {
+        return teamID;
+    }
+
+    @JsonProperty("name") // 兼容字段
+    public String name() {
+        return teamName;
+    }
+
+    @JsonProperty("captainName")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String captainName() {
+        return captain != null ? captain.userName() : null;
+    }
+
+    @JsonProperty("competitionID")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer competitionID() {
+        return competition != null ? competition.competitionID() : null;
+    }
+
+    @JsonProperty("competitionId") // 兼容字段
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer competitionId() {
+        return competitionID();
+    }
+
+    @JsonProperty("competitionName")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String competitionName() {
+        return competition != null ? competition.title() : null;
+    }
+}
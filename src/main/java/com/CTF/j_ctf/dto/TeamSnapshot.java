@@ -0,0 +1,19 @@
+package com.CTF.j_ctf.dto;
+
+/**
+ * 战队参考数据（不可变快照），不含成员与申请列表
+ */
+public record TeamSnapshot(Integer teamId,
+                           Integer competitionId,
+                           String teamName,
+                           Integer captainId,
+                           String auditState) {
+
+    public boolean isAuditApproved() {
+        return "1".equals(auditState);
+    }
+
+    public boolean isCaptain(Integer userId) {
+        return captainId != null && captainId.equals(userId);
+    }
+}
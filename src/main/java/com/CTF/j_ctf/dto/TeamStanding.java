@@ -0,0 +1,15 @@
+package com.CTF.j_ctf.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 战队排行榜条目（不可变快照）
+ */
+public record TeamStanding(Integer teamId,
+                           String teamName,
+                           Integer competitionId,
+                           int totalScore,
+                           int solveCount,
+                           LocalDateTime lastSubmitTime,
+                           int rank) {
+}
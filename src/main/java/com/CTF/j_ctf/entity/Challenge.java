@@ -62,6 +62,13 @@ public class Challenge {
     @Column(name = "SolveCount")
     private Integer solveCount = 0; // 解题人数
 
+    // 一血：由 SolveRegistry 以 "为空才写入" 的条件更新抢占，只有一个用户能写入
+    @Column(name = "FirstBloodUserID")
+    private Integer firstBloodUserId;
+
+    @Column(name = "FirstBloodTime")
+    private LocalDateTime firstBloodTime;
+
     // 添加创建者ID字段
     @Column(name = "CreatorID")
     private Integer creatorId;
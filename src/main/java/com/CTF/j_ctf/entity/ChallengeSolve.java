@@ -0,0 +1,34 @@
+package com.CTF.j_ctf.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 解题登记（每个用户每道题一行）
+ * 主键 (ChallengeID, userID) 保证同一用户对同一题目只能登记一次，由 SolveRegistry 通过 JDBC 写入。
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "ChallengeSolve",
+        indexes = @Index(name = "idx_solve_user", columnList = "userID"))
+@IdClass(ChallengeSolveId.class)
+public class ChallengeSolve {
+
+    @Id
+    @Column(name = "ChallengeID")
+    private Integer challengeID;
+
+    @Id
+    @Column(name = "userID")
+    private Integer userID;
+
+    @Column(name = "CompetitionID", nullable = false)
+    private Integer competitionID;
+
+    @Column(name = "SolveTime", nullable = false)
+    private LocalDateTime solveTime;
+}
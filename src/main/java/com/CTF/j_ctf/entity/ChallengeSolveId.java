@@ -0,0 +1,22 @@
+package com.CTF.j_ctf.entity;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import java.io.Serializable;
+
+@Setter
+@Getter
+@EqualsAndHashCode
+public class ChallengeSolveId implements Serializable {
+
+    private Integer challengeID;
+    private Integer userID;
+
+    public ChallengeSolveId() {}
+
+    public ChallengeSolveId(Integer challengeId, Integer userId) {
+        this.challengeID = challengeId;
+        this.userID = userId;
+    }
+}
@@ -1,45 +1,51 @@
 package com.CTF.j_ctf.entity;
 
 import jakarta.persistence.*;
-import org.hibernate.annotations.Immutable;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
 
+/**
+ * 分数汇总（实体表，由 ScoreSummaryMaintainer 增量维护并定期对账）
+ */
 @Setter
 @Getter
 @Entity
-@Immutable  // 标记为不可变，因为这是视图
-@Table(name = "Scoresummary")
+@Table(name = "Scoresummary",
+        uniqueConstraints = @UniqueConstraint(name = "uk_summary_entity", columnNames = {"CompetitionID", "EntityType", "EntityID"}),
+        indexes = @Index(name = "idx_summary_ranking", columnList = "CompetitionID, EntityType, TotalScore"))
 public class ScoreSummary {
     // Getter和Setter
     @Id
-    @Column(name = "ID")
-    private String id; // 组合ID: user_{userId} 或 team_{teamId}
+    @Column(name = "ID", length = 64)
+    private String id; // 组合ID: USER_{userId}_{competitionId} 或 TEAM_{teamId}_{competitionId}
 
-    @Column(name = "EntityID")
+    @Column(name = "EntityID", nullable = false)
     private Integer entityID; // 用户ID或战队ID
 
-    @Column(name = "EntityType")
+    @Column(name = "EntityType", nullable = false, length = 10)
     private String entityType; // USER 或 TEAM
 
-    @Column(name = "EntityName")
+    @Column(name = "EntityName", length = 100)
     private String entityName; // 用户名或战队名
 
-    @Column(name = "CompetitionID")
+    @Column(name = "CompetitionID", nullable = false)
     private Integer competitionID;
 
-    @Column(name = "TotalScore")
+    @Column(name = "TotalScore", nullable = false)
     private Integer totalScore;
 
-    @Column(name = "SolveCount")
+    @Column(name = "SolveCount", nullable = false)
     private Integer solveCount; // 解题数量
 
     @Column(name = "LastSubmitTime")
     private LocalDateTime lastSubmitTime;
 
-    @Column(name = "Rank")
-    private Integer rank;
+    @Transient
+    private Integer rank; // 查询时按分页位置填充，不落库
 
-}
\ No newline at end of file
+    public static String idOf(String entityType, Integer entityId, Integer competitionId) {
+        return entityType + "_" + entityId + "_" + competitionId;
+    }
+}
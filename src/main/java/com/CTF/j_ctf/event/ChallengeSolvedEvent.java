@@ -0,0 +1,10 @@
+package com.CTF.j_ctf.event;
+
+/**
+ * 题目解出事件
+ * 用户提交正确 Flag 且提交记录保存后发布
+ */
+public record ChallengeSolvedEvent(Integer competitionId,
+                                   Integer challengeId,
+                                   Integer userId) {
+}
@@ -0,0 +1,10 @@
+package com.CTF.j_ctf.event;
+
+import java.util.List;
+
+/**
+ * Flag 过期事件
+ * 过期任务把一批 Flag 置为已过期（Status=2）并提交后按竞赛发布
+ */
+public record FlagsExpiredEvent(Integer competitionId, List<Integer> flagIds) {
+}
@@ -0,0 +1,8 @@
+package com.CTF.j_ctf.event;
+
+/**
+ * 排行榜失效事件
+ * 分数被修改/作废/恢复/删除或战队信息变化时发布，competitionId 为 null 表示全部竞赛
+ */
+public record LeaderboardInvalidatedEvent(Integer competitionId) {
+}
@@ -0,0 +1,8 @@
+package com.CTF.j_ctf.event;
+
+/**
+ * 排行榜已更新事件
+ * LeaderboardEngine 应用新的分数记录后同步发布，此时读取到的排行已包含该记录；实时推送据此计算排行增量
+ */
+public record LeaderboardUpdatedEvent(Integer competitionId) {
+}
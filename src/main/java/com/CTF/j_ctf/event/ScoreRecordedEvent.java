@@ -0,0 +1,32 @@
+package com.CTF.j_ctf.event;
+
+import com.CTF.j_ctf.entity.Score;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分数记录写入事件
+ * 在 Score 行保存后发布，事务提交后由内存排行榜等组件增量消费
+ */
+public record ScoreRecordedEvent(Integer changeId,
+                                 Integer competitionId,
+                                 Integer userId,
+                                 Integer teamId,
+                                 Integer challengeId,
+                                 Integer points,
+                                 LocalDateTime createTime) {
+
+    /**
+     * 从已保存的 Score 实体构建事件（只读取关联ID，不触发 LAZY 加载）
+     */
+    public static ScoreRecordedEvent of(Score score) {
+        return new ScoreRecordedEvent(
+                score.getChangeID(),
+                score.getCompetition() != null ? score.getCompetition().getCompetitionID() : null,
+                score.getUser() != null ? score.getUser().getUserID() : null,
+                score.getTeam() != null ? score.getTeam().getTeamID() : null,
+                score.getChallenge() != null ? score.getChallenge().getChallengeID() : null,
+                score.getScoreValue(),
+                score.getCreateTime());
+    }
+}
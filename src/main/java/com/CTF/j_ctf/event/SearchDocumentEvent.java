@@ -0,0 +1,78 @@
+package com.CTF.j_ctf.event;
+
+import com.CTF.j_ctf.entity.Challenge;
+import com.CTF.j_ctf.entity.Competition;
+import com.CTF.j_ctf.entity.Team;
+import com.CTF.j_ctf.entity.User;
+import com.CTF.j_ctf.entity.WriteUp;
+
+/**
+ * 全文检索文档变更事件
+ * 题目、竞赛、战队、题解、用户在创建/修改/删除后发布，事务提交后由 SearchIndex 增量写入索引。
+ * 只携带建索引需要的文本和过滤字段；deleted 为 true 时只有 type 和 id 有意义。
+ */
+public record SearchDocumentEvent(Type type,
+                                  Integer id,
+                                  Integer competitionId,
+                                  String title,
+                                  String body,
+                                  boolean publicVisible,
+                                  boolean deleted) {
+
+    public enum Type {
+        CHALLENGE, COMPETITION, TEAM, WRITEUP, USER
+    }
+
+    /**
+     * 题目：标题 + 描述、分类（不包含 Flag 和提示）
+     */
+    public static SearchDocumentEvent of(Challenge challenge) {
+        return new SearchDocumentEvent(Type.CHALLENGE, challenge.getChallengeID(),
+                challenge.getCompetition() != null ? challenge.getCompetition().getCompetitionID() : null,
+                challenge.getTitle(), join(challenge.getDescription(), challenge.getCategory()), false, false);
+    }
+
+    /**
+     * 竞赛：公开且已发布的竞赛标记为 publicVisible，与公开搜索的条件一致
+     */
+    public static SearchDocumentEvent of(Competition competition) {
+        return new SearchDocumentEvent(Type.COMPETITION, competition.getCompetitionID(), competition.getCompetitionID(),
+                competition.getTitle(), competition.getIntroduction(),
+                isPublicVisible(competition.getIsPublic(), competition.getStatus()), false);
+    }
+
+    public static SearchDocumentEvent of(Team team) {
+        return new SearchDocumentEvent(Type.TEAM, team.getTeamID(),
+                team.getCompetition() != null ? team.getCompetition().getCompetitionID() : null,
+                team.getTeamName(), team.getDescription(), false, false);
+    }
+
+    public static SearchDocumentEvent of(WriteUp writeUp) {
+        return new SearchDocumentEvent(Type.WRITEUP, writeUp.getWriteUpID(),
+                writeUp.getCompetition() != null ? writeUp.getCompetition().getCompetitionID() : null,
+                writeUp.getTitle(), writeUp.getContent(), false, false);
+    }
+
+    /**
+     * 用户：用户名 + 邮箱，只供管理员搜索
+     */
+    public static SearchDocumentEvent of(User user) {
+        return new SearchDocumentEvent(Type.USER, user.getUserID(), null,
+                user.getUserName(), user.getUserEmail(), false, false);
+    }
+
+    public static SearchDocumentEvent deleted(Type type, Integer id) {
+        return new SearchDocumentEvent(type, id, null, null, null, false, true);
+    }
+
+    public static boolean isPublicVisible(Boolean isPublic, String status) {
+        return Boolean.TRUE.equals(isPublic) && "PUBLISHED".equals(status);
+    }
+
+    public static String join(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + "\n" + second;
+    }
+}
@@ -0,0 +1,37 @@
+package com.CTF.j_ctf.event;
+
+import com.CTF.j_ctf.entity.FlagSubmission;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flag 提交判定事件
+ * 每次提交判定完成后发布（正确和错误都会发布），事务提交后由实时推送等组件消费；
+ * firstBlood 表示该提交是题目的第一个正确解答
+ */
+public record SubmissionJudgedEvent(Integer competitionId,
+                                    Integer challengeId,
+                                    Integer flagId,
+                                    Integer userId,
+                                    Integer teamId,
+                                    boolean correct,
+                                    Integer pointsAwarded,
+                                    LocalDateTime submitTime,
+                                    boolean firstBlood) {
+
+    /**
+     * 从已保存的提交记录构建事件（只读取关联ID，不触发 LAZY 加载）
+     */
+    public static SubmissionJudgedEvent of(FlagSubmission submission, boolean firstBlood) {
+        return new SubmissionJudgedEvent(
+                submission.getCompetition() != null ? submission.getCompetition().getCompetitionID() : null,
+                submission.getChallenge() != null ? submission.getChallenge().getChallengeID() : null,
+                submission.getFlag() != null ? submission.getFlag().getFlagID() : null,
+                submission.getUser() != null ? submission.getUser().getUserID() : null,
+                submission.getTeam() != null ? submission.getTeam().getTeamID() : null,
+                Boolean.TRUE.equals(submission.getIsCorrect()),
+                submission.getPointsAwarded(),
+                submission.getSubmitTime(),
+                firstBlood);
+    }
+}
@@ -0,0 +1,30 @@
+package com.CTF.j_ctf.event;
+
+/**
+ * 战队成员关系变更事件
+ * 加入/退出/移除成员、删除战队、删除用户、删除竞赛后发布，事务提交后由 ParticipationIndex 增量更新。
+ * 为 null 的字段表示不限定：只有 teamId 表示整个战队被删除，只有 userId 表示用户被删除，
+ * 只有 competitionId 表示竞赛被删除。
+ */
+public record TeamMembershipChangedEvent(Integer competitionId, Integer teamId, Integer userId, boolean joined) {
+
+    public static TeamMembershipChangedEvent joined(Integer competitionId, Integer teamId, Integer userId) {
+        return new TeamMembershipChangedEvent(competitionId, teamId, userId, true);
+    }
+
+    public static TeamMembershipChangedEvent left(Integer competitionId, Integer teamId, Integer userId) {
+        return new TeamMembershipChangedEvent(competitionId, teamId, userId, false);
+    }
+
+    public static TeamMembershipChangedEvent teamRemoved(Integer competitionId, Integer teamId) {
+        return new TeamMembershipChangedEvent(competitionId, teamId, null, false);
+    }
+
+    public static TeamMembershipChangedEvent userRemoved(Integer userId) {
+        return new TeamMembershipChangedEvent(null, null, userId, false);
+    }
+
+    public static TeamMembershipChangedEvent competitionRemoved(Integer competitionId) {
+        return new TeamMembershipChangedEvent(competitionId, null, null, false);
+    }
+}
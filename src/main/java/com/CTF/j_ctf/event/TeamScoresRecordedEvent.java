@@ -0,0 +1,13 @@
+package com.CTF.j_ctf.event;
+
+import java.util.List;
+
+/**
+ * 战队分数分发事件
+ * 战队分数分发（每个成员一条相同的 Score）批量写入后发布一次，代替逐行的 ScoreRecordedEvent；
+ * scores 按成员ID顺序，每条带各自的 ChangeID，消费方可一次性应用整批增量
+ */
+public record TeamScoresRecordedEvent(Integer competitionId,
+                                      Integer teamId,
+                                      List<ScoreRecordedEvent> scores) {
+}
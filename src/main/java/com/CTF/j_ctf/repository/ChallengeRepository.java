@@ -1,5 +1,6 @@
 package com.CTF.j_ctf.repository;
 
+import com.CTF.j_ctf.dto.ChallengeSnapshot;
 import com.CTF.j_ctf.entity.Challenge;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,7 +10,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChallengeRepository extends JpaRepository<Challenge, Integer> {
@@ -68,6 +71,14 @@ public interface ChallengeRepository extends JpaRepository<Challenge, Integer> {
     @Query("UPDATE Challenge c SET c.solveCount = c.solveCount + 1 WHERE c.challengeID = :challengeId")
     int incrementSolveCount(@Param("challengeId") Integer challengeId);
 
+    // 抢占一血（比较并设置）：仅当尚无一血时写入，返回 1 表示抢占成功
+    @Modifying
+    @Query("UPDATE Challenge c SET c.firstBloodUserId = :userId, c.firstBloodTime = :solveTime " +
+            "WHERE c.challengeID = :challengeId AND c.firstBloodUserId IS NULL")
+    int claimFirstBlood(@Param("challengeId") Integer challengeId,
+                        @Param("userId") Integer userId,
+                        @Param("solveTime") LocalDateTime solveTime);
+
     // 更新题目分值
     @Modifying
     @Query("UPDATE Challenge c SET c.points = :points WHERE c.challengeID = :challengeId")
@@ -82,4 +93,21 @@ public interface ChallengeRepository extends JpaRepository<Challenge, Integer> {
     boolean existsByTitleAndCompetitionExcludingId(@Param("title") String title,
                                                    @Param("competitionID") Integer competitionID,
                                                    @Param("excludeChallengeId") Integer excludeChallengeId);
-}
\ No newline at end of file
+
+    // 提交校验用：只取校验所需字段，不加载 Challenge 实体
+    interface ChallengeVerificationView {
+        Integer getChallengeID();
+        Integer getCompetitionID();
+        Boolean getIsActive();
+        String getFlag();
+    }
+
+    @Query("SELECT c.challengeID as challengeID, c.competition.competitionID as competitionID, " +
+            "c.isActive as isActive, c.flag as flag FROM Challenge c WHERE c.challengeID = :challengeID")
+    Optional<ChallengeVerificationView> findVerificationViewById(@Param("challengeID") Integer challengeID);
+
+    // 参考数据快照：只取标量列，不加载竞赛实体和 Flag 等大字段
+    @Query("SELECT new com.CTF.j_ctf.dto.ChallengeSnapshot(c.challengeID, comp.competitionID, c.creatorId, c.title, c.category, " +
+            "c.points, c.isActive) FROM Challenge c LEFT JOIN c.competition comp WHERE c.challengeID = :challengeId")
+    Optional<ChallengeSnapshot> findSnapshotById(@Param("challengeId") Integer challengeId);
+}
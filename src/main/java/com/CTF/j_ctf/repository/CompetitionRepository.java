@@ -1,6 +1,7 @@
 package com.CTF.j_ctf.repository;
 
 import com.CTF.j_ctf.entity.Competition;
+import com.CTF.j_ctf.dto.CompetitionSnapshot;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CompetitionRepository extends JpaRepository<Competition, Integer> {
@@ -91,4 +93,18 @@ public interface CompetitionRepository extends JpaRepository<Competition, Intege
 
     // 补充：按创建者ID计数，Service 使用的方法名
     Long countByCreator_UserID(Integer userID);
+
+    // 竞赛时间窗口（提交校验用，不加载 Competition 实体）
+    interface CompetitionWindow {
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+    }
+
+    @Query("SELECT c.startTime as startTime, c.endTime as endTime FROM Competition c WHERE c.competitionID = :competitionID")
+    Optional<CompetitionWindow> findWindowById(@Param("competitionID") Integer competitionID);
+
+    // 参考数据快照：只取标量列，不加载创建者实体
+    @Query("SELECT new com.CTF.j_ctf.dto.CompetitionSnapshot(c.competitionID, c.creator.userID, c.title, c.status, c.auditStatus, " +
+            "c.teamSizeLimit, c.maxTeams, c.isPublic, c.startTime, c.endTime) FROM Competition c WHERE c.competitionID = :competitionId")
+    Optional<CompetitionSnapshot> findSnapshotById(@Param("competitionId") Integer competitionId);
 }
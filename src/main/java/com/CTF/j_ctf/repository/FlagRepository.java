@@ -4,6 +4,7 @@ import com.CTF.j_ctf.entity.Flag;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -75,4 +76,24 @@ public interface FlagRepository extends JpaRepository<Flag, Integer> {
 
     // 新增：与 Service 中调用的命名保持一致（按值或描述模糊搜索）
     Page<Flag> findByValueContainingOrDescriptionContaining(String valueKeyword, String descriptionKeyword, Pageable pageable);
+
+    // 提交校验用：只取校验所需字段，不加载 Flag 实体
+    interface FlagVerificationView {
+        Integer getFlagID();
+        Integer getCompetitionID();
+        Integer getChallengeID();
+        Integer getStatus();
+        LocalDateTime getExpireTime();
+        String getValue();
+    }
+
+    @Query("SELECT f.flagID as flagID, f.competition.competitionID as competitionID, c.challengeID as challengeID, " +
+            "f.status as status, f.expireTime as expireTime, f.value as value " +
+            "FROM Flag f LEFT JOIN f.challenge c WHERE f.flagID = :flagID")
+    Optional<FlagVerificationView> findVerificationViewById(@Param("flagID") Integer flagID);
+
+    // 标记为已使用（比较并设置）：仅当仍为未使用状态时更新，返回 1 表示本次提交抢到了该 Flag
+    @Modifying
+    @Query("UPDATE Flag f SET f.status = 1, f.useTime = :useTime WHERE f.flagID = :flagId AND f.status = 0")
+    int markUsedIfUnused(@Param("flagId") Integer flagId, @Param("useTime") LocalDateTime useTime);
 }
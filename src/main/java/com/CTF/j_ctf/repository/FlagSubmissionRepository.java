@@ -1,5 +1,6 @@
 package com.CTF.j_ctf.repository;
 
+import com.CTF.j_ctf.dto.SubmissionView;
 import com.CTF.j_ctf.entity.FlagSubmission;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,6 +11,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,58 +22,56 @@ public interface FlagSubmissionRepository extends JpaRepository<FlagSubmission,
     // 单维度查询
     Page<FlagSubmission> findByUser_UserID(Integer userID, Pageable pageable);
     
-    // 使用 JOIN FETCH 预先加载关联，避免 LazyInitializationException
-    @Query("SELECT DISTINCT fs FROM FlagSubmission fs " +
+    // 分页第一步：只在数据库侧取当前页的提交ID（LIMIT/OFFSET + COUNT），筛选条件为 null 时不生效
+    @Query(value = "SELECT fs.submissionID FROM FlagSubmission fs " +
+           "WHERE (:userID IS NULL OR fs.user.userID = :userID) " +
+           "AND (:competitionId IS NULL OR fs.competition.competitionID = :competitionId) " +
+           "AND (:flagId IS NULL OR fs.flag.flagID = :flagId) " +
+           "ORDER BY fs.submitTime DESC, fs.submissionID DESC",
+           countQuery = "SELECT COUNT(fs) FROM FlagSubmission fs " +
+           "WHERE (:userID IS NULL OR fs.user.userID = :userID) " +
+           "AND (:competitionId IS NULL OR fs.competition.competitionID = :competitionId) " +
+           "AND (:flagId IS NULL OR fs.flag.flagID = :flagId)")
+    Page<Integer> findSubmissionIdPage(@Param("userID") Integer userID,
+                                       @Param("competitionId") Integer competitionId,
+                                       @Param("flagId") Integer flagId,
+                                       Pageable pageable);
+
+    // 游标分页：取 (submitTime, submissionID) 严格位于游标之后的提交ID，深翻页不需要 OFFSET 扫描
+    @Query("SELECT fs.submissionID FROM FlagSubmission fs " +
+           "WHERE (:userID IS NULL OR fs.user.userID = :userID) " +
+           "AND (:competitionId IS NULL OR fs.competition.competitionID = :competitionId) " +
+           "AND (:flagId IS NULL OR fs.flag.flagID = :flagId) " +
+           "AND (fs.submitTime < :cursorTime OR (fs.submitTime = :cursorTime AND fs.submissionID < :cursorId)) " +
+           "ORDER BY fs.submitTime DESC, fs.submissionID DESC")
+    List<Integer> findSubmissionIdsBefore(@Param("userID") Integer userID,
+                                          @Param("competitionId") Integer competitionId,
+                                          @Param("flagId") Integer flagId,
+                                          @Param("cursorTime") LocalDateTime cursorTime,
+                                          @Param("cursorId") Integer cursorId,
+                                          Pageable limit);
+
+    // 分页第二步：只为当前页的ID使用 JOIN FETCH 预先加载关联，避免 LazyInitializationException
+    @Query("SELECT fs FROM FlagSubmission fs " +
            "LEFT JOIN FETCH fs.user " +
            "LEFT JOIN FETCH fs.challenge " +
            "LEFT JOIN FETCH fs.competition " +
            "LEFT JOIN FETCH fs.team " +
-           "WHERE fs.user.userID = :userID " +
-           "ORDER BY fs.submitTime DESC")
-    List<FlagSubmission> findByUser_UserIDWithAssociations(@Param("userID") Integer userID);
-    
-    // 使用 JOIN FETCH 预先加载关联，带竞赛筛选
-    @Query("SELECT DISTINCT fs FROM FlagSubmission fs " +
-           "LEFT JOIN FETCH fs.user " +
-           "LEFT JOIN FETCH fs.challenge " +
-           "LEFT JOIN FETCH fs.competition " +
-           "LEFT JOIN FETCH fs.team " +
-           "WHERE fs.user.userID = :userID AND fs.competition.competitionID = :competitionId " +
-           "ORDER BY fs.submitTime DESC")
-    List<FlagSubmission> findByUser_UserIDAndCompetition_CompetitionIDWithAssociations(
-        @Param("userID") Integer userID,
-        @Param("competitionId") Integer competitionId
-    );
-    
-    // 获取所有提交记录，使用 JOIN FETCH 预先加载关联
-    @Query("SELECT DISTINCT fs FROM FlagSubmission fs " +
-           "LEFT JOIN FETCH fs.user " +
-           "LEFT JOIN FETCH fs.challenge " +
-           "LEFT JOIN FETCH fs.competition " +
-           "LEFT JOIN FETCH fs.team " +
-           "ORDER BY fs.submitTime DESC")
-    List<FlagSubmission> findAllWithAssociations();
-    
-    // 按竞赛获取提交记录，使用 JOIN FETCH 预先加载关联
-    @Query("SELECT DISTINCT fs FROM FlagSubmission fs " +
-           "LEFT JOIN FETCH fs.user " +
-           "LEFT JOIN FETCH fs.challenge " +
-           "LEFT JOIN FETCH fs.competition " +
-           "LEFT JOIN FETCH fs.team " +
-           "WHERE fs.competition.competitionID = :competitionId " +
-           "ORDER BY fs.submitTime DESC")
-    List<FlagSubmission> findByCompetition_CompetitionIDWithAssociations(@Param("competitionId") Integer competitionId);
-    
-    // 按 Flag 获取提交记录，使用 JOIN FETCH 预先加载关联
-    @Query("SELECT DISTINCT fs FROM FlagSubmission fs " +
-           "LEFT JOIN FETCH fs.user " +
-           "LEFT JOIN FETCH fs.challenge " +
-           "LEFT JOIN FETCH fs.competition " +
-           "LEFT JOIN FETCH fs.team " +
-           "WHERE fs.flag.flagID = :flagId " +
-           "ORDER BY fs.submitTime DESC")
-    List<FlagSubmission> findByFlag_FlagIDWithAssociations(@Param("flagId") Integer flagId);
-    
+           "WHERE fs.submissionID IN :ids")
+    List<FlagSubmission> findAllWithAssociationsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // 分页第二步（列表接口）：只查询展示的列，直接构造只读视图，不加载实体
+    @Query("SELECT new com.CTF.j_ctf.dto.SubmissionView(fs.submissionID, fs.submittedContent, fs.isCorrect, fs.submitTime, " +
+           "fs.ipAddress, fs.userAgent, fs.pointsAwarded, ch.challengeID, ch.title, comp.competitionID, comp.title, " +
+           "u.userID, u.userName, u.userEmail, t.teamID, t.teamName) " +
+           "FROM FlagSubmission fs " +
+           "LEFT JOIN fs.challenge ch " +
+           "LEFT JOIN fs.competition comp " +
+           "LEFT JOIN fs.user u " +
+           "LEFT JOIN fs.team t " +
+           "WHERE fs.submissionID IN :ids")
+    List<SubmissionView> findViewsByIdIn(@Param("ids") Collection<Integer> ids);
+
     Page<FlagSubmission> findByChallenge_ChallengeID(Integer challengeID, Pageable pageable);
     Page<FlagSubmission> findByFlag_FlagID(Integer flagID, Pageable pageable);
     Page<FlagSubmission> findByTeam_TeamID(Integer teamID, Pageable pageable);
@@ -80,6 +81,11 @@ public interface FlagSubmissionRepository extends JpaRepository<FlagSubmission,
     Optional<FlagSubmission> findFirstByUser_UserIDAndChallenge_ChallengeIDAndIsCorrectTrue(Integer userId, Integer challengeId);
     List<FlagSubmission> findByUser_UserIDAndIsCorrectTrue(Integer userId);
 
+    // 用户已解出的题目ID（只取ID列，走 UserID + IsCorrect 索引）
+    @Query("SELECT DISTINCT fs.challenge.challengeID FROM FlagSubmission fs " +
+           "WHERE fs.user.userID = :userID AND fs.isCorrect = true AND fs.challenge IS NOT NULL")
+    List<Integer> findSolvedChallengeIdsByUser(@Param("userID") Integer userID);
+
     // 竞赛维度查询（原有 JPQL 保留）
     @Query("SELECT fs FROM FlagSubmission fs WHERE fs.flag.competition.competitionID = :competitionID")
     List<FlagSubmission> findByCompetition(@Param("competitionID") Integer competitionID);
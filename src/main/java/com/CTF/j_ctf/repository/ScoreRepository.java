@@ -136,6 +136,63 @@ public interface ScoreRepository extends JpaRepository<Score, Integer> {
             "WHERE s.team.teamID = :teamID AND s.competition.competitionID = :competitionID AND s.isValid = true")
     Long countDistinctChallengesByTeamAndCompetition(@Param("teamID") Integer teamID, @Param("competitionID") Integer competitionID);
 
+    // 内存排行榜重建用：按竞赛+战队聚合有效分数（competitionID 为 null 时聚合全部竞赛）
+    interface TeamScoreAggregate {
+        Integer getCompetitionID();
+        Integer getTeamID();
+        String getTeamName();
+        Long getTotalScore();
+        java.time.LocalDateTime getLastSubmitTime();
+    }
+
+    @Query("SELECT s.competition.competitionID as competitionID, t.teamID as teamID, t.teamName as teamName, " +
+            "SUM(s.scoreValue) as totalScore, MAX(s.createTime) as lastSubmitTime " +
+            "FROM Score s JOIN s.team t " +
+            "WHERE s.isValid = true AND (:competitionID IS NULL OR s.competition.competitionID = :competitionID) " +
+            "GROUP BY s.competition.competitionID, t.teamID, t.teamName")
+    List<TeamScoreAggregate> aggregateTeamScores(@Param("competitionID") Integer competitionID);
+
+    // 内存排名索引用：按竞赛+用户聚合有效分数（competitionID 为 null 时聚合全部竞赛）
+    interface UserScoreAggregate {
+        Integer getCompetitionID();
+        Integer getUserID();
+        Long getTotalScore();
+        java.time.LocalDateTime getLastSubmitTime();
+    }
+
+    @Query("SELECT s.competition.competitionID as competitionID, s.user.userID as userID, " +
+            "SUM(s.scoreValue) as totalScore, MAX(s.createTime) as lastSubmitTime " +
+            "FROM Score s " +
+            "WHERE s.isValid = true AND s.user IS NOT NULL " +
+            "AND (:competitionID IS NULL OR s.competition.competitionID = :competitionID) " +
+            "GROUP BY s.competition.competitionID, s.user.userID")
+    List<UserScoreAggregate> aggregateUserScores(@Param("competitionID") Integer competitionID);
+
+    // 内存排行榜加载用：快照包含的有效分数记录ID，按ID升序（competitionID 为 null 时返回全部竞赛）
+    interface ScoreChangeRow {
+        Integer getCompetitionID();
+        Integer getChangeID();
+    }
+
+    @Query("SELECT s.competition.competitionID as competitionID, s.changeID as changeID " +
+            "FROM Score s " +
+            "WHERE s.isValid = true AND (:competitionID IS NULL OR s.competition.competitionID = :competitionID) " +
+            "ORDER BY s.changeID")
+    List<ScoreChangeRow> findValidChangeIds(@Param("competitionID") Integer competitionID);
+
+    // 内存排行榜重建用：战队已得分的题目（去重）
+    interface TeamChallengeRow {
+        Integer getCompetitionID();
+        Integer getTeamID();
+        Integer getChallengeID();
+    }
+
+    @Query("SELECT DISTINCT s.competition.competitionID as competitionID, s.team.teamID as teamID, s.challenge.challengeID as challengeID " +
+            "FROM Score s " +
+            "WHERE s.isValid = true AND s.team IS NOT NULL AND s.challenge IS NOT NULL " +
+            "AND (:competitionID IS NULL OR s.competition.competitionID = :competitionID)")
+    List<TeamChallengeRow> findTeamSolvedChallenges(@Param("competitionID") Integer competitionID);
+
     @Query("SELECT s.user.userID as entityID, u.userName as name, SUM(s.scoreValue) as totalScore " +
             "FROM Score s JOIN s.user u " +
             "WHERE s.isValid = true " +
@@ -174,4 +231,73 @@ public interface ScoreRepository extends JpaRepository<Score, Integer> {
 
     // 按类型计数（比赛维度）
     Long countByCompetition_CompetitionIDAndTypeAndIsValidTrue(Integer competitionID, String type);
+
+    // 统计接口用：一次条件聚合返回竞赛的全部统计数据
+    interface CompetitionScoreAggregate {
+        Long getTotalRecords();
+        Long getValidRecords();
+        Long getInvalidRecords();
+        Long getParticipantCount();
+        Long getTeamCount();
+        Double getAverageScore();
+        Integer getMaxScore();
+        Integer getMinScore();
+        Long getFlagSubmissionCount();
+        Long getChallengeSolveCount();
+        Long getBonusCount();
+        Long getPenaltyCount();
+        Long getAdjustmentCount();
+    }
+
+    @Query("SELECT COUNT(s) as totalRecords, " +
+            "SUM(CASE WHEN s.isValid = true THEN 1 ELSE 0 END) as validRecords, " +
+            "SUM(CASE WHEN s.isValid = false THEN 1 ELSE 0 END) as invalidRecords, " +
+            "COUNT(DISTINCT s.user.userID) as participantCount, " +
+            "COUNT(DISTINCT s.team.teamID) as teamCount, " +
+            "AVG(CASE WHEN s.isValid = true THEN s.scoreValue END) as averageScore, " +
+            "MAX(CASE WHEN s.isValid = true THEN s.scoreValue END) as maxScore, " +
+            "MIN(CASE WHEN s.isValid = true THEN s.scoreValue END) as minScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'FLAG_SUBMISSION' THEN 1 ELSE 0 END) as flagSubmissionCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'CHALLENGE_SOLVE' THEN 1 ELSE 0 END) as challengeSolveCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'BONUS' THEN 1 ELSE 0 END) as bonusCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'PENALTY' THEN 1 ELSE 0 END) as penaltyCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'ADJUSTMENT' THEN 1 ELSE 0 END) as adjustmentCount " +
+            "FROM Score s WHERE s.competition.competitionID = :competitionID")
+    CompetitionScoreAggregate aggregateCompetitionStatistics(@Param("competitionID") Integer competitionID);
+
+    // 统计接口用：用户/战队在竞赛中的分数构成（按类型条件聚合）
+    interface ScoreBreakdown {
+        Long getTotalScore();
+        Long getSolveCount();
+        Long getChallengeSolveCount();
+        Long getBonusScore();
+        Long getPenaltyScore();
+        Long getAdjustmentScore();
+        LocalDateTime getLastSubmitTime();
+    }
+
+    interface TeamScoreBreakdown extends ScoreBreakdown {
+        Long getMemberCount();
+    }
+
+    @Query("SELECT SUM(CASE WHEN s.isValid = true THEN s.scoreValue ELSE 0 END) as totalScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'FLAG_SUBMISSION' THEN 1 ELSE 0 END) as solveCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'CHALLENGE_SOLVE' THEN 1 ELSE 0 END) as challengeSolveCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'BONUS' THEN s.scoreValue ELSE 0 END) as bonusScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'PENALTY' THEN s.scoreValue ELSE 0 END) as penaltyScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'ADJUSTMENT' THEN s.scoreValue ELSE 0 END) as adjustmentScore, " +
+            "MAX(s.createTime) as lastSubmitTime " +
+            "FROM Score s WHERE s.user.userID = :userID AND s.competition.competitionID = :competitionID")
+    ScoreBreakdown aggregateUserStatistics(@Param("userID") Integer userID, @Param("competitionID") Integer competitionID);
+
+    @Query("SELECT SUM(CASE WHEN s.isValid = true THEN s.scoreValue ELSE 0 END) as totalScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'FLAG_SUBMISSION' THEN 1 ELSE 0 END) as solveCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'CHALLENGE_SOLVE' THEN 1 ELSE 0 END) as challengeSolveCount, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'BONUS' THEN s.scoreValue ELSE 0 END) as bonusScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'PENALTY' THEN s.scoreValue ELSE 0 END) as penaltyScore, " +
+            "SUM(CASE WHEN s.isValid = true AND s.type = 'ADJUSTMENT' THEN s.scoreValue ELSE 0 END) as adjustmentScore, " +
+            "MAX(s.createTime) as lastSubmitTime, " +
+            "(SELECT COUNT(tm) FROM TeamMember tm WHERE tm.team.teamID = :teamID) as memberCount " +
+            "FROM Score s WHERE s.team.teamID = :teamID AND s.competition.competitionID = :competitionID")
+    TeamScoreBreakdown aggregateTeamStatistics(@Param("teamID") Integer teamID, @Param("competitionID") Integer competitionID);
 }
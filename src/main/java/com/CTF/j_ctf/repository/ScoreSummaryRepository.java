@@ -1,6 +1,8 @@
 package com.CTF.j_ctf.repository;
 
 import com.CTF.j_ctf.entity.ScoreSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,19 +21,27 @@ public interface ScoreSummaryRepository extends JpaRepository<ScoreSummary, Stri
     @Query("SELECT ss FROM ScoreSummary ss WHERE ss.competitionID = :competitionID AND ss.entityType = 'TEAM' ORDER BY ss.totalScore DESC, ss.lastSubmitTime ASC")
     List<ScoreSummary> findTeamRankingByCompetition(@Param("competitionID") Integer competitionID);
 
-    // 总体用户排行榜
-    @Query("SELECT ss FROM ScoreSummary ss WHERE ss.entityType = 'USER' ORDER BY ss.totalScore DESC, ss.lastSubmitTime ASC")
-    List<ScoreSummary> findOverallUserRanking();
-
-    // 总体战队排行榜
-    @Query("SELECT ss FROM ScoreSummary ss WHERE ss.entityType = 'TEAM' ORDER BY ss.totalScore DESC, ss.lastSubmitTime ASC")
-    List<ScoreSummary> findOverallTeamRanking();
-
-    // 获取用户排名
-    @Query("SELECT ss.rank FROM ScoreSummary ss WHERE ss.entityID = :userID AND ss.entityType = 'USER' AND ss.competitionID = :competitionID")
-    Integer findUserRank(@Param("userID") Integer userID, @Param("competitionID") Integer competitionID);
-
-    // 获取战队排名
-    @Query("SELECT ss.rank FROM ScoreSummary ss WHERE ss.entityID = :teamID AND ss.entityType = 'TEAM' AND ss.competitionID = :competitionID")
-    Integer findTeamRank(@Param("teamID") Integer teamID, @Param("competitionID") Integer competitionID);
-}
\ No newline at end of file
+    // 竞赛排行榜分页（走 CompetitionID + EntityType + TotalScore 索引）
+    @Query(value = "SELECT ss FROM ScoreSummary ss WHERE ss.competitionID = :competitionID AND ss.entityType = :entityType " +
+            "ORDER BY ss.totalScore DESC, ss.lastSubmitTime ASC NULLS LAST, ss.entityID ASC",
+            countQuery = "SELECT COUNT(ss) FROM ScoreSummary ss WHERE ss.competitionID = :competitionID AND ss.entityType = :entityType")
+    Page<ScoreSummary> findRankingPage(@Param("competitionID") Integer competitionID,
+                                       @Param("entityType") String entityType,
+                                       Pageable pageable);
+
+    // 总体排行榜：在汇总表上按实体合并各竞赛的分数
+    interface OverallRanking {
+        Integer getEntityID();
+        String getEntityName();
+        Long getTotalScore();
+        Long getSolveCount();
+        java.time.LocalDateTime getLastSubmitTime();
+    }
+
+    @Query(value = "SELECT ss.entityID as entityID, MAX(ss.entityName) as entityName, SUM(ss.totalScore) as totalScore, " +
+            "SUM(ss.solveCount) as solveCount, MAX(ss.lastSubmitTime) as lastSubmitTime " +
+            "FROM ScoreSummary ss WHERE ss.entityType = :entityType " +
+            "GROUP BY ss.entityID ORDER BY SUM(ss.totalScore) DESC, MAX(ss.lastSubmitTime) ASC",
+            countQuery = "SELECT COUNT(DISTINCT ss.entityID) FROM ScoreSummary ss WHERE ss.entityType = :entityType")
+    Page<OverallRanking> findOverallRanking(@Param("entityType") String entityType, Pageable pageable);
+}
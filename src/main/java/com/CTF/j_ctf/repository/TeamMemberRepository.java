@@ -1,5 +1,6 @@
 package com.CTF.j_ctf.repository;
 
+import com.CTF.j_ctf.dto.TeamMemberRow;
 import com.CTF.j_ctf.entity.TeamMember;
 import com.CTF.j_ctf.entity.TeamMemberId;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +27,16 @@ public interface TeamMemberRepository extends JpaRepository<TeamMember, TeamMemb
     // 根据战队ID查找所有成员
     List<TeamMember> findByTeamTeamID(Integer teamId);
 
+    // 只取成员的用户ID（战队分数分发用，不加载 TeamMember/User 实体）
+    @Query("SELECT tm.user.userID FROM TeamMember tm WHERE tm.team.teamID = :teamId ORDER BY tm.user.userID")
+    List<Integer> findUserIdsByTeamId(@Param("teamId") Integer teamId);
+
+    // 一次查询一页战队的全部成员（投影，不加载 TeamMember/User 实体）
+    @Query("SELECT new com.CTF.j_ctf.dto.TeamMemberRow(tm.team.teamID, u.userID, u.userName, u.userEmail, u.phoneNumber) " +
+           "FROM TeamMember tm JOIN tm.user u " +
+           "WHERE tm.team.teamID IN :teamIds ORDER BY tm.joinTime, u.userID")
+    List<TeamMemberRow> findMemberRowsByTeamIdIn(@Param("teamIds") Collection<Integer> teamIds);
+
     // 根据用户ID查找所有加入的战队
     List<TeamMember> findByUserUserID(Integer userId);
 
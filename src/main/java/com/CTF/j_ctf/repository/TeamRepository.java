@@ -1,6 +1,8 @@
 package com.CTF.j_ctf.repository;
 
 import com.CTF.j_ctf.entity.Team;
+import com.CTF.j_ctf.dto.TeamMembershipView;
+import com.CTF.j_ctf.dto.TeamSnapshot;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,13 +21,20 @@ public interface TeamRepository extends JpaRepository<Team, Integer> {
     Page<Team> findByAuditState(String auditState, Pageable pageable);
     boolean existsByTeamNameAndCompetition_CompetitionID(String teamName, Integer competitionID);
 
-    @Query("SELECT DISTINCT t FROM Team t " +
-           "LEFT JOIN FETCH t.captain " +
-           "LEFT JOIN FETCH t.competition " +
-           "LEFT JOIN FETCH t.teamMembers tm " +
-           "LEFT JOIN FETCH tm.user " +
-           "JOIN t.teamMembers m WHERE m.user.userID = :userID")
-    List<Team> findByMemberId(@Param("userID") Integer userID);
+    // 用户加入的战队：数据库侧分页，只取当前页的战队ID和总数（按加入时间倒序）
+    @Query(value = "SELECT m.team.teamID FROM TeamMember m WHERE m.user.userID = :userID " +
+                   "ORDER BY m.joinTime DESC, m.team.teamID DESC",
+           countQuery = "SELECT COUNT(m) FROM TeamMember m WHERE m.user.userID = :userID")
+    Page<Integer> findTeamIdPageByMemberId(@Param("userID") Integer userID, Pageable pageable);
+
+    // 按ID列表投影战队列表需要展示的列（队长、竞赛为 LEFT JOIN），不加载实体
+    @Query("SELECT new com.CTF.j_ctf.dto.TeamMembershipView(t.teamID, t.teamName, t.description, t.auditState, " +
+           "t.auditRemark, t.creationTime, cap.userID, cap.userName, comp.competitionID, comp.title) " +
+           "FROM Team t " +
+           "LEFT JOIN t.captain cap " +
+           "LEFT JOIN t.competition comp " +
+           "WHERE t.teamID IN :ids")
+    List<TeamMembershipView> findMembershipViewsByIdIn(@Param("ids") Collection<Integer> ids);
 
     @Query("SELECT t FROM Team t WHERE t.captain.userID = :captainId")
     List<Team> findByCaptainId(@Param("captainId") Integer captainId);
@@ -69,4 +79,25 @@ public interface TeamRepository extends JpaRepository<Team, Integer> {
     // 获取团队详情（包含成员列表）- 使用 JOIN FETCH 立即加载成员
     @Query("SELECT DISTINCT t FROM Team t LEFT JOIN FETCH t.teamMembers tm LEFT JOIN FETCH tm.user LEFT JOIN FETCH t.captain LEFT JOIN FETCH t.competition WHERE t.teamID = :teamId")
     Optional<Team> findByIdWithMembers(@Param("teamId") Integer teamId);
+
+    // 战队提交校验用：队长ID、审核状态及是否已正确提交过该 Flag，一条查询（不加载 Team 实体及其 EAGER 关联）
+    interface TeamSubmitView {
+        Integer getCaptainID();
+        String getAuditState();
+        Boolean getSolved();
+    }
+
+    @Query("SELECT t.captain.userID as captainID, t.auditState as auditState, CASE WHEN EXISTS (SELECT fs.submissionID FROM FlagSubmission fs " +
+            "WHERE fs.team.teamID = t.teamID AND fs.flag.flagID = :flagID AND fs.isCorrect = true) THEN true ELSE false END as solved " +
+            "FROM Team t WHERE t.teamID = :teamID")
+    Optional<TeamSubmitView> findSubmitViewById(@Param("teamID") Integer teamID, @Param("flagID") Integer flagID);
+
+    // 批量生成战队 Flag 用：竞赛下指定审核状态的战队ID
+    @Query("SELECT t.teamID FROM Team t WHERE t.competition.competitionID = :competitionID AND t.auditState = :auditState ORDER BY t.teamID")
+    List<Integer> findIdsByCompetitionAndAuditState(@Param("competitionID") Integer competitionID, @Param("auditState") String auditState);
+
+    // 参考数据快照：只取标量列，不加载竞赛、队长和成员
+    @Query("SELECT new com.CTF.j_ctf.dto.TeamSnapshot(t.teamID, comp.competitionID, t.teamName, cap.userID, t.auditState) " +
+            "FROM Team t LEFT JOIN t.competition comp LEFT JOIN t.captain cap WHERE t.teamID = :teamId")
+    Optional<TeamSnapshot> findSnapshotById(@Param("teamId") Integer teamId);
 }
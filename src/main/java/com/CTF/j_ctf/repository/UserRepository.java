@@ -126,4 +126,30 @@ public interface UserRepository extends JpaRepository<User, Integer> {
      * @return 匹配的用户
      */
     Optional<User> findByPhoneNumber(String phoneNumber);
-}
\ No newline at end of file
+
+    /**
+     * 登录账号解析：一条查询取出所有可能匹配的账号，按匹配优先级排序
+     * 管理员：数字账号按ID，否则按用户名；普通用户：用户名 > 邮箱 > 手机号
+     * @param account 登录账号
+     * @param adminId 账号为数字时的管理员ID，否则为 null
+     * @return 候选用户，管理员在前，普通用户按优先级在后
+     */
+    @Query("SELECT u FROM User u WHERE " +
+            "(u.userType = :adminType AND (u.userID = :adminId OR (:adminId IS NULL AND u.userName = :account))) " +
+            "OR (u.userType = :ordinaryType AND (u.userName = :account OR u.userEmail = :account OR u.phoneNumber = :account)) " +
+            "ORDER BY CASE WHEN u.userType = :adminType THEN 0 WHEN u.userName = :account THEN 1 " +
+            "WHEN u.userEmail = :account THEN 2 ELSE 3 END")
+    List<User> findLoginCandidates(@Param("account") String account, @Param("adminId") Integer adminId,
+                                   @Param("adminType") UserType adminType, @Param("ordinaryType") UserType ordinaryType);
+
+    // 个人提交校验：用户是否存在 + 是否已正确提交过该 Flag，一条查询
+    interface SubmitterView {
+        Integer getUserID();
+        Boolean getSolved();
+    }
+
+    @Query("SELECT u.userID as userID, CASE WHEN EXISTS (SELECT fs.submissionID FROM FlagSubmission fs " +
+            "WHERE fs.user.userID = u.userID AND fs.flag.flagID = :flagID AND fs.isCorrect = true) THEN true ELSE false END as solved " +
+            "FROM User u WHERE u.userID = :userID")
+    Optional<SubmitterView> findSubmitterView(@Param("userID") Integer userID, @Param("flagID") Integer flagID);
+}
@@ -6,9 +6,11 @@ import com.CTF.j_ctf.entity.FlagSubmission;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ChallengeService {
 
@@ -35,6 +37,8 @@ public interface ChallengeService {
     // 解决状态检查
     boolean hasUserSolvedChallenge(Integer challengeId, Integer userId);
     List<Integer> getSolvedChallengeIdsByUser(Integer userId);
+    // 批量判断：返回 challengeIds 中用户已解出的题目ID
+    Set<Integer> getSolvedChallengeIds(Integer userId, Collection<Integer> challengeIds);
 
     // 提示管理
     ChallengeHint addHint(Integer challengeId, ChallengeHint hint);
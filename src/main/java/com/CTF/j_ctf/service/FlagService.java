@@ -1,7 +1,10 @@
 package com.CTF.j_ctf.service;
 
+import com.CTF.j_ctf.dto.SubmissionView;
 import com.CTF.j_ctf.entity.Flag;
 import com.CTF.j_ctf.entity.FlagSubmission;
+import com.CTF.j_ctf.support.FlagBatchGenerator;
+import com.CTF.j_ctf.support.SubmissionContext;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -9,6 +12,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FlagService {
 
@@ -36,8 +40,18 @@ public interface FlagService {
     Page<FlagSubmission> getSubmissionsByTeam(Integer teamId, Pageable pageable);
     Page<FlagSubmission> getSubmissionsByCompetition(Integer competitionId, Pageable pageable);
     Page<FlagSubmission> getSubmissionsByFlag(Integer flagId, Pageable pageable);
+    // 游标分页：返回 (submitTime, submissionID) 位于游标之后的最多 size 条记录，筛选条件为 null 时不生效
+    List<FlagSubmission> getSubmissionsBefore(Integer userId, Integer competitionId, Integer flagId,
+                                              LocalDateTime cursorTime, Integer cursorId, int size);
+    // 列表接口使用的只读视图（投影查询，不加载实体），筛选条件为 null 时不生效
+    Page<SubmissionView> getSubmissionViews(Integer userId, Integer competitionId, Integer flagId, Pageable pageable);
+    List<SubmissionView> getSubmissionViewsBefore(Integer userId, Integer competitionId, Integer flagId,
+                                                  LocalDateTime cursorTime, Integer cursorId, int size);
 
     // 验证方法
+    // 提交上下文：每个请求加载一次，可否提交、原因和提交本身共用
+    SubmissionContext getUserSubmissionContext(Integer flagId, Integer userId);
+    SubmissionContext getTeamSubmissionContext(Integer flagId, Integer teamId);
     boolean canUserSubmitFlag(Integer flagId, Integer userId);
     boolean canTeamSubmitFlag(Integer flagId, Integer teamId);
     String getSubmitRestrictionReason(Integer flagId, Integer userId);
@@ -48,7 +62,10 @@ public interface FlagService {
     // 管理方法
     void expireFlags();
     Flag regenerateFlag(Integer flagId);
-    List<Flag> generateFlagsForCompetition(Integer competitionId, Integer count, Integer points, LocalDateTime expireTime);
+    // 批量生成：先校验并生成计划，再分块插入，每块提交后回调 sink
+    FlagBatchGenerator.Plan planFlagGeneration(Integer competitionId, Integer challengeId, Integer creatorId,
+                                               Integer count, Integer points, LocalDateTime expireTime, boolean perTeam);
+    FlagBatchGenerator.Result generateFlags(FlagBatchGenerator.Plan plan, Consumer<FlagBatchGenerator.GeneratedFlag> sink);
 
     // 统计方法
     Map<String, Object> getFlagStatistics(Integer competitionId);
@@ -2,9 +2,11 @@ package com.CTF.j_ctf.service;
 
 import com.CTF.j_ctf.entity.Score;
 import com.CTF.j_ctf.entity.ScoreSummary;
+import com.CTF.j_ctf.support.ScoreExporter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -53,7 +55,8 @@ public interface ScoreService {
     Integer getTeamRank(Integer teamId, Integer competitionId);
 
     // 导出功能
-    List<Score> exportCompetitionScores(Integer competitionId);
+    // 按行流式写出竞赛全部分数记录，返回行数；不关闭 out
+    long exportCompetitionScores(Integer competitionId, ScoreExporter.Format format, OutputStream out);
 
     // 权限检查
     boolean isUserCompetitionCreator(Integer competitionId, Integer userId);
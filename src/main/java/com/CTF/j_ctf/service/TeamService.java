@@ -1,5 +1,6 @@
 package com.CTF.j_ctf.service;
 
+import com.CTF.j_ctf.dto.TeamMembershipView;
 import com.CTF.j_ctf.entity.Team;
 import com.CTF.j_ctf.entity.TeamApplication;
 import com.CTF.j_ctf.entity.User;
@@ -25,7 +26,7 @@ public interface TeamService {
 
     Page<Team> getTeamsByCaptain(Integer captainId, Pageable pageable);
 
-    Page<Team> getTeamsByMember(Integer memberId, Pageable pageable);
+    Page<TeamMembershipView> getTeamViewsByMember(Integer memberId, Pageable pageable);
 
     Page<Team> searchTeams(String keyword, Pageable pageable);
     Page<Team> searchTeamsByCompetition(String keyword, Integer competitionId, Pageable pageable);
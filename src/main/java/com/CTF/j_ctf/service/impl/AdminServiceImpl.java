@@ -1,8 +1,17 @@
 package com.CTF.j_ctf.service.impl;
 
+import com.CTF.j_ctf.dto.TeamSnapshot;
 import com.CTF.j_ctf.entity.*;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
+import com.CTF.j_ctf.event.TeamMembershipChangedEvent;
 import com.CTF.j_ctf.repository.*;
 import com.CTF.j_ctf.service.AdminService;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.SearchIndex;
+import com.CTF.j_ctf.support.SolveRegistry;
+import com.CTF.j_ctf.support.SolvedChallengeCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,6 +36,11 @@ public class AdminServiceImpl implements AdminService {
     private final FlagSubmissionRepository flagSubmissionRepository;
     private final ChallengeRepository challengeRepository;
     private final TeamMemberRepository teamMemberRepository;
+    private final SolvedChallengeCache solvedChallengeCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final SolveRegistry solveRegistry;
+    private final SearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminServiceImpl(UserRepository userRepository,
                             TeamRepository teamRepository,
@@ -37,7 +51,12 @@ public class AdminServiceImpl implements AdminService {
                             TeamApplicationRepository teamApplicationRepository,
                             FlagSubmissionRepository flagSubmissionRepository,
                             ChallengeRepository challengeRepository,
-                            TeamMemberRepository teamMemberRepository) {
+                            TeamMemberRepository teamMemberRepository,
+                            SolvedChallengeCache solvedChallengeCache,
+                            ReferenceDataCache referenceDataCache,
+                            SolveRegistry solveRegistry,
+                            SearchIndex searchIndex,
+                            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.teamRepository = teamRepository;
         this.competitionRepository = competitionRepository;
@@ -48,6 +67,11 @@ public class AdminServiceImpl implements AdminService {
         this.flagSubmissionRepository = flagSubmissionRepository;
         this.challengeRepository = challengeRepository;
         this.teamMemberRepository = teamMemberRepository;
+        this.solvedChallengeCache = solvedChallengeCache;
+        this.referenceDataCache = referenceDataCache;
+        this.solveRegistry = solveRegistry;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     // === 用户管理方法 ===
@@ -57,9 +81,12 @@ public class AdminServiceImpl implements AdminService {
         return userRepository.findAll(pageable);
     }
 
+    // 优先走全文索引（用户名 + 邮箱，按相关度排序），索引不可用时回退到 LIKE 查询
     @Override
     public Page<User> searchUsers(String keyword, Pageable pageable) {
-        return userRepository.findByUserNameContaining(keyword, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.USER, keyword, null, false, pageable,
+                        userRepository::findAllById, User::getUserID)
+                .orElseGet(() -> userRepository.findByUserNameContaining(keyword, pageable));
     }
 
     @Override
@@ -127,7 +154,9 @@ public class AdminServiceImpl implements AdminService {
         }
         
         // 保存更新后的用户
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -164,6 +193,8 @@ public class AdminServiceImpl implements AdminService {
         
         // 1. 删除该用户的所有Flag提交记录
         flagSubmissionRepository.deleteByUser_UserID(userId);
+        solveRegistry.deleteByUser(userId);
+        solvedChallengeCache.evictUser(userId);
         
         // 2. 删除该用户的所有得分记录
         List<Score> userScores = scoreRepository.findByUser_UserID(userId);
@@ -181,6 +212,10 @@ public class AdminServiceImpl implements AdminService {
                 teamApplicationRepository.deleteByTeam_TeamID(team.getTeamID());
                 // 删除团队
                 teamRepository.delete(team);
+                referenceDataCache.invalidateTeam(team.getTeamID());
+                eventPublisher.publishEvent(TeamMembershipChangedEvent.teamRemoved(
+                        team.getCompetition() != null ? team.getCompetition().getCompetitionID() : null, team.getTeamID()));
+                eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.TEAM, team.getTeamID()));
             }
         }
         
@@ -195,6 +230,11 @@ public class AdminServiceImpl implements AdminService {
         
         // 6. 最后删除用户本身
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.userRemoved(userId));
+        eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.USER, userId));
+
+        // 得分和战队均已变化，排行榜需要重建
+        eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(null));
         
         return true;
     }
@@ -236,13 +276,19 @@ public class AdminServiceImpl implements AdminService {
         team.setAuditState(auditState);
         team.setAuditRemark(auditRemark);
         team.setAuditTime(LocalDateTime.now());
+        referenceDataCache.invalidateTeam(teamId);
         return teamRepository.save(team);
     }
 
     @Override
     public boolean deleteTeam(Integer teamId) {
         if (teamRepository.existsById(teamId)) {
+            Integer competitionId = referenceDataCache.getTeam(teamId).map(TeamSnapshot::competitionId).orElse(null);
             teamRepository.deleteById(teamId);
+            referenceDataCache.invalidateTeam(teamId);
+            eventPublisher.publishEvent(TeamMembershipChangedEvent.teamRemoved(competitionId, teamId));
+            eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(null));
+            eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.TEAM, teamId));
             return true;
         }
         return false;
@@ -303,7 +349,7 @@ public class AdminServiceImpl implements AdminService {
         validateCompetition(competition);
 
         competition.setPublishTime(LocalDateTime.now());
-        return competitionRepository.save(competition);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -313,7 +359,8 @@ public class AdminServiceImpl implements AdminService {
         }
 
         validateCompetition(competition);
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competition.getCompetitionID());
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -328,13 +375,18 @@ public class AdminServiceImpl implements AdminService {
         competition.setAuditStatus(approved ? "APPROVED" : "REJECTED");
         competition.setAuditRemark(auditRemark);
 
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
     public boolean deleteCompetition(Integer competitionId) {
         if (competitionRepository.existsById(competitionId)) {
             competitionRepository.deleteById(competitionId);
+            referenceDataCache.invalidateCompetition(competitionId);
+            eventPublisher.publishEvent(TeamMembershipChangedEvent.competitionRemoved(competitionId));
+            eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(competitionId));
+            eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.COMPETITION, competitionId));
             return true;
         }
         return false;
@@ -390,6 +442,14 @@ public class AdminServiceImpl implements AdminService {
         return stats;
     }
 
+    /**
+     * 竞赛保存后通知全文索引
+     */
+    private Competition indexed(Competition saved) {
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
+    }
+
     /**
      * 验证竞赛数据的有效性
      */
@@ -2,12 +2,16 @@ package com.CTF.j_ctf.service.impl;
 
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.entity.User.UserType;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
 import com.CTF.j_ctf.repository.UserRepository;
 import com.CTF.j_ctf.service.AuthService;
+import com.CTF.j_ctf.support.PasswordVerifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -15,15 +19,20 @@ import java.util.regex.Pattern;
 public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepo;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
+    private final ApplicationEventPublisher eventPublisher;
 
     // 正则表达式用于验证
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     private static final Pattern PHONE_PATTERN = Pattern.compile("^1[3-9]\\d{9}$");
 
-    // 构造方法：移除AdministratorRepository，仅保留UserRepository
-    public AuthServiceImpl(UserRepository userRepo) {
+    // 构造方法：移除AdministratorRepository，仅保留UserRepository；密码校验交给独立线程池（PasswordVerifier）
+    public AuthServiceImpl(UserRepository userRepo, BCryptPasswordEncoder passwordEncoder,
+                           PasswordVerifier passwordVerifier, ApplicationEventPublisher eventPublisher) {
         this.userRepo = userRepo;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -32,16 +41,8 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public Optional<User> adminLogin(String account, String password) {
         // 查找管理员账户（ID或用户名）
-        Optional<User> admin = findAdminByIdentifier(account);
-
-        if (admin.isPresent()) {
-            User foundAdmin = admin.get();
-            // 验证密码
-            if (passwordEncoder.matches(password, foundAdmin.getUserPassword())) {
-                return admin;
-            }
-        }
-        return Optional.empty();
+        Optional<User> admin = findAdminByIdentifier(findLoginCandidates(account));
+        return admin.filter(foundAdmin -> verifyPassword(foundAdmin, password));
     }
 
     /**
@@ -70,7 +71,9 @@ public class AuthServiceImpl implements AuthService {
         String encodedPassword = passwordEncoder.encode(user.getUserPassword());
         user.setUserPassword(encodedPassword);
 
-        return userRepo.save(user);
+        User saved = userRepo.save(user);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     /**
@@ -93,7 +96,9 @@ public class AuthServiceImpl implements AuthService {
             user.setRegisterTime(LocalDateTime.now());
         }
 
-        return userRepo.save(user);
+        User saved = userRepo.save(user);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     /**
@@ -101,26 +106,18 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public Optional<User> login(String account, String password) {
-        // 先尝试查找管理员（支持ID/用户名）
-        Optional<User> admin = findAdminByIdentifier(account);
-        if (admin.isPresent()) {
-            User foundAdmin = admin.get();
-            // 验证密码
-            if (passwordEncoder.matches(password, foundAdmin.getUserPassword())) {
-                return admin;
-            }
-        }
-        
-        // 如果管理员登录失败，尝试查找普通用户（支持用户名/邮箱/手机号）
-        Optional<User> user = findOrdinaryUserByIdentifier(account);
-        if (user.isPresent()) {
-            User foundUser = user.get();
-            // 验证密码
-            if (passwordEncoder.matches(password, foundUser.getUserPassword())) {
-                return user;
-            }
+        // 一条查询取出管理员和普通用户的候选账号
+        List<User> candidates = findLoginCandidates(account);
+
+        // 先尝试管理员（支持ID/用户名）
+        Optional<User> admin = findAdminByIdentifier(candidates);
+        if (admin.isPresent() && verifyPassword(admin.get(), password)) {
+            return admin;
         }
-        return Optional.empty();
+
+        // 如果管理员登录失败，尝试普通用户（支持用户名/邮箱/手机号）
+        Optional<User> user = findOrdinaryUserByIdentifier(candidates);
+        return user.filter(foundUser -> verifyPassword(foundUser, password));
     }
 
     /**
@@ -136,50 +133,40 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public Optional<User> findByAccount(String account) {
-        return findOrdinaryUserByIdentifier(account);
+        return findOrdinaryUserByIdentifier(findLoginCandidates(account));
     }
 
     // ===================== 私有工具方法 =====================
 
     /**
-     * 根据标识符查找管理员（支持ID/用户名）
+     * 按登录账号一次查出候选用户（数字账号同时作为管理员ID），结果已按匹配优先级排序
      */
-    private Optional<User> findAdminByIdentifier(String identifier) {
-        // 尝试按ID查找（数字标识符）
+    private List<User> findLoginCandidates(String identifier) {
+        Integer adminId = null;
         try {
-            Integer adminId = Integer.parseInt(identifier);
-            Optional<User> admin = userRepo.findById(adminId);
-            if (admin.isPresent() && admin.get().isAdministrator()) {
-                return admin;
-            }
+            adminId = Integer.parseInt(identifier);
         } catch (NumberFormatException e) {
-            // 非数字则按用户名查找
-            Optional<User> admin = userRepo.findByUserName(identifier);
-            if (admin.isPresent() && admin.get().isAdministrator()) {
-                return admin;
-            }
+            // 非数字则管理员按用户名匹配
         }
-        return Optional.empty();
+        return userRepo.findLoginCandidates(identifier, adminId, UserType.ADMIN, UserType.ORDINARY);
     }
 
     /**
-     * 根据标识符查找普通用户（支持用户名/邮箱/手机号）
+     * 根据标识符查找管理员（支持ID/用户名）
      */
-    private Optional<User> findOrdinaryUserByIdentifier(String identifier) {
-        // 1. 尝试按用户名查找（全局唯一）
-        Optional<User> user = userRepo.findByUserName(identifier);
-        if (user.isPresent() && user.get().isOrdinaryUser()) {
-            return user;
-        }
+    private Optional<User> findAdminByIdentifier(List<User> candidates) {
+        return candidates.stream().filter(User::isAdministrator).findFirst();
+    }
 
-        // 2. 尝试按邮箱查找（仅普通用户）
-        user = userRepo.findOrdinaryUserByEmail(UserType.ORDINARY, identifier);
-        if (user.isPresent()) {
-            return user;
-        }
+    /**
+     * 根据标识符查找普通用户（用户名 > 邮箱 > 手机号）
+     */
+    private Optional<User> findOrdinaryUserByIdentifier(List<User> candidates) {
+        return candidates.stream().filter(User::isOrdinaryUser).findFirst();
+    }
 
-        // 3. 尝试按手机号查找（仅普通用户）
-        return userRepo.findOrdinaryUserByPhoneNumber(UserType.ORDINARY, identifier);
+    private boolean verifyPassword(User user, String password) {
+        return passwordVerifier.matches(user.getUserID(), password, user.getUserPassword());
     }
 
     /**
@@ -1,19 +1,34 @@
 package com.CTF.j_ctf.service.impl;
 
+import com.CTF.j_ctf.dto.ChallengeSnapshot;
 import com.CTF.j_ctf.entity.*;
+import com.CTF.j_ctf.event.ChallengeSolvedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
+import com.CTF.j_ctf.event.SubmissionJudgedEvent;
 import com.CTF.j_ctf.repository.*;
 import com.CTF.j_ctf.service.ChallengeService;
+import com.CTF.j_ctf.support.FlagVerifier;
+import com.CTF.j_ctf.support.ParticipationIndex;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.SearchIndex;
+import com.CTF.j_ctf.support.SolveRegistry;
+import com.CTF.j_ctf.support.SolvedChallengeCache;
+import com.CTF.j_ctf.support.SubmissionAuditWriter;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -24,7 +39,14 @@ public class ChallengeServiceImpl implements ChallengeService {
     private final UserRepository userRepository;
     private final CompetitionRepository competitionRepository;
     private final ScoreRepository scoreRepository;
-    private final TeamRepository teamRepository;
+    private final SolvedChallengeCache solvedChallengeCache;
+    private final FlagVerifier flagVerifier;
+    private final SubmissionAuditWriter submissionAuditWriter;
+    private final ReferenceDataCache referenceDataCache;
+    private final SolveRegistry solveRegistry;
+    private final SearchIndex searchIndex;
+    private final ParticipationIndex participationIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ChallengeServiceImpl(ChallengeRepository challengeRepository,
                                 FlagSubmissionRepository flagSubmissionRepository,
@@ -32,14 +54,28 @@ public class ChallengeServiceImpl implements ChallengeService {
                                 UserRepository userRepository,
                                 CompetitionRepository competitionRepository,
                                 ScoreRepository scoreRepository,
-                                TeamRepository teamRepository) {
+                                SolvedChallengeCache solvedChallengeCache,
+                                FlagVerifier flagVerifier,
+                                SubmissionAuditWriter submissionAuditWriter,
+                                ReferenceDataCache referenceDataCache,
+                                SolveRegistry solveRegistry,
+                                SearchIndex searchIndex,
+                                ParticipationIndex participationIndex,
+                                ApplicationEventPublisher eventPublisher) {
         this.challengeRepository = challengeRepository;
         this.flagSubmissionRepository = flagSubmissionRepository;
         this.challengeHintRepository = challengeHintRepository;
         this.userRepository = userRepository;
         this.competitionRepository = competitionRepository;
         this.scoreRepository = scoreRepository;
-        this.teamRepository = teamRepository;
+        this.solvedChallengeCache = solvedChallengeCache;
+        this.flagVerifier = flagVerifier;
+        this.submissionAuditWriter = submissionAuditWriter;
+        this.referenceDataCache = referenceDataCache;
+        this.solveRegistry = solveRegistry;
+        this.searchIndex = searchIndex;
+        this.participationIndex = participationIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -63,7 +99,9 @@ public class ChallengeServiceImpl implements ChallengeService {
         challenge.setCreateTime(LocalDateTime.now());
         challenge.setUpdateTime(LocalDateTime.now());
 
-        return challengeRepository.save(challenge);
+        Challenge saved = challengeRepository.save(challenge);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -127,7 +165,11 @@ public class ChallengeServiceImpl implements ChallengeService {
 
         existing.setUpdateTime(LocalDateTime.now());
 
-        return challengeRepository.save(existing);
+        flagVerifier.invalidateChallenge(existing.getChallengeID());
+        referenceDataCache.invalidateChallenge(existing.getChallengeID());
+        Challenge saved = challengeRepository.save(existing);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -139,8 +181,13 @@ public class ChallengeServiceImpl implements ChallengeService {
         // 先删除相关的提交记录和提示
         flagSubmissionRepository.deleteByChallenge_ChallengeID(challengeId);
         challengeHintRepository.deleteByChallenge_ChallengeID(challengeId);
+        solveRegistry.deleteByChallenge(challengeId);
 
         challengeRepository.deleteById(challengeId);
+        flagVerifier.invalidateChallenge(challengeId);
+        referenceDataCache.invalidateChallenge(challengeId);
+        solvedChallengeCache.evictAll();
+        eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.CHALLENGE, challengeId));
         return true;
     }
 
@@ -169,14 +216,19 @@ public class ChallengeServiceImpl implements ChallengeService {
         return challengeRepository.findByDifficulty(difficulty, pageable);
     }
 
+    // 优先走全文索引（按相关度排序），索引不可用时回退到 LIKE 查询
     @Override
     public Page<Challenge> searchChallenges(String keyword, Pageable pageable) {
-        return challengeRepository.findByTitleContainingOrDescriptionContaining(keyword, keyword, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.CHALLENGE, keyword, null, false, pageable,
+                        challengeRepository::findAllById, Challenge::getChallengeID)
+                .orElseGet(() -> challengeRepository.findByTitleContainingOrDescriptionContaining(keyword, keyword, pageable));
     }
 
     @Override
     public Page<Challenge> searchChallengesByCompetition(String keyword, Integer competitionId, Pageable pageable) {
-        return challengeRepository.findByTitleContainingOrDescriptionContainingAndCompetition_CompetitionID(keyword, keyword, competitionId, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.CHALLENGE, keyword, competitionId, false, pageable,
+                        challengeRepository::findAllById, Challenge::getChallengeID)
+                .orElseGet(() -> challengeRepository.findByTitleContainingOrDescriptionContainingAndCompetition_CompetitionID(keyword, keyword, competitionId, pageable));
     }
 
     @Override
@@ -188,18 +240,17 @@ public class ChallengeServiceImpl implements ChallengeService {
     @Override
     @Transactional
     public FlagSubmission submitFlag(Integer challengeId, Integer userId, String submittedFlag, String ipAddress) {
-        Optional<Challenge> challengeOpt = challengeRepository.findById(challengeId);
-        Optional<User> userOpt = userRepository.findById(userId);
-
-        if (challengeOpt.isEmpty() || userOpt.isEmpty()) {
-            throw new IllegalArgumentException("题目或用户不存在");
+        Optional<FlagVerifier.ChallengeTarget> targetOpt = flagVerifier.challenge(challengeId);
+        if (targetOpt.isEmpty()) {
+            throw new IllegalArgumentException("题目不存在");
         }
-
-        Challenge challenge = challengeOpt.get();
-        User user = userOpt.get();
+        if (userId == null || !userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("用户不存在");
+        }
+        FlagVerifier.ChallengeTarget target = targetOpt.get();
 
         // 检查题目是否激活
-        if (!challenge.getIsActive()) {
+        if (!target.active()) {
             throw new IllegalArgumentException("题目未激活");
         }
 
@@ -209,18 +260,37 @@ public class ChallengeServiceImpl implements ChallengeService {
         }
 
         // 检查竞赛是否在进行中
-        Competition competition = challenge.getCompetition();
-        if (competition == null || !isCompetitionOngoing(competition)) {
+        Integer competitionId = target.competitionId();
+        if (competitionId == null || !isCompetitionOngoing(competitionId)) {
             throw new IllegalArgumentException("竞赛已结束或未开始");
         }
 
         // 检查用户是否加入了该竞赛的团队
-        boolean isParticipant = teamRepository.existsByCompetition_CompetitionIDAndMembers_UserID(
-                competition.getCompetitionID(), userId);
-        if (!isParticipant) {
+        if (!participationIndex.isParticipant(competitionId, userId)) {
             throw new IllegalArgumentException("您尚未加入该竞赛的团队，无法提交Flag");
         }
 
+        if (!flagVerifier.matches(target, submittedFlag)) {
+            // 错误答案：不加载任何实体，提交记录交给 SubmissionAuditWriter 异步写入（返回对象未持久化）
+            FlagSubmission submission = new FlagSubmission();
+            submission.setSubmittedFlag(submittedFlag);
+            submission.setIpAddress(ipAddress);
+            submission.setSubmitTime(LocalDateTime.now());
+            submission.setIsCorrect(false);
+            submissionAuditWriter.submit(new SubmissionAuditWriter.AuditRecord(
+                    userId, competitionId, challengeId, null, null,
+                    submittedFlag, false, submission.getSubmitTime(), ipAddress, null, null));
+            eventPublisher.publishEvent(new SubmissionJudgedEvent(competitionId, challengeId, null, userId, null,
+                    false, null, submission.getSubmitTime(), false));
+            return submission;
+        }
+
+        Challenge challenge = challengeRepository.findById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("题目或用户不存在"));
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("题目或用户不存在"));
+        Competition competition = challenge.getCompetition();
+
         FlagSubmission submission = new FlagSubmission();
         submission.setUser(user);
         submission.setChallenge(challenge);
@@ -229,25 +299,41 @@ public class ChallengeServiceImpl implements ChallengeService {
         submission.setIpAddress(ipAddress);
         submission.setSubmitTime(LocalDateTime.now());
 
-        boolean isCorrect = challenge.getFlag().equals(submittedFlag);
+        // 以数据库中的值为准再确认一次（索引可能尚未感知并发修改）
+        boolean isCorrect = flagVerifier.matches(challenge.getFlag(), submittedFlag);
         submission.setIsCorrect(isCorrect);
 
+        // 登记解题（主键唯一）并原子递增解题人数、抢占一血；
+        // 同一用户并发的正确提交只有一个能登记成功，其余的整体回滚，不会重复发分
+        boolean firstBlood = false;
+        if (isCorrect) {
+            SolveRegistry.Solve solve = solveRegistry.register(competition.getCompetitionID(), challengeId, userId,
+                            submission.getSubmitTime())
+                    .orElseThrow(() -> new IllegalArgumentException("您已经解答过该题目"));
+            firstBlood = solve.firstBlood();
+        }
+
         FlagSubmission savedSubmission = flagSubmissionRepository.save(submission);
 
         if (isCorrect) {
-            // 增加解题人数
-            challenge.incrementSolveCount();
-            challengeRepository.save(challenge);
-
             // 记录得分
             Score score = new Score();
             score.setUser(user);
             score.setCompetition(competition);
             score.setPoints(challenge.getPoints());
             score.setScoreTime(LocalDateTime.now());
-            scoreRepository.save(score);
+            eventPublisher.publishEvent(ScoreRecordedEvent.of(scoreRepository.save(score)));
+
+            eventPublisher.publishEvent(new ChallengeSolvedEvent(
+                    competition.getCompetitionID(), challengeId, userId));
+        } else {
+            flagVerifier.invalidateChallenge(challengeId);
         }
 
+        eventPublisher.publishEvent(new SubmissionJudgedEvent(competition.getCompetitionID(), challengeId, null,
+                userId, null, isCorrect, isCorrect ? challenge.getPoints() : null, savedSubmission.getSubmitTime(),
+                firstBlood));
+
         return savedSubmission;
     }
 
@@ -275,12 +361,23 @@ public class ChallengeServiceImpl implements ChallengeService {
 
     @Override
     public List<Integer> getSolvedChallengeIdsByUser(Integer userId) {
-        List<FlagSubmission> submissions = flagSubmissionRepository
-                .findByUser_UserIDAndIsCorrectTrue(userId);
-        return submissions.stream()
-                .map(submission -> submission.getChallenge().getChallengeID())
-                .distinct()
-                .collect(Collectors.toList());
+        return flagSubmissionRepository.findSolvedChallengeIdsByUser(userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Integer> getSolvedChallengeIds(Integer userId, Collection<Integer> challengeIds) {
+        Set<Integer> result = new HashSet<>();
+        if (userId == null || challengeIds == null || challengeIds.isEmpty()) {
+            return result;
+        }
+        Set<Integer> solved = solvedChallengeCache.getSolvedChallengeIds(userId);
+        for (Integer challengeId : challengeIds) {
+            if (solved.contains(challengeId)) {
+                result.add(challengeId);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -342,16 +439,16 @@ public class ChallengeServiceImpl implements ChallengeService {
 
     @Override
     public boolean isChallengeCreator(Integer challengeId, Integer userId) {
-        Optional<Challenge> challengeOpt = challengeRepository.findById(challengeId);
-        return challengeOpt.isPresent() &&
-                challengeOpt.get().getCreatorId() != null &&
-                challengeOpt.get().getCreatorId().equals(userId);
+        return referenceDataCache.getChallenge(challengeId)
+                .map(challenge -> challenge.isCreator(userId))
+                .orElse(false);
     }
 
     @Override
     public boolean isChallengeActive(Integer challengeId) {
-        Optional<Challenge> challengeOpt = challengeRepository.findById(challengeId);
-        return challengeOpt.map(Challenge::getIsActive).orElse(false);
+        return referenceDataCache.getChallenge(challengeId)
+                .map(ChallengeSnapshot::active)
+                .orElse(false);
     }
 
     @Override
@@ -457,8 +554,13 @@ public class ChallengeServiceImpl implements ChallengeService {
     /**
      * 检查竞赛是否在进行中
      */
-    private boolean isCompetitionOngoing(Competition competition) {
-        LocalDateTime now = LocalDateTime.now();
-        return now.isAfter(competition.getStartTime()) && now.isBefore(competition.getEndTime());
+    private boolean isCompetitionOngoing(Integer competitionId) {
+        // 只查询时间字段，不加载 Competition 实体
+        return competitionRepository.findWindowById(competitionId)
+                .map(window -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    return now.isAfter(window.getStartTime()) && now.isBefore(window.getEndTime());
+                })
+                .orElse(false);
     }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.CTF.j_ctf.service.impl;
 
+import com.CTF.j_ctf.dto.CompetitionSnapshot;
 import com.CTF.j_ctf.entity.Competition;
 import com.CTF.j_ctf.entity.User;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
+import com.CTF.j_ctf.event.TeamMembershipChangedEvent;
 import com.CTF.j_ctf.repository.CompetitionRepository;
 import com.CTF.j_ctf.repository.TeamRepository;
 import com.CTF.j_ctf.repository.UserRepository;
 import com.CTF.j_ctf.service.CompetitionService;
+import com.CTF.j_ctf.support.ParticipationIndex;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.SearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -22,13 +29,25 @@ public class CompetitionServiceImpl implements CompetitionService {
     private final CompetitionRepository competitionRepository;
     private final UserRepository userRepository;
     private final TeamRepository teamRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final SearchIndex searchIndex;
+    private final ParticipationIndex participationIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CompetitionServiceImpl(CompetitionRepository competitionRepository,
                                   UserRepository userRepository,
-                                  TeamRepository teamRepository) {
+                                  TeamRepository teamRepository,
+                                  ReferenceDataCache referenceDataCache,
+                                  SearchIndex searchIndex,
+                                  ParticipationIndex participationIndex,
+                                  ApplicationEventPublisher eventPublisher) {
         this.competitionRepository = competitionRepository;
         this.userRepository = userRepository;
         this.teamRepository = teamRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.searchIndex = searchIndex;
+        this.participationIndex = participationIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -37,7 +56,7 @@ public class CompetitionServiceImpl implements CompetitionService {
         validateCompetition(competition);
 
         // 使用实体的默认值，不需要重复设置
-        return competitionRepository.save(competition);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -65,7 +84,8 @@ public class CompetitionServiceImpl implements CompetitionService {
 
         validateCompetition(existing);
 
-        return competitionRepository.save(existing);
+        referenceDataCache.invalidateCompetition(existing.getCompetitionID());
+        return indexed(competitionRepository.save(existing));
     }
 
     @Override
@@ -94,7 +114,8 @@ public class CompetitionServiceImpl implements CompetitionService {
         competition.setStatus("PUBLISHED");
         competition.setPublishTime(LocalDateTime.now());
 
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -113,7 +134,8 @@ public class CompetitionServiceImpl implements CompetitionService {
 
         competition.setStatus("CANCELLED");
 
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -157,42 +179,44 @@ public class CompetitionServiceImpl implements CompetitionService {
         return competitionRepository.findByStatusAndEndTimeBefore("PUBLISHED", now, pageable);
     }
 
+    // 优先走全文索引（按相关度排序），索引不可用时回退到 LIKE 查询
     @Override
     public Page<Competition> searchCompetitions(String keyword, Pageable pageable) {
-        return competitionRepository.findByTitleContainingOrIntroductionContaining(keyword, keyword, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.COMPETITION, keyword, null, false, pageable,
+                        competitionRepository::findAllById, Competition::getCompetitionID)
+                .orElseGet(() -> competitionRepository.findByTitleContainingOrIntroductionContaining(keyword, keyword, pageable));
     }
 
     @Override
     public Page<Competition> searchPublicCompetitions(String keyword, Pageable pageable) {
-        return competitionRepository.findPublicCompetitionsByKeyword(keyword, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.COMPETITION, keyword, null, true, pageable,
+                        competitionRepository::findAllById, Competition::getCompetitionID)
+                .orElseGet(() -> competitionRepository.findPublicCompetitionsByKeyword(keyword, pageable));
     }
 
     @Override
     public boolean isCompetitionOngoing(Integer competitionId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(Competition::isOngoing).orElse(false);
+        return referenceDataCache.getCompetition(competitionId).map(CompetitionSnapshot::isOngoing).orElse(false);
     }
 
     @Override
     public boolean isCompetitionFinished(Integer competitionId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(Competition::isFinished).orElse(false);
+        return referenceDataCache.getCompetition(competitionId).map(CompetitionSnapshot::isFinished).orElse(false);
     }
 
     @Override
     public boolean isCompetitionPublished(Integer competitionId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(Competition::isPublished).orElse(false);
+        return referenceDataCache.getCompetition(competitionId).map(CompetitionSnapshot::isPublished).orElse(false);
     }
 
     @Override
     public boolean canUserJoinCompetition(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
+        Optional<CompetitionSnapshot> competitionOpt = referenceDataCache.getCompetition(competitionId);
         if (competitionOpt.isEmpty()) {
             return false;
         }
 
-        Competition competition = competitionOpt.get();
+        CompetitionSnapshot competition = competitionOpt.get();
 
         // 使用实体的 canJoin() 方法
         if (!competition.canJoin()) {
@@ -200,21 +224,20 @@ public class CompetitionServiceImpl implements CompetitionService {
         }
 
         // 检查用户是否是创建者
-        if (competition.getCreator().getUserID().equals(userId)) {
+        if (competition.isCreator(userId)) {
             return false;
         }
 
         // 检查用户是否已经参加了该竞赛（通过队伍）
-        boolean isAlreadyParticipant = teamRepository.existsByCompetition_CompetitionIDAndMembers_UserID(
-                competitionId, userId);
+        boolean isAlreadyParticipant = participationIndex.isParticipant(competitionId, userId);
         if (isAlreadyParticipant) {
             return false;
         }
 
         // 检查队伍数量限制
-        if (competition.getMaxTeams() != null) {
+        if (competition.maxTeams() != null) {
             long currentTeamCount = teamRepository.countByCompetition_CompetitionID(competitionId);
-            if (currentTeamCount >= competition.getMaxTeams()) {
+            if (currentTeamCount >= competition.maxTeams()) {
                 return false;
             }
         }
@@ -224,12 +247,12 @@ public class CompetitionServiceImpl implements CompetitionService {
 
     @Override
     public String getJoinRestrictionReason(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
+        Optional<CompetitionSnapshot> competitionOpt = referenceDataCache.getCompetition(competitionId);
         if (competitionOpt.isEmpty()) {
             return "竞赛不存在";
         }
 
-        Competition competition = competitionOpt.get();
+        CompetitionSnapshot competition = competitionOpt.get();
 
         // 使用实体的 canJoin() 方法检查基本条件
         if (!competition.canJoin()) {
@@ -239,27 +262,26 @@ public class CompetitionServiceImpl implements CompetitionService {
             if (!competition.isUpcoming()) {
                 return "竞赛已开始或已结束";
             }
-            if (!competition.getIsPublic()) {
+            if (!Boolean.TRUE.equals(competition.isPublic())) {
                 return "竞赛不公开";
             }
         }
 
         // 检查用户是否是创建者
-        if (competition.getCreator().getUserID().equals(userId)) {
+        if (competition.isCreator(userId)) {
             return "创建者不能参加自己的竞赛";
         }
 
         // 检查用户是否已经参加了该竞赛
-        boolean isAlreadyParticipant = teamRepository.existsByCompetition_CompetitionIDAndMembers_UserID(
-                competitionId, userId);
+        boolean isAlreadyParticipant = participationIndex.isParticipant(competitionId, userId);
         if (isAlreadyParticipant) {
             return "您已经参加了该竞赛";
         }
 
         // 检查队伍数量限制
-        if (competition.getMaxTeams() != null) {
+        if (competition.maxTeams() != null) {
             long currentTeamCount = teamRepository.countByCompetition_CompetitionID(competitionId);
-            if (currentTeamCount >= competition.getMaxTeams()) {
+            if (currentTeamCount >= competition.maxTeams()) {
                 return "竞赛队伍数量已达上限";
             }
         }
@@ -283,8 +305,7 @@ public class CompetitionServiceImpl implements CompetitionService {
     @Override
     public boolean leaveCompetition(Integer competitionId, Integer userId) {
         // 检查用户是否参加了该竞赛
-        boolean isParticipant = teamRepository.existsByCompetition_CompetitionIDAndMembers_UserID(
-                competitionId, userId);
+        boolean isParticipant = participationIndex.isParticipant(competitionId, userId);
 
         if (!isParticipant) {
             return false;
@@ -298,15 +319,14 @@ public class CompetitionServiceImpl implements CompetitionService {
 
     @Override
     public boolean isUserParticipant(Integer competitionId, Integer userId) {
-        return teamRepository.existsByCompetition_CompetitionIDAndMembers_UserID(competitionId, userId);
+        return participationIndex.isParticipant(competitionId, userId);
     }
 
     @Override
     public boolean isUserCreator(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(competition ->
-                competition.getCreator().getUserID().equals(userId)
-        ).orElse(false);
+        return referenceDataCache.getCompetition(competitionId)
+                .map(competition -> competition.isCreator(userId))
+                .orElse(false);
     }
 
     @Override
@@ -372,6 +392,9 @@ public class CompetitionServiceImpl implements CompetitionService {
         }
 
         competitionRepository.deleteById(competitionId);
+        referenceDataCache.invalidateCompetition(competitionId);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.competitionRemoved(competitionId));
+        eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.COMPETITION, competitionId));
         return true;
     }
 
@@ -387,7 +410,8 @@ public class CompetitionServiceImpl implements CompetitionService {
         competition.setAuditRemark(remark);
         competition.setAuditTime(LocalDateTime.now());
 
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -419,7 +443,8 @@ public class CompetitionServiceImpl implements CompetitionService {
         }
 
         competition.setStatus("ONGOING");
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
     }
 
     @Override
@@ -441,7 +466,16 @@ public class CompetitionServiceImpl implements CompetitionService {
         }
 
         competition.setStatus("FINISHED");
-        return competitionRepository.save(competition);
+        referenceDataCache.invalidateCompetition(competitionId);
+        return indexed(competitionRepository.save(competition));
+    }
+
+    /**
+     * 竞赛保存后通知全文索引（标题、介绍、公开状态都可能变化）
+     */
+    private Competition indexed(Competition saved) {
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     /**
@@ -1,17 +1,36 @@
 package com.CTF.j_ctf.service.impl;
 
+import com.CTF.j_ctf.dto.ChallengeSnapshot;
+import com.CTF.j_ctf.dto.SubmissionView;
+import com.CTF.j_ctf.dto.TeamStanding;
 import com.CTF.j_ctf.entity.*;
+import com.CTF.j_ctf.event.ChallengeSolvedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.SubmissionJudgedEvent;
 import com.CTF.j_ctf.repository.*;
 import com.CTF.j_ctf.service.FlagService;
+import com.CTF.j_ctf.support.FlagBatchGenerator;
+import com.CTF.j_ctf.support.FlagExpiryScheduler;
+import com.CTF.j_ctf.support.FlagVerifier;
+import com.CTF.j_ctf.support.LeaderboardEngine;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.ScoreLedgerWriter;
+import com.CTF.j_ctf.support.SolveRegistry;
+import com.CTF.j_ctf.support.SubmissionContext;
+import com.CTF.j_ctf.support.SubmissionAuditWriter;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.PageImpl;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +43,15 @@ public class FlagServiceImpl implements FlagService {
     private final TeamRepository teamRepository;
     private final ScoreRepository scoreRepository;
     private final ChallengeRepository challengeRepository;
+    private final LeaderboardEngine leaderboardEngine;
+    private final FlagVerifier flagVerifier;
+    private final SubmissionAuditWriter submissionAuditWriter;
+    private final FlagBatchGenerator flagBatchGenerator;
+    private final FlagExpiryScheduler flagExpiryScheduler;
+    private final ScoreLedgerWriter scoreLedgerWriter;
+    private final ReferenceDataCache referenceDataCache;
+    private final SolveRegistry solveRegistry;
+    private final ApplicationEventPublisher eventPublisher;
 
     public FlagServiceImpl(FlagRepository flagRepository,
                            FlagSubmissionRepository flagSubmissionRepository,
@@ -31,7 +59,16 @@ public class FlagServiceImpl implements FlagService {
                            CompetitionRepository competitionRepository,
                            TeamRepository teamRepository,
                            ScoreRepository scoreRepository,
-                           ChallengeRepository challengeRepository) {
+                           ChallengeRepository challengeRepository,
+                           LeaderboardEngine leaderboardEngine,
+                           FlagVerifier flagVerifier,
+                           SubmissionAuditWriter submissionAuditWriter,
+                           FlagBatchGenerator flagBatchGenerator,
+                           FlagExpiryScheduler flagExpiryScheduler,
+                           ScoreLedgerWriter scoreLedgerWriter,
+                           ReferenceDataCache referenceDataCache,
+                           SolveRegistry solveRegistry,
+                           ApplicationEventPublisher eventPublisher) {
         this.flagRepository = flagRepository;
         this.flagSubmissionRepository = flagSubmissionRepository;
         this.userRepository = userRepository;
@@ -39,6 +76,15 @@ public class FlagServiceImpl implements FlagService {
         this.teamRepository = teamRepository;
         this.scoreRepository = scoreRepository;
         this.challengeRepository = challengeRepository;
+        this.leaderboardEngine = leaderboardEngine;
+        this.flagVerifier = flagVerifier;
+        this.submissionAuditWriter = submissionAuditWriter;
+        this.flagBatchGenerator = flagBatchGenerator;
+        this.flagExpiryScheduler = flagExpiryScheduler;
+        this.scoreLedgerWriter = scoreLedgerWriter;
+        this.referenceDataCache = referenceDataCache;
+        this.solveRegistry = solveRegistry;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -51,7 +97,10 @@ public class FlagServiceImpl implements FlagService {
             throw new IllegalArgumentException("Flag值已存在");
         }
 
-        return flagRepository.save(flag);
+        Flag saved = flagRepository.save(flag);
+        flagVerifier.invalidateFlag(saved.getFlagID());
+        flagExpiryScheduler.track(saved.getFlagID(), saved.getExpireTime());
+        return saved;
     }
 
     @Override
@@ -91,6 +140,7 @@ public class FlagServiceImpl implements FlagService {
 
         if (flag.getExpireTime() != null) {
             existing.setExpireTime(flag.getExpireTime());
+            flagExpiryScheduler.track(existing.getFlagID(), flag.getExpireTime());
         }
 
         if (flag.getChallenge() != null) {
@@ -101,6 +151,7 @@ public class FlagServiceImpl implements FlagService {
             existing.setTeam(flag.getTeam());
         }
 
+        flagVerifier.invalidateFlag(existing.getFlagID());
         return flagRepository.save(existing);
     }
 
@@ -111,6 +162,7 @@ public class FlagServiceImpl implements FlagService {
         }
 
         flagRepository.deleteById(flagId);
+        flagVerifier.invalidateFlag(flagId);
         return true;
     }
 
@@ -121,20 +173,26 @@ public class FlagServiceImpl implements FlagService {
 
     @Override
     public FlagSubmission submitFlag(Integer flagId, Integer userId, String submittedValue, String ipAddress, String userAgent) {
-        Optional<Flag> flagOpt = flagRepository.findById(flagId);
-        Optional<User> userOpt = userRepository.findById(userId);
-
-        if (flagOpt.isEmpty() || userOpt.isEmpty()) {
+        SubmissionContext context = getUserSubmissionContext(flagId, userId);
+        if (!context.found()) {
             throw new IllegalArgumentException("Flag或用户不存在");
         }
 
-        Flag flag = flagOpt.get();
-        User user = userOpt.get();
-
         // 验证提交条件
-        if (!canUserSubmitFlag(flagId, userId)) {
-            throw new IllegalArgumentException("无法提交该Flag");
+        if (!context.canSubmit()) {
+            throw new IllegalArgumentException("当前无法提交Flag");
         }
+        FlagVerifier.FlagTarget target = context.flag();
+
+        if (!flagVerifier.matches(target, submittedValue)) {
+            // 错误答案：不加载任何实体，提交记录异步写入
+            return recordIncorrectSubmission(target, userId, null, submittedValue, ipAddress, userAgent);
+        }
+
+        Flag flag = flagRepository.findById(flagId)
+                .orElseThrow(() -> new IllegalArgumentException("Flag或用户不存在"));
+        // 用户存在性已由提交上下文确认，只作为外键引用
+        User user = userRepository.getReferenceById(userId);
 
         // 创建提交记录
         FlagSubmission submission = new FlagSubmission();
@@ -146,53 +204,62 @@ public class FlagServiceImpl implements FlagService {
         submission.setIpAddress(ipAddress);
         submission.setUserAgent(userAgent);
 
-        boolean isCorrect = flag.getValue().equals(submittedValue);
+        // 以数据库中的值为准再确认一次（索引可能尚未感知并发修改）
+        boolean isCorrect = flagVerifier.matches(flag.getValue(), submittedValue);
 
         if (isCorrect) {
+            // 标记Flag为已使用：条件更新只有一个并发提交能成功，其余的整体回滚，不重复发分
+            claimFlag(flagId);
             submission.markAsCorrect(flag.getPoints());
-            // 标记Flag为已使用
-            flag.markAsUsed();
-            flagRepository.save(flag);
 
             // 记录得分
-            Score score = new Score(user, flag.getCompetition(), flag.getPoints());
             if (flag.getTeam() != null) {
-                // 如果是战队Flag，为战队所有成员记录分数
-                score.setTeam(flag.getTeam());
-                for (User member : flag.getTeam().getMembers()) {
-                    Score teamScore = new Score(member, flag.getCompetition(), flag.getPoints());
-                    teamScore.setTeam(flag.getTeam());
-                    scoreRepository.save(teamScore);
-                }
+                // 如果是战队Flag，为战队所有成员记录分数（一次查询成员ID + 一次批量插入）
+                scoreLedgerWriter.writeTeamScores(teamScoreFor(flag, flag.getTeam().getTeamID()));
             } else {
-                scoreRepository.save(score);
+                Score score = new Score(user, flag.getCompetition(), flag.getPoints());
+                eventPublisher.publishEvent(ScoreRecordedEvent.of(scoreRepository.save(score)));
             }
         } else {
             submission.markAsIncorrect();
+            flagVerifier.invalidateFlag(flagId);
         }
 
-        return flagSubmissionRepository.save(submission);
+        boolean firstBlood = isCorrect && isFirstSolve(flag, submission);
+        FlagSubmission saved = flagSubmissionRepository.save(submission);
+        if (isCorrect) {
+            publishSolved(flag, saved);
+        }
+        eventPublisher.publishEvent(SubmissionJudgedEvent.of(saved, firstBlood));
+        return saved;
     }
 
     @Override
     public FlagSubmission submitFlagForTeam(Integer flagId, Integer teamId, String submittedValue, String ipAddress, String userAgent) {
-        Optional<Flag> flagOpt = flagRepository.findById(flagId);
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
-
-        if (flagOpt.isEmpty() || teamOpt.isEmpty()) {
+        SubmissionContext context = getTeamSubmissionContext(flagId, teamId);
+        if (!context.found()) {
             throw new IllegalArgumentException("Flag或战队不存在");
         }
 
-        Flag flag = flagOpt.get();
-        Team team = teamOpt.get();
-
         // 验证提交条件
-        if (!canTeamSubmitFlag(flagId, teamId)) {
-            throw new IllegalArgumentException("战队无法提交该Flag");
+        if (!context.canSubmit()) {
+            throw new IllegalArgumentException("当前无法提交Flag");
         }
+        FlagVerifier.FlagTarget target = context.flag();
+
+        if (!flagVerifier.matches(target, submittedValue)) {
+            // 错误答案：使用队长身份记录，不加载任何实体，提交记录异步写入
+            return recordIncorrectSubmission(target, context.submitterId(), teamId,
+                    submittedValue, ipAddress, userAgent);
+        }
+
+        Flag flag = flagRepository.findById(flagId)
+                .orElseThrow(() -> new IllegalArgumentException("Flag或战队不存在"));
+        // 战队和队长只作为外键引用，存在性已由提交上下文确认，不再加载实体
+        Team team = teamRepository.getReferenceById(teamId);
 
         // 使用队长身份提交
-        User captain = team.getCaptain();
+        User captain = userRepository.getReferenceById(context.submitterId());
 
         // 创建提交记录
         FlagSubmission submission = new FlagSubmission();
@@ -205,25 +272,83 @@ public class FlagServiceImpl implements FlagService {
         submission.setIpAddress(ipAddress);
         submission.setUserAgent(userAgent);
 
-        boolean isCorrect = flag.getValue().equals(submittedValue);
+        // 以数据库中的值为准再确认一次（索引可能尚未感知并发修改）
+        boolean isCorrect = flagVerifier.matches(flag.getValue(), submittedValue);
 
         if (isCorrect) {
+            // 标记Flag为已使用：条件更新只有一个并发提交能成功，其余的整体回滚，不重复发分
+            claimFlag(flagId);
             submission.markAsCorrect(flag.getPoints());
-            // 标记Flag为已使用
-            flag.markAsUsed();
-            flagRepository.save(flag);
-
-            // 为战队所有成员记录分数
-            for (User member : team.getMembers()) {
-                Score score = new Score(member, flag.getCompetition(), flag.getPoints());
-                score.setTeam(team);
-                scoreRepository.save(score);
-            }
+
+            // 为战队所有成员记录分数（一次查询成员ID + 一次批量插入）
+            scoreLedgerWriter.writeTeamScores(teamScoreFor(flag, teamId));
         } else {
             submission.markAsIncorrect();
+            flagVerifier.invalidateFlag(flagId);
         }
 
-        return flagSubmissionRepository.save(submission);
+        boolean firstBlood = isCorrect && isFirstSolve(flag, submission);
+        FlagSubmission saved = flagSubmissionRepository.save(submission);
+        if (isCorrect) {
+            publishSolved(flag, saved);
+        }
+        eventPublisher.publishEvent(SubmissionJudgedEvent.of(saved, firstBlood));
+        return saved;
+    }
+
+    /**
+     * 战队 Flag 的成员分数，与单条 Score 的默认字段保持一致（Type 为 Score 构造方法的默认值）
+     */
+    private static ScoreLedgerWriter.TeamScore teamScoreFor(Flag flag, Integer teamId) {
+        return new ScoreLedgerWriter.TeamScore(teamId, flag.getCompetition().getCompetitionID(),
+                null, null, flag.getPoints(), "ADJUSTMENT", null);
+    }
+
+    /**
+     * 抢占Flag：失败说明已被并发提交使用
+     */
+    private void claimFlag(Integer flagId) {
+        if (flagRepository.markUsedIfUnused(flagId, LocalDateTime.now()) != 1) {
+            throw new IllegalArgumentException("Flag已被使用");
+        }
+        flagVerifier.invalidateFlag(flagId);
+    }
+
+    /**
+     * 关联题目的正确提交同样计入提交者的已解题目
+     */
+    private void publishSolved(Flag flag, FlagSubmission saved) {
+        if (flag.getChallenge() != null) {
+            eventPublisher.publishEvent(new ChallengeSolvedEvent(flag.getCompetition().getCompetitionID(),
+                    flag.getChallenge().getChallengeID(), saved.getUser().getUserID()));
+        }
+    }
+
+    /**
+     * 一血由题目上的条件更新抢占，并发的正确提交中只有一个能拿到
+     */
+    private boolean isFirstSolve(Flag flag, FlagSubmission submission) {
+        return flag.getChallenge() != null && solveRegistry.claimFirstBlood(flag.getChallenge().getChallengeID(),
+                submission.getUser().getUserID(), submission.getSubmitTime());
+    }
+
+    /**
+     * 错误提交交给 SubmissionAuditWriter 异步批量写入，返回的对象未持久化（submissionID 为空）
+     */
+    private FlagSubmission recordIncorrectSubmission(FlagVerifier.FlagTarget target, Integer userId, Integer teamId,
+                                                     String submittedValue, String ipAddress, String userAgent) {
+        FlagSubmission submission = new FlagSubmission();
+        submission.setSubmittedContent(submittedValue);
+        submission.setIpAddress(ipAddress);
+        submission.setUserAgent(userAgent);
+        submission.markAsIncorrect();
+
+        submissionAuditWriter.submit(new SubmissionAuditWriter.AuditRecord(
+                userId, target.competitionId(), target.challengeId(), target.flagId(), teamId,
+                submittedValue, false, submission.getSubmitTime(), ipAddress, userAgent, 0));
+        eventPublisher.publishEvent(new SubmissionJudgedEvent(target.competitionId(), target.challengeId(),
+                target.flagId(), userId, teamId, false, 0, submission.getSubmitTime(), false));
+        return submission;
     }
 
     @Override
@@ -260,19 +385,7 @@ public class FlagServiceImpl implements FlagService {
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public Page<FlagSubmission> getAllSubmissions(Pageable pageable) {
         try {
-            // 使用 JOIN FETCH 预先加载所有关联
-            List<FlagSubmission> allSubmissions = flagSubmissionRepository.findAllWithAssociations();
-            
-            // 手动实现分页
-            int total = allSubmissions.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), total);
-            
-            List<FlagSubmission> pagedSubmissions = start < total 
-                ? allSubmissions.subList(start, end) 
-                : new ArrayList<>();
-            
-            return new PageImpl<>(pagedSubmissions, pageable, total);
+            return pageSubmissions(null, null, null, pageable);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("查询所有提交记录失败: " + e.getMessage(), e);
@@ -286,19 +399,7 @@ public class FlagServiceImpl implements FlagService {
             throw new IllegalArgumentException("用户ID不能为空");
         }
         try {
-            // 使用 JOIN FETCH 预先加载所有关联
-            List<FlagSubmission> allSubmissions = flagSubmissionRepository.findByUser_UserIDWithAssociations(userId);
-            
-            // 手动实现分页
-            int total = allSubmissions.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), total);
-            
-            List<FlagSubmission> pagedSubmissions = start < total 
-                ? allSubmissions.subList(start, end) 
-                : new ArrayList<>();
-            
-            return new PageImpl<>(pagedSubmissions, pageable, total);
+            return pageSubmissions(userId, null, null, pageable);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("查询用户提交记录失败: " + e.getMessage(), e);
@@ -312,20 +413,7 @@ public class FlagServiceImpl implements FlagService {
             throw new IllegalArgumentException("用户ID和竞赛ID不能为空");
         }
         try {
-            // 使用 JOIN FETCH 预先加载所有关联
-            List<FlagSubmission> allSubmissions = flagSubmissionRepository
-                .findByUser_UserIDAndCompetition_CompetitionIDWithAssociations(userId, competitionId);
-            
-            // 手动实现分页
-            int total = allSubmissions.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), total);
-            
-            List<FlagSubmission> pagedSubmissions = start < total 
-                ? allSubmissions.subList(start, end) 
-                : new ArrayList<>();
-            
-            return new PageImpl<>(pagedSubmissions, pageable, total);
+            return pageSubmissions(userId, competitionId, null, pageable);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("查询用户竞赛提交记录失败: " + e.getMessage(), e);
@@ -344,20 +432,7 @@ public class FlagServiceImpl implements FlagService {
             throw new IllegalArgumentException("竞赛ID不能为空");
         }
         try {
-            // 使用 JOIN FETCH 预先加载所有关联
-            List<FlagSubmission> allSubmissions = flagSubmissionRepository
-                .findByCompetition_CompetitionIDWithAssociations(competitionId);
-            
-            // 手动实现分页
-            int total = allSubmissions.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), total);
-            
-            List<FlagSubmission> pagedSubmissions = start < total 
-                ? allSubmissions.subList(start, end) 
-                : new ArrayList<>();
-            
-            return new PageImpl<>(pagedSubmissions, pageable, total);
+            return pageSubmissions(null, competitionId, null, pageable);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("查询竞赛提交记录失败: " + e.getMessage(), e);
@@ -371,20 +446,7 @@ public class FlagServiceImpl implements FlagService {
             throw new IllegalArgumentException("Flag ID不能为空");
         }
         try {
-            // 使用 JOIN FETCH 预先加载所有关联
-            List<FlagSubmission> allSubmissions = flagSubmissionRepository
-                .findByFlag_FlagIDWithAssociations(flagId);
-            
-            // 手动实现分页
-            int total = allSubmissions.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), total);
-            
-            List<FlagSubmission> pagedSubmissions = start < total 
-                ? allSubmissions.subList(start, end) 
-                : new ArrayList<>();
-            
-            return new PageImpl<>(pagedSubmissions, pageable, total);
+            return pageSubmissions(null, null, flagId, pageable);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("查询Flag提交记录失败: " + e.getMessage(), e);
@@ -392,120 +454,133 @@ public class FlagServiceImpl implements FlagService {
     }
 
     @Override
-    public boolean canUserSubmitFlag(Integer flagId, Integer userId) {
-        Optional<Flag> flagOpt = flagRepository.findById(flagId);
-        Optional<User> userOpt = userRepository.findById(userId);
-
-        if (flagOpt.isEmpty() || userOpt.isEmpty()) {
-            return false;
-        }
-
-        Flag flag = flagOpt.get();
-        User user = userOpt.get();
-
-        // 检查Flag状态
-        if (!flag.canBeUsed()) {
-            return false;
-        }
-
-        // 检查用户是否已经解答过该Flag
-        if (hasUserSolvedFlag(flagId, userId)) {
-            return false;
-        }
-
-        // 检查竞赛状态
-        Competition competition = flag.getCompetition();
-        if (!competition.isOngoing() && !competition.isUpcoming()) {
-            return false;
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public List<FlagSubmission> getSubmissionsBefore(Integer userId, Integer competitionId, Integer flagId,
+                                                     LocalDateTime cursorTime, Integer cursorId, int size) {
+        if (cursorTime == null || cursorId == null) {
+            throw new IllegalArgumentException("游标时间和游标ID不能为空");
         }
-
-        // 检查Flag是否过期
-        if (flag.isExpired()) {
-            return false;
+        if (size <= 0) {
+            throw new IllegalArgumentException("每页数量必须大于0");
         }
-
-        return true;
+        List<Integer> ids = flagSubmissionRepository.findSubmissionIdsBefore(
+                userId, competitionId, flagId, cursorTime, cursorId, PageRequest.of(0, size));
+        return loadSubmissionsInOrder(ids);
     }
 
     @Override
-    public boolean canTeamSubmitFlag(Integer flagId, Integer teamId) {
-        Optional<Flag> flagOpt = flagRepository.findById(flagId);
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
-
-        if (flagOpt.isEmpty() || teamOpt.isEmpty()) {
-            return false;
-        }
-
-        Flag flag = flagOpt.get();
-        Team team = teamOpt.get();
+    @Transactional(readOnly = true)
+    public Page<SubmissionView> getSubmissionViews(Integer userId, Integer competitionId, Integer flagId, Pageable pageable) {
+        Pageable idPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<Integer> idPage = flagSubmissionRepository.findSubmissionIdPage(userId, competitionId, flagId, idPageable);
+        return new PageImpl<>(loadViewsInOrder(idPage.getContent()), pageable, idPage.getTotalElements());
+    }
 
-        // 检查Flag状态
-        if (!flag.canBeUsed()) {
-            return false;
+    @Override
+    @Transactional(readOnly = true)
+    public List<SubmissionView> getSubmissionViewsBefore(Integer userId, Integer competitionId, Integer flagId,
+                                                         LocalDateTime cursorTime, Integer cursorId, int size) {
+        if (cursorTime == null || cursorId == null) {
+            throw new IllegalArgumentException("游标时间和游标ID不能为空");
         }
-
-        // 检查战队是否已经解答过该Flag
-        if (hasTeamSolvedFlag(flagId, teamId)) {
-            return false;
+        if (size <= 0) {
+            throw new IllegalArgumentException("每页数量必须大于0");
         }
+        List<Integer> ids = flagSubmissionRepository.findSubmissionIdsBefore(
+                userId, competitionId, flagId, cursorTime, cursorId, PageRequest.of(0, size));
+        return loadViewsInOrder(ids);
+    }
 
-        // 检查竞赛状态
-        Competition competition = flag.getCompetition();
-        if (!competition.isOngoing() && !competition.isUpcoming()) {
-            return false;
-        }
+    /**
+     * 数据库侧分页：先按索引取当前页的ID和总数，再只为这一页加载关联
+     */
+    private Page<FlagSubmission> pageSubmissions(Integer userId, Integer competitionId, Integer flagId, Pageable pageable) {
+        // 排序固定为 submitTime DESC, submissionID DESC，忽略调用方传入的排序字段
+        Pageable idPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<Integer> idPage = flagSubmissionRepository.findSubmissionIdPage(userId, competitionId, flagId, idPageable);
+        return new PageImpl<>(loadSubmissionsInOrder(idPage.getContent()), pageable, idPage.getTotalElements());
+    }
 
-        // 检查Flag是否过期
-        if (flag.isExpired()) {
-            return false;
+    /**
+     * 批量加载提交记录及其关联，并保持ID列表的顺序
+     */
+    private List<FlagSubmission> loadSubmissionsInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, FlagSubmission> byId = flagSubmissionRepository.findAllWithAssociationsByIdIn(ids).stream()
+                .collect(Collectors.toMap(FlagSubmission::getSubmissionID, fs -> fs));
+        List<FlagSubmission> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            FlagSubmission submission = byId.get(id);
+            if (submission != null) {
+                ordered.add(submission);
+            }
         }
+        return ordered;
+    }
 
-        // 检查战队审核状态
-        if (!"APPROVED".equals(team.getAuditState())) {
-            return false;
+    /**
+     * 按ID列表投影查询只读视图，并保持ID列表的顺序
+     */
+    private List<SubmissionView> loadViewsInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, SubmissionView> byId = new HashMap<>(ids.size() * 2);
+        for (SubmissionView view : flagSubmissionRepository.findViewsByIdIn(ids)) {
+            byId.put(view.submissionID(), view);
+        }
+        List<SubmissionView> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            SubmissionView view = byId.get(id);
+            if (view != null) {
+                ordered.add(view);
+            }
         }
-
-        return true;
+        return ordered;
     }
 
     @Override
-    public String getSubmitRestrictionReason(Integer flagId, Integer userId) {
-        Optional<Flag> flagOpt = flagRepository.findById(flagId);
-        Optional<User> userOpt = userRepository.findById(userId);
-
-        if (flagOpt.isEmpty() || userOpt.isEmpty()) {
-            return "Flag或用户不存在";
-        }
-
-        Flag flag = flagOpt.get();
-        User user = userOpt.get();
-
-        // 检查Flag状态
-        if (!flag.canBeUsed()) {
-            if (flag.getStatus() == 1) {
-                return "Flag已被使用";
-            } else if (flag.getStatus() == 2) {
-                return "Flag已过期";
-            }
+    public SubmissionContext getUserSubmissionContext(Integer flagId, Integer userId) {
+        FlagVerifier.FlagTarget target = flagVerifier.flag(flagId).orElse(null);
+        if (target == null || userId == null) {
+            return SubmissionContext.forUser(target, null, false, null);
         }
+        // 用户存在性和是否已解出合并为一条查询，竞赛时间窗口来自参考数据缓存
+        return userRepository.findSubmitterView(userId, flagId)
+                .map(view -> SubmissionContext.forUser(target, view.getUserID(), Boolean.TRUE.equals(view.getSolved()),
+                        referenceDataCache.getCompetition(target.competitionId()).orElse(null)))
+                .orElseGet(() -> SubmissionContext.forUser(target, null, false, null));
+    }
 
-        // 检查用户是否已经解答过该Flag
-        if (hasUserSolvedFlag(flagId, userId)) {
-            return "您已经解答过该Flag";
+    @Override
+    public SubmissionContext getTeamSubmissionContext(Integer flagId, Integer teamId) {
+        FlagVerifier.FlagTarget target = flagVerifier.flag(flagId).orElse(null);
+        if (target == null || teamId == null) {
+            return SubmissionContext.forTeam(target, teamId, null, null, false, null);
         }
+        return teamRepository.findSubmitViewById(teamId, flagId)
+                .map(view -> SubmissionContext.forTeam(target, teamId, view.getCaptainID(), view.getAuditState(),
+                        Boolean.TRUE.equals(view.getSolved()),
+                        referenceDataCache.getCompetition(target.competitionId()).orElse(null)))
+                .orElseGet(() -> SubmissionContext.forTeam(target, teamId, null, null, false, null));
+    }
 
-        // 检查竞赛状态
-        Competition competition = flag.getCompetition();
-        if (!competition.isOngoing() && !competition.isUpcoming()) {
-            return "竞赛已结束或未开始";
-        }
+    @Override
+    public boolean canUserSubmitFlag(Integer flagId, Integer userId) {
+        return getUserSubmissionContext(flagId, userId).canSubmit();
+    }
 
-        // 检查Flag是否过期
-        if (flag.isExpired()) {
-            return "Flag已过期";
-        }
+    @Override
+    public boolean canTeamSubmitFlag(Integer flagId, Integer teamId) {
+        return getTeamSubmissionContext(flagId, teamId).canSubmit();
+    }
 
-        return "可以提交";
+    @Override
+    public String getSubmitRestrictionReason(Integer flagId, Integer userId) {
+        String reason = getUserSubmissionContext(flagId, userId).restrictionReason();
+        return reason != null ? reason : SubmissionContext.ALLOWED;
     }
 
     @Override
@@ -520,19 +595,16 @@ public class FlagServiceImpl implements FlagService {
 
     @Override
     public boolean isUserCompetitionCreator(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(competition ->
-                competition.getCreator().getUserID().equals(userId)
-        ).orElse(false);
+        return referenceDataCache.getCompetition(competitionId)
+                .map(competition -> competition.isCreator(userId))
+                .orElse(false);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void expireFlags() {
-        List<Flag> expiredFlags = flagRepository.findByExpireTimeBeforeAndStatusNot(LocalDateTime.now(), 2);
-        for (Flag flag : expiredFlags) {
-            flag.markAsExpired();
-            flagRepository.save(flag);
-        }
+        // 集合式按块更新，由过期任务发布事件失效校验索引
+        flagExpiryScheduler.sweep();
     }
 
     @Override
@@ -550,6 +622,7 @@ public class FlagServiceImpl implements FlagService {
         flag.setStatus(0); // 重置为未使用
         flag.setUseTime(null);
 
+        flagVerifier.invalidateFlag(flagId);
         return flagRepository.save(flag);
     }
 
@@ -622,94 +695,25 @@ public class FlagServiceImpl implements FlagService {
     @Override
     public Page<Map<String, Object>> getCompetitionLeaderboard(Integer competitionId, Pageable pageable) {
         try {
-            // 使用团队排行榜查询（接口投影）
-            Page<ScoreRepository.TeamRankingProjection> summaryPage = scoreRepository.findTeamRankingByCompetition(competitionId, pageable);
-
-            if (summaryPage == null || summaryPage.getContent() == null || summaryPage.getContent().isEmpty()) {
-                // 如果没有数据，返回空的分页结果
-                System.out.println("排行榜查询结果为空，competitionId: " + competitionId);
-                return new PageImpl<>(new ArrayList<>(), pageable, 0);
-            }
-
-            // 获取所有团队数据以计算排名和解题数
-            List<ScoreRepository.TeamRankingProjection> allTeams = scoreRepository.findTeamRankingByCompetition(competitionId);
-            
-            // 创建团队ID到解题数的映射（统计不同的ChallengeID）
-            Map<Integer, Long> teamSolveCountMap = new HashMap<>();
-            for (ScoreRepository.TeamRankingProjection team : allTeams) {
-                if (team.getEntityID() != null) {
-                    Long solveCount = scoreRepository.countDistinctChallengesByTeamAndCompetition(
-                        team.getEntityID(), competitionId);
-                    teamSolveCountMap.put(team.getEntityID(), solveCount != null ? solveCount : 0L);
-                }
-            }
-
-            // 计算排名（基于总分，相同分数按提交时间排序）
-            final List<ScoreRepository.TeamRankingProjection> sortedTeams = new ArrayList<>(allTeams);
-            sortedTeams.sort((a, b) -> {
-                int scoreCompare = Integer.compare(
-                    b.getTotalScore() != null ? b.getTotalScore() : 0,
-                    a.getTotalScore() != null ? a.getTotalScore() : 0
-                );
-                if (scoreCompare != 0) {
-                    return scoreCompare;
-                }
-                // 如果分数相同，按最后提交时间排序（早提交的排名靠前）
-                if (a.getLastSubmitTime() != null && b.getLastSubmitTime() != null) {
-                    return a.getLastSubmitTime().compareTo(b.getLastSubmitTime());
-                }
-                return 0;
-            });
-
-            // 创建团队ID到排名的映射（处理相同分数的情况，相同分数使用相同排名）
-            Map<Integer, Integer> teamRankMap = new HashMap<>();
-            int currentRank = 1;
-            Integer previousScore = null;
-            Integer previousRank = null;
-            
-            for (int i = 0; i < sortedTeams.size(); i++) {
-                ScoreRepository.TeamRankingProjection team = sortedTeams.get(i);
-                if (team.getEntityID() == null) {
-                    continue;
-                }
-                
-                Integer currentScore = team.getTotalScore() != null ? team.getTotalScore() : 0;
-                
-                // 如果当前分数和上一个分数相同，使用相同的排名
-                if (previousScore != null && currentScore.equals(previousScore)) {
-                    teamRankMap.put(team.getEntityID(), previousRank);
-                } else {
-                    // 分数不同，排名递增
-                    currentRank = i + 1;
-                    previousRank = currentRank;
-                    previousScore = currentScore;
-                    teamRankMap.put(team.getEntityID(), currentRank);
-                }
-            }
+            // 排名、解题数均由内存排行榜维护，这里只做当前页的映射
+            Page<TeamStanding> standings = leaderboardEngine.getTeamStandings(competitionId, pageable);
 
-            // 映射当前页的数据
-            List<Map<String, Object>> mapped = summaryPage.getContent().stream()
-                    .filter(ss -> ss != null && ss.getEntityID() != null) // 过滤null值
-                    .map(ss -> {
+            List<Map<String, Object>> mapped = standings.getContent().stream()
+                    .map(standing -> {
                         Map<String, Object> m = new HashMap<>();
-                        m.put("entityID", ss.getEntityID());
-                        m.put("name", ss.getName() != null ? ss.getName() : "未知团队");
-                        m.put("totalScore", ss.getTotalScore() != null ? ss.getTotalScore() : 0);
+                        m.put("entityID", standing.teamId());
+                        m.put("name", standing.teamName() != null ? standing.teamName() : "未知团队");
+                        m.put("totalScore", standing.totalScore());
                         m.put("entityType", "TEAM");
                         m.put("competitionID", competitionId);
-                        // 获取解题数
-                        Long solveCount = teamSolveCountMap.get(ss.getEntityID());
-                        m.put("solveCount", solveCount != null ? solveCount.intValue() : 0);
-                        m.put("lastSubmitTime", ss.getLastSubmitTime());
-                        // 获取排名
-                        Integer rank = teamRankMap.get(ss.getEntityID());
-                        m.put("rank", rank != null ? rank : 0);
+                        m.put("solveCount", standing.solveCount());
+                        m.put("lastSubmitTime", standing.lastSubmitTime());
+                        m.put("rank", standing.rank());
                         return m;
                     })
                     .collect(Collectors.toList());
 
-            System.out.println("排行榜查询成功，返回 " + mapped.size() + " 条记录，competitionId: " + competitionId);
-            return new PageImpl<>(mapped, pageable, summaryPage.getTotalElements());
+            return new PageImpl<>(mapped, pageable, standings.getTotalElements());
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("获取排行榜失败: " + e.getMessage());
@@ -719,28 +723,53 @@ public class FlagServiceImpl implements FlagService {
     }
 
     @Override
-    public List<Flag> generateFlagsForCompetition(Integer competitionId, Integer count, Integer points, LocalDateTime expireTime) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        if (competitionOpt.isEmpty()) {
+    @Transactional(readOnly = true)
+    public FlagBatchGenerator.Plan planFlagGeneration(Integer competitionId, Integer challengeId, Integer creatorId,
+                                                      Integer count, Integer points, LocalDateTime expireTime, boolean perTeam) {
+        if (!competitionRepository.existsById(competitionId)) {
             throw new IllegalArgumentException("竞赛不存在");
         }
+        if (count == null || count <= 0) {
+            throw new IllegalArgumentException("生成数量必须大于0");
+        }
+        if (points == null || points <= 0) {
+            throw new IllegalArgumentException("Flag分值必须大于0");
+        }
+        if (expireTime != null && expireTime.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("过期时间不能早于当前时间");
+        }
+        if (challengeId != null) {
+            ChallengeSnapshot challenge = referenceDataCache.getChallenge(challengeId)
+                    .orElseThrow(() -> new IllegalArgumentException("题目不存在"));
+            if (!competitionId.equals(challenge.competitionId())) {
+                throw new IllegalArgumentException("题目不属于该竞赛");
+            }
+        }
 
-        Competition competition = competitionOpt.get();
-        List<Flag> flags = new ArrayList<>();
-
-        for (int i = 0; i < count; i++) {
-            Flag flag = new Flag();
-            flag.setCompetition(competition);
-            flag.setValue(generateFlagValue());
-            flag.setPoints(points);
-            flag.setExpireTime(expireTime);
-            flag.setType("DYNAMIC");
-            flag.setDescription("自动生成的Flag");
+        List<Integer> teamIds = List.of();
+        if (perTeam) {
+            teamIds = teamRepository.findIdsByCompetitionAndAuditState(competitionId, "1");
+            if (teamIds.isEmpty()) {
+                throw new IllegalArgumentException("该竞赛没有审核通过的战队");
+            }
+        }
 
-            flags.add(flagRepository.save(flag));
+        FlagBatchGenerator.Plan plan = new FlagBatchGenerator.Plan(competitionId, challengeId, creatorId,
+                teamIds, count, points, expireTime);
+        if (plan.total() > flagBatchGenerator.getMaxTotal()) {
+            throw new IllegalArgumentException("单次最多生成 " + flagBatchGenerator.getMaxTotal() + " 个Flag");
         }
+        return plan;
+    }
 
-        return flags;
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FlagBatchGenerator.Result generateFlags(FlagBatchGenerator.Plan plan, Consumer<FlagBatchGenerator.GeneratedFlag> sink) {
+        // 不包在一个大事务里，由生成器按块提交
+        return flagBatchGenerator.generate(plan, flag -> {
+            flagExpiryScheduler.track(flag.flagId(), plan.expireTime());
+            sink.accept(flag);
+        });
     }
 
     /**
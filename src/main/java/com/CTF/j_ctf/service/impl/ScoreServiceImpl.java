@@ -1,14 +1,25 @@
 package com.CTF.j_ctf.service.impl;
 
 import com.CTF.j_ctf.entity.*;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
 import com.CTF.j_ctf.repository.*;
 import com.CTF.j_ctf.service.ScoreService;
+import com.CTF.j_ctf.support.LeaderboardEngine;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.ScoreExporter;
+import com.CTF.j_ctf.support.ScoreLedgerWriter;
+import com.CTF.j_ctf.support.ScoreStatisticsCache;
+import com.CTF.j_ctf.support.ScoreSummaryMaintainer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,19 +32,43 @@ public class ScoreServiceImpl implements ScoreService {
     private final TeamRepository teamRepository;
     private final ChallengeRepository challengeRepository;
     private final FlagRepository flagRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScoreStatisticsCache statisticsCache;
+    private final LeaderboardEngine leaderboardEngine;
+    private final ScoreLedgerWriter scoreLedgerWriter;
+    private final ScoreSummaryRepository scoreSummaryRepository;
+    private final ScoreSummaryMaintainer scoreSummaryMaintainer;
+    private final ReferenceDataCache referenceDataCache;
+    private final ScoreExporter scoreExporter;
 
     public ScoreServiceImpl(ScoreRepository scoreRepository,
                             UserRepository userRepository,
                             CompetitionRepository competitionRepository,
                             TeamRepository teamRepository,
                             ChallengeRepository challengeRepository,
-                            FlagRepository flagRepository) {
+                            FlagRepository flagRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            ScoreStatisticsCache statisticsCache,
+                            LeaderboardEngine leaderboardEngine,
+                            ScoreLedgerWriter scoreLedgerWriter,
+                            ScoreSummaryRepository scoreSummaryRepository,
+                            ScoreSummaryMaintainer scoreSummaryMaintainer,
+                            ReferenceDataCache referenceDataCache,
+                            ScoreExporter scoreExporter) {
         this.scoreRepository = scoreRepository;
         this.userRepository = userRepository;
         this.competitionRepository = competitionRepository;
         this.teamRepository = teamRepository;
         this.challengeRepository = challengeRepository;
         this.flagRepository = flagRepository;
+        this.eventPublisher = eventPublisher;
+        this.statisticsCache = statisticsCache;
+        this.leaderboardEngine = leaderboardEngine;
+        this.scoreLedgerWriter = scoreLedgerWriter;
+        this.scoreSummaryRepository = scoreSummaryRepository;
+        this.scoreSummaryMaintainer = scoreSummaryMaintainer;
+        this.referenceDataCache = referenceDataCache;
+        this.scoreExporter = scoreExporter;
     }
 
     @Override
@@ -41,7 +76,9 @@ public class ScoreServiceImpl implements ScoreService {
         // 验证数据
         validateScore(score);
 
-        return scoreRepository.save(score);
+        Score saved = scoreRepository.save(score);
+        eventPublisher.publishEvent(ScoreRecordedEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -52,6 +89,7 @@ public class ScoreServiceImpl implements ScoreService {
         }
 
         Score existing = existingOpt.get();
+        Integer previousTeamId = existing.getTeam() != null ? existing.getTeam().getTeamID() : null;
 
         // 更新允许修改的字段
         if (score.getScoreValue() != null) {
@@ -82,16 +120,25 @@ public class ScoreServiceImpl implements ScoreService {
             existing.setTeam(score.getTeam());
         }
 
-        return scoreRepository.save(existing);
+        Score saved = scoreRepository.save(existing);
+        publishInvalidation(saved);
+        // 改到其他战队时原战队的汇总行同样需要重算
+        if (previousTeamId != null && (saved.getTeam() == null || !previousTeamId.equals(saved.getTeam().getTeamID()))) {
+            scoreSummaryMaintainer.refresh(saved.getCompetition() != null ? saved.getCompetition().getCompetitionID() : null,
+                    null, previousTeamId);
+        }
+        return saved;
     }
 
     @Override
     public boolean deleteScore(Integer scoreId) {
-        if (!scoreRepository.existsById(scoreId)) {
+        Optional<Score> scoreOpt = scoreRepository.findById(scoreId);
+        if (scoreOpt.isEmpty()) {
             return false;
         }
 
         scoreRepository.deleteById(scoreId);
+        publishInvalidation(scoreOpt.get());
         return true;
     }
 
@@ -140,6 +187,7 @@ public class ScoreServiceImpl implements ScoreService {
         Score score = scoreOpt.get();
         score.invalidate();
         scoreRepository.save(score);
+        publishInvalidation(score);
         return true;
     }
 
@@ -153,6 +201,7 @@ public class ScoreServiceImpl implements ScoreService {
         Score score = scoreOpt.get();
         score.setIsValid(true);
         scoreRepository.save(score);
+        publishInvalidation(score);
         return true;
     }
 
@@ -167,187 +216,143 @@ public class ScoreServiceImpl implements ScoreService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ScoreSummary> getUserRankingByCompetition(Integer competitionId, Pageable pageable) {
-        return scoreRepository.findUserRankingByCompetition(competitionId, pageable);
+        return rankPage(scoreSummaryRepository.findRankingPage(competitionId, "USER", unsorted(pageable)));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ScoreSummary> getTeamRankingByCompetition(Integer competitionId, Pageable pageable) {
-        // 将接口投影转换为ScoreSummary实体
-        Page<ScoreRepository.TeamRankingProjection> projectionPage = scoreRepository.findTeamRankingByCompetition(competitionId, pageable);
-        
-        // 转换为ScoreSummary列表
-        List<ScoreSummary> scoreSummaries = projectionPage.getContent().stream()
-                .map(proj -> {
-                    ScoreSummary summary = new ScoreSummary();
-                    summary.setEntityID(proj.getEntityID());
-                    summary.setEntityName(proj.getName());
-                    summary.setTotalScore(proj.getTotalScore());
-                    summary.setLastSubmitTime(proj.getLastSubmitTime());
-                    summary.setEntityType("TEAM");
-                    summary.setCompetitionID(competitionId);
-                    return summary;
-                })
-                .collect(java.util.stream.Collectors.toList());
-        
-        return new org.springframework.data.domain.PageImpl<>(scoreSummaries, pageable, projectionPage.getTotalElements());
+        return rankPage(scoreSummaryRepository.findRankingPage(competitionId, "TEAM", unsorted(pageable)));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ScoreSummary> getOverallUserRanking(Pageable pageable) {
-        return scoreRepository.findOverallUserRanking(pageable);
+        return overallPage("USER", pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ScoreSummary> getOverallTeamRanking(Pageable pageable) {
-        return scoreRepository.findOverallTeamRanking(pageable);
+        return overallPage("TEAM", pageable);
     }
 
-    @Override
-    public Map<String, Object> getUserScoreStatistics(Integer userId, Integer competitionId) {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 总分数
-        Integer totalScore = getTotalScoreByUserAndCompetition(userId, competitionId);
-        stats.put("totalScore", totalScore != null ? totalScore : 0);
-
-        // 解题数量
-        Long solveCount = scoreRepository.countByUser_UserIDAndCompetition_CompetitionIDAndTypeAndIsValidTrue(
-                userId, competitionId, "FLAG_SUBMISSION");
-        stats.put("solveCount", solveCount);
-
-        // 挑战解决数量
-        Long challengeSolveCount = scoreRepository.countByUser_UserIDAndCompetition_CompetitionIDAndTypeAndIsValidTrue(
-                userId, competitionId, "CHALLENGE_SOLVE");
-        stats.put("challengeSolveCount", challengeSolveCount);
-
-        // 奖励分数
-        Integer bonusScore = scoreRepository.sumScoreValueByUserAndCompetitionAndTypeAndIsValidTrue(
-                userId, competitionId, "BONUS");
-        stats.put("bonusScore", bonusScore != null ? bonusScore : 0);
+    // 排序固定为总分降序、最后得分时间升序，忽略调用方传入的排序
+    private static Pageable unsorted(Pageable pageable) {
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+    }
 
-        // 处罚分数
-        Integer penaltyScore = scoreRepository.sumScoreValueByUserAndCompetitionAndTypeAndIsValidTrue(
-                userId, competitionId, "PENALTY");
-        stats.put("penaltyScore", penaltyScore != null ? penaltyScore : 0);
+    // 名次按分页位置填充（与原视图的 ROW_NUMBER 一致）
+    private static Page<ScoreSummary> rankPage(Page<ScoreSummary> page) {
+        int offset = (int) page.getPageable().getOffset();
+        List<ScoreSummary> content = page.getContent();
+        for (int i = 0; i < content.size(); i++) {
+            content.get(i).setRank(offset + i + 1);
+        }
+        return page;
+    }
 
-        // 调整分数
-        Integer adjustmentScore = scoreRepository.sumScoreValueByUserAndCompetitionAndTypeAndIsValidTrue(
-                userId, competitionId, "ADJUSTMENT");
-        stats.put("adjustmentScore", adjustmentScore != null ? adjustmentScore : 0);
+    private Page<ScoreSummary> overallPage(String entityType, Pageable pageable) {
+        Pageable request = unsorted(pageable);
+        return rankPage(scoreSummaryRepository.findOverallRanking(entityType, request).map(row -> {
+            ScoreSummary summary = new ScoreSummary();
+            summary.setEntityID(row.getEntityID());
+            summary.setEntityType(entityType);
+            summary.setEntityName(row.getEntityName());
+            summary.setTotalScore(row.getTotalScore() != null ? row.getTotalScore().intValue() : 0);
+            summary.setSolveCount(row.getSolveCount() != null ? row.getSolveCount().intValue() : 0);
+            summary.setLastSubmitTime(row.getLastSubmitTime());
+            return summary;
+        }));
+    }
 
-        // 最后提交时间
-        LocalDateTime lastSubmitTime = scoreRepository.findLastSubmitTimeByUserAndCompetition(userId, competitionId);
-        stats.put("lastSubmitTime", lastSubmitTime);
+    @Override
+    public Map<String, Object> getUserScoreStatistics(Integer userId, Integer competitionId) {
+        return statisticsCache.get(competitionId, "user:" + userId, () -> {
+            ScoreRepository.ScoreBreakdown breakdown = scoreRepository.aggregateUserStatistics(userId, competitionId);
+            Map<String, Object> stats = toBreakdownStatistics(breakdown);
 
-        // 用户排名
-        Integer rank = getUserRank(userId, competitionId);
-        stats.put("rank", rank);
+            // 用户排名
+            Integer rank = getUserRank(userId, competitionId);
+            stats.put("rank", rank);
 
-        return stats;
+            return stats;
+        });
     }
 
     @Override
     public Map<String, Object> getTeamScoreStatistics(Integer teamId, Integer competitionId) {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 总分数
-        Integer totalScore = getTotalScoreByTeamAndCompetition(teamId, competitionId);
-        stats.put("totalScore", totalScore != null ? totalScore : 0);
-
-        // 解题数量
-        Long solveCount = scoreRepository.countByTeam_TeamIDAndCompetition_CompetitionIDAndTypeAndIsValidTrue(
-                teamId, competitionId, "FLAG_SUBMISSION");
-        stats.put("solveCount", solveCount);
-
-        // 挑战解决数量
-        Long challengeSolveCount = scoreRepository.countByTeam_TeamIDAndCompetition_CompetitionIDAndTypeAndIsValidTrue(
-                teamId, competitionId, "CHALLENGE_SOLVE");
-        stats.put("challengeSolveCount", challengeSolveCount);
-
-        // 奖励分数
-        Integer bonusScore = scoreRepository.sumScoreValueByTeamAndCompetitionAndTypeAndIsValidTrue(
-                teamId, competitionId, "BONUS");
-        stats.put("bonusScore", bonusScore != null ? bonusScore : 0);
-
-        // 处罚分数
-        Integer penaltyScore = scoreRepository.sumScoreValueByTeamAndCompetitionAndTypeAndIsValidTrue(
-                teamId, competitionId, "PENALTY");
-        stats.put("penaltyScore", penaltyScore != null ? penaltyScore : 0);
-
-        // 调整分数
-        Integer adjustmentScore = scoreRepository.sumScoreValueByTeamAndCompetitionAndTypeAndIsValidTrue(
-                teamId, competitionId, "ADJUSTMENT");
-        stats.put("adjustmentScore", adjustmentScore != null ? adjustmentScore : 0);
+        return statisticsCache.get(competitionId, "team:" + teamId, () -> {
+            ScoreRepository.TeamScoreBreakdown breakdown = scoreRepository.aggregateTeamStatistics(teamId, competitionId);
+            Map<String, Object> stats = toBreakdownStatistics(breakdown);
 
-        // 最后提交时间
-        LocalDateTime lastSubmitTime = scoreRepository.findLastSubmitTimeByTeamAndCompetition(teamId, competitionId);
-        stats.put("lastSubmitTime", lastSubmitTime);
+            // 战队排名
+            Integer rank = getTeamRank(teamId, competitionId);
+            stats.put("rank", rank);
 
-        // 战队排名
-        Integer rank = getTeamRank(teamId, competitionId);
-        stats.put("rank", rank);
+            // 成员数量
+            stats.put("memberCount", breakdown != null ? intValue(breakdown.getMemberCount()) : 0);
 
-        // 成员数量
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
-        if (teamOpt.isPresent()) {
-            stats.put("memberCount", teamOpt.get().getMembers().size());
-        }
-
-        return stats;
+            return stats;
+        });
     }
 
     @Override
     public Map<String, Object> getCompetitionScoreStatistics(Integer competitionId) {
+        return statisticsCache.get(competitionId, "competition", () -> {
+            ScoreRepository.CompetitionScoreAggregate aggregate = scoreRepository.aggregateCompetitionStatistics(competitionId);
+            Map<String, Object> stats = new HashMap<>();
+
+            // 分数记录数（总数/有效/无效）
+            stats.put("totalScoreRecords", longValue(aggregate.getTotalRecords()));
+            stats.put("validScoreRecords", longValue(aggregate.getValidRecords()));
+            stats.put("invalidScoreRecords", longValue(aggregate.getInvalidRecords()));
+
+            // 参赛用户数、战队数
+            stats.put("participantCount", longValue(aggregate.getParticipantCount()));
+            stats.put("teamCount", longValue(aggregate.getTeamCount()));
+
+            // 平均/最高/最低分数
+            stats.put("averageScore", aggregate.getAverageScore() != null ? aggregate.getAverageScore() : 0);
+            stats.put("maxScore", aggregate.getMaxScore() != null ? aggregate.getMaxScore() : 0);
+            stats.put("minScore", aggregate.getMinScore() != null ? aggregate.getMinScore() : 0);
+
+            // 分数类型分布
+            Map<String, Long> scoreTypeDistribution = new HashMap<>();
+            scoreTypeDistribution.put("FLAG_SUBMISSION", longValue(aggregate.getFlagSubmissionCount()));
+            scoreTypeDistribution.put("CHALLENGE_SOLVE", longValue(aggregate.getChallengeSolveCount()));
+            scoreTypeDistribution.put("BONUS", longValue(aggregate.getBonusCount()));
+            scoreTypeDistribution.put("PENALTY", longValue(aggregate.getPenaltyCount()));
+            scoreTypeDistribution.put("ADJUSTMENT", longValue(aggregate.getAdjustmentCount()));
+            stats.put("scoreTypeDistribution", Collections.unmodifiableMap(scoreTypeDistribution));
+
+            return stats;
+        });
+    }
+
+    /**
+     * 用户/战队统计的公共字段（没有任何分数记录时各项为 0）
+     */
+    private Map<String, Object> toBreakdownStatistics(ScoreRepository.ScoreBreakdown breakdown) {
         Map<String, Object> stats = new HashMap<>();
+        stats.put("totalScore", breakdown != null ? intValue(breakdown.getTotalScore()) : 0);
+        stats.put("solveCount", breakdown != null ? longValue(breakdown.getSolveCount()) : 0L);
+        stats.put("challengeSolveCount", breakdown != null ? longValue(breakdown.getChallengeSolveCount()) : 0L);
+        stats.put("bonusScore", breakdown != null ? intValue(breakdown.getBonusScore()) : 0);
+        stats.put("penaltyScore", breakdown != null ? intValue(breakdown.getPenaltyScore()) : 0);
+        stats.put("adjustmentScore", breakdown != null ? intValue(breakdown.getAdjustmentScore()) : 0);
+        stats.put("lastSubmitTime", breakdown != null ? breakdown.getLastSubmitTime() : null);
+        return stats;
+    }
 
-        // 总分数记录数
-        Long totalScoreRecords = scoreRepository.countByCompetition_CompetitionID(competitionId);
-        stats.put("totalScoreRecords", totalScoreRecords);
-
-        // 有效分数记录数
-        Long validScoreRecords = scoreRepository.countByCompetition_CompetitionIDAndIsValidTrue(competitionId);
-        stats.put("validScoreRecords", validScoreRecords);
-
-        // 无效分数记录数
-        Long invalidScoreRecords = scoreRepository.countByCompetition_CompetitionIDAndIsValidFalse(competitionId);
-        stats.put("invalidScoreRecords", invalidScoreRecords);
-
-        // 参赛用户数
-        Long participantCount = scoreRepository.countDistinctUsersByCompetition(competitionId);
-        stats.put("participantCount", participantCount);
-
-        // 参赛战队数
-        Long teamCount = scoreRepository.countDistinctTeamsByCompetition(competitionId);
-        stats.put("teamCount", teamCount);
-
-        // 平均分数
-        Double averageScore = scoreRepository.averageScoreByCompetitionAndIsValidTrue(competitionId);
-        stats.put("averageScore", averageScore != null ? averageScore : 0);
-
-        // 最高分数
-        Integer maxScore = scoreRepository.maxScoreByCompetitionAndIsValidTrue(competitionId);
-        stats.put("maxScore", maxScore != null ? maxScore : 0);
-
-        // 最低分数
-        Integer minScore = scoreRepository.minScoreByCompetitionAndIsValidTrue(competitionId);
-        stats.put("minScore", minScore != null ? minScore : 0);
-
-        // 分数类型分布
-        Map<String, Long> scoreTypeDistribution = new HashMap<>();
-        scoreTypeDistribution.put("FLAG_SUBMISSION",
-                scoreRepository.countByCompetition_CompetitionIDAndTypeAndIsValidTrue(competitionId, "FLAG_SUBMISSION"));
-        scoreTypeDistribution.put("CHALLENGE_SOLVE",
-                scoreRepository.countByCompetition_CompetitionIDAndTypeAndIsValidTrue(competitionId, "CHALLENGE_SOLVE"));
-        scoreTypeDistribution.put("BONUS",
-                scoreRepository.countByCompetition_CompetitionIDAndTypeAndIsValidTrue(competitionId, "BONUS"));
-        scoreTypeDistribution.put("PENALTY",
-                scoreRepository.countByCompetition_CompetitionIDAndTypeAndIsValidTrue(competitionId, "PENALTY"));
-        scoreTypeDistribution.put("ADJUSTMENT",
-                scoreRepository.countByCompetition_CompetitionIDAndTypeAndIsValidTrue(competitionId, "ADJUSTMENT"));
-        stats.put("scoreTypeDistribution", scoreTypeDistribution);
+    private static long longValue(Long value) {
+        return value != null ? value : 0L;
+    }
 
-        return stats;
+    private static int intValue(Long value) {
+        return value != null ? value.intValue() : 0;
     }
 
     @Override
@@ -363,7 +368,9 @@ public class ScoreServiceImpl implements ScoreService {
         score.setType("ADJUSTMENT");
         score.setDescription(description != null ? description : "管理员手动调整分数");
 
-        return scoreRepository.save(score);
+        Score saved = scoreRepository.save(score);
+        eventPublisher.publishEvent(ScoreRecordedEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -378,121 +385,63 @@ public class ScoreServiceImpl implements ScoreService {
         Team team = teamOpt.get();
         Competition competition = competitionOpt.get();
 
-        // 为战队所有成员创建分数记录
-        Score firstScore = null;
-        for (User member : team.getMembers()) {
-            Score score = new Score(member, competition, points);
-            score.setTeam(team);
-            score.setType("ADJUSTMENT");
-            score.setDescription(description != null ? description : "管理员手动调整战队分数");
-
-            Score savedScore = scoreRepository.save(score);
-            if (firstScore == null) {
-                firstScore = savedScore;
-            }
+        // 为战队所有成员创建分数记录（一次查询成员ID + 一次批量插入）
+        String scoreDescription = description != null ? description : "管理员手动调整战队分数";
+        List<ScoreRecordedEvent> recorded = scoreLedgerWriter.writeTeamScores(new ScoreLedgerWriter.TeamScore(
+                teamId, competitionId, null, null, points, "ADJUSTMENT", scoreDescription));
+        if (recorded.isEmpty()) {
+            return null;
         }
 
+        // 返回第一条记录的摘要（成员只写入了ID，不回填 User 实体）
+        ScoreRecordedEvent first = recorded.get(0);
+        Score firstScore = new Score();
+        firstScore.setChangeID(first.changeId());
+        firstScore.setCompetition(competition);
+        firstScore.setTeam(team);
+        firstScore.setScoreValue(points);
+        firstScore.setType("ADJUSTMENT");
+        firstScore.setDescription(scoreDescription);
+        firstScore.setCreateTime(first.createTime());
         return firstScore;
     }
 
     @Override
     public Integer getUserRank(Integer userId, Integer competitionId) {
-        try {
-            List<ScoreSummary> rankings = scoreRepository.findUserRankingByCompetition(competitionId);
-            
-            if (rankings == null || rankings.isEmpty()) {
-                return null; // 没有排行榜数据
-            }
-
-            for (int i = 0; i < rankings.size(); i++) {
-                ScoreSummary summary = rankings.get(i);
-                if (summary != null && summary.getEntityID() != null && summary.getEntityID().equals(userId)) {
-                    return i + 1; // 排名从1开始
-                }
-            }
-
-            return null; // 用户不在排行榜中
-        } catch (Exception e) {
-            // 记录错误但不抛出异常，返回null表示无法获取排名
-            return null;
-        }
+        // 名次由内存排名索引维护，相同分数名次相同
+        return leaderboardEngine.getUserRank(competitionId, userId).orElse(null);
     }
 
     @Override
     public Integer getTeamRank(Integer teamId, Integer competitionId) {
-        // 获取所有团队数据
-        List<ScoreRepository.TeamRankingProjection> projectionList = scoreRepository.findTeamRankingByCompetition(competitionId);
-        
-        if (projectionList == null || projectionList.isEmpty()) {
-            return null; // 没有排行榜数据
-        }
-        
-        // 按照和排行榜相同的逻辑排序：总分降序，相同分数按提交时间升序（早提交的排名靠前）
-        List<ScoreRepository.TeamRankingProjection> sortedTeams = new ArrayList<>(projectionList);
-        sortedTeams.sort((a, b) -> {
-            // 先按总分降序排序
-            int scoreCompare = Integer.compare(
-                b.getTotalScore() != null ? b.getTotalScore() : 0,
-                a.getTotalScore() != null ? a.getTotalScore() : 0
-            );
-            if (scoreCompare != 0) {
-                return scoreCompare;
-            }
-            // 如果分数相同，按最后提交时间升序排序（早提交的排名靠前）
-            if (a.getLastSubmitTime() != null && b.getLastSubmitTime() != null) {
-                return a.getLastSubmitTime().compareTo(b.getLastSubmitTime());
-            }
-            // 如果提交时间为null，有提交时间的排在前面
-            if (a.getLastSubmitTime() != null) {
-                return -1;
-            }
-            if (b.getLastSubmitTime() != null) {
-                return 1;
-            }
-            return 0;
-        });
-        
-        // 计算排名（处理相同分数的情况）
-        int currentRank = 1;
-        Integer previousScore = null;
-        Integer previousRank = null;
-        
-        for (int i = 0; i < sortedTeams.size(); i++) {
-            ScoreRepository.TeamRankingProjection team = sortedTeams.get(i);
-            Integer currentScore = team.getTotalScore() != null ? team.getTotalScore() : 0;
-            
-            // 如果当前分数和上一个分数相同，使用相同的排名
-            if (previousScore != null && currentScore.equals(previousScore)) {
-                // 使用上一个排名
-                if (team.getEntityID() != null && team.getEntityID().equals(teamId)) {
-                    return previousRank;
-                }
-            } else {
-                // 分数不同，排名递增
-                currentRank = i + 1;
-                previousRank = currentRank;
-                previousScore = currentScore;
-                
-                if (team.getEntityID() != null && team.getEntityID().equals(teamId)) {
-                    return currentRank;
-                }
-            }
-        }
-        
-        return null; // 战队不在排行榜中
+        // 与战队排行榜规则一致：总分降序，相同分数名次相同
+        return leaderboardEngine.getTeamRank(competitionId, teamId).orElse(null);
     }
 
     @Override
-    public List<Score> exportCompetitionScores(Integer competitionId) {
-        return scoreRepository.findByCompetition_CompetitionID(competitionId);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 导出自行从连接池取连接，不占用事务连接
+    public long exportCompetitionScores(Integer competitionId, ScoreExporter.Format format, OutputStream out) {
+        return scoreExporter.export(competitionId, format, out);
     }
 
     @Override
     public boolean isUserCompetitionCreator(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(competition ->
-                competition.getCreator().getUserID().equals(userId)
-        ).orElse(false);
+        return referenceDataCache.getCompetition(competitionId)
+                .map(competition -> competition.isCreator(userId))
+                .orElse(false);
+    }
+
+    /**
+     * 非追加型的分数变更（修改、作废、恢复、删除）无法增量处理，通知排行榜整体重建
+     */
+    private void publishInvalidation(Score score) {
+        Integer competitionId = score.getCompetition() != null ? score.getCompetition().getCompetitionID() : null;
+        // 汇总表按 Score 表重算，需要先把本次修改刷到数据库
+        scoreRepository.flush();
+        scoreSummaryMaintainer.refresh(competitionId,
+                score.getUser() != null ? score.getUser().getUserID() : null,
+                score.getTeam() != null ? score.getTeam().getTeamID() : null);
+        eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(competitionId));
     }
 
     /**
@@ -1,9 +1,21 @@
 package com.CTF.j_ctf.service.impl;
 
+import com.CTF.j_ctf.dto.CompetitionSnapshot;
+import com.CTF.j_ctf.dto.TeamMemberRow;
+import com.CTF.j_ctf.dto.TeamMembershipView;
+import com.CTF.j_ctf.dto.TeamSnapshot;
 import com.CTF.j_ctf.entity.*;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
+import com.CTF.j_ctf.event.TeamMembershipChangedEvent;
 import com.CTF.j_ctf.repository.*;
 import com.CTF.j_ctf.service.TeamService;
+import com.CTF.j_ctf.support.ParticipationIndex;
+import com.CTF.j_ctf.support.ReferenceDataCache;
+import com.CTF.j_ctf.support.SearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import org.springframework.data.domain.PageImpl;
 
 @Service
@@ -24,17 +37,29 @@ public class TeamServiceImpl implements TeamService {
     private final UserRepository userRepository;
     private final CompetitionRepository competitionRepository;
     private final TeamMemberRepository teamMemberRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceDataCache;
+    private final SearchIndex searchIndex;
+    private final ParticipationIndex participationIndex;
 
     public TeamServiceImpl(TeamRepository teamRepository,
                            TeamApplicationRepository teamApplicationRepository,
                            UserRepository userRepository,
                            CompetitionRepository competitionRepository,
-                           TeamMemberRepository teamMemberRepository) {
+                           TeamMemberRepository teamMemberRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           ReferenceDataCache referenceDataCache,
+                           SearchIndex searchIndex,
+                           ParticipationIndex participationIndex) {
         this.teamRepository = teamRepository;
         this.teamApplicationRepository = teamApplicationRepository;
         this.userRepository = userRepository;
         this.competitionRepository = competitionRepository;
         this.teamMemberRepository = teamMemberRepository;
+        this.eventPublisher = eventPublisher;
+        this.referenceDataCache = referenceDataCache;
+        this.searchIndex = searchIndex;
+        this.participationIndex = participationIndex;
     }
 
     @Override
@@ -43,7 +68,7 @@ public class TeamServiceImpl implements TeamService {
         validateTeam(team);
 
         // 检查用户是否已在同一竞赛的其他战队
-        if (teamRepository.existsByMemberAndCompetition(captain.getUserID(), team.getCompetition().getCompetitionID())) {
+        if (participationIndex.isParticipant(team.getCompetition().getCompetitionID(), captain.getUserID())) {
             throw new IllegalArgumentException("您已加入该竞赛的其他战队");
         }
 
@@ -62,6 +87,9 @@ public class TeamServiceImpl implements TeamService {
         TeamMember captainMember = new TeamMember(savedTeam, captain);
         teamMemberRepository.save(captainMember);
 
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.joined(
+                savedTeam.getCompetition().getCompetitionID(), savedTeam.getTeamID(), captain.getUserID()));
+        eventPublisher.publishEvent(SearchDocumentEvent.of(savedTeam));
         return savedTeam;
     }
 
@@ -90,9 +118,14 @@ public class TeamServiceImpl implements TeamService {
                 throw new IllegalArgumentException("该竞赛中已存在同名战队");
             }
             existing.setTeamName(team.getTeamName());
+            referenceDataCache.invalidateTeam(existing.getTeamID());
+            // 排行榜缓存了战队名称
+            eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(existing.getCompetition().getCompetitionID()));
         }
 
-        return teamRepository.save(existing);
+        Team saved = teamRepository.save(existing);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -106,11 +139,17 @@ public class TeamServiceImpl implements TeamService {
             return false;
         }
 
+        Integer competitionId = referenceDataCache.getTeam(teamId).map(TeamSnapshot::competitionId).orElse(null);
+
         // 先删除相关数据
         teamMemberRepository.deleteAllByTeamId(teamId);
         teamApplicationRepository.deleteByTeam_TeamID(teamId);
 
         teamRepository.deleteById(teamId);
+        referenceDataCache.invalidateTeam(teamId);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.teamRemoved(competitionId, teamId));
+        eventPublisher.publishEvent(new LeaderboardInvalidatedEvent(null));
+        eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.TEAM, teamId));
         return true;
     }
 
@@ -145,48 +184,59 @@ public class TeamServiceImpl implements TeamService {
         return teamRepository.findByCaptain_UserID(captainId, pageable);
     }
 
+    /**
+     * “我的战队”列表：数据库侧分页，固定三次查询，与用户加入的战队总数无关
+     * 1. 当前页的战队ID和总数；2. 这些战队的展示列投影；3. 这些战队的全部成员（一次批量查询）
+     */
     @Override
     @Transactional(readOnly = true)
-    public Page<Team> getTeamsByMember(Integer memberId, Pageable pageable) {
-        // 获取用户加入的所有团队（已使用JOIN FETCH预加载关联数据）
-        List<Team> teams = teamRepository.findByMemberId(memberId);
-        System.out.println("用户 " + memberId + " 加入的团队总数: " + teams.size());
-        
-        // 在事务内初始化LAZY关联，避免后续序列化问题
-        for (Team team : teams) {
-            // 触发teamMembers的加载（如果还未加载）
-            if (team.getTeamMembers() != null) {
-                team.getTeamMembers().size(); // 触发LAZY加载
-                // 初始化每个成员的user关联
-                for (com.CTF.j_ctf.entity.TeamMember member : team.getTeamMembers()) {
-                    if (member.getUser() != null) {
-                        member.getUser().getUserName(); // 触发LAZY加载
-                    }
-                }
+    public Page<TeamMembershipView> getTeamViewsByMember(Integer memberId, Pageable pageable) {
+        Pageable idPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<Integer> idPage = teamRepository.findTeamIdPageByMemberId(memberId, idPageable);
+        List<Integer> teamIds = idPage.getContent();
+        if (teamIds.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, idPage.getTotalElements());
+        }
+
+        Map<Integer, List<TeamMembershipView.MemberRef>> membersByTeam = new HashMap<>(teamIds.size() * 2);
+        for (TeamMemberRow row : teamMemberRepository.findMemberRowsByTeamIdIn(teamIds)) {
+            membersByTeam.computeIfAbsent(row.teamID(), id -> new ArrayList<>()).add(row.toMemberRef());
+        }
+        Map<Integer, TeamMembershipView> viewsById = new HashMap<>(teamIds.size() * 2);
+        for (TeamMembershipView view : teamRepository.findMembershipViewsByIdIn(teamIds)) {
+            viewsById.put(view.teamID(), view);
+        }
+
+        // 保持ID页的顺序
+        List<TeamMembershipView> ordered = new ArrayList<>(teamIds.size());
+        for (Integer teamId : teamIds) {
+            TeamMembershipView view = viewsById.get(teamId);
+            if (view != null) {
+                ordered.add(view.withMembers(membersByTeam.getOrDefault(teamId, List.of())));
             }
         }
-        
-        // 手动实现分页
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), teams.size());
-        List<Team> pagedTeams = start < teams.size() ? teams.subList(start, end) : new ArrayList<>();
-        System.out.println("分页结果: start=" + start + ", end=" + end + ", 返回数量=" + pagedTeams.size());
-        return new PageImpl<>(pagedTeams, pageable, teams.size());
+        return new PageImpl<>(ordered, pageable, idPage.getTotalElements());
     }
 
+    // 优先走全文索引（战队名称 + 简介，按相关度排序），索引不可用时回退到 LIKE 查询
     @Override
     public Page<Team> searchTeams(String keyword, Pageable pageable) {
-        return teamRepository.findByTeamNameContaining(keyword, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.TEAM, keyword, null, false, pageable,
+                        teamRepository::findAllById, Team::getTeamID)
+                .orElseGet(() -> teamRepository.findByTeamNameContaining(keyword, pageable));
     }
 
     @Override
     public Page<Team> searchTeamsByCompetition(String keyword, Integer competitionId, Pageable pageable) {
-        return teamRepository.findByTeamNameContainingAndCompetition_CompetitionID(keyword, competitionId, pageable);
+        return searchIndex.search(SearchDocumentEvent.Type.TEAM, keyword, competitionId, false, pageable,
+                        teamRepository::findAllById, Team::getTeamID)
+                .orElseGet(() -> teamRepository.findByTeamNameContainingAndCompetition_CompetitionID(keyword, competitionId, pageable));
     }
 
     @Override
     public Optional<Team> getUserTeamInCompetition(Integer userId, Integer competitionId) {
-        return teamRepository.findByMemberAndCompetition(userId, competitionId);
+        OptionalInt teamId = participationIndex.findTeamId(competitionId, userId);
+        return teamId.isPresent() ? teamRepository.findById(teamId.getAsInt()) : Optional.empty();
     }
 
     @Override
@@ -196,11 +246,9 @@ public class TeamServiceImpl implements TeamService {
 
     @Override
     public boolean isUserCompetitionCreator(Integer competitionId, Integer userId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        return competitionOpt.map(competition ->
-                competition.getCreator() != null &&
-                        competition.getCreator().getUserID().equals(userId)
-        ).orElse(false);
+        return referenceDataCache.getCompetition(competitionId)
+                .map(competition -> competition.isCreator(userId))
+                .orElse(false);
     }
 
     @Override
@@ -227,6 +275,7 @@ public class TeamServiceImpl implements TeamService {
 
         TeamMember member = new TeamMember(team, user);
         teamMemberRepository.save(member);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.joined(competitionIdOf(team), teamId, userId));
         return true;
     }
 
@@ -253,6 +302,7 @@ public class TeamServiceImpl implements TeamService {
         }
 
         teamMemberRepository.deleteByTeamAndUser(teamId, memberId);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.left(competitionIdOf(team), teamId, memberId));
         return true;
     }
 
@@ -280,6 +330,7 @@ public class TeamServiceImpl implements TeamService {
 
         team.setCaptain(newCaptain);
         teamRepository.save(team);
+        referenceDataCache.invalidateTeam(teamId);
         return true;
     }
 
@@ -306,6 +357,7 @@ public class TeamServiceImpl implements TeamService {
         }
 
         teamMemberRepository.deleteByTeamAndUser(teamId, userId);
+        eventPublisher.publishEvent(TeamMembershipChangedEvent.left(competitionIdOf(team), teamId, userId));
         return true;
     }
 
@@ -422,12 +474,12 @@ public class TeamServiceImpl implements TeamService {
 
     @Override
     public boolean canUserJoinTeam(Integer teamId, Integer userId) {
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
+        Optional<TeamSnapshot> teamOpt = referenceDataCache.getTeam(teamId);
         if (teamOpt.isEmpty()) {
             return false;
         }
 
-        Team team = teamOpt.get();
+        TeamSnapshot team = teamOpt.get();
 
         // 检查战队状态
         if (!team.isAuditApproved()) {
@@ -435,23 +487,19 @@ public class TeamServiceImpl implements TeamService {
         }
 
         // 检查竞赛状态
-        if (!team.getCompetition().isOngoing()) {
+        Optional<CompetitionSnapshot> competitionOpt = referenceDataCache.getCompetition(team.competitionId());
+        if (competitionOpt.isEmpty() || !competitionOpt.get().isOngoing()) {
             return false;
         }
 
         // 检查战队人数
         Long memberCount = teamMemberRepository.countByTeamTeamID(teamId);
-        if (memberCount >= team.getCompetition().getTeamSizeLimit()) {
-            return false;
-        }
-
-        // 检查用户是否已在战队中
-        if (teamMemberRepository.existsByTeamTeamIDAndUserUserID(teamId, userId)) {
+        if (memberCount >= competitionOpt.get().teamSizeLimit()) {
             return false;
         }
 
-        // 检查用户是否已在同一竞赛的其他战队
-        if (teamRepository.existsByMemberAndCompetition(userId, team.getCompetition().getCompetitionID())) {
+        // 检查用户是否已在本战队或同一竞赛的其他战队
+        if (participationIndex.isParticipant(team.competitionId(), userId)) {
             return false;
         }
 
@@ -460,12 +508,12 @@ public class TeamServiceImpl implements TeamService {
 
     @Override
     public String getJoinRestrictionReason(Integer teamId, Integer userId) {
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
+        Optional<TeamSnapshot> teamOpt = referenceDataCache.getTeam(teamId);
         if (teamOpt.isEmpty()) {
             return "战队不存在";
         }
 
-        Team team = teamOpt.get();
+        TeamSnapshot team = teamOpt.get();
 
         // 检查战队状态
         if (!team.isAuditApproved()) {
@@ -473,24 +521,21 @@ public class TeamServiceImpl implements TeamService {
         }
 
         // 检查竞赛状态
-        if (!team.getCompetition().isOngoing()) {
+        Optional<CompetitionSnapshot> competitionOpt = referenceDataCache.getCompetition(team.competitionId());
+        if (competitionOpt.isEmpty() || !competitionOpt.get().isOngoing()) {
             return "竞赛已结束或未开始";
         }
 
         // 检查战队人数
         Long memberCount = teamMemberRepository.countByTeamTeamID(teamId);
-        if (memberCount >= team.getCompetition().getTeamSizeLimit()) {
+        if (memberCount >= competitionOpt.get().teamSizeLimit()) {
             return "战队人数已满";
         }
 
-        // 检查用户是否已在战队中
-        if (teamMemberRepository.existsByTeamTeamIDAndUserUserID(teamId, userId)) {
-            return "您已是该战队成员";
-        }
-
-        // 检查用户是否已在同一竞赛的其他战队
-        if (teamRepository.existsByMemberAndCompetition(userId, team.getCompetition().getCompetitionID())) {
-            return "您已加入该竞赛的其他战队";
+        // 检查用户是否已在本战队或同一竞赛的其他战队
+        OptionalInt currentTeamId = participationIndex.findTeamId(team.competitionId(), userId);
+        if (currentTeamId.isPresent()) {
+            return currentTeamId.getAsInt() == teamId ? "您已是该战队成员" : "您已加入该竞赛的其他战队";
         }
 
         return "可以加入";
@@ -503,8 +548,7 @@ public class TeamServiceImpl implements TeamService {
 
     @Override
     public boolean isTeamCaptain(Integer teamId, Integer userId) {
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
-        return teamOpt.map(team -> team.isCaptain(createUserWithId(userId))).orElse(false);
+        return referenceDataCache.getTeam(teamId).map(team -> team.isCaptain(userId)).orElse(false);
     }
 
     @Override
@@ -527,6 +571,7 @@ public class TeamServiceImpl implements TeamService {
                 throw new IllegalArgumentException("无效的审核状态");
         }
 
+        referenceDataCache.invalidateTeam(teamId);
         return teamRepository.save(team);
     }
 
@@ -566,14 +611,14 @@ public class TeamServiceImpl implements TeamService {
 
     @Override
     public boolean isTeamFull(Integer teamId) {
-        Optional<Team> teamOpt = teamRepository.findById(teamId);
-        if (teamOpt.isEmpty()) {
+        Optional<CompetitionSnapshot> competitionOpt = referenceDataCache.getTeam(teamId)
+                .flatMap(team -> referenceDataCache.getCompetition(team.competitionId()));
+        if (competitionOpt.isEmpty()) {
             return true;
         }
 
-        Team team = teamOpt.get();
         Long memberCount = teamMemberRepository.countByTeamTeamID(teamId);
-        return memberCount >= team.getCompetition().getTeamSizeLimit();
+        return memberCount >= competitionOpt.get().teamSizeLimit();
     }
 
     @Override
@@ -615,4 +660,8 @@ public class TeamServiceImpl implements TeamService {
         user.setUserID(userId);
         return user;
     }
+
+    private Integer competitionIdOf(Team team) {
+        return team.getCompetition() != null ? team.getCompetition().getCompetitionID() : null;
+    }
 }
\ No newline at end of file
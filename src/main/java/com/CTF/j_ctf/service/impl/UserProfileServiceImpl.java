@@ -2,8 +2,10 @@ package com.CTF.j_ctf.service.impl;
 
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.entity.User.UserType;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
 import com.CTF.j_ctf.repository.UserRepository;
 import com.CTF.j_ctf.service.UserProfileService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,6 +19,7 @@ import java.util.regex.Pattern;
 public class UserProfileServiceImpl implements UserProfileService {
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     // 用于存储验证码（生产环境应该使用Redis等）
     private final ConcurrentHashMap<String, String> verificationCodes = new ConcurrentHashMap<>();
@@ -30,9 +33,11 @@ public class UserProfileServiceImpl implements UserProfileService {
     private static final Pattern PHONE_PATTERN = Pattern.compile("^1[3-9]\\d{9}$");
     private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[A-Za-z])(?=.*\\d)[A-Za-z\\d@$!%*#?&]{6,}$");
 
-    public UserProfileServiceImpl(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public UserProfileServiceImpl(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
+                                  ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -112,7 +117,9 @@ public class UserProfileServiceImpl implements UserProfileService {
             existingUser.setSchoolWorkunit(updatedProfile.getSchoolWorkunit());
         }
 
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
     }
 
     @Override
@@ -3,10 +3,15 @@ package com.CTF.j_ctf.service.impl;
 import com.CTF.j_ctf.entity.Competition;
 import com.CTF.j_ctf.entity.User;
 import com.CTF.j_ctf.entity.WriteUp;
+import com.CTF.j_ctf.event.SearchDocumentEvent;
 import com.CTF.j_ctf.repository.CompetitionRepository;
 import com.CTF.j_ctf.repository.UserRepository;
 import com.CTF.j_ctf.repository.WriteUpRepository;
 import com.CTF.j_ctf.service.WriteUpService;
+import com.CTF.j_ctf.support.SearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,20 +22,26 @@ public class WriteUpServiceImpl implements WriteUpService {
     private final WriteUpRepository writeUpRepository;
     private final UserRepository userRepository;
     private final CompetitionRepository competitionRepository;
+    private final SearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public WriteUpServiceImpl(WriteUpRepository writeUpRepository,
                               UserRepository userRepository,
-                              CompetitionRepository competitionRepository) {
+                              CompetitionRepository competitionRepository,
+                              SearchIndex searchIndex,
+                              ApplicationEventPublisher eventPublisher) {
         this.writeUpRepository = writeUpRepository;
         this.userRepository = userRepository;
         this.competitionRepository = competitionRepository;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public WriteUp createWriteUp(WriteUp writeUp) {
         // 验证数据
         validateWriteUp(writeUp);
-        return writeUpRepository.save(writeUp);
+        return indexed(writeUpRepository.save(writeUp));
     }
 
     @Override
@@ -64,7 +75,7 @@ public class WriteUpServiceImpl implements WriteUpService {
             writeUp = new WriteUp(user, competition, title, content);
         }
         
-        return writeUpRepository.save(writeUp);
+        return indexed(writeUpRepository.save(writeUp));
     }
 
     @Override
@@ -87,9 +98,14 @@ public class WriteUpServiceImpl implements WriteUpService {
         return writeUpRepository.findByUserAndCompetition(userId, competitionId);
     }
 
+    // 优先走全文索引（标题 + 正文，按相关度排序，最多 max-results 条），索引不可用时回退到按标题 LIKE 查询
     @Override
     public List<WriteUp> searchWriteUpsByTitle(String keyword) {
-        return writeUpRepository.findByTitleContaining(keyword);
+        return searchIndex.search(SearchDocumentEvent.Type.WRITEUP, keyword, null, false,
+                        PageRequest.of(0, searchIndex.getMaxResults()),
+                        writeUpRepository::findAllById, WriteUp::getWriteUpID)
+                .map(Page::getContent)
+                .orElseGet(() -> writeUpRepository.findByTitleContaining(keyword));
     }
 
     @Override
@@ -100,7 +116,7 @@ public class WriteUpServiceImpl implements WriteUpService {
         }
 
         validateWriteUp(writeUp);
-        return writeUpRepository.save(writeUp);
+        return indexed(writeUpRepository.save(writeUp));
     }
 
     @Override
@@ -109,6 +125,7 @@ public class WriteUpServiceImpl implements WriteUpService {
             throw new IllegalArgumentException("解题报告不存在");
         }
         writeUpRepository.deleteById(writeUpId);
+        eventPublisher.publishEvent(SearchDocumentEvent.deleted(SearchDocumentEvent.Type.WRITEUP, writeUpId));
     }
 
     @Override
@@ -117,6 +134,14 @@ public class WriteUpServiceImpl implements WriteUpService {
         return !writeUps.isEmpty();
     }
 
+    /**
+     * 解题报告保存后通知全文索引
+     */
+    private WriteUp indexed(WriteUp saved) {
+        eventPublisher.publishEvent(SearchDocumentEvent.of(saved));
+        return saved;
+    }
+
     /**
      * 验证解题报告数据的有效性
      */
@@ -0,0 +1,166 @@
+package com.CTF.j_ctf.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 有上限的并发缓存
+ * 读取不加锁，只记录访问时间；条目数超过上限时由一个写线程按访问时间批量淘汰到上限的 90%（近似 LRU）。
+ * 每次失效递增代数，加载期间发生过失效的结果不写回，防止查库得到的旧值覆盖失效；不缓存不存在的记录。
+ */
+final class BoundedCache<K, V> {
+
+    private static final class Node<V> {
+        final V value;
+        volatile long lastAccess;
+
+        Node(V value) {
+            this.value = value;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    private record Candidate<K, V>(K key, Node<V> node, long lastAccess) {
+    }
+
+    private final ConcurrentHashMap<K, Node<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxSize;
+
+    BoundedCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    V getIfPresent(K key) {
+        Node<V> node = entries.get(key);
+        if (node == null) {
+            return null;
+        }
+        node.lastAccess = System.nanoTime();
+        return node.value;
+    }
+
+    /**
+     * 未命中时在任何锁之外调用 loader；并发加载同一条目时以先写入的为准
+     */
+    Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long seen = generation();
+        Optional<V> loaded = loader.apply(key);
+        return loaded.map(value -> putIfCurrent(key, value, seen));
+    }
+
+    /**
+     * 加载前读取的代数，配合 putIfCurrent 使用
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 代数未变时写入；返回缓存中的值（已有条目优先），未写入时原样返回 value
+     */
+    V putIfCurrent(K key, V value, long seen) {
+        if (generation.get() != seen) {
+            return value;
+        }
+        Node<V> node = new Node<>(value);
+        Node<V> existing = entries.putIfAbsent(key, node);
+        if (existing != null) {
+            return existing.value;
+        }
+        // 写入与失效并发：失效先递增代数再删除，写入后代数已变说明可能错过了那次删除，撤回本次写入
+        if (generation.get() != seen) {
+            entries.remove(key, node);
+            return value;
+        }
+        evictIfNeeded();
+        return value;
+    }
+
+    void put(K key, V value) {
+        entries.put(key, new Node<>(value));
+        evictIfNeeded();
+    }
+
+    void remove(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    void removeAll(Collection<K> keys) {
+        generation.incrementAndGet();
+        keys.forEach(entries::remove);
+    }
+
+    void removeIf(Predicate<V> predicate) {
+        generation.incrementAndGet();
+        entries.values().removeIf(node -> predicate.test(node.value));
+    }
+
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * 不删除任何条目，只让正在进行的加载放弃写回（用于增量更新可能被加载覆盖的场景）
+     */
+    void discardPendingLoads() {
+        generation.incrementAndGet();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= maxSize || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxSize - maxSize / 10;
+            int excess = entries.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+            // 先复制访问时间再排序，排序期间的并发读取不影响比较结果
+            List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<K, Node<V>> entry : entries.entrySet()) {
+                candidates.add(new Candidate<>(entry.getKey(), entry.getValue(), entry.getValue().lastAccess));
+            }
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                Candidate<K, V> candidate = candidates.get(i);
+                if (entries.remove(candidate.key(), candidate.node())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.CTF.j_ctf.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据库连接闸门
+ * 虚拟线程模式下请求并发不再受 Tomcat 线程池限制，成百上千个请求会同时涌向连接池。
+ * 这里用一个公平信号量把同时持有连接的数量限制在连接池大小以内，多出来的请求按到达顺序排队，
+ * 等待超时后抛出 SQLTransientConnectionException，与 HikariCP 取连接超时的行为一致。
+ * 许可在取到连接时占用、在连接 close 时归还，因此等待时间、排队长度和超时次数都能在这里统计。
+ */
+@Component
+public class ConnectionGate {
+
+    private final boolean enabled;
+    private final int permits;
+    private final long acquireTimeoutMs;
+    private final Semaphore semaphore;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public ConnectionGate(@Value("${ctf.threads.connection-gate.enabled:true}") boolean enabled,
+                          @Value("${ctf.threads.connection-gate.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+                          @Value("${ctf.threads.connection-gate.acquire-timeout-ms:30000}") long acquireTimeoutMs) {
+        this.enabled = enabled;
+        this.permits = Math.max(1, permits);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.semaphore = new Semaphore(this.permits, true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 包装数据源；未开启时原样返回
+     */
+    public DataSource wrap(DataSource dataSource) {
+        if (!enabled || dataSource instanceof GatedDataSource) {
+            return dataSource;
+        }
+        return new GatedDataSource(dataSource);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long acquiredCount = acquired.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("permits", permits);
+        metrics.put("inUse", permits - semaphore.availablePermits());
+        metrics.put("waiting", semaphore.getQueueLength());
+        metrics.put("acquired", acquiredCount);
+        metrics.put("contended", contended.sum());
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("avgWaitMs", acquiredCount == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / acquiredCount);
+        metrics.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    private void acquire() throws SQLException {
+        if (semaphore.tryAcquire()) {
+            acquired.increment();
+            return;
+        }
+        contended.increment();
+        long start = System.nanoTime();
+        boolean granted;
+        try {
+            granted = semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接时被中断", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        if (!granted) {
+            timeouts.increment();
+            throw new SQLTransientConnectionException("数据库连接繁忙，等待 " + acquireTimeoutMs + "ms 后超时");
+        }
+        acquired.increment();
+    }
+
+    /**
+     * 取连接前先拿许可，返回的连接在 close 时归还许可（只归还一次）
+     */
+    private final class GatedDataSource extends DelegatingDataSource {
+
+        GatedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return gated(super.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return gated(super.getConnection(username, password));
+            } catch (SQLException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+
+        private Connection gated(Connection target) {
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(ConnectionGate.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            case "toString" -> {
+                                return "Gated[" + target + "]";
+                            }
+                            case "close" -> {
+                                try {
+                                    target.close();
+                                } finally {
+                                    if (released.compareAndSet(false, true)) {
+                                        semaphore.release();
+                                    }
+                                }
+                                return null;
+                            }
+                            default -> {
+                                try {
+                                    return method.invoke(target, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getTargetException();
+                                }
+                            }
+                        }
+                    });
+        }
+    }
+}
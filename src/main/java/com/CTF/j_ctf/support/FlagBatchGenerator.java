@@ -0,0 +1,211 @@
+package com.CTF.j_ctf.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 批量生成 Flag
+ * 按 chunk-size 分块：每块并行生成随机值，用内存集合去重，再用一次 IN 查询排除库中已存在的值，
+ * 最后在独立的短事务里用 JDBC 批量插入并提交（检查点）。中途失败时已提交的块保留，调用方可据结果续生成。
+ * 每块提交后把生成的 Flag 交给 sink，用于流式返回，不在内存中保留完整的实体列表。
+ */
+@Component
+public class FlagBatchGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagBatchGenerator.class);
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int VALUE_LENGTH = 16;
+    private static final int MAX_COLLISION_ROUNDS = 5;
+
+    private static final String INSERT_SQL = "INSERT INTO Flag " +
+            "(userID, CompetitionID, ChallengeID, TeamID, Value, Status, CreateTime, ExpireTime, Points, Type, Description) " +
+            "VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?, 'DYNAMIC', ?)";
+
+    // SecureRandom 本身线程安全但内部有锁，并行生成时每个线程各用一个实例
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    /**
+     * 生成计划：teamIds 为空时生成 count 个竞赛级 Flag，否则为每个战队生成 count 个
+     */
+    public record Plan(Integer competitionId,
+                       Integer challengeId,
+                       Integer creatorId,
+                       List<Integer> teamIds,
+                       int count,
+                       int points,
+                       LocalDateTime expireTime) {
+
+        public long total() {
+            return teamIds.isEmpty() ? count : (long) count * teamIds.size();
+        }
+    }
+
+    /**
+     * 已提交的 Flag
+     */
+    public record GeneratedFlag(Integer flagId, Integer teamId, String value) {
+    }
+
+    /**
+     * 生成结果：committed 为已提交的数量，失败时 error 非空
+     */
+    public record Result(long requested, long committed, int chunks, long elapsedMs, String error) {
+
+        public boolean completed() {
+            return error == null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int maxTotal;
+
+    public FlagBatchGenerator(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ctf.flag-generation.chunk-size:1000}") int chunkSize,
+                              @Value("${ctf.flag-generation.max-total:200000}") int maxTotal) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 按计划生成，每块提交后回调 sink；sink 抛出的异常（如客户端断开）会终止后续块
+     */
+    public Result generate(Plan plan, Consumer<GeneratedFlag> sink) {
+        long start = System.currentTimeMillis();
+        long requested = plan.total();
+        long committed = 0;
+        int chunks = 0;
+        Timestamp createTime = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expireTime = plan.expireTime() != null ? Timestamp.valueOf(plan.expireTime()) : null;
+
+        try {
+            long offset = 0;
+            while (offset < requested) {
+                int size = (int) Math.min(chunkSize, requested - offset);
+                Integer[] teams = teamsForChunk(plan, offset, size);
+                List<String> values = uniqueValues(size);
+
+                List<GeneratedFlag> inserted = chunkTransaction.execute(status ->
+                        insertChunk(plan, teams, values, createTime, expireTime));
+                committed += inserted.size();
+                chunks++;
+                offset += size;
+                inserted.forEach(sink);
+            }
+            return new Result(requested, committed, chunks, System.currentTimeMillis() - start, null);
+        } catch (RuntimeException e) {
+            log.warn("批量生成Flag中断: competition={}, committed={}/{}", plan.competitionId(), committed, requested, e);
+            return new Result(requested, committed, chunks, System.currentTimeMillis() - start, e.getMessage());
+        }
+    }
+
+    // 第 offset 个 Flag 属于 teamIds[offset / count]
+    private static Integer[] teamsForChunk(Plan plan, long offset, int size) {
+        Integer[] teams = new Integer[size];
+        if (!plan.teamIds().isEmpty()) {
+            for (int i = 0; i < size; i++) {
+                teams[i] = plan.teamIds().get((int) ((offset + i) / plan.count()));
+            }
+        }
+        return teams;
+    }
+
+    /**
+     * 并行生成 size 个互不相同、且库中不存在的值
+     */
+    private List<String> uniqueValues(int size) {
+        Set<String> values = new HashSet<>(size * 2);
+        for (int round = 0; round < MAX_COLLISION_ROUNDS && values.size() < size; round++) {
+            values.addAll(IntStream.range(0, size - values.size()).parallel()
+                    .mapToObj(i -> randomValue())
+                    .collect(Collectors.toList()));
+            values.removeAll(existingValues(values));
+        }
+        if (values.size() < size) {
+            throw new IllegalStateException("无法生成足够的唯一Flag值");
+        }
+        return new ArrayList<>(values);
+    }
+
+    private Set<String> existingValues(Set<String> candidates) {
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(",", Collections.nCopies(candidates.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT Value FROM Flag WHERE Value IN (" + placeholders + ")", String.class, candidates.toArray()));
+    }
+
+    private List<GeneratedFlag> insertChunk(Plan plan, Integer[] teams, List<String> values,
+                                            Timestamp createTime, Timestamp expireTime) {
+        List<Object[]> rows = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            rows.add(new Object[]{plan.creatorId(), plan.competitionId(), plan.challengeId(), teams[i],
+                    values.get(i), createTime, expireTime, plan.points(), "自动生成的Flag"});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        // 批量插入拿不到自增主键，按值回查（同一块的值互不相同）
+        String placeholders = String.join(",", Collections.nCopies(values.size(), "?"));
+        Map<String, Integer> ids = new HashMap<>(values.size() * 2);
+        jdbcTemplate.query("SELECT flagID, Value FROM Flag WHERE CompetitionID = ? AND Value IN (" + placeholders + ")",
+                rs -> {
+                    ids.put(rs.getString(2), rs.getInt(1));
+                },
+                concat(plan.competitionId(), values));
+
+        List<GeneratedFlag> inserted = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            inserted.add(new GeneratedFlag(ids.get(values.get(i)), teams[i], values.get(i)));
+        }
+        return inserted;
+    }
+
+    private static Object[] concat(Object first, List<String> rest) {
+        Object[] args = new Object[rest.size() + 1];
+        args[0] = first;
+        for (int i = 0; i < rest.size(); i++) {
+            args[i + 1] = rest.get(i);
+        }
+        return args;
+    }
+
+    private static String randomValue() {
+        SecureRandom random = RANDOM.get();
+        StringBuilder value = new StringBuilder(VALUE_LENGTH + 5).append("CTF{");
+        for (int i = 0; i < VALUE_LENGTH; i++) {
+            value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return value.append('}').toString();
+    }
+}
@@ -0,0 +1,265 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.FlagsExpiredEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flag 过期任务
+ * 内存中按过期时间维护一个小顶堆，只包含 horizon-seconds 内即将过期的 Flag，
+ * 每 tick-ms 取出到期的条目，按块执行集合式 UPDATE 置为已过期，不扫描整表。
+ * 每 sweep-interval-seconds 做一次兜底扫描（WHERE ExpireTime < now AND Status <> 2，按块处理），
+ * 同时从数据库重新加载下一个时间窗口内的到期时间。
+ * 每块提交后按竞赛发布 FlagsExpiredEvent，由校验索引和排行榜推送处理。
+ * 堆中的条目可能已过时（过期时间被修改或 Flag 被删除），UPDATE 的条件会重新判断，过时条目不生效。
+ */
+@Component
+public class FlagExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagExpiryScheduler.class);
+
+    private static final String SELECT_DUE_SQL = "SELECT flagID, CompetitionID FROM Flag " +
+            "WHERE ExpireTime < ? AND Status <> 2 ORDER BY flagID LIMIT ?";
+
+    private record Deadline(long expireAtMillis, Integer flagId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final long tickMs;
+    private final long sweepIntervalSeconds;
+    private final long horizonSeconds;
+
+    private final PriorityQueue<Deadline> deadlines =
+            new PriorityQueue<>((a, b) -> Long.compare(a.expireAtMillis(), b.expireAtMillis()));
+    private final ReentrantLock lock = new ReentrantLock();
+    // 当前堆覆盖的时间窗口终点，之后的到期时间等下次扫描时再加载
+    private volatile long horizonEndMillis;
+
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong sweepCount = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    public FlagExpiryScheduler(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${ctf.flag-expiry.chunk-size:500}") int chunkSize,
+                               @Value("${ctf.flag-expiry.tick-ms:1000}") long tickMs,
+                               @Value("${ctf.flag-expiry.sweep-interval-seconds:300}") long sweepIntervalSeconds,
+                               @Value("${ctf.flag-expiry.horizon-seconds:600}") long horizonSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.tickMs = tickMs;
+        this.sweepIntervalSeconds = sweepIntervalSeconds;
+        // 窗口必须覆盖两次扫描之间的时间，否则中间新进入窗口的 Flag 只能等兜底扫描
+        this.horizonSeconds = Math.max(horizonSeconds, sweepIntervalSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flag-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::safeSweep, 0, sweepIntervalSeconds, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::safeTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Flag 创建或修改过期时间后调用；落在当前窗口内的加入堆，其余等下次扫描加载
+     */
+    public void track(Integer flagId, LocalDateTime expireTime) {
+        if (flagId == null || expireTime == null) {
+            return;
+        }
+        long expireAt = toMillis(expireTime);
+        if (expireAt >= horizonEndMillis) {
+            return;
+        }
+        lock.lock();
+        try {
+            deadlines.add(new Deadline(expireAt, flagId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 兜底扫描：把所有已到期但未标记的 Flag 置为已过期，并重新加载下一个窗口，返回本次过期的数量
+     */
+    public int sweep() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int total = 0;
+        while (true) {
+            List<Map<String, Object>> due = jdbcTemplate.queryForList(SELECT_DUE_SQL, now, chunkSize);
+            if (due.isEmpty()) {
+                break;
+            }
+            int expired = expireChunk(due, now);
+            total += expired;
+            if (due.size() < chunkSize || expired == 0) {
+                break;
+            }
+        }
+        reloadHorizon();
+        sweepCount.incrementAndGet();
+        if (total > 0) {
+            log.info("Flag过期扫描完成: expired={}", total);
+        }
+        return total;
+    }
+
+    public long getTrackedCount() {
+        lock.lock();
+        try {
+            return deadlines.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getSweepCount() {
+        return sweepCount.get();
+    }
+
+    private void safeSweep() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Flag过期扫描失败: {}", e.getMessage());
+        }
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.warn("Flag到期处理失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取出已到期的条目，按块把对应 Flag 置为已过期
+     */
+    private void tick() {
+        long nowMillis = System.currentTimeMillis();
+        List<Integer> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!deadlines.isEmpty() && deadlines.peek().expireAtMillis() <= nowMillis) {
+                due.add(deadlines.poll().flagId());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = new Timestamp(nowMillis);
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            List<Integer> ids = due.subList(from, Math.min(from + chunkSize, due.size()));
+            String placeholders = placeholders(ids.size());
+            List<Object> args = new ArrayList<>(ids);
+            args.add(now);
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT flagID, CompetitionID FROM Flag " +
+                    "WHERE flagID IN (" + placeholders + ") AND ExpireTime <= ? AND Status <> 2", args.toArray());
+            if (!rows.isEmpty()) {
+                expireChunk(rows, now);
+            }
+        }
+    }
+
+    /**
+     * 在独立事务中置为已过期，提交后按竞赛发布事件；返回实际更新的行数
+     */
+    private int expireChunk(List<Map<String, Object>> rows, Timestamp now) {
+        Map<Integer, List<Integer>> byCompetition = new LinkedHashMap<>();
+        List<Object> args = new ArrayList<>(rows.size() + 1);
+        for (Map<String, Object> row : rows) {
+            Integer flagId = ((Number) row.get("flagID")).intValue();
+            Integer competitionId = ((Number) row.get("CompetitionID")).intValue();
+            byCompetition.computeIfAbsent(competitionId, id -> new ArrayList<>()).add(flagId);
+            args.add(flagId);
+        }
+        args.add(now);
+
+        Integer updated = chunkTransaction.execute(status -> jdbcTemplate.update(
+                "UPDATE Flag SET Status = 2 WHERE flagID IN (" + placeholders(rows.size()) + ") " +
+                        "AND ExpireTime <= ? AND Status <> 2", args.toArray()));
+        int count = updated != null ? updated : 0;
+        expiredCount.addAndGet(count);
+
+        byCompetition.forEach((competitionId, flagIds) ->
+                eventPublisher.publishEvent(new FlagsExpiredEvent(competitionId, List.copyOf(flagIds))));
+        return count;
+    }
+
+    private void reloadHorizon() {
+        long nowMillis = System.currentTimeMillis();
+        long endMillis = nowMillis + TimeUnit.SECONDS.toMillis(horizonSeconds);
+        List<Deadline> upcoming = jdbcTemplate.query("SELECT flagID, ExpireTime FROM Flag " +
+                        "WHERE ExpireTime >= ? AND ExpireTime < ? AND Status <> 2",
+                (rs, rowNum) -> new Deadline(rs.getTimestamp(2).getTime(), rs.getInt(1)),
+                new Timestamp(nowMillis), new Timestamp(endMillis));
+
+        lock.lock();
+        try {
+            deadlines.clear();
+            deadlines.addAll(upcoming);
+            horizonEndMillis = endMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
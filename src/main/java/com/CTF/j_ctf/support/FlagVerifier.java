@@ -0,0 +1,172 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.FlagsExpiredEvent;
+import com.CTF.j_ctf.repository.ChallengeRepository;
+import com.CTF.j_ctf.repository.FlagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Flag 校验索引
+ * 按 flagId / challengeId 缓存期望值的 SHA-256 摘要以及提交校验所需的少量字段，
+ * 提交时只比较摘要（常量时间），错误答案无需加载 Flag/Challenge 实体。
+ * 首次访问时通过投影查询加载，写操作在事务结束后失效对应条目。
+ * 查库在任何锁之外进行，读取不加锁；条目数有上限（按近似最近访问淘汰），加载期间发生过失效的结果不写回。
+ */
+@Component
+public class FlagVerifier {
+
+    /**
+     * Flag 校验条目
+     */
+    public record FlagTarget(Integer flagId,
+                             Integer competitionId,
+                             Integer challengeId,
+                             Integer status,
+                             long expireAtMillis,
+                             byte[] digest) {
+
+        // 与 Flag.canBeUsed() 保持一致；到期后过期任务会把状态置为 2 并失效条目，这里只做毫秒级比较兜底
+        public boolean canBeUsed() {
+            return Integer.valueOf(0).equals(status) && System.currentTimeMillis() <= expireAtMillis;
+        }
+    }
+
+    /**
+     * 题目 Flag 校验条目
+     */
+    public record ChallengeTarget(Integer challengeId,
+                                  Integer competitionId,
+                                  boolean active,
+                                  byte[] digest) {
+    }
+
+    private final FlagRepository flagRepository;
+    private final ChallengeRepository challengeRepository;
+    private final BoundedCache<Integer, FlagTarget> flags;
+    private final BoundedCache<Integer, ChallengeTarget> challenges;
+
+    public FlagVerifier(FlagRepository flagRepository,
+                        ChallengeRepository challengeRepository,
+                        @Value("${ctf.flag-verifier.max-flags:50000}") int maxFlags,
+                        @Value("${ctf.flag-verifier.max-challenges:10000}") int maxChallenges) {
+        this.flagRepository = flagRepository;
+        this.challengeRepository = challengeRepository;
+        this.flags = new BoundedCache<>(maxFlags);
+        this.challenges = new BoundedCache<>(maxChallenges);
+    }
+
+    public Optional<FlagTarget> flag(Integer flagId) {
+        if (flagId == null) {
+            return Optional.empty();
+        }
+        return flags.get(flagId, id -> flagRepository.findVerificationViewById(id)
+                .map(view -> new FlagTarget(view.getFlagID(), view.getCompetitionID(), view.getChallengeID(),
+                        view.getStatus(), expireAtMillis(view.getExpireTime()), digest(view.getValue()))));
+    }
+
+    public Optional<ChallengeTarget> challenge(Integer challengeId) {
+        if (challengeId == null) {
+            return Optional.empty();
+        }
+        return challenges.get(challengeId, id -> challengeRepository.findVerificationViewById(id)
+                .map(view -> new ChallengeTarget(view.getChallengeID(), view.getCompetitionID(),
+                        Boolean.TRUE.equals(view.getIsActive()), digest(view.getFlag()))));
+    }
+
+    /**
+     * 只读缓存，不触发加载（限流等不允许查库的场景使用）
+     */
+    public Optional<FlagTarget> peekFlag(Integer flagId) {
+        return flagId == null ? Optional.empty() : Optional.ofNullable(flags.getIfPresent(flagId));
+    }
+
+    public Optional<ChallengeTarget> peekChallenge(Integer challengeId) {
+        return challengeId == null ? Optional.empty() : Optional.ofNullable(challenges.getIfPresent(challengeId));
+    }
+
+    public boolean matches(FlagTarget target, String submitted) {
+        return matches(target.digest(), submitted);
+    }
+
+    public boolean matches(ChallengeTarget target, String submitted) {
+        return matches(target.digest(), submitted);
+    }
+
+    /**
+     * 直接与明文期望值比较（已加载实体时使用），同样为常量时间
+     */
+    public boolean matches(String expected, String submitted) {
+        return matches(digest(expected), submitted);
+    }
+
+    /**
+     * Flag 被创建/修改/重新生成/使用/删除后调用，当前事务结束时再次失效，避免读到未提交的旧值
+     */
+    public void invalidateFlag(Integer flagId) {
+        flags.remove(flagId);
+        afterCompletion(() -> flags.remove(flagId));
+    }
+
+    public void invalidateAllFlags() {
+        flags.clear();
+        afterCompletion(flags::clear);
+    }
+
+    public void invalidateChallenge(Integer challengeId) {
+        challenges.remove(challengeId);
+        afterCompletion(() -> challenges.remove(challengeId));
+    }
+
+    /**
+     * 过期任务把 Flag 置为已过期后失效对应条目
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlagsExpired(FlagsExpiredEvent event) {
+        flags.removeAll(event.flagIds());
+    }
+
+    private static long expireAtMillis(LocalDateTime expireTime) {
+        return expireTime == null ? Long.MAX_VALUE : expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static boolean matches(byte[] expectedDigest, String submitted) {
+        if (expectedDigest == null || submitted == null) {
+            return false;
+        }
+        // 摘要定长，MessageDigest.isEqual 的耗时与内容无关
+        return MessageDigest.isEqual(expectedDigest, digest(submitted));
+    }
+
+    private static byte[] digest(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.CTF.j_ctf.support;
+
+/**
+ * int → int 的开放寻址哈希表（线性探测），键和值交替存放在同一个 int 数组中，不装箱
+ * 键和值都必须是正数：0 表示空槽，get 未命中时返回 0。
+ * 非线程安全，由调用方加锁；get 只读取一次数组引用且探测次数有上限，
+ * 与写操作并发时不会越界或死循环，可配合 StampedLock 的乐观读使用（读到的结果需校验）。
+ */
+final class IntIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] table;
+    private int size;
+
+    IntIntMap(int expectedSize) {
+        this.table = new int[capacityFor(expectedSize) * 2];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        int[] tab = table;
+        int mask = (tab.length >> 1) - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int k = tab[slot << 1];
+            if (k == key) {
+                return tab[(slot << 1) + 1];
+            }
+            if (k == 0) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    void put(int key, int value) {
+        if (key <= 0 || value <= 0) {
+            throw new IllegalArgumentException("键和值必须为正数");
+        }
+        if ((size + 1) * 4 > (table.length >> 1) * 3) {
+            table = rehash(table, (table.length >> 1) * 2);
+        }
+        if (insert(table, key, value)) {
+            size++;
+        }
+    }
+
+    /**
+     * 删除键，返回原来的值（不存在返回 0）
+     */
+    int remove(int key) {
+        int[] tab = table;
+        int mask = (tab.length >> 1) - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = tab[slot << 1];
+            if (k == 0) {
+                return 0;
+            }
+            if (k == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = tab[(slot << 1) + 1];
+        // 向后移动同一探测链上的后续元素，保持线性探测不出现断链
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (tab[next << 1] != 0) {
+            int home = hash(tab[next << 1]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                tab[gap << 1] = tab[next << 1];
+                tab[(gap << 1) + 1] = tab[(next << 1) + 1];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        tab[gap << 1] = 0;
+        tab[(gap << 1) + 1] = 0;
+        size--;
+        return removed;
+    }
+
+    /**
+     * 删除所有值等于 value 的条目，返回删除的条数
+     */
+    int removeValue(int value) {
+        int[] tab = table;
+        int[] rebuilt = new int[tab.length];
+        int kept = 0;
+        for (int i = 0; i < tab.length; i += 2) {
+            if (tab[i] != 0 && tab[i + 1] != value) {
+                insert(rebuilt, tab[i], tab[i + 1]);
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        if (removed > 0) {
+            table = rebuilt;
+            size = kept;
+        }
+        return removed;
+    }
+
+    private static boolean insert(int[] tab, int key, int value) {
+        int mask = (tab.length >> 1) - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = tab[slot << 1];
+            if (k == 0 || k == key) {
+                tab[slot << 1] = key;
+                tab[(slot << 1) + 1] = value;
+                return k == 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int[] rehash(int[] tab, int capacity) {
+        int[] rebuilt = new int[capacity * 2];
+        for (int i = 0; i < tab.length; i += 2) {
+            if (tab[i] != 0) {
+                insert(rebuilt, tab[i], tab[i + 1]);
+            }
+        }
+        return rebuilt;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
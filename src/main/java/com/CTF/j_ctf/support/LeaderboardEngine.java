@@ -0,0 +1,484 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.dto.TeamStanding;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.LeaderboardUpdatedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.TeamScoresRecordedEvent;
+import com.CTF.j_ctf.repository.ScoreRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存排行榜引擎
+ * 按竞赛维护战队/用户总分和最后得分时间，随 Score 写入增量更新；
+ * 战队排行读取时直接返回排好序的不可变快照，分页开销只与页大小有关；
+ * 用户和战队的名次由顺序统计树维护，查询名次或按名次取条目均为 O(log n)。
+ * 统计口径与 ScoreRepository.findTeamRankingByCompetition / findUserRankingByCompetition 保持一致（有效分数记录）。
+ * 加载在同一个可重复读事务内完成，聚合结果与快照包含的 ChangeID 集合来自同一个一致性视图；
+ * 增量事件只按该集合判断是否已计入，不假设 ChangeID 按提交顺序分配（较小的 ID 可能在快照之后才提交）。
+ */
+@Component
+public class LeaderboardEngine {
+
+    // 排序规则：总分降序，相同分数按最后得分时间升序（早得分的靠前），最后按ID保证稳定
+    private static final Comparator<RankKey> RANK_ORDER = Comparator
+            .comparingLong((RankKey k) -> -k.score())
+            .thenComparing(RankKey::lastSubmitTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(RankKey::id);
+
+    private static final Comparator<TeamTally> RANKING_ORDER = Comparator.comparing(Tally::rankKey, RANK_ORDER);
+
+    private final ScoreRepository scoreRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate snapshotTransaction;
+    private final Map<Integer, CompetitionBoard> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardEngine(ScoreRepository scoreRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager) {
+        this.scoreRepository = scoreRepository;
+        this.eventPublisher = eventPublisher;
+        // 已在事务中时加入调用方事务（读取同样来自其一致性视图）
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 启动时从 Score 表重建所有竞赛的排行榜
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        Map<Integer, CompetitionBoard> rebuilt = new HashMap<>();
+        snapshotTransaction.executeWithoutResult(status -> {
+            for (ScoreRepository.TeamScoreAggregate row : scoreRepository.aggregateTeamScores(null)) {
+                rebuilt.computeIfAbsent(row.getCompetitionID(), CompetitionBoard::new).addAggregate(row);
+            }
+            for (ScoreRepository.TeamChallengeRow row : scoreRepository.findTeamSolvedChallenges(null)) {
+                CompetitionBoard board = rebuilt.get(row.getCompetitionID());
+                if (board != null) {
+                    board.addSolvedChallenge(row.getTeamID(), row.getChallengeID());
+                }
+            }
+            for (ScoreRepository.UserScoreAggregate row : scoreRepository.aggregateUserScores(null)) {
+                rebuilt.computeIfAbsent(row.getCompetitionID(), CompetitionBoard::new).addUserAggregate(row);
+            }
+            Map<Integer, List<Integer>> changeIds = new HashMap<>();
+            for (ScoreRepository.ScoreChangeRow row : scoreRepository.findValidChangeIds(null)) {
+                changeIds.computeIfAbsent(row.getCompetitionID(), id -> new ArrayList<>()).add(row.getChangeID());
+            }
+            changeIds.forEach((competitionId, ids) -> {
+                CompetitionBoard board = rebuilt.get(competitionId);
+                if (board != null) {
+                    board.snapshotChangeIds = toSortedArray(ids);
+                }
+            });
+        });
+        rebuilt.values().forEach(board -> {
+            board.loaded = true;
+            board.publish();
+        });
+        boards.clear();
+        boards.putAll(rebuilt);
+    }
+
+    /**
+     * 分页获取竞赛战队排行
+     */
+    public Page<TeamStanding> getTeamStandings(Integer competitionId, Pageable pageable) {
+        List<TeamStanding> ranking = board(competitionId).ranking;
+        int total = ranking.size();
+        int start = (int) Math.min(pageable.getOffset(), total);
+        int end = Math.min(start + pageable.getPageSize(), total);
+        return new PageImpl<>(ranking.subList(start, end), pageable, total);
+    }
+
+    /**
+     * 获取竞赛完整的战队排行快照（不可变列表）
+     */
+    public List<TeamStanding> getTeamStandings(Integer competitionId) {
+        return board(competitionId).ranking;
+    }
+
+    /**
+     * 获取指定战队的排行条目
+     */
+    public Optional<TeamStanding> getTeamStanding(Integer competitionId, Integer teamId) {
+        return Optional.ofNullable(board(competitionId).byTeam.get(teamId));
+    }
+
+    /**
+     * 战队名次（相同分数名次相同），没有有效分数记录时为空
+     */
+    public Optional<Integer> getTeamRank(Integer competitionId, Integer teamId) {
+        if (competitionId == null) {
+            return Optional.empty();
+        }
+        CompetitionBoard board = loadedBoard(competitionId);
+        board.lock.lock();
+        try {
+            return rankOf(board.tallies.get(teamId), board.teamTree);
+        } finally {
+            board.lock.unlock();
+        }
+    }
+
+    /**
+     * 用户名次（相同分数名次相同），没有有效分数记录时为空
+     */
+    public Optional<Integer> getUserRank(Integer competitionId, Integer userId) {
+        if (competitionId == null) {
+            return Optional.empty();
+        }
+        CompetitionBoard board = loadedBoard(competitionId);
+        board.lock.lock();
+        try {
+            return rankOf(board.userTallies.get(userId), board.userTree);
+        } finally {
+            board.lock.unlock();
+        }
+    }
+
+    /**
+     * 排在第 position 位（从1开始）的战队ID
+     */
+    public Optional<Integer> getTeamIdAtPosition(Integer competitionId, int position) {
+        if (competitionId == null) {
+            return Optional.empty();
+        }
+        CompetitionBoard board = loadedBoard(competitionId);
+        board.lock.lock();
+        try {
+            return Optional.ofNullable(board.teamTree.get(position - 1)).map(RankKey::id);
+        } finally {
+            board.lock.unlock();
+        }
+    }
+
+    /**
+     * 排在第 position 位（从1开始）的用户ID
+     */
+    public Optional<Integer> getUserIdAtPosition(Integer competitionId, int position) {
+        if (competitionId == null) {
+            return Optional.empty();
+        }
+        CompetitionBoard board = loadedBoard(competitionId);
+        board.lock.lock();
+        try {
+            return Optional.ofNullable(board.userTree.get(position - 1)).map(RankKey::id);
+        } finally {
+            board.lock.unlock();
+        }
+    }
+
+    /**
+     * 分数记录提交后增量更新，应用后发布 LeaderboardUpdatedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScoreRecorded(ScoreRecordedEvent event) {
+        if (event.competitionId() == null) {
+            return;
+        }
+        if (apply(event.competitionId(), List.of(event))) {
+            eventPublisher.publishEvent(new LeaderboardUpdatedEvent(event.competitionId()));
+        }
+    }
+
+    /**
+     * 战队分数分发：整批成员分数在一次加锁内应用，只发布一次 LeaderboardUpdatedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamScoresRecorded(TeamScoresRecordedEvent event) {
+        if (event.competitionId() == null || event.scores().isEmpty()) {
+            return;
+        }
+        if (apply(event.competitionId(), event.scores())) {
+            eventPublisher.publishEvent(new LeaderboardUpdatedEvent(event.competitionId()));
+        }
+    }
+
+    /**
+     * 分数被修改/作废/删除等非追加变更时，丢弃对应竞赛的排行榜，下次读取时重建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLeaderboardInvalidated(LeaderboardInvalidatedEvent event) {
+        if (event.competitionId() == null) {
+            boards.clear();
+        } else {
+            boards.remove(event.competitionId());
+        }
+    }
+
+    /**
+     * 应用同一竞赛的分数记录；返回 false 表示这些记录都已在加载快照中，排行没有变化
+     */
+    private boolean apply(Integer competitionId, List<ScoreRecordedEvent> scores) {
+        CompetitionBoard board = boards.get(competitionId);
+        if (board == null) {
+            return true; // 尚未加载的竞赛在首次读取时从数据库构建
+        }
+        board.lock.lock();
+        try {
+            boolean changed = false;
+            for (ScoreRecordedEvent event : scores) {
+                if (!board.loaded) {
+                    return true;
+                }
+                if (board.includedInSnapshot(event.changeId())) {
+                    continue;
+                }
+                changed = true;
+                if (event.userId() != null) {
+                    board.applyUser(event);
+                }
+                if (event.teamId() == null) {
+                    continue; // 个人分数不计入战队排行榜
+                }
+                TeamTally tally = board.tallies.get(event.teamId());
+                if (tally == null) {
+                    // 新出现的战队需要战队名称，交给下次读取时重新加载
+                    board.loaded = false;
+                    return true;
+                }
+                board.applyTeam(tally, event);
+                board.dirty = true;
+            }
+            return changed;
+        } finally {
+            board.lock.unlock();
+        }
+    }
+
+    private CompetitionBoard board(Integer competitionId) {
+        CompetitionBoard board = loadedBoard(competitionId);
+        if (board.dirty) {
+            board.lock.lock();
+            try {
+                if (board.dirty) {
+                    board.publish();
+                }
+            } finally {
+                board.lock.unlock();
+            }
+        }
+        return board;
+    }
+
+    private CompetitionBoard loadedBoard(Integer competitionId) {
+        CompetitionBoard board = boards.computeIfAbsent(competitionId, CompetitionBoard::new);
+        if (!board.loaded) {
+            board.lock.lock();
+            try {
+                if (!board.loaded) {
+                    load(competitionId, board);
+                }
+            } finally {
+                board.lock.unlock();
+            }
+        }
+        return board;
+    }
+
+    private void load(Integer competitionId, CompetitionBoard board) {
+        board.clear();
+        snapshotTransaction.executeWithoutResult(status -> {
+            for (ScoreRepository.TeamScoreAggregate row : scoreRepository.aggregateTeamScores(competitionId)) {
+                board.addAggregate(row);
+            }
+            for (ScoreRepository.TeamChallengeRow row : scoreRepository.findTeamSolvedChallenges(competitionId)) {
+                board.addSolvedChallenge(row.getTeamID(), row.getChallengeID());
+            }
+            for (ScoreRepository.UserScoreAggregate row : scoreRepository.aggregateUserScores(competitionId)) {
+                board.addUserAggregate(row);
+            }
+            board.snapshotChangeIds = toSortedArray(scoreRepository.findValidChangeIds(competitionId).stream()
+                    .map(ScoreRepository.ScoreChangeRow::getChangeID)
+                    .toList());
+        });
+        board.loaded = true;
+        board.dirty = true;
+    }
+
+    private static int[] toSortedArray(List<Integer> ids) {
+        int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // 名次 = 严格高于该分数的条目数 + 1，与原排行榜"相同分数相同名次"的规则一致
+    private static Optional<Integer> rankOf(Tally tally, RankTree<RankKey> tree) {
+        if (tally == null) {
+            return Optional.empty();
+        }
+        return Optional.of(tree.countBefore(RankKey.firstWithScore(tally.totalScore)) + 1);
+    }
+
+    /**
+     * 顺序统计树中的排序键，分数或时间变化时先删除旧键再插入新键
+     */
+    private record RankKey(long score, LocalDateTime lastSubmitTime, int id) {
+
+        // 同分条目中排在最前的探测键
+        static RankKey firstWithScore(long score) {
+            return new RankKey(score, LocalDateTime.MIN, Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * 单个竞赛的排行榜状态，写操作和名次查询在 lock 内进行，战队排行读取只访问 volatile 快照
+     */
+    private static final class CompetitionBoard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Integer, TeamTally> tallies = new HashMap<>();
+        final RankTree<RankKey> teamTree = new RankTree<>(RANK_ORDER);
+        final Map<Integer, Tally> userTallies = new HashMap<>();
+        final RankTree<RankKey> userTree = new RankTree<>(RANK_ORDER);
+        final Integer competitionId;
+        volatile boolean loaded;
+        volatile boolean dirty;
+        volatile List<TeamStanding> ranking = List.of();
+        volatile Map<Integer, TeamStanding> byTeam = Map.of();
+        // 加载快照已计入的有效分数记录ID（升序）
+        int[] snapshotChangeIds = new int[0];
+
+        CompetitionBoard(Integer competitionId) {
+            this.competitionId = competitionId;
+        }
+
+        void clear() {
+            tallies.clear();
+            teamTree.clear();
+            userTallies.clear();
+            userTree.clear();
+            snapshotChangeIds = new int[0];
+        }
+
+        boolean includedInSnapshot(Integer changeId) {
+            return changeId != null && Arrays.binarySearch(snapshotChangeIds, changeId) >= 0;
+        }
+
+        void addAggregate(ScoreRepository.TeamScoreAggregate row) {
+            TeamTally tally = new TeamTally(row.getTeamID(), row.getTeamName());
+            tally.totalScore = row.getTotalScore() != null ? row.getTotalScore() : 0L;
+            tally.lastSubmitTime = row.getLastSubmitTime();
+            tallies.put(tally.id, tally);
+            teamTree.insert(tally.rankKey());
+        }
+
+        void addSolvedChallenge(Integer teamId, Integer challengeId) {
+            TeamTally tally = tallies.get(teamId);
+            if (tally != null) {
+                tally.solvedChallenges.add(challengeId);
+            }
+        }
+
+        void addUserAggregate(ScoreRepository.UserScoreAggregate row) {
+            Tally tally = new Tally(row.getUserID());
+            tally.totalScore = row.getTotalScore() != null ? row.getTotalScore() : 0L;
+            tally.lastSubmitTime = row.getLastSubmitTime();
+            userTallies.put(tally.id, tally);
+            userTree.insert(tally.rankKey());
+        }
+
+        void applyTeam(TeamTally tally, ScoreRecordedEvent event) {
+            teamTree.remove(tally.rankKey());
+            tally.apply(event);
+            teamTree.insert(tally.rankKey());
+        }
+
+        void applyUser(ScoreRecordedEvent event) {
+            Tally tally = userTallies.get(event.userId());
+            if (tally == null) {
+                // 加载时没有该用户的有效记录，说明这是其第一条分数
+                tally = new Tally(event.userId());
+                userTallies.put(tally.id, tally);
+            } else {
+                userTree.remove(tally.rankKey());
+            }
+            tally.apply(event);
+            userTree.insert(tally.rankKey());
+        }
+
+        /**
+         * 重新排序并生成快照（相同分数使用相同排名，与原排行榜逻辑一致）
+         */
+        void publish() {
+            List<TeamTally> sorted = new ArrayList<>(tallies.values());
+            sorted.sort(RANKING_ORDER);
+
+            List<TeamStanding> standings = new ArrayList<>(sorted.size());
+            Map<Integer, TeamStanding> index = new HashMap<>(sorted.size() * 2);
+            long previousScore = Long.MIN_VALUE;
+            int previousRank = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                TeamTally tally = sorted.get(i);
+                int rank = tally.totalScore == previousScore ? previousRank : i + 1;
+                previousScore = tally.totalScore;
+                previousRank = rank;
+
+                TeamStanding standing = new TeamStanding(tally.id, tally.teamName, competitionId,
+                        (int) tally.totalScore, tally.solvedChallenges.size(), tally.lastSubmitTime, rank);
+                standings.add(standing);
+                index.put(tally.id, standing);
+            }
+            ranking = Collections.unmodifiableList(standings);
+            byTeam = Collections.unmodifiableMap(index);
+            dirty = false;
+        }
+    }
+
+    private static class Tally {
+        final Integer id;
+        long totalScore;
+        LocalDateTime lastSubmitTime;
+
+        Tally(Integer id) {
+            this.id = id;
+        }
+
+        RankKey rankKey() {
+            return new RankKey(totalScore, lastSubmitTime, id);
+        }
+
+        void apply(ScoreRecordedEvent event) {
+            totalScore += event.points() != null ? event.points() : 0;
+            if (event.createTime() != null
+                    && (lastSubmitTime == null || event.createTime().isAfter(lastSubmitTime))) {
+                lastSubmitTime = event.createTime();
+            }
+        }
+    }
+
+    private static final class TeamTally extends Tally {
+        final String teamName;
+        final Set<Integer> solvedChallenges = new HashSet<>();
+
+        TeamTally(Integer teamId, String teamName) {
+            super(teamId);
+            this.teamName = teamName;
+        }
+
+        @Override
+        void apply(ScoreRecordedEvent event) {
+            super.apply(event);
+            if (event.challengeId() != null) {
+                solvedChallenges.add(event.challengeId());
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.TeamMembershipChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 竞赛参赛索引：每个竞赛一张 userId → teamId 的原始 int 哈希表
+ * 某个竞赛第一次被查询时用一条查询加载该竞赛的全部成员关系，之后由 TeamMembershipChangedEvent 增量维护，
+ * "用户是否已加入该竞赛的战队、是哪一支" 在内存中以常数时间回答，不访问数据库。
+ * 加载期间如果有成员关系变更提交，本次加载结果不放入索引（下次查询重新加载），避免装入过期快照。
+ * ctf.participation-index.enabled=false 时每次查库，用于对比。
+ */
+@Component
+public class ParticipationIndex {
+
+    private static final String LOAD_SQL = "SELECT tm.userID, tm.TeamID FROM Teammember tm " +
+            "JOIN Team t ON t.TeamID = tm.TeamID WHERE t.CompetitionID = ?";
+
+    private static final String LOOKUP_SQL = "SELECT tm.TeamID FROM Teammember tm " +
+            "JOIN Team t ON t.TeamID = tm.TeamID WHERE t.CompetitionID = ? AND tm.userID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Map<Integer, Participants> byCompetition = new ConcurrentHashMap<>();
+
+    // 成员关系变更计数，加载前后比较，判断加载结果是否可能已经过期
+    private long changeCount;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+
+    public ParticipationIndex(JdbcTemplate jdbcTemplate,
+                              @Value("${ctf.participation-index.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 用户在该竞赛中所在的战队ID，未加入任何战队时为空
+     */
+    public OptionalInt findTeamId(Integer competitionId, Integer userId) {
+        if (competitionId == null || userId == null || userId <= 0) {
+            return OptionalInt.empty();
+        }
+        lookups.increment();
+        if (!enabled) {
+            List<Integer> teamIds = jdbcTemplate.queryForList(LOOKUP_SQL, Integer.class, competitionId, userId);
+            return teamIds.isEmpty() ? OptionalInt.empty() : OptionalInt.of(teamIds.get(0));
+        }
+        int teamId = participants(competitionId).get(userId);
+        return teamId == 0 ? OptionalInt.empty() : OptionalInt.of(teamId);
+    }
+
+    public boolean isParticipant(Integer competitionId, Integer userId) {
+        return findTeamId(competitionId, userId).isPresent();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(TeamMembershipChangedEvent event) {
+        changes.increment();
+        synchronized (this) {
+            changeCount++;
+            if (event.userId() != null && event.teamId() != null) {
+                Participants participants = event.competitionId() != null ? byCompetition.get(event.competitionId()) : null;
+                if (participants != null) {
+                    if (event.joined()) {
+                        participants.put(event.userId(), event.teamId());
+                    } else {
+                        participants.remove(event.userId(), event.teamId());
+                    }
+                } else if (event.competitionId() == null) {
+                    byCompetition.values().forEach(p -> p.remove(event.userId(), event.teamId()));
+                }
+            } else if (event.userId() != null) {
+                byCompetition.values().forEach(p -> p.removeUser(event.userId()));
+            } else if (event.teamId() != null) {
+                if (event.competitionId() != null) {
+                    Participants participants = byCompetition.get(event.competitionId());
+                    if (participants != null) {
+                        participants.removeTeam(event.teamId());
+                    }
+                } else {
+                    byCompetition.values().forEach(p -> p.removeTeam(event.teamId()));
+                }
+            } else if (event.competitionId() != null) {
+                byCompetition.remove(event.competitionId());
+            }
+        }
+    }
+
+    public void evictAll() {
+        synchronized (this) {
+            changeCount++;
+            byCompetition.clear();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("competitions", byCompetition.size());
+        metrics.put("participants", byCompetition.values().stream().mapToLong(Participants::size).sum());
+        metrics.put("lookups", lookups.sum());
+        metrics.put("loads", loads.sum());
+        metrics.put("discardedLoads", discardedLoads.sum());
+        metrics.put("changes", changes.sum());
+        return metrics;
+    }
+
+    private Participants participants(int competitionId) {
+        Participants participants = byCompetition.get(competitionId);
+        if (participants != null) {
+            return participants;
+        }
+        long before;
+        synchronized (this) {
+            before = changeCount;
+        }
+        Participants loaded = load(competitionId);
+        synchronized (this) {
+            if (changeCount != before) {
+                // 加载期间有变更提交，这份结果只用于本次查询
+                discardedLoads.increment();
+                return loaded;
+            }
+            Participants existing = byCompetition.putIfAbsent(competitionId, loaded);
+            return existing != null ? existing : loaded;
+        }
+    }
+
+    private Participants load(int competitionId) {
+        loads.increment();
+        Participants participants = new Participants();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            participants.put(rs.getInt(1), rs.getInt(2));
+        }, competitionId);
+        return participants;
+    }
+
+    /**
+     * 单个竞赛的参赛表；读用 StampedLock 乐观读，写加写锁
+     */
+    private static final class Participants {
+
+        private final StampedLock lock = new StampedLock();
+        private final IntIntMap teamByUser = new IntIntMap(0);
+
+        int get(int userId) {
+            long stamp = lock.tryOptimisticRead();
+            int teamId = teamByUser.get(userId);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    teamId = teamByUser.get(userId);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return teamId;
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return teamByUser.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(int userId, int teamId) {
+            long stamp = lock.writeLock();
+            try {
+                teamByUser.put(userId, teamId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 只有用户当前记录的正是该战队时才删除，乱序到达的旧事件不会删掉新加入的战队
+         */
+        void remove(int userId, int teamId) {
+            long stamp = lock.writeLock();
+            try {
+                if (teamByUser.get(userId) == teamId) {
+                    teamByUser.remove(userId);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void removeUser(int userId) {
+            long stamp = lock.writeLock();
+            try {
+                teamByUser.remove(userId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void removeTeam(int teamId) {
+            long stamp = lock.writeLock();
+            try {
+                teamByUser.removeValue(teamId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.CTF.j_ctf.support;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录密码校验
+ * BCrypt 校验放在独立的有界线程池里执行，线程数和排队长度都有上限：
+ * 比赛开始时的登录高峰最多占用这几个线程，不会把所有 CPU 都拿去算 BCrypt，提交等接口照常响应；
+ * 排队已满或等待超时的登录直接拒绝（BusyException），由控制器返回 503 让客户端稍后重试。
+ * 校验成功的结果按用户缓存一段时间（只存 HMAC 摘要，并绑定当时的密码哈希，改密码后自动失效），
+ * 同一用户重复登录时不再计算 BCrypt；校验失败从不缓存。
+ * 成功登录时如果哈希的 cost 低于 ctf.login.bcrypt-strength 且开启了升级策略，在线程池空闲时重新计算哈希并有条件地写回。
+ */
+@Component
+public class PasswordVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordVerifier.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String UPGRADE_SQL =
+            "UPDATE User SET userPassword = ? WHERE userID = ? AND userPassword = ?";
+
+    /**
+     * 校验线程池已满或等待超时
+     */
+    public static class BusyException extends RuntimeException {
+        public BusyException(String message) {
+            super(message);
+        }
+    }
+
+    private record Verified(String storedHash, byte[] digest, long expiresAt) {
+    }
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+    private final int targetStrength;
+    private final boolean upgradeEnabled;
+    private final long cacheTtlMs;
+    private final BoundedCache<Integer, Verified> verified;
+    private final SecretKeySpec cacheKey;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder upgraded = new LongAdder();
+    private final LongAdder upgradeSkipped = new LongAdder();
+
+    public PasswordVerifier(BCryptPasswordEncoder passwordEncoder,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${ctf.login.bcrypt-threads:0}") int threads,
+                            @Value("${ctf.login.bcrypt-queue-capacity:256}") int queueCapacity,
+                            @Value("${ctf.login.bcrypt-wait-timeout-ms:5000}") long waitTimeoutMs,
+                            @Value("${ctf.login.bcrypt-strength:10}") int targetStrength,
+                            @Value("${ctf.login.bcrypt-upgrade.enabled:false}") boolean upgradeEnabled,
+                            @Value("${ctf.login.verification-cache.ttl-seconds:300}") long cacheTtlSeconds,
+                            @Value("${ctf.login.verification-cache.max-size:10000}") int cacheMaxSize) {
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.targetStrength = targetStrength;
+        this.upgradeEnabled = upgradeEnabled;
+        this.cacheTtlMs = TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+
+        // 默认用一半的核，至少一个线程
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread thread = new Thread(r, "bcrypt-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.verified = new BoundedCache<>(cacheMaxSize);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 校验用户密码；storedHash 为数据库中该用户当前的哈希
+     * @throws BusyException 校验线程池已满或排队超时
+     */
+    public boolean matches(Integer userId, String rawPassword, String storedHash) {
+        if (rawPassword == null || storedHash == null) {
+            return false;
+        }
+        byte[] digest = cacheTtlMs > 0 ? digest(rawPassword, storedHash) : null;
+        if (digest != null && isCached(userId, storedHash, digest)) {
+            cacheHits.increment();
+            return true;
+        }
+
+        boolean matched = runOnExecutor(rawPassword, storedHash);
+        if (matched) {
+            if (digest != null) {
+                verified.put(userId, new Verified(storedHash, digest, System.currentTimeMillis() + cacheTtlMs));
+            }
+            if (needsUpgrade(storedHash)) {
+                scheduleUpgrade(userId, rawPassword, storedHash);
+            }
+        }
+        return matched;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = verifications.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        metrics.put("verifications", count);
+        metrics.put("cacheHits", cacheHits.sum());
+        metrics.put("cacheSize", verified.size());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("avgQueueMs", count == 0 ? 0.0 : queueNanos.sum() / 1_000_000.0 / count);
+        metrics.put("maxQueueMs", maxQueueNanos.get() / 1_000_000.0);
+        metrics.put("avgVerifyMs", count == 0 ? 0.0 : verifyNanos.sum() / 1_000_000.0 / count);
+        metrics.put("targetStrength", targetStrength);
+        metrics.put("upgradeEnabled", upgradeEnabled);
+        metrics.put("upgraded", upgraded.sum());
+        metrics.put("upgradeSkipped", upgradeSkipped.sum());
+        return metrics;
+    }
+
+    private boolean runOnExecutor(String rawPassword, String storedHash) {
+        long submittedAt = System.nanoTime();
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                long queued = startedAt - submittedAt;
+                queueNanos.add(queued);
+                maxQueueNanos.accumulate(queued);
+                try {
+                    return passwordEncoder.matches(rawPassword, storedHash);
+                } finally {
+                    verifications.increment();
+                    verifyNanos.add(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException("登录请求过多，请稍后再试");
+        }
+
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeouts.increment();
+            throw new BusyException("登录请求过多，请稍后再试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusyException("登录已中断");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码校验失败", e.getCause());
+        }
+    }
+
+    private boolean isCached(Integer userId, String storedHash, byte[] digest) {
+        Verified entry = verified.getIfPresent(userId);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis() || !entry.storedHash().equals(storedHash)) {
+            verified.remove(userId);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.digest(), digest);
+    }
+
+    private byte[] digest(String rawPassword, String storedHash) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(cacheKey);
+            mac.update(storedHash.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 哈希格式为 $2a$NN$...，NN 为 cost
+     */
+    private boolean needsUpgrade(String storedHash) {
+        if (!upgradeEnabled || storedHash.length() < 7 || storedHash.charAt(0) != '$' || storedHash.charAt(6) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(storedHash.substring(4, 6)) < targetStrength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 升级不影响本次登录：线程池排队超过一半时放弃，等下次登录再升级
+     */
+    private void scheduleUpgrade(Integer userId, String rawPassword, String storedHash) {
+        if (executor.getQueue().remainingCapacity() < executor.getQueue().size()) {
+            upgradeSkipped.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> upgrade(userId, rawPassword, storedHash));
+        } catch (RejectedExecutionException e) {
+            upgradeSkipped.increment();
+        }
+    }
+
+    private void upgrade(Integer userId, String rawPassword, String storedHash) {
+        try {
+            String upgradedHash = passwordEncoder.encode(rawPassword);
+            // 只在密码未被同时修改时写回
+            if (jdbcTemplate.update(UPGRADE_SQL, upgradedHash, userId, storedHash) == 1) {
+                verified.remove(userId);
+                upgraded.increment();
+            } else {
+                upgradeSkipped.increment();
+            }
+        } catch (RuntimeException e) {
+            log.warn("密码哈希升级失败 userId={}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.dto.ChallengeSnapshot;
+import com.CTF.j_ctf.dto.CompetitionSnapshot;
+import com.CTF.j_ctf.dto.TeamSnapshot;
+import com.CTF.j_ctf.repository.ChallengeRepository;
+import com.CTF.j_ctf.repository.CompetitionRepository;
+import com.CTF.j_ctf.repository.TeamRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 竞赛 / 题目 / 战队参考数据的读穿透缓存
+ * 缓存的是不可变快照而不是实体，调用方只能用于判断，需要修改时仍从仓库加载实体。
+ * 每类数据一个按近似最近访问顺序淘汰的有界区域（读取不加锁）；写操作由 update / delete / publish / audit 等服务方法显式失效，
+ * 事务内先失效一次，事务结束后再失效一次，避免并发读在提交前把旧值重新放回缓存。
+ * ctf.reference-cache.enabled=false 或运行时关闭后直接查库，用于对比数据库负载。
+ */
+@Component
+public class ReferenceDataCache {
+
+    private final CompetitionRepository competitionRepository;
+    private final ChallengeRepository challengeRepository;
+    private final TeamRepository teamRepository;
+
+    private final Region<CompetitionSnapshot> competitions;
+    private final Region<ChallengeSnapshot> challenges;
+    private final Region<TeamSnapshot> teams;
+
+    private volatile boolean enabled;
+
+    public ReferenceDataCache(CompetitionRepository competitionRepository,
+                              ChallengeRepository challengeRepository,
+                              TeamRepository teamRepository,
+                              @Value("${ctf.reference-cache.enabled:true}") boolean enabled,
+                              @Value("${ctf.reference-cache.max-competitions:1000}") int maxCompetitions,
+                              @Value("${ctf.reference-cache.max-challenges:10000}") int maxChallenges,
+                              @Value("${ctf.reference-cache.max-teams:20000}") int maxTeams) {
+        this.competitionRepository = competitionRepository;
+        this.challengeRepository = challengeRepository;
+        this.teamRepository = teamRepository;
+        this.enabled = enabled;
+        this.competitions = new Region<>(maxCompetitions);
+        this.challenges = new Region<>(maxChallenges);
+        this.teams = new Region<>(maxTeams);
+    }
+
+    public Optional<CompetitionSnapshot> getCompetition(Integer competitionId) {
+        return competitions.get(competitionId, competitionRepository::findSnapshotById);
+    }
+
+    public Optional<ChallengeSnapshot> getChallenge(Integer challengeId) {
+        return challenges.get(challengeId, challengeRepository::findSnapshotById);
+    }
+
+    public Optional<TeamSnapshot> getTeam(Integer teamId) {
+        return teams.get(teamId, teamRepository::findSnapshotById);
+    }
+
+    /**
+     * 竞赛变更或删除；删除会级联删除其题目和战队，一并清掉
+     */
+    public void invalidateCompetition(Integer competitionId) {
+        Runnable action = () -> {
+            competitions.remove(competitionId);
+            challenges.removeIf(challenge -> competitionId.equals(challenge.competitionId()));
+            teams.removeIf(team -> competitionId.equals(team.competitionId()));
+        };
+        action.run();
+        afterCompletion(action);
+    }
+
+    public void invalidateChallenge(Integer challengeId) {
+        challenges.remove(challengeId);
+        afterCompletion(() -> challenges.remove(challengeId));
+    }
+
+    public void invalidateTeam(Integer teamId) {
+        teams.remove(teamId);
+        afterCompletion(() -> teams.remove(teamId));
+    }
+
+    public void invalidateAll() {
+        competitions.clear();
+        challenges.clear();
+        teams.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 运行时开关；关闭时清空缓存，重新打开后从空缓存开始
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidateAll();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("competition", competitions.metrics());
+        metrics.put("challenge", challenges.metrics());
+        metrics.put("team", teams.metrics());
+        return metrics;
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 单类数据的缓存区域：按近似最近访问顺序淘汰，不缓存不存在的记录
+     */
+    private final class Region<V> {
+
+        private final BoundedCache<Integer, V> entries;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bypassed = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        Region(int maxSize) {
+            this.entries = new BoundedCache<>(maxSize);
+        }
+
+        Optional<V> get(Integer id, Function<Integer, Optional<V>> loader) {
+            if (id == null) {
+                return Optional.empty();
+            }
+            if (!enabled) {
+                bypassed.increment();
+                return loader.apply(id);
+            }
+            V cached = entries.getIfPresent(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            misses.increment();
+            long seen = entries.generation();
+            Optional<V> loaded = loader.apply(id);
+            if (loaded.isPresent() && enabled) {
+                return Optional.of(entries.putIfCurrent(id, loaded.get(), seen));
+            }
+            return loaded;
+        }
+
+        void remove(Integer id) {
+            invalidations.increment();
+            entries.remove(id);
+        }
+
+        void removeIf(Predicate<V> predicate) {
+            invalidations.increment();
+            entries.removeIf(predicate);
+        }
+
+        void clear() {
+            invalidations.increment();
+            entries.clear();
+        }
+
+        Map<String, Object> metrics() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long lookups = hitCount + missCount;
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("size", entries.size());
+            metrics.put("maxSize", entries.maxSize());
+            metrics.put("hits", hitCount);
+            metrics.put("misses", missCount);
+            metrics.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            metrics.put("bypassed", bypassed.sum());
+            metrics.put("evictions", entries.evictions());
+            metrics.put("invalidations", invalidations.sum());
+            return metrics;
+        }
+    }
+}
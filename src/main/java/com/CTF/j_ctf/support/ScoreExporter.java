@@ -0,0 +1,255 @@
+package com.CTF.j_ctf.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * 竞赛分数记录的流式导出
+ * 用只进只读结果集流式读取 Score（连接用户名、战队名、题目标题），
+ * 每读一行立即写入输出流，不构建实体也不在内存中累积结果，内存占用与记录数无关。
+ * MySQL 上使用 fetchSize=Integer.MIN_VALUE 逐行流式读取（不依赖连接串中的 useCursorFetch），
+ * 其他数据库使用 ctf.score-export.fetch-size。流式结果集读完前连接不能执行其他语句，
+ * 因此导出总是从连接池单独取一个连接，不与调用方的事务共用。
+ */
+@Component
+public class ScoreExporter {
+
+    private static final String EXPORT_SQL = "SELECT s.ChangeID, s.CreateTime, s.userID, u.UserName, " +
+            "s.TeamID, t.TeamName, s.ChallengeID, c.Title, s.FlagID, s.Score, s.Type, s.Description, s.IsValid " +
+            "FROM Score s JOIN User u ON u.userID = s.userID " +
+            "LEFT JOIN Team t ON t.TeamID = s.TeamID " +
+            "LEFT JOIN Challenge c ON c.ChallengeID = s.ChallengeID " +
+            "WHERE s.CompetitionID = ? ORDER BY s.ChangeID";
+
+    private static final String[] COLUMNS = {"changeId", "createTime", "userId", "userName", "teamId", "teamName",
+            "challengeId", "challengeTitle", "flagId", "score", "type", "description", "isValid"};
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("不支持的导出格式: " + value);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ScoreExporter(JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${ctf.score-export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 把竞赛的全部分数记录写入 out，返回导出的行数；不关闭 out
+     */
+    public long export(Integer competitionId, Format format, OutputStream out) {
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long rows = 0;
+        try (Connection con = jdbcTemplate.getDataSource().getConnection();
+             PreparedStatement ps = con.prepareStatement(EXPORT_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(isMySql(con) ? Integer.MIN_VALUE : fetchSize);
+            ps.setInt(1, competitionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    writer.write(rs);
+                    rows++;
+                }
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("导出分数记录", EXPORT_SQL, e);
+        }
+        writer.finish();
+        return rows;
+    }
+
+    private static boolean isMySql(Connection con) throws SQLException {
+        return "MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName());
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException;
+
+        void finish();
+    }
+
+    /**
+     * CSV：带 BOM 便于 Excel 识别 UTF-8；名称、描述等文本列以 = + - @ 开头时加单引号前缀，防止公式注入
+     */
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            try {
+                writer.write('\uFEFF');
+                writer.write(String.join(",", COLUMNS));
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                for (int i = 1; i <= COLUMNS.length; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(escape(value(rs, i), isText(i)));
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String value(ResultSet rs, int column) throws SQLException {
+            if (column == 2) {
+                Timestamp createTime = rs.getTimestamp(column);
+                return createTime == null ? "" : createTime.toLocalDateTime().toString();
+            }
+            String value = rs.getString(column);
+            if (column == 13 && value != null) {
+                return String.valueOf(rs.getBoolean(column));
+            }
+            return value == null ? "" : value;
+        }
+
+        private static boolean isText(int column) {
+            return column == 4 || column == 6 || column == 8 || column == 11 || column == 12;
+        }
+
+        private static String escape(String value, boolean text) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            char first = value.charAt(0);
+            if (text && (first == '=' || first == '+' || first == '-' || first == '@')) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+    }
+
+    /**
+     * NDJSON：每行一个 JSON 对象，直接用 JsonGenerator 写出，不经过 Map
+     */
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) {
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField(COLUMNS[0], rs.getInt(1));
+                Timestamp createTime = rs.getTimestamp(2);
+                generator.writeStringField(COLUMNS[1], createTime == null ? null : createTime.toLocalDateTime().toString());
+                writeInt(COLUMNS[2], rs, 3);
+                generator.writeStringField(COLUMNS[3], rs.getString(4));
+                writeInt(COLUMNS[4], rs, 5);
+                generator.writeStringField(COLUMNS[5], rs.getString(6));
+                writeInt(COLUMNS[6], rs, 7);
+                generator.writeStringField(COLUMNS[7], rs.getString(8));
+                writeInt(COLUMNS[8], rs, 9);
+                writeInt(COLUMNS[9], rs, 10);
+                generator.writeStringField(COLUMNS[10], rs.getString(11));
+                generator.writeStringField(COLUMNS[11], rs.getString(12));
+                boolean valid = rs.getBoolean(13);
+                if (rs.wasNull()) {
+                    generator.writeNullField(COLUMNS[12]);
+                } else {
+                    generator.writeBooleanField(COLUMNS[12], valid);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() {
+            try {
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeInt(String field, ResultSet rs, int column) throws SQLException, IOException {
+            int value = rs.getInt(column);
+            if (rs.wasNull()) {
+                generator.writeNullField(field);
+            } else {
+                generator.writeNumberField(field, value);
+            }
+        }
+    }
+}
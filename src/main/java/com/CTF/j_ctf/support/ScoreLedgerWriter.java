@@ -0,0 +1,115 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.TeamScoresRecordedEvent;
+import com.CTF.j_ctf.repository.TeamMemberRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 战队分数分发
+ * 战队 Flag 被解出或管理员调整战队分数时，需要给每个成员各写一条 Score。
+ * 成员ID用一次投影查询取得，所有 Score 行用一次 JDBC 批量插入写入（参与调用方的事务），
+ * 不加载 Team/TeamMember/User 实体；写入后整批发布一个 TeamScoresRecordedEvent（每行带自增的 ChangeID），
+ * 汇总表、排行榜等消费方一次应用全部成员的增量，而不是每个成员各触发一轮更新。
+ */
+@Component
+public class ScoreLedgerWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO Score " +
+            "(userID, CompetitionID, TeamID, ChallengeID, FlagID, Score, CreateTime, Type, Description, IsValid) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+    /**
+     * 一次战队分数分发：每个成员写入一条相同的 Score
+     */
+    public record TeamScore(Integer teamId,
+                            Integer competitionId,
+                            Integer challengeId,
+                            Integer flagId,
+                            int points,
+                            String type,
+                            String description) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TeamMemberRepository teamMemberRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ScoreLedgerWriter(JdbcTemplate jdbcTemplate,
+                             TeamMemberRepository teamMemberRepository,
+                             ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teamMemberRepository = teamMemberRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 为战队所有成员写入分数，返回各成员的分数记录（按成员ID顺序），战队没有成员时返回空列表
+     */
+    public List<ScoreRecordedEvent> writeTeamScores(TeamScore entry) {
+        List<Integer> memberIds = teamMemberRepository.findUserIdsByTeamId(entry.teamId());
+        if (memberIds.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime createTime = LocalDateTime.now();
+        List<Integer> changeIds = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Timestamp time = Timestamp.valueOf(createTime);
+                for (Integer userId : memberIds) {
+                    ps.setInt(1, userId);
+                    ps.setInt(2, entry.competitionId());
+                    ps.setInt(3, entry.teamId());
+                    setNullableInt(ps, 4, entry.challengeId());
+                    setNullableInt(ps, 5, entry.flagId());
+                    ps.setInt(6, entry.points());
+                    ps.setTimestamp(7, time);
+                    ps.setString(8, entry.type());
+                    ps.setString(9, entry.description());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Integer> ids = new ArrayList<>(memberIds.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                return ids;
+            }
+        });
+
+        List<ScoreRecordedEvent> events = new ArrayList<>(memberIds.size());
+        for (int i = 0; i < memberIds.size(); i++) {
+            // 驱动未返回自增主键时 changeId 为 null，排行榜按增量处理
+            Integer changeId = changeIds != null && i < changeIds.size() ? changeIds.get(i) : null;
+            events.add(new ScoreRecordedEvent(changeId, entry.competitionId(), memberIds.get(i),
+                    entry.teamId(), entry.challengeId(), entry.points(), createTime));
+        }
+        List<ScoreRecordedEvent> scores = List.copyOf(events);
+        eventPublisher.publishEvent(new TeamScoresRecordedEvent(entry.competitionId(), entry.teamId(), scores));
+        return scores;
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
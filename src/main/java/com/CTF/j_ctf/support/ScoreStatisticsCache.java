@@ -0,0 +1,89 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.TeamScoresRecordedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 分数统计短时缓存
+ * 按竞赛分段保存统计结果（竞赛统计、用户统计、战队统计），条目在 ttl-ms 后过期；
+ * 竞赛内任何分数写入都会丢弃整个分段，因此排名等依赖全局数据的字段也不会读到旧值。
+ * 分段被丢弃后，正在加载的请求只会写入已脱离的旧分段，不会把旧结果放回缓存。
+ */
+@Component
+public class ScoreStatisticsCache {
+
+    // 分段内条目超过该数量时顺带清理过期条目
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final long ttlNanos;
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+
+    public ScoreStatisticsCache(@Value("${ctf.score-stats.ttl-ms:5000}") long ttlMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * 读取缓存的统计结果，不存在或已过期时调用 loader 重新计算；返回副本，调用方可以修改
+     */
+    public Map<String, Object> get(Integer competitionId, String key, Supplier<Map<String, Object>> loader) {
+        if (competitionId == null || ttlNanos <= 0) {
+            return loader.get();
+        }
+        Segment segment = segments.computeIfAbsent(competitionId, id -> new Segment());
+        long now = System.nanoTime();
+        Entry entry = segment.entries.get(key);
+        if (entry == null || now - entry.loadedAt() > ttlNanos) {
+            entry = new Entry(loader.get(), now);
+            segment.put(key, entry, ttlNanos);
+        }
+        return new HashMap<>(entry.value());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScoreRecorded(ScoreRecordedEvent event) {
+        evict(event.competitionId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamScoresRecorded(TeamScoresRecordedEvent event) {
+        evict(event.competitionId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLeaderboardInvalidated(LeaderboardInvalidatedEvent event) {
+        evict(event.competitionId());
+    }
+
+    public void evict(Integer competitionId) {
+        if (competitionId == null) {
+            segments.clear();
+        } else {
+            segments.remove(competitionId);
+        }
+    }
+
+    private record Entry(Map<String, Object> value, long loadedAt) {
+    }
+
+    private static final class Segment {
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(String key, Entry entry, long ttlNanos) {
+            entries.put(key, entry);
+            if (entries.size() > PURGE_THRESHOLD) {
+                long now = System.nanoTime();
+                entries.values().removeIf(e -> now - e.loadedAt() > ttlNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.entity.ScoreSummary;
+import com.CTF.j_ctf.event.LeaderboardInvalidatedEvent;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import com.CTF.j_ctf.event.TeamScoresRecordedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分数汇总表（Scoresummary）维护
+ * 每条 Score 写入时在同一事务内对用户行和战队行各执行一条增量 upsert（分数累加、解题数按题目去重、最后得分时间取最大），
+ * 战队分数分发（TeamScoresRecordedEvent）的成员行用一次批量 upsert，战队行只累加一次；
+ * 增量失败时异常向上抛出，分数写入一起回滚；
+ * 分数修改/作废/恢复/删除时由 Service 调用 refresh 按 Score 表重算受影响的行；
+ * 战队改名、删除等只发布 LeaderboardInvalidatedEvent 的变更，异步重算所在竞赛。
+ * 对账任务每 reconcile-interval-seconds 按竞赛把汇总表与 Score 表的聚合结果比对并修正，启动时先执行一次以回填数据；
+ * 比对只用非锁定读，不阻塞分数写入；有差异的实体逐个在独立的短事务中修正：先锁住这一行再按 Score 表重算，
+ * 并发的增量 upsert 要么在重算前提交、要么等修正提交后再累加。每个事务只锁一行，不会与同时锁用户行和战队行的写入形成死锁。
+ */
+@Component
+public class ScoreSummaryMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoreSummaryMaintainer.class);
+
+    private static final String USER = "USER";
+    private static final String TEAM = "TEAM";
+
+    // 增量 upsert：行不存在时从 User/Team 取名称插入，存在时累加；
+    // 刚写入的这批是该实体在该题目上仅有的有效分数时解题数加一（同一条语句内判断，不单独查询）
+    private static final String APPLY_USER_SQL = "INSERT INTO Scoresummary " +
+            "(ID, EntityID, EntityType, EntityName, CompetitionID, TotalScore, SolveCount, LastSubmitTime) " +
+            "SELECT ?, u.userID, 'USER', u.UserName, ?, ?, " +
+            "CASE WHEN (SELECT COUNT(*) FROM Score s WHERE s.userID = u.userID AND s.CompetitionID = ? " +
+            "AND s.ChallengeID = ? AND s.IsValid = 1) = 1 THEN 1 ELSE 0 END, ? FROM User u WHERE u.userID = ? " +
+            "ON DUPLICATE KEY UPDATE TotalScore = TotalScore + VALUES(TotalScore), " +
+            "SolveCount = SolveCount + VALUES(SolveCount), " +
+            "LastSubmitTime = CASE WHEN LastSubmitTime IS NULL OR LastSubmitTime < VALUES(LastSubmitTime) " +
+            "THEN VALUES(LastSubmitTime) ELSE LastSubmitTime END";
+
+    private static final String APPLY_TEAM_SQL = "INSERT INTO Scoresummary " +
+            "(ID, EntityID, EntityType, EntityName, CompetitionID, TotalScore, SolveCount, LastSubmitTime) " +
+            "SELECT ?, t.TeamID, 'TEAM', t.TeamName, ?, ?, " +
+            "CASE WHEN (SELECT COUNT(*) FROM Score s WHERE s.TeamID = t.TeamID AND s.CompetitionID = ? " +
+            "AND s.ChallengeID = ? AND s.IsValid = 1) = ? THEN 1 ELSE 0 END, ? FROM Team t WHERE t.TeamID = ? " +
+            "ON DUPLICATE KEY UPDATE TotalScore = TotalScore + VALUES(TotalScore), " +
+            "SolveCount = SolveCount + VALUES(SolveCount), " +
+            "LastSubmitTime = CASE WHEN LastSubmitTime IS NULL OR LastSubmitTime < VALUES(LastSubmitTime) " +
+            "THEN VALUES(LastSubmitTime) ELSE LastSubmitTime END";
+
+    private static final String UPSERT_SQL = "INSERT INTO Scoresummary " +
+            "(ID, EntityID, EntityType, EntityName, CompetitionID, TotalScore, SolveCount, LastSubmitTime) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE EntityName = VALUES(EntityName), TotalScore = VALUES(TotalScore), " +
+            "SolveCount = VALUES(SolveCount), LastSubmitTime = VALUES(LastSubmitTime)";
+
+    // 按 Score 表聚合（与增量规则一致：只统计有效分数，解题数按题目去重）
+    private static final String AGGREGATE_USERS_SQL = "SELECT s.userID AS EntityID, u.UserName AS EntityName, " +
+            "SUM(CASE WHEN s.IsValid = 1 THEN s.Score ELSE 0 END) AS TotalScore, " +
+            "COUNT(DISTINCT CASE WHEN s.IsValid = 1 THEN s.ChallengeID END) AS SolveCount, " +
+            "MAX(CASE WHEN s.IsValid = 1 THEN s.CreateTime END) AS LastSubmitTime " +
+            "FROM Score s JOIN User u ON u.userID = s.userID " +
+            "WHERE s.CompetitionID = ? %s GROUP BY s.userID, u.UserName";
+
+    private static final String AGGREGATE_TEAMS_SQL = "SELECT s.TeamID AS EntityID, t.TeamName AS EntityName, " +
+            "SUM(CASE WHEN s.IsValid = 1 THEN s.Score ELSE 0 END) AS TotalScore, " +
+            "COUNT(DISTINCT CASE WHEN s.IsValid = 1 THEN s.ChallengeID END) AS SolveCount, " +
+            "MAX(CASE WHEN s.IsValid = 1 THEN s.CreateTime END) AS LastSubmitTime " +
+            "FROM Score s JOIN Team t ON t.TeamID = s.TeamID " +
+            "WHERE s.CompetitionID = ? %s GROUP BY s.TeamID, t.TeamName";
+
+    private static final String SUMMARY_ROWS_SQL = "SELECT EntityID, EntityName, TotalScore, SolveCount, LastSubmitTime " +
+            "FROM Scoresummary WHERE CompetitionID = ? AND EntityType = ?";
+
+    private static final String SUMMARY_ROW_FOR_UPDATE_SQL = "SELECT EntityID, EntityName, TotalScore, SolveCount, " +
+            "LastSubmitTime FROM Scoresummary WHERE ID = ? FOR UPDATE";
+
+    /**
+     * 汇总行的可比较部分
+     */
+    private record Row(Integer entityId, String entityName, int totalScore, int solveCount, Timestamp lastSubmitTime) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long reconcileIntervalSeconds;
+
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong reconcileCount = new AtomicLong();
+    private final AtomicLong driftCount = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    public ScoreSummaryMaintainer(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${ctf.score-summary.reconcile-interval-seconds:600}") long reconcileIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "score-summary-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::safeReconcileAll, 0, reconcileIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 新的 Score 行：在写入事务内同步累加，用户行、战队行各一条语句；失败时异常抛给调用方，与分数写入一起回滚
+     */
+    @EventListener
+    public void onScoreRecorded(ScoreRecordedEvent event) {
+        if (event.competitionId() == null || event.points() == null) {
+            return;
+        }
+        Timestamp time = event.createTime() != null ? Timestamp.valueOf(event.createTime()) : null;
+        if (event.userId() != null) {
+            jdbcTemplate.update(APPLY_USER_SQL, ScoreSummary.idOf(USER, event.userId(), event.competitionId()),
+                    event.competitionId(), event.points(), event.competitionId(), event.challengeId(), time, event.userId());
+        }
+        if (event.teamId() != null) {
+            jdbcTemplate.update(APPLY_TEAM_SQL, ScoreSummary.idOf(TEAM, event.teamId(), event.competitionId()),
+                    event.competitionId(), event.points(), event.competitionId(), event.challengeId(), 1, time,
+                    event.teamId());
+        }
+        appliedCount.incrementAndGet();
+    }
+
+    /**
+     * 战队分数分发：成员行一次批量 upsert，战队行一条 upsert 累加整批分数，与逐行应用的结果一致
+     */
+    @EventListener
+    public void onTeamScoresRecorded(TeamScoresRecordedEvent event) {
+        if (event.competitionId() == null || event.scores().isEmpty()) {
+            return;
+        }
+        List<Object[]> userArgs = new ArrayList<>(event.scores().size());
+        int points = 0;
+        Timestamp latest = null;
+        Integer challengeId = null;
+        for (ScoreRecordedEvent score : event.scores()) {
+            if (score.points() == null) {
+                continue;
+            }
+            Timestamp time = score.createTime() != null ? Timestamp.valueOf(score.createTime()) : null;
+            if (score.userId() != null) {
+                userArgs.add(new Object[]{ScoreSummary.idOf(USER, score.userId(), event.competitionId()),
+                        event.competitionId(), score.points(), event.competitionId(), score.challengeId(), time,
+                        score.userId()});
+            }
+            points += score.points();
+            if (time != null && (latest == null || time.after(latest))) {
+                latest = time;
+            }
+            challengeId = score.challengeId();
+        }
+        if (!userArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_USER_SQL, userArgs);
+        }
+        if (event.teamId() != null) {
+            // 这批行都已写入，是该战队在该题目上仅有的有效分数时才计一次解题
+            jdbcTemplate.update(APPLY_TEAM_SQL, ScoreSummary.idOf(TEAM, event.teamId(), event.competitionId()),
+                    event.competitionId(), points, event.competitionId(), challengeId, event.scores().size(), latest,
+                    event.teamId());
+        }
+        appliedCount.addAndGet(event.scores().size());
+    }
+
+    /**
+     * 非追加型变更后按 Score 表重算用户行和战队行（在调用方事务内执行）
+     */
+    public void refresh(Integer competitionId, Integer userId, Integer teamId) {
+        if (competitionId == null) {
+            return;
+        }
+        if (userId != null) {
+            refreshEntity(competitionId, USER, userId);
+        }
+        if (teamId != null) {
+            refreshEntity(competitionId, TEAM, teamId);
+        }
+    }
+
+    /**
+     * 战队改名、用户/战队/竞赛删除等：提交后异步重算所在竞赛，competitionId 为 null 时全部对账
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLeaderboardInvalidated(LeaderboardInvalidatedEvent event) {
+        if (executor == null) {
+            return;
+        }
+        if (event.competitionId() == null) {
+            executor.execute(this::safeReconcileAll);
+        } else {
+            executor.execute(() -> {
+                try {
+                    reconcile(event.competitionId());
+                } catch (RuntimeException e) {
+                    log.warn("分数汇总重算失败: competition={}, {}", event.competitionId(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 对账所有竞赛，返回修正的行数
+     */
+    public int reconcileAll() {
+        List<Integer> competitionIds = jdbcTemplate.queryForList(
+                "SELECT CompetitionID FROM Competition UNION SELECT DISTINCT CompetitionID FROM Scoresummary", Integer.class);
+        int fixed = 0;
+        for (Integer competitionId : competitionIds) {
+            fixed += reconcile(competitionId);
+        }
+        reconcileCount.incrementAndGet();
+        if (fixed > 0) {
+            log.warn("分数汇总对账修正 {} 行", fixed);
+        }
+        return fixed;
+    }
+
+    /**
+     * 对账单个竞赛：非锁定读比对汇总表与 Score 表聚合结果，有差异的实体逐个加锁重算，返回修正的行数
+     */
+    public int reconcile(Integer competitionId) {
+        int fixed = reconcile(competitionId, USER, AGGREGATE_USERS_SQL)
+                + reconcile(competitionId, TEAM, AGGREGATE_TEAMS_SQL);
+        driftCount.addAndGet(fixed);
+        return fixed;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("applied", appliedCount.get());
+        metrics.put("reconcileRuns", reconcileCount.get());
+        metrics.put("driftFixed", driftCount.get());
+        return metrics;
+    }
+
+    /**
+     * 非锁定读找出可能有差异的实体（比对期间提交的增量会造成误判，加锁重算时再确认），逐个修正
+     */
+    private int reconcile(Integer competitionId, String entityType, String aggregateSql) {
+        Map<Integer, Row> expected = new HashMap<>();
+        for (Row row : queryRows(String.format(aggregateSql, ""), competitionId)) {
+            expected.put(row.entityId(), row);
+        }
+        Map<Integer, Row> actual = new HashMap<>();
+        for (Row row : queryRows(SUMMARY_ROWS_SQL, competitionId, entityType)) {
+            actual.put(row.entityId(), row);
+        }
+
+        Set<Integer> suspects = new HashSet<>();
+        expected.forEach((entityId, row) -> {
+            if (!row.equals(actual.get(entityId))) {
+                suspects.add(entityId);
+            }
+        });
+        for (Integer entityId : actual.keySet()) {
+            if (!expected.containsKey(entityId)) {
+                suspects.add(entityId);
+            }
+        }
+
+        int fixed = 0;
+        for (Integer entityId : suspects) {
+            Boolean changed = transactionTemplate.execute(status -> refreshEntity(competitionId, entityType, entityId));
+            if (Boolean.TRUE.equals(changed)) {
+                fixed++;
+            }
+        }
+        return fixed;
+    }
+
+    /**
+     * 锁住该实体的汇总行后按 Score 表重算，与现值不同时写入；返回是否修改
+     */
+    private boolean refreshEntity(Integer competitionId, String entityType, Integer entityId) {
+        String id = ScoreSummary.idOf(entityType, entityId, competitionId);
+        List<Row> current = queryRows(SUMMARY_ROW_FOR_UPDATE_SQL, id);
+        String sql = USER.equals(entityType)
+                ? String.format(AGGREGATE_USERS_SQL, "AND s.userID = ?")
+                : String.format(AGGREGATE_TEAMS_SQL, "AND s.TeamID = ?");
+        List<Row> rows = queryRows(sql, competitionId, entityId);
+        if (rows.isEmpty()) {
+            return !current.isEmpty() && jdbcTemplate.update("DELETE FROM Scoresummary WHERE ID = ?", id) > 0;
+        }
+        if (!current.isEmpty() && rows.get(0).equals(current.get(0))) {
+            return false;
+        }
+        jdbcTemplate.update(UPSERT_SQL, upsertArgs(competitionId, entityType, rows.get(0)));
+        return true;
+    }
+
+    private List<Row> queryRows(String sql, Object... args) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Row(rs.getInt("EntityID"), rs.getString("EntityName"),
+                rs.getInt("TotalScore"), rs.getInt("SolveCount"), rs.getTimestamp("LastSubmitTime")), args);
+    }
+
+    private static Object[] upsertArgs(Integer competitionId, String entityType, Row row) {
+        return new Object[]{ScoreSummary.idOf(entityType, row.entityId(), competitionId), row.entityId(), entityType,
+                row.entityName(), competitionId, row.totalScore(), row.solveCount(), row.lastSubmitTime()};
+    }
+
+    private void safeReconcileAll() {
+        try {
+            reconcileAll();
+        } catch (RuntimeException e) {
+            log.warn("分数汇总对账失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.dto.TeamStanding;
+import com.CTF.j_ctf.event.FlagsExpiredEvent;
+import com.CTF.j_ctf.event.LeaderboardUpdatedEvent;
+import com.CTF.j_ctf.event.SubmissionJudgedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 排行榜实时推送（Server-Sent Events）
+ * 每个竞赛一个频道，订阅者持有一个 SseEmitter 和一个有界发送缓冲区；
+ * 提交判定事件在事务提交后交给分发线程池处理：
+ * - submission：只推送给提交者本人的连接
+ * - solve：正确解答（含一血标记）推送给频道内所有连接
+ * - leaderboard：与上次推送相比名次/分数发生变化的战队，由 LeaderboardEngine 应用分数后发布的
+ *   LeaderboardUpdatedEvent 触发，计算增量时排行一定已包含这次得分
+ * 消息只序列化一次，各订阅者缓冲区共享同一个对象。分发线程只把消息放入缓冲区，不做网络写入；
+ * 每个订阅者的缓冲区由独立的发送线程取出发送（有上限），慢客户端只会阻塞自己的发送线程。
+ * 缓冲区写满、单次发送超过 send-timeout-ms 或发送线程用尽时直接断开该连接，
+ * 客户端 EventSource 会自动重连。没有订阅者的竞赛不做任何计算。
+ */
+@Component
+public class ScoreboardStreamHub {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoreboardStreamHub.class);
+
+    private static final Message HEARTBEAT = new Message(null, "heartbeat");
+
+    private final LeaderboardEngine leaderboardEngine;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final long heartbeatSeconds;
+    private final int dispatchThreads;
+    private final long sendTimeoutMs;
+    private final int maxSendThreads;
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final LongAdder droppedSubscribers = new LongAdder();
+    private final LongAdder stalledSubscribers = new LongAdder();
+
+    private ExecutorService dispatcher;
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeat;
+
+    public ScoreboardStreamHub(LeaderboardEngine leaderboardEngine,
+                               ObjectMapper objectMapper,
+                               @Value("${ctf.scoreboard-stream.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${ctf.scoreboard-stream.buffer-size:32}") int bufferSize,
+                               @Value("${ctf.scoreboard-stream.heartbeat-seconds:25}") long heartbeatSeconds,
+                               @Value("${ctf.scoreboard-stream.dispatch-threads:4}") int dispatchThreads,
+                               @Value("${ctf.scoreboard-stream.send-timeout-ms:5000}") long sendTimeoutMs,
+                               @Value("${ctf.scoreboard-stream.max-send-threads:256}") int maxSendThreads) {
+        this.leaderboardEngine = leaderboardEngine;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.dispatchThreads = dispatchThreads;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxSendThreads = maxSendThreads;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread thread = new Thread(r, "scoreboard-stream-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIndex = new AtomicInteger();
+        // 不排队：同时处于发送中的订阅者超过上限时直接拒绝，由 scheduleDrain 断开该订阅者
+        senders = new ThreadPoolExecutor(0, maxSendThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "scoreboard-send-" + senderIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "scoreboard-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 定期发送注释行，保持代理连接并及时发现已断开的客户端
+        heartbeat.scheduleWithFixedDelay(() -> channels.values().forEach(channel ->
+                channel.subscribers.forEach(subscriber -> enqueue(channel, subscriber, HEARTBEAT))),
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        heartbeat.scheduleWithFixedDelay(this::closeStalledSubscribers,
+                sendTimeoutMs, sendTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::complete));
+        channels.clear();
+    }
+
+    /**
+     * 订阅竞赛排行榜推送，userId 为空时（未登录）只接收公共事件
+     */
+    public SseEmitter subscribe(Integer competitionId, Integer userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, userId, bufferSize);
+        boolean[] created = new boolean[1];
+        Channel channel = channels.compute(competitionId, (id, existing) -> {
+            Channel c = existing;
+            if (c == null) {
+                c = new Channel(id);
+                created[0] = true;
+            }
+            c.subscribers.add(subscriber);
+            return c;
+        });
+
+        Runnable remove = () -> unsubscribe(channel, subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        if (created[0]) {
+            // 新频道记录当前排行作为后续增量的基准
+            dispatch(() -> channel.captureBaseline(leaderboardEngine));
+        }
+        enqueue(channel, subscriber, new Message(null, "connected"));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return channels.values().stream().mapToInt(channel -> channel.subscribers.size()).sum();
+    }
+
+    public long getDroppedSubscriberCount() {
+        return droppedSubscribers.sum();
+    }
+
+    public long getStalledSubscriberCount() {
+        return stalledSubscribers.sum();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubmissionJudged(SubmissionJudgedEvent event) {
+        if (event.competitionId() == null) {
+            return;
+        }
+        Channel channel = channels.get(event.competitionId());
+        if (channel == null) {
+            return;
+        }
+        dispatch(() -> broadcast(channel, event));
+    }
+
+    /**
+     * 排行榜引擎应用分数后同步发布，此时读取的排行已包含该分数；推送名次/分数变化
+     */
+    @EventListener
+    public void onLeaderboardUpdated(LeaderboardUpdatedEvent event) {
+        Channel channel = channels.get(event.competitionId());
+        if (channel == null) {
+            return;
+        }
+        dispatch(() -> broadcastLeaderboard(channel));
+    }
+
+    /**
+     * Flag 到期后通知该竞赛的订阅者（flag-expired），前端据此刷新题目/Flag 的可提交状态
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlagsExpired(FlagsExpiredEvent event) {
+        Channel channel = channels.get(event.competitionId());
+        if (channel == null) {
+            return;
+        }
+        dispatch(() -> {
+            Map<String, Object> expired = new LinkedHashMap<>();
+            expired.put("competitionId", event.competitionId());
+            expired.put("flagIds", event.flagIds());
+            try {
+                publish(channel, message("flag-expired", expired));
+            } catch (JsonProcessingException e) {
+                log.warn("排行榜推送消息序列化失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void broadcast(Channel channel, SubmissionJudgedEvent event) {
+        channel.lock.lock();
+        try {
+            if (event.userId() != null) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("challengeId", event.challengeId());
+                result.put("flagId", event.flagId());
+                result.put("teamId", event.teamId());
+                result.put("isCorrect", event.correct());
+                result.put("pointsAwarded", event.pointsAwarded());
+                result.put("submitTime", event.submitTime());
+                Message message = message("submission", result);
+                for (Subscriber subscriber : channel.subscribers) {
+                    if (event.userId().equals(subscriber.userId)) {
+                        enqueue(channel, subscriber, message);
+                    }
+                }
+            }
+            if (!event.correct()) {
+                return;
+            }
+
+            Map<String, Object> solve = new LinkedHashMap<>();
+            solve.put("competitionId", event.competitionId());
+            solve.put("challengeId", event.challengeId());
+            solve.put("userId", event.userId());
+            solve.put("teamId", event.teamId());
+            solve.put("points", event.pointsAwarded());
+            solve.put("firstBlood", event.firstBlood());
+            solve.put("submitTime", event.submitTime());
+            publish(channel, message("solve", solve));
+        } catch (JsonProcessingException e) {
+            log.warn("排行榜推送消息序列化失败: {}", e.getMessage());
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private void broadcastLeaderboard(Channel channel) {
+        channel.lock.lock();
+        try {
+            List<Map<String, Object>> changes = channel.diff(leaderboardEngine.getTeamStandings(channel.competitionId));
+            if (!changes.isEmpty()) {
+                Map<String, Object> delta = new LinkedHashMap<>();
+                delta.put("competitionId", channel.competitionId);
+                delta.put("changes", changes);
+                publish(channel, message("leaderboard", delta));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("排行榜推送消息序列化失败: {}", e.getMessage());
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private void publish(Channel channel, Message message) {
+        for (Subscriber subscriber : channel.subscribers) {
+            enqueue(channel, subscriber, message);
+        }
+    }
+
+    private Message message(String name, Object payload) throws JsonProcessingException {
+        return new Message(name, objectMapper.writeValueAsString(payload));
+    }
+
+    /**
+     * 放入订阅者缓冲区，不阻塞；缓冲区已满时断开该订阅者，否则确保有发送任务在处理
+     */
+    private void enqueue(Channel channel, Subscriber subscriber, Message message) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.buffer.offer(message)) {
+            drop(channel, subscriber);
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            scheduleDrain(channel, subscriber);
+        }
+    }
+
+    private void scheduleDrain(Channel channel, Subscriber subscriber) {
+        try {
+            senders.execute(() -> drain(channel, subscriber));
+        } catch (RejectedExecutionException e) {
+            // 发送线程已用尽（大量客户端同时阻塞）或应用关闭中
+            subscriber.scheduled.set(false);
+            drop(channel, subscriber);
+        }
+    }
+
+    private void drain(Channel channel, Subscriber subscriber) {
+        try {
+            Message message;
+            while (!subscriber.closed && (message = subscriber.buffer.poll()) != null) {
+                subscriber.send(message);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            unsubscribe(channel, subscriber);
+            subscriber.complete();
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // 处理 poll 结束与 scheduled 复位之间新放入的消息
+        if (!subscriber.closed && !subscriber.buffer.isEmpty() && subscriber.scheduled.compareAndSet(false, true)) {
+            scheduleDrain(channel, subscriber);
+        }
+    }
+
+    /**
+     * 断开单次发送超过 send-timeout-ms 仍未返回的订阅者
+     */
+    private void closeStalledSubscribers() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> {
+            if (subscriber.sending && now - subscriber.sendStartedNanos > timeoutNanos) {
+                stalledSubscribers.increment();
+                drop(channel, subscriber);
+            }
+        }));
+    }
+
+    /**
+     * 主动断开订阅者。SseEmitter 的 send 与 complete 互斥，发送阻塞时 complete 也会阻塞，
+     * 因此只在当前线程摘除订阅者，complete 交给发送线程执行
+     */
+    private void drop(Channel channel, Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        droppedSubscribers.increment();
+        unsubscribe(channel, subscriber);
+        try {
+            senders.execute(subscriber::complete);
+        } catch (RejectedExecutionException e) {
+            // 发送线程已用尽，连接由 SseEmitter 超时回收
+        }
+    }
+
+    private void unsubscribe(Channel channel, Subscriber subscriber) {
+        subscriber.closed = true;
+        subscriber.buffer.clear();
+        channel.subscribers.remove(subscriber);
+        // 频道为空时移除，与 subscribe 中的 compute 互斥
+        channels.computeIfPresent(channel.competitionId, (id, c) -> c == channel && c.subscribers.isEmpty() ? null : c);
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+        }
+    }
+
+    private record Message(String name, String data) {
+    }
+
+    /**
+     * 单个竞赛的推送频道，lastStandings 为上次推送时各战队的排行，用于计算增量
+     */
+    private static final class Channel {
+        final Integer competitionId;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final ReentrantLock lock = new ReentrantLock();
+        Map<Integer, TeamStanding> lastStandings;
+
+        Channel(Integer competitionId) {
+            this.competitionId = competitionId;
+        }
+
+        void captureBaseline(LeaderboardEngine engine) {
+            lock.lock();
+            try {
+                if (lastStandings == null) {
+                    lastStandings = index(engine.getTeamStandings(competitionId));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 与上次推送相比名次、分数或解题数变化的战队，调用方持有 lock
+         */
+        List<Map<String, Object>> diff(List<TeamStanding> current) {
+            Map<Integer, TeamStanding> previous = lastStandings != null ? lastStandings : Map.of();
+            List<Map<String, Object>> changes = new ArrayList<>();
+            for (TeamStanding standing : current) {
+                TeamStanding before = previous.get(standing.teamId());
+                if (before != null && before.rank() == standing.rank()
+                        && before.totalScore() == standing.totalScore()
+                        && before.solveCount() == standing.solveCount()) {
+                    continue;
+                }
+                Map<String, Object> change = new LinkedHashMap<>();
+                change.put("entityID", standing.teamId());
+                change.put("name", standing.teamName());
+                change.put("totalScore", standing.totalScore());
+                change.put("solveCount", standing.solveCount());
+                change.put("rank", standing.rank());
+                change.put("previousRank", before != null ? before.rank() : null);
+                changes.add(change);
+            }
+            lastStandings = index(current);
+            return changes;
+        }
+
+        private static Map<Integer, TeamStanding> index(List<TeamStanding> standings) {
+            Map<Integer, TeamStanding> index = new HashMap<>(standings.size() * 2);
+            for (TeamStanding standing : standings) {
+                index.put(standing.teamId(), standing);
+            }
+            return index;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Integer userId;
+        final BlockingQueue<Message> buffer;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+        volatile boolean sending;
+        volatile long sendStartedNanos;
+
+        Subscriber(SseEmitter emitter, Integer userId, int bufferSize) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void send(Message message) throws IOException {
+            sendStartedNanos = System.nanoTime();
+            sending = true;
+            try {
+                if (message.name() == null) {
+                    emitter.send(SseEmitter.event().comment(message.data()));
+                } else {
+                    emitter.send(SseEmitter.event().name(message.name()).data(message.data()));
+                }
+            } finally {
+                sending = false;
+            }
+        }
+
+        void complete() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // 已经结束
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.SearchDocumentEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 题目、竞赛、战队、题解、用户的全文检索索引（进程内 Lucene，存放在本地磁盘）
+ * 分词用 CJKAnalyzer：中文按相邻两字切分，英文/数字按单词切分并转小写，全角半角统一，不去停用词；
+ * 查询中的每个词都必须命中标题或正文（标题权重更高），长度不小于 2 的词和单个汉字同时按前缀匹配，结果按相关度排序。
+ * 索引由服务层发布的 SearchDocumentEvent 在事务提交后增量更新，后台线程定期刷新读视图并提交到磁盘；
+ * 启动时索引为空（或 rebuild-on-startup=true）会从数据库重建，重建期间及关闭检索时调用方回退到原来的 LIKE 查询。
+ * 索引只保存ID，结果由调用方按ID回库加载，已删除但还未从索引移除的记录会被忽略。
+ */
+@Component
+public class SearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final String FIELD_UID = "uid";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_COMPETITION = "competitionId";
+    private static final String FIELD_PUBLIC = "public";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_BODY = "body";
+
+    private static final float TITLE_BOOST = 3.0f;
+    private static final float PREFIX_BOOST = 0.5f;
+    private static final int MAX_QUERY_TERMS = 32;
+    private static final int REBUILD_FETCH_SIZE = 1000;
+
+    private static final String CHALLENGE_SQL = "SELECT ChallengeID, CompetitionID, Title, Description, Category FROM Challenge";
+    private static final String COMPETITION_SQL = "SELECT CompetitionID, Title, Introduction, IsPublic, Status FROM Competition";
+    private static final String TEAM_SQL = "SELECT TeamID, CompetitionID, TeamName, Description FROM Team";
+    private static final String WRITEUP_SQL = "SELECT WriteUpID, CompetitionID, Title, Content FROM writeup";
+    private static final String USER_SQL = "SELECT userID, UserName, userEmail FROM User";
+
+    /**
+     * 一次检索的结果：命中总数和当前页按相关度排序的ID
+     */
+    public record Hits(long total, List<Integer> ids) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path indexDir;
+    private final boolean rebuildOnStartup;
+    private final long refreshIntervalMs;
+    private final long commitIntervalSeconds;
+    private final int maxResults;
+
+    private final Analyzer analyzer = new CJKAnalyzer(CharArraySet.EMPTY_SET);
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean ready;
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile long lastRebuildMs;
+    private volatile long lastRebuildDocs;
+
+    public SearchIndex(JdbcTemplate jdbcTemplate,
+                       @Value("${ctf.search.enabled:true}") boolean enabled,
+                       @Value("${ctf.search.index-dir:data/search-index}") String indexDir,
+                       @Value("${ctf.search.rebuild-on-startup:false}") boolean rebuildOnStartup,
+                       @Value("${ctf.search.refresh-interval-ms:1000}") long refreshIntervalMs,
+                       @Value("${ctf.search.commit-interval-seconds:30}") long commitIntervalSeconds,
+                       @Value("${ctf.search.max-results:1000}") int maxResults) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.indexDir = Paths.get(indexDir);
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.commitIntervalSeconds = commitIntervalSeconds;
+        this.maxResults = maxResults;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = FSDirectory.open(indexDir);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::commit, commitIntervalSeconds, commitIntervalSeconds, TimeUnit.SECONDS);
+
+        if (rebuildOnStartup || writer.getDocStats().numDocs == 0) {
+            rebuild();
+        } else {
+            ready = true;
+            log.info("全文索引已加载: {} 条文档", writer.getDocStats().numDocs);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭全文索引失败: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentChanged(SearchDocumentEvent event) {
+        if (writer == null || event.id() == null) {
+            return;
+        }
+        try {
+            if (event.deleted()) {
+                delete(event.type(), event.id());
+            } else {
+                writer.updateDocument(uid(event.type(), event.id()), toDocument(event));
+                indexed.increment();
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("更新全文索引失败 {}#{}: {}", event.type(), event.id(), e.getMessage());
+        }
+    }
+
+    /**
+     * 检索并按ID回库加载一页结果，顺序与相关度一致（忽略 pageable 中的排序）
+     * 索引未就绪或关键字分不出任何词时返回 empty，调用方回退到 LIKE 查询
+     * @param competitionId 只检索该竞赛下的文档，null 表示不限
+     * @param publicOnly 只检索公开且已发布的竞赛
+     */
+    public <T> Optional<Page<T>> search(SearchDocumentEvent.Type type, String keyword, Integer competitionId,
+                                        boolean publicOnly, Pageable pageable,
+                                        Function<List<Integer>, List<T>> loader, Function<T, Integer> idOf) {
+        if (!ready) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        Optional<Hits> hits = search(type, keyword, competitionId, publicOnly,
+                (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+        if (hits.isEmpty()) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        List<Integer> ids = hits.get().ids();
+        if (ids.isEmpty()) {
+            return Optional.of(new PageImpl<>(Collections.emptyList(), pageable, hits.get().total()));
+        }
+        Map<Integer, T> loaded = new HashMap<>();
+        for (T item : loader.apply(ids)) {
+            loaded.put(idOf.apply(item), item);
+        }
+        List<T> content = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T item = loaded.get(id);
+            if (item != null) {
+                content.add(item);
+            }
+        }
+        return Optional.of(new PageImpl<>(content, pageable, hits.get().total()));
+    }
+
+    /**
+     * 检索一页ID；offset + limit 超过 max-results 的部分不返回
+     */
+    public Optional<Hits> search(SearchDocumentEvent.Type type, String keyword, Integer competitionId,
+                                 boolean publicOnly, int offset, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Query query = buildQuery(type, keyword, competitionId, publicOnly);
+        if (query == null) {
+            return Optional.empty();
+        }
+        long startedAt = System.nanoTime();
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int window = (int) Math.max(1, Math.min(maxResults, (long) offset + limit));
+            TopScoreDocCollector collector = TopScoreDocCollector.create(window, Integer.MAX_VALUE);
+            searcher.search(query, collector);
+            TopDocs page = collector.topDocs(Math.min(offset, window), limit);
+            List<Integer> ids = new ArrayList<>(page.scoreDocs.length);
+            for (ScoreDoc scoreDoc : page.scoreDocs) {
+                ids.add(searcher.storedFields().document(scoreDoc.doc).getField(FIELD_ID).numericValue().intValue());
+            }
+            return Optional.of(new Hits(collector.getTotalHits(), ids));
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("全文检索失败: {}", e.getMessage());
+            return Optional.empty();
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("释放索引读视图失败: {}", e.getMessage());
+                }
+            }
+            searches.increment();
+            searchNanos.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * 在后台线程从数据库重建全部索引；已有重建在执行时返回 false
+     * 重建期间检索回退到 LIKE 查询，增量事件照常写入
+     */
+    public boolean rebuild() {
+        if (writer == null) {
+            throw new IllegalStateException("全文检索未启用");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        ready = false;
+        scheduler.execute(this::runRebuild);
+        return true;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = searches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("ready", ready);
+        metrics.put("rebuilding", rebuilding.get());
+        metrics.put("indexDir", indexDir.toAbsolutePath().toString());
+        metrics.put("documents", writer == null ? 0 : writer.getDocStats().numDocs);
+        metrics.put("indexed", indexed.sum());
+        metrics.put("deleted", deleted.sum());
+        metrics.put("failures", failures.sum());
+        metrics.put("searches", count);
+        metrics.put("avgSearchMs", count == 0 ? 0.0 : searchNanos.sum() / 1_000_000.0 / count);
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("rebuilds", rebuilds.sum());
+        metrics.put("lastRebuildDocs", lastRebuildDocs);
+        metrics.put("lastRebuildMs", lastRebuildMs);
+        return metrics;
+    }
+
+    private void runRebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            writer.deleteAll();
+            long docs = 0;
+            docs += load(CHALLENGE_SQL, rs -> new SearchDocumentEvent(SearchDocumentEvent.Type.CHALLENGE,
+                    rs.getInt(1), rs.getInt(2), rs.getString(3),
+                    SearchDocumentEvent.join(rs.getString(4), rs.getString(5)), false, false));
+            docs += load(COMPETITION_SQL, rs -> new SearchDocumentEvent(SearchDocumentEvent.Type.COMPETITION,
+                    rs.getInt(1), rs.getInt(1), rs.getString(2), rs.getString(3),
+                    SearchDocumentEvent.isPublicVisible(rs.getBoolean(4), rs.getString(5)), false));
+            docs += load(TEAM_SQL, rs -> new SearchDocumentEvent(SearchDocumentEvent.Type.TEAM,
+                    rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4), false, false));
+            docs += load(WRITEUP_SQL, rs -> new SearchDocumentEvent(SearchDocumentEvent.Type.WRITEUP,
+                    rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4), false, false));
+            docs += load(USER_SQL, rs -> new SearchDocumentEvent(SearchDocumentEvent.Type.USER,
+                    rs.getInt(1), null, rs.getString(2), rs.getString(3), false, false));
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            lastRebuildDocs = docs;
+            lastRebuildMs = System.currentTimeMillis() - startedAt;
+            rebuilds.increment();
+            ready = true;
+            log.info("全文索引重建完成: {} 条文档, 耗时 {} ms", docs, lastRebuildMs);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("全文索引重建失败，检索回退到数据库查询: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 竞赛删除时其题目、战队、题解随之级联删除，一并移出索引
+     */
+    private void delete(SearchDocumentEvent.Type type, Integer id) throws IOException {
+        writer.deleteDocuments(uid(type, id));
+        if (type == SearchDocumentEvent.Type.COMPETITION) {
+            writer.deleteDocuments(new Term(FIELD_COMPETITION, id.toString()));
+        }
+        deleted.increment();
+    }
+
+    private long load(String sql, RowMapper mapper) {
+        long[] rows = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(REBUILD_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            SearchDocumentEvent event = mapper.map(rs);
+            try {
+                writer.updateDocument(uid(event.type(), event.id()), toDocument(event));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        SearchDocumentEvent map(ResultSet rs) throws SQLException;
+    }
+
+    private Document toDocument(SearchDocumentEvent event) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_UID, uidValue(event.type(), event.id()), Field.Store.NO));
+        document.add(new StringField(FIELD_TYPE, event.type().name(), Field.Store.NO));
+        document.add(new StoredField(FIELD_ID, event.id()));
+        if (event.competitionId() != null) {
+            document.add(new StringField(FIELD_COMPETITION, event.competitionId().toString(), Field.Store.NO));
+        }
+        if (event.publicVisible()) {
+            document.add(new StringField(FIELD_PUBLIC, "true", Field.Store.NO));
+        }
+        if (event.title() != null) {
+            document.add(new TextField(FIELD_TITLE, event.title(), Field.Store.NO));
+        }
+        if (event.body() != null) {
+            document.add(new TextField(FIELD_BODY, event.body(), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private Query buildQuery(SearchDocumentEvent.Type type, String keyword, Integer competitionId, boolean publicOnly) {
+        List<String> terms = analyze(keyword);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_TYPE, type.name())), BooleanClause.Occur.FILTER);
+        if (competitionId != null) {
+            query.add(new TermQuery(new Term(FIELD_COMPETITION, competitionId.toString())), BooleanClause.Occur.FILTER);
+        }
+        if (publicOnly) {
+            query.add(new TermQuery(new Term(FIELD_PUBLIC, "true")), BooleanClause.Occur.FILTER);
+        }
+        for (String term : terms) {
+            BooleanQuery.Builder clause = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(FIELD_TITLE, term)), TITLE_BOOST), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(FIELD_BODY, term)), BooleanClause.Occur.SHOULD);
+            if (term.length() >= 2 || Character.isIdeographic(term.codePointAt(0))) {
+                clause.add(new BoostQuery(new PrefixQuery(new Term(FIELD_TITLE, term)), TITLE_BOOST * PREFIX_BOOST), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new PrefixQuery(new Term(FIELD_BODY, term)), PREFIX_BOOST), BooleanClause.Occur.SHOULD);
+            }
+            query.add(clause.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String keyword) {
+        List<String> terms = new ArrayList<>();
+        if (keyword == null || keyword.isBlank()) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(FIELD_BODY, keyword)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                String value = term.toString();
+                if (!terms.contains(value)) {
+                    terms.add(value);
+                }
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private void refresh() {
+        if (rebuilding.get()) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("刷新全文索引失败: {}", e.getMessage());
+        }
+    }
+
+    private void commit() {
+        if (rebuilding.get() || !writer.hasUncommittedChanges()) {
+            return;
+        }
+        try {
+            writer.commit();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("提交全文索引失败: {}", e.getMessage());
+        }
+    }
+
+    private static Term uid(SearchDocumentEvent.Type type, Integer id) {
+        return new Term(FIELD_UID, uidValue(type, id));
+    }
+
+    private static String uidValue(SearchDocumentEvent.Type type, Integer id) {
+        return type.name() + ":" + id;
+    }
+}
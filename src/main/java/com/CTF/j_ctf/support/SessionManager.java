@@ -0,0 +1,153 @@
+package com.CTF.j_ctf.support;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * 当前登录用户的解析与登录/注销
+ * ctf.session.mode=session（默认）：沿用 HttpSession 属性 userId / userRole / userName；
+ * ctf.session.mode=token：登录时签发 SessionTokens 令牌，通过 HttpOnly Cookie 下发并在响应体中返回，
+ * 之后从 Authorization: Bearer 头或 Cookie 中读取并本地校验，不创建 HttpSession，
+ * 令牌校验本身不依赖会话粘滞或共享存储（需配置相同的 ctf.session-token.keys）。
+ * 但这只解决了登录状态：FlagVerifier、LeaderboardEngine、ParticipationIndex、SolvedChallengeCache、
+ * ReferenceDataCache 都是进程内缓存，只在本实例上失效，其他实例上的修改（如改 Flag、调分、退队）
+ * 在对应缓存重建前不可见。多实例部署仍需按用户粘滞路由到同一实例，或者只运行单实例。
+ */
+@Component
+public class SessionManager {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String REQUEST_ATTRIBUTE = SessionManager.class.getName() + ".USER";
+    private static final int SESSION_TIMEOUT_SECONDS = 30 * 60;
+
+    /**
+     * 当前登录用户；tokenClaims 只在令牌模式下存在
+     */
+    public record SessionUser(Integer userId, String userRole, String userName, SessionTokens.Claims tokenClaims) {
+
+        public boolean isAdmin() {
+            return "ADMIN".equals(userRole);
+        }
+    }
+
+    private final SessionTokens sessionTokens;
+    private final boolean tokenMode;
+    private final String cookieName;
+    private final boolean cookieSecure;
+
+    public SessionManager(SessionTokens sessionTokens,
+                          @Value("${ctf.session.mode:session}") String mode,
+                          @Value("${ctf.session-token.cookie-name:CTF_TOKEN}") String cookieName,
+                          @Value("${ctf.session-token.cookie-secure:false}") boolean cookieSecure) {
+        this.sessionTokens = sessionTokens;
+        this.tokenMode = "token".equalsIgnoreCase(mode);
+        this.cookieName = cookieName;
+        this.cookieSecure = cookieSecure;
+    }
+
+    public boolean isTokenMode() {
+        return tokenMode;
+    }
+
+    /**
+     * 当前请求的登录用户；同一请求内只解析一次
+     */
+    public Optional<SessionUser> current(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof SessionUser user) {
+            return Optional.of(user);
+        }
+        Optional<SessionUser> user = tokenMode ? fromToken(request) : fromSession(request);
+        user.ifPresent(value -> request.setAttribute(REQUEST_ATTRIBUTE, value));
+        return user;
+    }
+
+    /**
+     * 建立登录状态；令牌模式返回签发的令牌，会话模式返回 null
+     */
+    public String login(HttpServletRequest request, HttpServletResponse response,
+                        Integer userId, String userRole, String userName) {
+        if (!tokenMode) {
+            HttpSession session = request.getSession();
+            session.setAttribute("userId", userId);
+            session.setAttribute("userRole", userRole);
+            session.setAttribute("userName", userName);
+            if ("ADMIN".equals(userRole)) {
+                session.setAttribute("adminId", userId); // 保留adminId以兼容
+            }
+            session.setMaxInactiveInterval(SESSION_TIMEOUT_SECONDS);
+            return null;
+        }
+        String token = sessionTokens.issue(userId, userRole, userName);
+        writeCookie(response, token, sessionTokens.getTtlSeconds());
+        return token;
+    }
+
+    /**
+     * 注销：会话模式销毁 HttpSession，令牌模式撤销当前令牌并清除 Cookie
+     */
+    public void logout(HttpServletRequest request, HttpServletResponse response) {
+        if (tokenMode) {
+            current(request).map(SessionUser::tokenClaims).ifPresent(sessionTokens::revoke);
+            writeCookie(response, "", 0);
+        }
+        request.removeAttribute(REQUEST_ATTRIBUTE);
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+
+    private Optional<SessionUser> fromSession(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return Optional.empty();
+        }
+        Integer userId = (Integer) session.getAttribute("userId");
+        String userRole = (String) session.getAttribute("userRole");
+        if (userId == null || userRole == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new SessionUser(userId, userRole, (String) session.getAttribute("userName"), null));
+    }
+
+    private Optional<SessionUser> fromToken(HttpServletRequest request) {
+        return sessionTokens.verify(readToken(request))
+                .map(claims -> new SessionUser(claims.userId(), claims.userRole(), claims.userName(), claims));
+    }
+
+    private String readToken(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeCookie(HttpServletResponse response, String value, long maxAgeSeconds) {
+        ResponseCookie cookie = ResponseCookie.from(cookieName, value)
+                .httpOnly(true)
+                .secure(cookieSecure)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAgeSeconds)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+}
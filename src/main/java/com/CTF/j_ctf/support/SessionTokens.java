@@ -0,0 +1,206 @@
+package com.CTF.j_ctf.support;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无状态会话令牌（HMAC-SHA256 签名）
+ * 格式：密钥ID.载荷.签名，载荷为 Base64URL("用户ID|角色|过期时间(秒)|令牌ID|用户名")，校验只需本地密钥，不查任何存储。
+ * 密钥轮换：ctf.session-token.keys 配置多把 "密钥ID:Base64密钥"，新令牌用 active-key-id 签名，
+ * 其余密钥仍可校验旧令牌；旧密钥在超过一个令牌有效期后即可移除。
+ * 未配置密钥时启动随机生成一把，只适用于单实例（重启后令牌全部失效）。
+ * 注销的令牌ID放入内存撤销集合直到其过期，后台线程定期清理；撤销只对处理注销请求的实例生效，
+ * 多实例部署时其他实例上的令牌在过期前仍然有效，因此令牌有效期不宜过长。
+ */
+@Component
+public class SessionTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokens.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final long PURGE_INTERVAL_SECONDS = 60;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * 令牌携带的用户信息
+     */
+    public record Claims(Integer userId, String userRole, String userName, long expiresAt, String tokenId) {
+    }
+
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+    private final String activeKeyId;
+    private final long ttlSeconds;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejectedRevoked = new LongAdder();
+    private ScheduledExecutorService purger;
+
+    public SessionTokens(@Value("${ctf.session-token.keys:}") String keySpec,
+                         @Value("${ctf.session-token.active-key-id:}") String activeKeyId,
+                         @Value("${ctf.session-token.ttl-seconds:28800}") long ttlSeconds) {
+        for (String entry : keySpec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("会话令牌密钥格式应为 密钥ID:Base64密钥");
+            }
+            String keyId = trimmed.substring(0, separator);
+            byte[] secret = Base64.getDecoder().decode(trimmed.substring(separator + 1));
+            if (secret.length < 32) {
+                throw new IllegalArgumentException("会话令牌密钥至少32字节: " + keyId);
+            }
+            keys.put(keyId, new SecretKeySpec(secret, HMAC_ALGORITHM));
+        }
+        if (keys.isEmpty()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys.put("local", new SecretKeySpec(secret, HMAC_ALGORITHM));
+        }
+        this.activeKeyId = activeKeyId.isBlank() ? keys.keySet().iterator().next() : activeKeyId;
+        if (!keys.containsKey(this.activeKeyId)) {
+            throw new IllegalArgumentException("会话令牌当前密钥不存在: " + this.activeKeyId);
+        }
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (keys.containsKey("local") && keys.size() == 1) {
+            log.warn("未配置 ctf.session-token.keys，使用随机密钥：多实例之间的令牌不能互认，重启后令牌失效");
+        }
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-token-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeRevoked,
+                PURGE_INTERVAL_SECONDS, PURGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(Integer userId, String userRole, String userName) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String tokenId = UUID.randomUUID().toString().replace("-", "");
+        String payload = userId + "|" + userRole + "|" + expiresAt + "|" + tokenId + "|" + (userName == null ? "" : userName);
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        String signingInput = activeKeyId + "." + encodedPayload;
+        issued.increment();
+        return signingInput + "." + ENCODER.encodeToString(sign(keys.get(activeKeyId), signingInput));
+    }
+
+    /**
+     * 校验令牌：签名、过期时间、撤销集合；任一不通过返回 empty
+     */
+    public Optional<Claims> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !keys.containsKey(parts[0])) {
+            invalid.increment();
+            return Optional.empty();
+        }
+        Claims claims;
+        try {
+            byte[] expected = sign(keys.get(parts[0]), parts[0] + "." + parts[1]);
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[2]))) {
+                invalid.increment();
+                return Optional.empty();
+            }
+            String[] fields = new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8).split("\\|", 5);
+            if (fields.length != 5) {
+                invalid.increment();
+                return Optional.empty();
+            }
+            claims = new Claims(Integer.valueOf(fields[0]), fields[1], fields[4].isEmpty() ? null : fields[4],
+                    Long.parseLong(fields[2]), fields[3]);
+        } catch (IllegalArgumentException e) {
+            invalid.increment();
+            return Optional.empty();
+        }
+        if (claims.expiresAt() <= System.currentTimeMillis() / 1000) {
+            expired.increment();
+            return Optional.empty();
+        }
+        if (revoked.containsKey(claims.tokenId())) {
+            rejectedRevoked.increment();
+            return Optional.empty();
+        }
+        verified.increment();
+        return Optional.of(claims);
+    }
+
+    /**
+     * 撤销令牌（注销），保留到令牌原本的过期时间
+     */
+    public void revoke(Claims claims) {
+        revoked.put(claims.tokenId(), claims.expiresAt());
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeKeyId", activeKeyId);
+        metrics.put("keyIds", keys.keySet());
+        metrics.put("ttlSeconds", ttlSeconds);
+        metrics.put("issued", issued.sum());
+        metrics.put("verified", verified.sum());
+        metrics.put("invalid", invalid.sum());
+        metrics.put("expired", expired.sum());
+        metrics.put("revokedRejected", rejectedRevoked.sum());
+        metrics.put("revokedTokens", revoked.size());
+        return metrics;
+    }
+
+    private void purgeRevoked() {
+        long now = System.currentTimeMillis() / 1000;
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private static byte[] sign(SecretKeySpec key, String input) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(input.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("会话令牌签名失败", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.repository.ChallengeRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 解题登记
+ * 在调用方事务内向 ChallengeSolve 插入 (ChallengeID, userID)，由主键保证同一用户同一题目只登记一次：
+ * 并发的相同提交在主键上排队，先提交的事务登记成功，其余的得到主键冲突并放弃发分。
+ * 登记成功后用一条 UPDATE 原子递增解题人数，再用"为空才写入"的条件更新抢占一血，不做读-改-写。
+ */
+@Component
+public class SolveRegistry {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ChallengeSolve (ChallengeID, userID, CompetitionID, SolveTime) VALUES (?, ?, ?, ?)";
+
+    /**
+     * 登记成功的解题
+     */
+    public record Solve(Integer challengeId, Integer userId, boolean firstBlood) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChallengeRepository challengeRepository;
+
+    public SolveRegistry(JdbcTemplate jdbcTemplate, ChallengeRepository challengeRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.challengeRepository = challengeRepository;
+    }
+
+    /**
+     * 登记一次解题；该用户已经登记过该题目时返回 empty，调用方不应再发分
+     */
+    public Optional<Solve> register(Integer competitionId, Integer challengeId, Integer userId, LocalDateTime solveTime) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, challengeId, userId, competitionId, Timestamp.valueOf(solveTime));
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+        challengeRepository.incrementSolveCount(challengeId);
+        return Optional.of(new Solve(challengeId, userId, claimFirstBlood(challengeId, userId, solveTime)));
+    }
+
+    /**
+     * 抢占题目一血，只有第一个调用成功的用户返回 true
+     */
+    public boolean claimFirstBlood(Integer challengeId, Integer userId, LocalDateTime solveTime) {
+        return challengeId != null && challengeRepository.claimFirstBlood(challengeId, userId, solveTime) == 1;
+    }
+
+    public void deleteByChallenge(Integer challengeId) {
+        jdbcTemplate.update("DELETE FROM ChallengeSolve WHERE ChallengeID = ?", challengeId);
+    }
+
+    public void deleteByUser(Integer userId) {
+        jdbcTemplate.update("DELETE FROM ChallengeSolve WHERE userID = ?", userId);
+    }
+}
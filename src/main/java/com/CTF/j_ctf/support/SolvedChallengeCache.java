@@ -0,0 +1,64 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.event.ChallengeSolvedEvent;
+import com.CTF.j_ctf.repository.FlagSubmissionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户已解题目缓存
+ * 每个用户首次访问时用一条查询加载全部已解题目ID，之后由解题事件增量更新；
+ * 按近似最近访问顺序淘汰，最多保留 ctf.solved-cache.max-users 个用户。
+ * 解题事件会让正在进行的加载放弃写回，加载期间提交的解题不会被旧集合覆盖。
+ */
+@Component
+public class SolvedChallengeCache {
+
+    private final FlagSubmissionRepository flagSubmissionRepository;
+    private final BoundedCache<Integer, Set<Integer>> solvedByUser;
+
+    public SolvedChallengeCache(FlagSubmissionRepository flagSubmissionRepository,
+                                @Value("${ctf.solved-cache.max-users:10000}") int maxUsers) {
+        this.flagSubmissionRepository = flagSubmissionRepository;
+        this.solvedByUser = new BoundedCache<>(maxUsers);
+    }
+
+    /**
+     * 获取用户已解出的全部题目ID（只读视图）
+     */
+    public Set<Integer> getSolvedChallengeIds(Integer userId) {
+        Set<Integer> solved = solvedByUser.get(userId, id -> {
+            Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+            loaded.addAll(flagSubmissionRepository.findSolvedChallengeIdsByUser(id));
+            return Optional.of(loaded);
+        }).orElseThrow();
+        return Collections.unmodifiableSet(solved);
+    }
+
+    /**
+     * 解题提交后记录到已缓存用户的集合中，未缓存的用户下次访问时从数据库加载；
+     * 同时让此刻正在进行的加载放弃写回（它们的查询可能早于本次提交）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChallengeSolved(ChallengeSolvedEvent event) {
+        solvedByUser.discardPendingLoads();
+        Set<Integer> solved = solvedByUser.getIfPresent(event.userId());
+        if (solved != null && event.challengeId() != null) {
+            solved.add(event.challengeId());
+        }
+    }
+
+    public void evictUser(Integer userId) {
+        solvedByUser.remove(userId);
+    }
+
+    public void evictAll() {
+        solvedByUser.clear();
+    }
+}
@@ -0,0 +1,364 @@
+package com.CTF.j_ctf.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 错误提交记录异步写入（write-behind）
+ * 错误答案的 FlagSubmission 只是审计记录，不在请求事务内写库：
+ * 先进入有界队列，由后台线程每 flush-interval-ms 或攒满 batch-size 条后用 JDBC 批量插入。
+ * 队列满时调用方最多等待 offer-timeout-ms（背压），仍放不进则追加写入本地溢出文件；
+ * 批量插入失败的记录同样写入溢出文件，数据库恢复后由后台线程回放。
+ * 正确答案涉及 Score 发放，仍在 Service 事务内同步写入，不经过这里。
+ */
+@Component
+public class SubmissionAuditWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionAuditWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO Flagsubmission " +
+            "(userID, CompetitionID, ChallengeID, FlagID, TeamID, SubmittedContent, IsCorrect, SubmitTime, IPAddress, UserAgent, PointsAwarded) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 待写入的提交记录（只包含ID和标量字段）
+     */
+    public record AuditRecord(Integer userId,
+                              Integer competitionId,
+                              Integer challengeId,
+                              Integer flagId,
+                              Integer teamId,
+                              String submittedContent,
+                              Boolean isCorrect,
+                              LocalDateTime submitTime,
+                              String ipAddress,
+                              String userAgent,
+                              Integer pointsAwarded) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AuditRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Path spillFile;
+    private final ReentrantLock spillLock = new ReentrantLock();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public SubmissionAuditWriter(JdbcTemplate jdbcTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Value("${ctf.submission-audit.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${ctf.submission-audit.batch-size:200}") int batchSize,
+                                 @Value("${ctf.submission-audit.flush-interval-ms:200}") long flushIntervalMs,
+                                 @Value("${ctf.submission-audit.offer-timeout-ms:50}") long offerTimeoutMs,
+                                 @Value("${ctf.submission-audit.spill-file:data/submission-spill.ndjson}") String spillFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.spillFile = Paths.get(spillFile);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "submission-audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 提交一条审计记录；队列满时短暂阻塞，超时后写入溢出文件，不会丢弃
+     */
+    public void submit(AuditRecord record) {
+        enqueued.incrementAndGet();
+        try {
+            if (queue.offer(record, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spill(List.of(record));
+    }
+
+    public long getQueueSize() {
+        return queue.size();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 剩余记录尽量写库，失败则落盘，下次启动时回放
+        List<AuditRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private void runLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        replaySpillFile();
+        while (running || !queue.isEmpty()) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        break;
+                    }
+                    AuditRecord record = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (record == null) {
+                        break;
+                    }
+                    batch.add(record);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                boolean ok = flush(batch);
+                batch.clear();
+                // 写库成功说明数据库可用，顺带回放之前溢出的记录
+                if (ok && Files.exists(spillFile)) {
+                    replaySpillFile();
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量插入；整批失败时逐条重试，约束冲突（如关联数据已删除）的记录丢弃，其余落盘
+     */
+    private boolean flush(List<AuditRecord> batch) {
+        try {
+            insertBatch(batch);
+            written.addAndGet(batch.size());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            List<AuditRecord> retry = new ArrayList<>();
+            for (AuditRecord record : batch) {
+                try {
+                    insertBatch(List.of(record));
+                    written.incrementAndGet();
+                } catch (DataIntegrityViolationException ex) {
+                    dropped.incrementAndGet();
+                    log.warn("丢弃无法写入的提交记录: {}", ex.getMostSpecificCause().getMessage());
+                } catch (DataAccessException ex) {
+                    retry.add(record);
+                }
+            }
+            if (!retry.isEmpty()) {
+                spill(retry);
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("提交记录批量写入失败，{} 条写入溢出文件: {}", batch.size(), e.getMessage());
+            spill(batch);
+            return false;
+        }
+    }
+
+    private void insertBatch(List<AuditRecord> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, r) -> {
+            ps.setObject(1, r.userId(), Types.INTEGER);
+            ps.setObject(2, r.competitionId(), Types.INTEGER);
+            ps.setObject(3, r.challengeId(), Types.INTEGER);
+            ps.setObject(4, r.flagId(), Types.INTEGER);
+            ps.setObject(5, r.teamId(), Types.INTEGER);
+            ps.setString(6, r.submittedContent());
+            ps.setObject(7, r.isCorrect(), Types.BOOLEAN);
+            ps.setTimestamp(8, r.submitTime() != null ? Timestamp.valueOf(r.submitTime()) : null);
+            ps.setString(9, r.ipAddress());
+            ps.setString(10, r.userAgent());
+            ps.setObject(11, r.pointsAwarded(), Types.INTEGER);
+        });
+    }
+
+    /**
+     * 追加写入溢出文件（每行一条 JSON）
+     */
+    private void spill(List<AuditRecord> records) {
+        spillLock.lock();
+        try {
+            Path parent = spillFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditRecord record : records) {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.newLine();
+                }
+            }
+            spilled.addAndGet(records.size());
+        } catch (IOException e) {
+            dropped.addAndGet(records.size());
+            log.error("提交记录写入溢出文件失败，丢弃 {} 条", records.size(), e);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * 回放溢出文件：先改名再读取，回放期间新的溢出写入新文件，失败的记录会重新落盘。
+     * 每个批次处理完（写入、丢弃或重新落盘）后记录已消费的行号，中断后从检查点继续，已写入的批次不会重复插入；
+     * 无法解析的行（如进程崩溃时写了一半）移入隔离文件后跳过，不阻塞后续记录。
+     * 回放中途写库失败时停止，剩余部分留在原文件中等待下次回放。
+     */
+    private void replaySpillFile() {
+        Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replaying");
+        Path checkpoint = spillFile.resolveSibling(spillFile.getFileName() + ".replaying.offset");
+        spillLock.lock();
+        try {
+            if (!Files.exists(replaying)) {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                Files.deleteIfExists(checkpoint);
+                Files.move(spillFile, replaying, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            log.warn("无法打开溢出文件进行回放: {}", e.getMessage());
+            return;
+        } finally {
+            spillLock.unlock();
+        }
+
+        // InputStreamReader 会把非法字节替换掉，损坏的行交给 JSON 解析失败后隔离
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(replaying), StandardCharsets.UTF_8))) {
+            long consumed = readCheckpoint(checkpoint);
+            long lineNo = 0;
+            List<AuditRecord> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= consumed || line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, AuditRecord.class));
+                } catch (JsonProcessingException e) {
+                    quarantine(line);
+                    log.warn("溢出文件第 {} 行无法解析，已移入隔离文件: {}", lineNo, e.getOriginalMessage());
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    boolean ok = flush(batch);
+                    batch.clear();
+                    writeCheckpoint(checkpoint, lineNo);
+                    if (!ok) {
+                        return;
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            Files.delete(replaying);
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException e) {
+            log.warn("回放溢出文件失败: {}", e.getMessage());
+        }
+    }
+
+    private long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            // 检查点先写临时文件再原子替换，正常情况下不会损坏；真损坏时无法确定进度，保留文件等待人工处理
+            throw new IOException("回放检查点损坏: " + checkpoint, e);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，检查点不会出现写了一半的情况
+     */
+    private void writeCheckpoint(Path checkpoint, long lineNo) throws IOException {
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(lineNo), StandardCharsets.UTF_8);
+        Files.move(tmp, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void quarantine(String line) throws IOException {
+        Path quarantine = spillFile.resolveSibling(spillFile.getFileName() + ".bad");
+        Files.writeString(quarantine, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        dropped.incrementAndGet();
+    }
+}
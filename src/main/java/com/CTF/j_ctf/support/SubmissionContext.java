@@ -0,0 +1,85 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.dto.CompetitionSnapshot;
+
+/**
+ * 一次 Flag 提交的校验上下文
+ * 每个请求只构建一次：Flag 校验条目（FlagVerifier）、竞赛时间窗口（ReferenceDataCache）、
+ * 提交者状态与是否已解出（一条投影查询），之后的可否提交判断、原因说明和持久化都使用它，不再重复查库。
+ * submitterId 为提交者用户ID（战队提交时为队长ID），为 null 表示用户或战队不存在。
+ */
+public record SubmissionContext(FlagVerifier.FlagTarget flag,
+                                boolean teamSubmission,
+                                Integer submitterId,
+                                Integer teamId,
+                                String teamAuditState,
+                                boolean alreadySolved,
+                                CompetitionSnapshot competition) {
+
+    public static final String ALLOWED = "可以提交";
+
+    public static SubmissionContext forUser(FlagVerifier.FlagTarget flag, Integer userId, boolean alreadySolved,
+                                            CompetitionSnapshot competition) {
+        return new SubmissionContext(flag, false, userId, null, null, alreadySolved, competition);
+    }
+
+    public static SubmissionContext forTeam(FlagVerifier.FlagTarget flag, Integer teamId, Integer captainId,
+                                            String auditState, boolean alreadySolved, CompetitionSnapshot competition) {
+        return new SubmissionContext(flag, true, captainId, teamId, auditState, alreadySolved, competition);
+    }
+
+    public boolean found() {
+        return flag != null && submitterId != null;
+    }
+
+    public boolean canSubmit() {
+        return restrictionReason() == null;
+    }
+
+    /**
+     * 不能提交的原因，可以提交时返回 null；判断顺序与原先的 getSubmitRestrictionReason 一致
+     */
+    public String restrictionReason() {
+        if (!found()) {
+            return teamSubmission ? "Flag或战队不存在" : "Flag或用户不存在";
+        }
+
+        // 检查Flag状态
+        if (!flag.canBeUsed()) {
+            if (Integer.valueOf(1).equals(flag.status())) {
+                return "Flag已被使用";
+            } else if (Integer.valueOf(2).equals(flag.status())) {
+                return "Flag已过期";
+            }
+        }
+
+        // 检查是否已经解答过该Flag
+        if (alreadySolved) {
+            return teamSubmission ? "战队已经解答过该Flag" : "您已经解答过该Flag";
+        }
+
+        // 检查竞赛状态
+        if (!isCompetitionOpen()) {
+            return "竞赛已结束或未开始";
+        }
+
+        // 检查战队审核状态
+        if (teamSubmission && !"APPROVED".equals(teamAuditState)) {
+            return "战队尚未通过审核";
+        }
+
+        // 状态正常但已过期
+        if (!flag.canBeUsed()) {
+            return "Flag已过期";
+        }
+
+        return null;
+    }
+
+    /**
+     * 竞赛进行中或即将开始（与 Competition.isOngoing() || isUpcoming() 一致）
+     */
+    private boolean isCompetitionOpen() {
+        return competition != null && (competition.isOngoing() || competition.isUpcoming());
+    }
+}
@@ -0,0 +1,283 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.config.RateLimitProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Flag 提交限流（令牌桶）
+ * 分别按用户、战队、IP 三个维度限流，任一维度令牌不足即拒绝，并把已扣除的其他维度令牌退回。
+ * 令牌桶状态为不可变对象，通过 CAS 更新，不加锁；桶按 "维度:竞赛:键" 存放在 ConcurrentHashMap 中，
+ * 后台线程定期回收长时间未访问的桶。
+ * 竞赛先从 FlagVerifier 的缓存中解析，不查库；缓存未命中时先按默认策略的非竞赛桶限流，
+ * 通过后才加载条目（提交流程随后本就需要它）并退回非竞赛桶的令牌，改按竞赛桶限流。
+ * 这样同一 Flag/题目无论缓存冷热都落在同一组竞赛桶上，而遍历不存在 ID 的请求（不会被缓存）
+ * 始终停留在非竞赛桶上，被拒绝前不会触发任何仓库调用。
+ */
+@Component
+public class SubmissionRateLimiter {
+
+    private static final long EVICT_INTERVAL_SECONDS = 60;
+
+    public enum Dimension {
+        USER, TEAM, IP
+    }
+
+    /**
+     * 限流结果，被拒绝时 retryAfterSeconds 为建议的重试等待秒数
+     */
+    public record Decision(boolean allowed, long retryAfterSeconds, Dimension throttledBy) {
+
+        static final Decision ALLOWED = new Decision(true, 0, null);
+    }
+
+    private final RateLimitProperties properties;
+    private final FlagVerifier flagVerifier;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Dimension, LongAdder> allowedCounters = new EnumMap<>(Dimension.class);
+    private final Map<Dimension, LongAdder> throttledCounters = new EnumMap<>(Dimension.class);
+    private final LongAdder evictedBuckets = new LongAdder();
+    private ScheduledExecutorService evictor;
+
+    public SubmissionRateLimiter(RateLimitProperties properties, FlagVerifier flagVerifier) {
+        this.properties = properties;
+        this.flagVerifier = flagVerifier;
+        for (Dimension dimension : Dimension.values()) {
+            allowedCounters.put(dimension, new LongAdder());
+            throttledCounters.put(dimension, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleBuckets,
+                EVICT_INTERVAL_SECONDS, EVICT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    /**
+     * Flag 提交限流（/api/flags/{flagId}/submit、/submit-team）
+     */
+    public Decision tryAcquireForFlag(Integer flagId, Integer userId, Integer teamId, String ipAddress) {
+        if (!properties.isEnabled()) {
+            return Decision.ALLOWED;
+        }
+        Optional<FlagVerifier.FlagTarget> cached = flagVerifier.peekFlag(flagId);
+        if (cached.isPresent()) {
+            return tryAcquire(cached.get().competitionId(), userId, teamId, ipAddress);
+        }
+        return tryAcquireUncached(() -> flagVerifier.flag(flagId)
+                .map(FlagVerifier.FlagTarget::competitionId)
+                .orElse(null), userId, teamId, ipAddress);
+    }
+
+    /**
+     * 题目 Flag 提交限流（/api/challenges/{challengeId}/submit）
+     */
+    public Decision tryAcquireForChallenge(Integer challengeId, Integer userId, String ipAddress) {
+        if (!properties.isEnabled()) {
+            return Decision.ALLOWED;
+        }
+        Optional<FlagVerifier.ChallengeTarget> cached = flagVerifier.peekChallenge(challengeId);
+        if (cached.isPresent()) {
+            return tryAcquire(cached.get().competitionId(), userId, null, ipAddress);
+        }
+        return tryAcquireUncached(() -> flagVerifier.challenge(challengeId)
+                .map(FlagVerifier.ChallengeTarget::competitionId)
+                .orElse(null), userId, null, ipAddress);
+    }
+
+    public Decision tryAcquire(Integer competitionId, Integer userId, Integer teamId, String ipAddress) {
+        if (!properties.isEnabled()) {
+            return Decision.ALLOWED;
+        }
+        List<Acquired> acquired = new ArrayList<>(3);
+        Decision decision = acquireAll(competitionId, userId, teamId, ipAddress, acquired);
+        if (decision.allowed()) {
+            countAllowed(acquired);
+        }
+        return decision;
+    }
+
+    /**
+     * 缓存未命中：非竞赛桶拒绝时直接返回，不查库；通过后解析竞赛，
+     * 解析不到（ID 不存在）就以非竞赛桶的结果为准，否则退回这些令牌改按竞赛桶限流
+     */
+    private Decision tryAcquireUncached(Supplier<Integer> competitionResolver,
+                                        Integer userId, Integer teamId, String ipAddress) {
+        List<Acquired> gate = new ArrayList<>(3);
+        Decision decision = acquireAll(null, userId, teamId, ipAddress, gate);
+        if (!decision.allowed()) {
+            return decision;
+        }
+        Integer competitionId = competitionResolver.get();
+        if (competitionId == null) {
+            countAllowed(gate);
+            return decision;
+        }
+        gate.forEach(entry -> entry.bucket().refund());
+        return tryAcquire(competitionId, userId, teamId, ipAddress);
+    }
+
+    /**
+     * 依次扣除用户、战队、IP 维度的令牌；任一维度不足时退回已扣除的令牌
+     */
+    private Decision acquireAll(Integer competitionId, Integer userId, Integer teamId, String ipAddress,
+                                List<Acquired> acquired) {
+        RateLimitProperties.Policy policy = properties.policyFor(competitionId);
+        long now = System.nanoTime();
+
+        Decision decision = acquire(Dimension.USER, competitionId, userId, policy.getUser(), now, acquired);
+        if (decision.allowed()) {
+            decision = acquire(Dimension.TEAM, competitionId, teamId, policy.getTeam(), now, acquired);
+        }
+        if (decision.allowed()) {
+            decision = acquire(Dimension.IP, competitionId, ipAddress, policy.getIp(), now, acquired);
+        }
+
+        if (!decision.allowed()) {
+            // 被拒绝的请求不消耗其他维度的令牌
+            acquired.forEach(entry -> entry.bucket().refund());
+            throttledCounters.get(decision.throttledBy()).increment();
+        }
+        return decision;
+    }
+
+    private void countAllowed(List<Acquired> acquired) {
+        acquired.forEach(entry -> allowedCounters.get(entry.dimension()).increment());
+    }
+
+    /**
+     * 限流统计
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Map<String, Long> allowed = new LinkedHashMap<>();
+        Map<String, Long> throttled = new LinkedHashMap<>();
+        long throttledTotal = 0;
+        for (Dimension dimension : Dimension.values()) {
+            String key = dimension.name().toLowerCase();
+            allowed.put(key, allowedCounters.get(dimension).sum());
+            long count = throttledCounters.get(dimension).sum();
+            throttled.put(key, count);
+            throttledTotal += count;
+        }
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("activeBuckets", buckets.size());
+        metrics.put("evictedBuckets", evictedBuckets.sum());
+        metrics.put("allowed", allowed);
+        metrics.put("throttled", throttled);
+        metrics.put("throttledTotal", throttledTotal);
+        return metrics;
+    }
+
+    private Decision acquire(Dimension dimension, Integer competitionId, Object key,
+                             RateLimitProperties.Limit limit, long now, List<Acquired> acquired) {
+        if (key == null || limit == null || limit.getCapacity() <= 0) {
+            return Decision.ALLOWED; // 未配置或无法识别的维度不限流
+        }
+        String bucketKey = dimension.name() + ":" + competitionId + ":" + key;
+        Bucket bucket = buckets.computeIfAbsent(bucketKey, k -> new Bucket(limit, now));
+        long waitNanos = bucket.tryConsume(limit, now);
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            return new Decision(false, retryAfter, dimension);
+        }
+        acquired.add(new Acquired(dimension, bucket));
+        return Decision.ALLOWED;
+    }
+
+    private void evictIdleBuckets() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleEvictSeconds());
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> {
+            boolean idle = now - entry.getValue().lastAccessNanos > idleNanos;
+            if (idle) {
+                evictedBuckets.increment();
+            }
+            return idle;
+        });
+    }
+
+    private record Acquired(Dimension dimension, Bucket bucket) {
+    }
+
+    /**
+     * 令牌桶，state 每次更新都替换为新对象，通过 compareAndSet 保证并发正确
+     */
+    private static final class Bucket {
+
+        private record State(double tokens, long refillNanos) {
+        }
+
+        private final AtomicReference<State> state;
+        private volatile int capacity;
+        private volatile long lastAccessNanos;
+
+        Bucket(RateLimitProperties.Limit limit, long now) {
+            this.state = new AtomicReference<>(new State(limit.getCapacity(), now));
+            this.capacity = limit.getCapacity();
+            this.lastAccessNanos = now;
+        }
+
+        /**
+         * 尝试扣除一个令牌，成功返回 0，否则返回需要等待的纳秒数
+         */
+        long tryConsume(RateLimitProperties.Limit limit, long now) {
+            lastAccessNanos = now;
+            capacity = limit.getCapacity();
+            double refillPerNano = limit.getRefillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+            while (true) {
+                State current = state.get();
+                long elapsed = Math.max(0, now - current.refillNanos());
+                double tokens = Math.min(capacity, current.tokens() + elapsed * refillPerNano);
+                if (tokens < 1) {
+                    if (refillPerNano <= 0) {
+                        return Long.MAX_VALUE / 2;
+                    }
+                    return (long) Math.ceil((1 - tokens) / refillPerNano);
+                }
+                State next = new State(tokens - 1, Math.max(now, current.refillNanos()));
+                if (state.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        void refund() {
+            while (true) {
+                State current = state.get();
+                State next = new State(Math.min(capacity, current.tokens() + 1), current.refillNanos());
+                if (state.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.CTF.j_ctf.support;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程钉住（pinning）诊断
+ * 虚拟线程在 synchronized 块内或本地方法中阻塞时无法从载体线程卸载，会占住载体线程，
+ * 载体线程数等于 CPU 核数，被钉住的多了整个请求处理就会退化成串行。
+ * 这里通过 JFR 的 jdk.VirtualThreadPinned 事件在进程内持续监听，超过阈值的事件按栈顶的业务代码位置归并计数，
+ * 并打印一次告警日志，便于定位需要改为 ReentrantLock 或移出锁外的代码路径。
+ * 默认只在 ctf.threads.mode=virtual 时开启。
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.CTF.";
+    private static final int MAX_SITES = 200;
+    private static final int LOGGED_FRAMES = 8;
+
+    private final String mode;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Map<String, LongAdder> sites = new LinkedHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final LongAccumulator maxPinnedNanos = new LongAccumulator(Math::max, 0);
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${ctf.threads.mode:platform}") String mode,
+                                       @Value("${ctf.threads.pinning-monitor.enabled:}") String enabled,
+                                       @Value("${ctf.threads.pinning-monitor.threshold-ms:20}") long thresholdMs) {
+        this.mode = mode;
+        this.enabled = enabled.isBlank() ? "virtual".equalsIgnoreCase(mode) : Boolean.parseBoolean(enabled);
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::record);
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            // JFR 不可用（例如被 JVM 参数禁用）时只记录日志，不影响启动
+            log.warn("无法启动虚拟线程钉住监听: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long events = pinnedEvents.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threadMode", mode);
+        metrics.put("enabled", enabled);
+        metrics.put("running", stream != null);
+        metrics.put("thresholdMs", threshold.toMillis());
+        metrics.put("pinnedEvents", events);
+        metrics.put("avgPinnedMs", events == 0 ? 0.0 : pinnedNanos.sum() / 1_000_000.0 / events);
+        metrics.put("maxPinnedMs", maxPinnedNanos.get() / 1_000_000.0);
+        metrics.put("sites", topSites());
+        return metrics;
+    }
+
+    private void record(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        pinnedEvents.increment();
+        pinnedNanos.add(nanos);
+        maxPinnedNanos.accumulate(nanos);
+
+        List<RecordedFrame> frames = event.getStackTrace() == null
+                ? List.of() : event.getStackTrace().getFrames();
+        String site = applicationSite(frames);
+        boolean firstSeen;
+        synchronized (sites) {
+            LongAdder counter = sites.get(site);
+            // 位置数达到上限后新位置只计入总数，也不再打印日志
+            firstSeen = counter == null && sites.size() < MAX_SITES;
+            if (firstSeen) {
+                counter = new LongAdder();
+                sites.put(site, counter);
+            }
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+        if (firstSeen) {
+            log.warn("虚拟线程被钉住 {}ms，位置: {}\n{}", nanos / 1_000_000, site, describe(event.getStackTrace()));
+        }
+    }
+
+    /**
+     * 栈中第一帧业务代码作为归并键；没有业务代码时取栈顶
+     */
+    private static String applicationSite(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return format(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : format(frames.get(0));
+    }
+
+    private static String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "    at " + format(frame))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    private Map<String, Long> topSites() {
+        Map<String, Long> snapshot;
+        synchronized (sites) {
+            snapshot = sites.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+        }
+        if (snapshot.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return snapshot.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(20)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,103 @@
+package com.CTF.j_ctf;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * 测试用 SQL 语句计数
+ * 把容器中的 DataSource 包装一层，记录每次 prepareStatement / prepareCall / createStatement 的线程和 SQL，
+ * 测试通过 @Import(StatementCounter.class) 引入，用 reset() 清零后断言某段代码发出的语句数。
+ * JDBC 批量执行只准备一次语句，按一条计。
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class StatementCounter {
+
+    /**
+     * 一次语句准备：所在线程与 SQL（createStatement 没有 SQL，记为 null）
+     */
+    public record Statement(long threadId, String sql) {
+    }
+
+    private static final Queue<Statement> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    public static void reset() {
+        STATEMENTS.clear();
+    }
+
+    /**
+     * 当前线程在 reset() 之后准备的语句
+     */
+    public static List<String> onCurrentThread() {
+        long threadId = Thread.currentThread().threadId();
+        return STATEMENTS.stream()
+                .filter(statement -> statement.threadId() == threadId)
+                .map(Statement::sql)
+                .toList();
+    }
+
+    /**
+     * 所有线程在 reset() 之后准备的、SQL 满足条件的语句数
+     */
+    public static long count(Predicate<String> sql) {
+        return STATEMENTS.stream().filter(statement -> statement.sql() != null && sql.test(statement.sql())).count();
+    }
+
+    private static DataSource wrap(DataSource target) {
+        return proxy(DataSource.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection connection && method.getName().equals("getConnection")
+                    ? wrap(connection) : result;
+        });
+    }
+
+    private static Connection wrap(Connection target) {
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall" -> record((String) args[0]);
+                case "createStatement" -> record(null);
+                default -> {
+                }
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private static void record(String sql) {
+        STATEMENTS.add(new Statement(Thread.currentThread().threadId(), sql));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,96 @@
+package com.CTF.j_ctf;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试数据：绕过 Service 直接写表，名称带递增序号，多个测试类共用同一个 Spring 上下文时不会冲突
+ */
+public final class TestData {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final JdbcTemplate jdbc;
+
+    public TestData(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public int user() {
+        int n = SEQUENCE.incrementAndGet();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return insert("INSERT INTO User (userPassword, CreateTime, UserType, UserName, PhoneNumber, userEmail, " +
+                        "RegisterTime, UserStatus) VALUES (?, ?, 'ORDINARY', ?, ?, ?, ?, 1)",
+                "hash", now, "testuser" + n, String.format("138%08d", n), "testuser" + n + "@example.com", now);
+    }
+
+    /**
+     * 进行中的竞赛（开始于一天前，一天后结束）
+     */
+    public int competition(int creatorId) {
+        LocalDateTime now = LocalDateTime.now();
+        return insert("INSERT INTO Competition (userID, Title, Introduction, TeamSizeLimit, StartTime, EndTime, PublishTime, " +
+                        "Status, AuditStatus, IsPublic) VALUES (?, ?, '测试数据', 5, ?, ?, ?, 'PUBLISHED', 'APPROVED', 1)",
+                creatorId, "testcompetition" + SEQUENCE.incrementAndGet(), Timestamp.valueOf(now.minusDays(1)),
+                Timestamp.valueOf(now.plusDays(1)), Timestamp.valueOf(now.minusDays(2)));
+    }
+
+    /**
+     * 已审核通过的战队，队长同时登记为成员
+     */
+    public int team(int competitionId, int captainId) {
+        int teamId = insert("INSERT INTO Team (CompetitionID, TeamName, CreationTime, AuditState, CaptainID) " +
+                        "VALUES (?, ?, ?, '1', ?)",
+                competitionId, "testteam" + SEQUENCE.incrementAndGet(), Timestamp.valueOf(LocalDateTime.now()), captainId);
+        member(teamId, captainId);
+        return teamId;
+    }
+
+    public void member(int teamId, int userId) {
+        jdbc.update("INSERT INTO Teammember (TeamID, userID, JoinTime) VALUES (?, ?, ?)",
+                teamId, userId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public int challenge(int competitionId, int creatorId, String flag, int points) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return insert("INSERT INTO Challenge (CompetitionID, Title, Description, Category, Difficulty, Points, Flag, IsActive, " +
+                        "CreateTime, UpdateTime, SolveCount, CreatorID) VALUES (?, ?, '测试题目', 'Web', 'Easy', ?, ?, 1, ?, ?, 0, ?)",
+                competitionId, "testchallenge" + SEQUENCE.incrementAndGet(), points, flag, now, now, creatorId);
+    }
+
+    /**
+     * 未使用的个人 Flag，一天后过期
+     */
+    public int flag(int creatorId, int competitionId, int challengeId, String value, int points) {
+        LocalDateTime now = LocalDateTime.now();
+        return insert("INSERT INTO Flag (userID, CompetitionID, ChallengeID, Value, Status, CreateTime, ExpireTime, Points, Type) " +
+                        "VALUES (?, ?, ?, ?, 0, ?, ?, ?, 'STATIC')",
+                creatorId, competitionId, challengeId, value, Timestamp.valueOf(now), Timestamp.valueOf(now.plusDays(1)), points);
+    }
+
+    public int count(String sql, Object... args) {
+        Integer count = jdbc.queryForObject(sql, Integer.class, args);
+        return count != null ? count : 0;
+    }
+
+    private int insert(String sql, Object... args) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        PreparedStatementCreator creator = con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        };
+        jdbc.update(creator, keys);
+        return keys.getKey().intValue();
+    }
+}
@@ -0,0 +1,174 @@
+package com.CTF.j_ctf.service;
+
+import com.CTF.j_ctf.TestData;
+import com.CTF.j_ctf.entity.FlagSubmission;
+import com.CTF.j_ctf.event.SubmissionJudgedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发正确提交：解题登记由 ChallengeSolve 主键去重，一血由条件更新抢占
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class FirstBloodConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final String FLAG = "CTF{first_blood}";
+
+    /**
+     * 在发布线程上同步收集判定事件
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class JudgedEvents {
+
+        final Queue<SubmissionJudgedEvent> events = new ConcurrentLinkedQueue<>();
+
+        @EventListener
+        void onJudged(SubmissionJudgedEvent event) {
+            events.add(event);
+        }
+    }
+
+    @Autowired
+    private ChallengeService challengeService;
+
+    @Autowired
+    private JudgedEvents judgedEvents;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private TestData data;
+    private int competitionId;
+    private int challengeId;
+    private int teamId;
+
+    @BeforeEach
+    void seed() {
+        data = new TestData(jdbc);
+        int creatorId = data.user();
+        competitionId = data.competition(creatorId);
+        challengeId = data.challenge(competitionId, creatorId, FLAG, 100);
+        teamId = data.team(competitionId, data.user());
+        judgedEvents.events.clear();
+    }
+
+    @Test
+    void parallelSolvesByDifferentUsersClaimFirstBloodOnce() throws Exception {
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int userId = data.user();
+            data.member(teamId, userId);
+            userIds.add(userId);
+        }
+
+        List<Future<Object>> results = runConcurrently(userIds);
+        for (Future<Object> result : results) {
+            assertTrue(result.get() instanceof FlagSubmission, () -> "提交失败: " + result);
+        }
+
+        assertEquals(THREADS, data.count("SELECT COUNT(*) FROM ChallengeSolve WHERE ChallengeID = ?", challengeId));
+        assertEquals(THREADS, data.count("SELECT SolveCount FROM Challenge WHERE ChallengeID = ?", challengeId));
+        Integer firstBloodUserId = jdbc.queryForObject("SELECT FirstBloodUserID FROM Challenge WHERE ChallengeID = ?",
+                Integer.class, challengeId);
+        assertNotNull(firstBloodUserId);
+
+        List<SubmissionJudgedEvent> firstBloods = judgedEvents.events.stream()
+                .filter(event -> Integer.valueOf(challengeId).equals(event.challengeId()) && event.firstBlood())
+                .toList();
+        assertEquals(1, firstBloods.size(), "只有一个提交抢到一血");
+        assertEquals(firstBloodUserId, firstBloods.get(0).userId());
+    }
+
+    @Test
+    void parallelSolvesBySameUserRegisterOnce() throws Exception {
+        int userId = data.user();
+        data.member(teamId, userId);
+
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            userIds.add(userId);
+        }
+
+        int succeeded = 0;
+        for (Future<Object> result : runConcurrently(userIds)) {
+            Object outcome = result.get();
+            if (outcome instanceof FlagSubmission) {
+                succeeded++;
+            } else {
+                assertTrue(outcome instanceof RuntimeException, () -> "未预期的结果: " + outcome);
+            }
+        }
+
+        assertEquals(1, succeeded, "同一用户的并发正确提交只有一个成功");
+        assertEquals(1, data.count("SELECT COUNT(*) FROM ChallengeSolve WHERE ChallengeID = ?", challengeId));
+        assertEquals(1, data.count("SELECT SolveCount FROM Challenge WHERE ChallengeID = ?", challengeId));
+        assertEquals(1, data.count("SELECT COUNT(*) FROM Score WHERE userID = ? AND CompetitionID = ?", userId, competitionId));
+        assertEquals(Integer.valueOf(userId), jdbc.queryForObject("SELECT FirstBloodUserID FROM Challenge WHERE ChallengeID = ?",
+                Integer.class, challengeId));
+        assertEquals(1, judgedEvents.events.stream()
+                .filter(event -> Integer.valueOf(challengeId).equals(event.challengeId()) && event.firstBlood())
+                .count());
+    }
+
+    /**
+     * 所有线程就绪后同时提交正确 Flag；每个结果是保存的提交记录或抛出的异常
+     */
+    private List<Future<Object>> runConcurrently(List<Integer> userIds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(userIds.size());
+        CountDownLatch ready = new CountDownLatch(userIds.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (Integer userId : userIds) {
+            tasks.add(() -> {
+                ready.countDown();
+                start.await();
+                try {
+                    return challengeService.submitFlag(challengeId, userId, FLAG, "127.0.0.1");
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            });
+        }
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Callable<Object> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            ready.await();
+            start.countDown();
+            for (Future<Object> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError("并发提交未在 30 秒内完成", e);
+                }
+            }
+            return futures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
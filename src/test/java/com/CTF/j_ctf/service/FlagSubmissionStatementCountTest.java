@@ -0,0 +1,100 @@
+package com.CTF.j_ctf.service;
+
+import com.CTF.j_ctf.StatementCounter;
+import com.CTF.j_ctf.TestData;
+import com.CTF.j_ctf.entity.FlagSubmission;
+import com.CTF.j_ctf.support.SubmissionAuditWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 提交流程的语句数：校验上下文每次提交只查一次库，错误答案由 SubmissionAuditWriter 批量落库
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(StatementCounter.class)
+class FlagSubmissionStatementCountTest {
+
+    private static final int SUBMISSIONS = 20;
+    private static final String FLAG_VALUE = "CTF{statement_count}";
+
+    @Autowired
+    private FlagService flagService;
+
+    @Autowired
+    private SubmissionAuditWriter submissionAuditWriter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private TestData data;
+    private int userId;
+    private int flagId;
+
+    @BeforeEach
+    void seed() {
+        data = new TestData(jdbc);
+        int creatorId = data.user();
+        userId = data.user();
+        int competitionId = data.competition(creatorId);
+        data.team(competitionId, userId);
+        int challengeId = data.challenge(competitionId, creatorId, "CTF{challenge}", 100);
+        flagId = data.flag(creatorId, competitionId, challengeId, FLAG_VALUE, 100);
+
+        // 预热：Flag 校验条目与竞赛参考数据进入缓存
+        flagService.submitFlag(flagId, userId, "CTF{warmup}", "127.0.0.1", "test");
+    }
+
+    @Test
+    void incorrectSubmissionIssuesOneQueryAndIsWrittenInBatches() throws InterruptedException {
+        long writtenBefore = submissionAuditWriter.getWrittenCount();
+        awaitWritten(writtenBefore, submissionAuditWriter.getEnqueuedCount() - writtenBefore);
+        writtenBefore = submissionAuditWriter.getWrittenCount();
+
+        StatementCounter.reset();
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            FlagSubmission submission = flagService.submitFlag(flagId, userId, "CTF{wrong_" + i + "}", "127.0.0.1", "test");
+            assertFalse(submission.getIsCorrect());
+        }
+        List<String> statements = StatementCounter.onCurrentThread();
+        assertEquals(SUBMISSIONS, statements.size(), () -> "每次错误提交只查询一次提交者状态: " + statements);
+
+        awaitWritten(writtenBefore, SUBMISSIONS);
+        long inserts = StatementCounter.count(sql -> sql.startsWith("INSERT INTO Flagsubmission"));
+        assertTrue(inserts >= 1 && inserts <= 3, "错误提交按批写入，实际 INSERT 语句数: " + inserts);
+    }
+
+    /**
+     * 提交者状态、Flag 实体、抢占 Flag、写 Score、累加汇总行、抢占一血、写提交记录，共 7 条
+     */
+    @Test
+    void correctSubmissionIssuesFixedStatementCount() {
+        StatementCounter.reset();
+        FlagSubmission submission = flagService.submitFlag(flagId, userId, FLAG_VALUE, "127.0.0.1", "test");
+        assertTrue(submission.getIsCorrect());
+
+        List<String> statements = StatementCounter.onCurrentThread();
+        assertEquals(7, statements.size(), () -> "正确提交的语句: " + statements);
+        assertEquals(1, data.count("SELECT COUNT(*) FROM Score WHERE userID = ?", userId));
+    }
+
+    private void awaitWritten(long before, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (submissionAuditWriter.getWrittenCount() - before < expected) {
+            assertTrue(System.nanoTime() < deadline, "提交记录未在 10 秒内写入");
+            Thread.sleep(20);
+        }
+    }
+}
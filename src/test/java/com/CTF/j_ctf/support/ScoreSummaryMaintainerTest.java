@@ -0,0 +1,131 @@
+package com.CTF.j_ctf.support;
+
+import com.CTF.j_ctf.StatementCounter;
+import com.CTF.j_ctf.TestData;
+import com.CTF.j_ctf.entity.ScoreSummary;
+import com.CTF.j_ctf.event.ScoreRecordedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(StatementCounter.class)
+class ScoreSummaryMaintainerTest {
+
+    @Autowired
+    private ScoreSummaryMaintainer maintainer;
+
+    @Autowired
+    private ScoreLedgerWriter ledgerWriter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private TestData data;
+    private int userId;
+    private int competitionId;
+    private int teamId;
+    private int challengeId;
+
+    @BeforeEach
+    void seed() {
+        data = new TestData(jdbc);
+        userId = data.user();
+        competitionId = data.competition(userId);
+        teamId = data.team(competitionId, userId);
+        challengeId = data.challenge(competitionId, userId, "CTF{summary}", 100);
+    }
+
+    @Test
+    void scoreRecordedIssuesOneStatementPerSummaryRow() {
+        ScoreRecordedEvent first = recordScore(100);
+        StatementCounter.reset();
+        maintainer.onScoreRecorded(first);
+        assertEquals(2, StatementCounter.onCurrentThread().size(), "用户行、战队行各一条 upsert，不单独查询是否首解");
+
+        Map<String, Object> user = summary("USER", userId);
+        assertEquals(100, user.get("TotalScore"));
+        assertEquals(1, user.get("SolveCount"));
+        Map<String, Object> team = summary("TEAM", teamId);
+        assertEquals(100, team.get("TotalScore"));
+        assertEquals(1, team.get("SolveCount"));
+
+        // 同一题目的第二条有效分数只累加分数，不重复计解题数
+        ScoreRecordedEvent second = recordScore(50);
+        StatementCounter.reset();
+        maintainer.onScoreRecorded(second);
+        assertEquals(2, StatementCounter.onCurrentThread().size());
+
+        user = summary("USER", userId);
+        assertEquals(150, user.get("TotalScore"));
+        assertEquals(1, user.get("SolveCount"));
+        team = summary("TEAM", teamId);
+        assertEquals(150, team.get("TotalScore"));
+        assertEquals(1, team.get("SolveCount"));
+    }
+
+    @Test
+    void teamDistributionIssuesOneBatchAndOneTeamUpsert() {
+        for (int i = 0; i < 9; i++) {
+            data.member(teamId, data.user());
+        }
+
+        StatementCounter.reset();
+        List<ScoreRecordedEvent> scores = ledgerWriter.writeTeamScores(
+                new ScoreLedgerWriter.TeamScore(teamId, competitionId, challengeId, null, 100, "FLAG_SUBMISSION", null));
+        List<String> statements = StatementCounter.onCurrentThread();
+        assertEquals(10, scores.size());
+        assertEquals(4, statements.size(), () -> "成员ID查询、批量插入 Score、成员行批量 upsert、战队行 upsert: " + statements);
+
+        Map<String, Object> team = summary("TEAM", teamId);
+        assertEquals(1000, team.get("TotalScore"));
+        assertEquals(1, team.get("SolveCount"), "整批成员分数只计一次战队解题");
+        for (ScoreRecordedEvent score : scores) {
+            Map<String, Object> user = summary("USER", score.userId());
+            assertEquals(100, user.get("TotalScore"));
+            assertEquals(1, user.get("SolveCount"));
+        }
+        assertEquals(0, maintainer.reconcile(competitionId), "批量增量与按 Score 表聚合的结果一致");
+    }
+
+    @Test
+    void reconcileCorrectsDriftedRows() {
+        maintainer.onScoreRecorded(recordScore(100));
+        jdbc.update("UPDATE Scoresummary SET TotalScore = 7, SolveCount = 3 WHERE ID = ?",
+                ScoreSummary.idOf("USER", userId, competitionId));
+
+        assertTrue(maintainer.reconcile(competitionId) >= 1);
+
+        Map<String, Object> user = summary("USER", userId);
+        assertEquals(100, user.get("TotalScore"));
+        assertEquals(1, user.get("SolveCount"));
+        assertEquals(0, maintainer.reconcile(competitionId), "对账后再次对账没有差异");
+    }
+
+    private ScoreRecordedEvent recordScore(int points) {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        jdbc.update("INSERT INTO Score (userID, CompetitionID, TeamID, ChallengeID, Score, CreateTime, Type, IsValid) " +
+                "VALUES (?, ?, ?, ?, ?, ?, 'FLAG_SUBMISSION', 1)", userId, competitionId, teamId, challengeId, points,
+                Timestamp.valueOf(now));
+        Integer changeId = jdbc.queryForObject("SELECT MAX(ChangeID) FROM Score", Integer.class);
+        return new ScoreRecordedEvent(changeId, competitionId, userId, teamId, challengeId, points, now);
+    }
+
+    private Map<String, Object> summary(String entityType, int entityId) {
+        return jdbc.queryForMap("SELECT TotalScore, SolveCount FROM Scoresummary WHERE ID = ?",
+                ScoreSummary.idOf(entityType, entityId, competitionId));
+    }
+}